@@ -0,0 +1,41 @@
+package add.benchmark;
+
+import add.main.Config;
+import add.main.LauncherMode;
+
+import java.io.File;
+
+/**
+ * Locates the patches bundled in src/test/resources/patches of the main project.
+ * The directory can be overridden with -Dadd.patches=/path/to/patches.
+ */
+public class BenchmarkPatches {
+
+    public static final String PATCHES_PROPERTY = "add.patches";
+    public static final String DEFAULT_PATCHES_PATH = "../src/test/resources/patches";
+
+    public static File getPatchesDirectory() {
+        File patchesDirectory = new File(System.getProperty(PATCHES_PROPERTY, DEFAULT_PATCHES_PATH));
+        if (!patchesDirectory.isDirectory()) {
+            throw new IllegalStateException("Patch directory not found: " + patchesDirectory.getAbsolutePath() +
+                    " (set -D" + PATCHES_PROPERTY + "=<path>)");
+        }
+        return patchesDirectory;
+    }
+
+    public static Config setupConfig(String bugId) {
+        return setupConfig(getPatchesDirectory(), bugId);
+    }
+
+    public static Config setupConfig(File patchesDirectory, String bugId) {
+        File patchDirectory = new File(patchesDirectory, bugId);
+
+        Config config = new Config();
+        config.setLauncherMode(LauncherMode.ALL);
+        config.setBugId(bugId);
+        config.setBuggySourceDirectoryPath(new File(patchDirectory, "buggy-version").getAbsolutePath());
+        config.setDiffPath(new File(patchDirectory, "path.diff").getAbsolutePath());
+        return config;
+    }
+
+}
@@ -0,0 +1,237 @@
+package add.benchmark;
+
+import add.entities.FeatureList;
+import add.main.Config;
+import add.main.Launcher;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Switch;
+import org.json.JSONObject;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Runs the whole pipeline (ALL mode) on every bundled patch and compares throughput, latency, memory and
+ * the extracted features against a stored baseline. The features are checked against the expected outputs
+ * in src/test/resources/vem_2018_results: a run fails when it is slower than the baseline by more than the
+ * threshold, or when a patch fails or disagrees with the expected output while it did not in the baseline.
+ */
+public class CorpusBenchmark {
+
+    public static final String DEFAULT_EXPECTED_PATH = "../src/test/resources/vem_2018_results";
+    public static final String DEFAULT_BASELINE_PATH = "baseline.json";
+
+    private final File patchesDirectory;
+    private final File expectedDirectory;
+
+    public CorpusBenchmark(File patchesDirectory, File expectedDirectory) {
+        this.patchesDirectory = patchesDirectory;
+        this.expectedDirectory = expectedDirectory;
+    }
+
+    public CorpusReport run(int warmupPatches) {
+        File[] patches = this.patchesDirectory.listFiles(File::isDirectory);
+        if (patches == null) {
+            throw new IllegalStateException("Patch directory not found: " + this.patchesDirectory.getAbsolutePath());
+        }
+        Arrays.sort(patches);
+
+        for (int i = 0; i < warmupPatches && i < patches.length; i++) {
+            this.analyze(patches[i].getName());
+        }
+
+        CorpusReport report = new CorpusReport();
+        long[] latencies = new long[patches.length];
+        long gcStart = getGcMillis();
+        long start = System.nanoTime();
+        for (int i = 0; i < patches.length; i++) {
+            String bugId = patches[i].getName();
+            long patchStart = System.nanoTime();
+            FeatureList features = this.analyze(bugId);
+            latencies[i] = System.nanoTime() - patchStart;
+            if (features == null) {
+                report.addFailure(bugId);
+            } else {
+                this.compareWithExpectedOutput(bugId, features, report);
+            }
+        }
+        report.setLatencies(latencies, System.nanoTime() - start);
+        report.setGcMillis(getGcMillis() - gcStart);
+        report.setPeakRssKb(getPeakRssKb());
+        return report;
+    }
+
+    private FeatureList analyze(String bugId) {
+        Config config = BenchmarkPatches.setupConfig(this.patchesDirectory, bugId);
+        try {
+            return Launcher.extractFeatures(config);
+        } catch (Exception | StackOverflowError e) {
+            System.err.println(bugId + ": " + e);
+            return null;
+        }
+    }
+
+    private void compareWithExpectedOutput(String bugId, FeatureList features, CorpusReport report) {
+        File expectedFile = new File(this.expectedDirectory, bugId + "_all.json");
+        if (!expectedFile.exists()) {
+            return;
+        }
+        JSONObject expected;
+        try {
+            expected = new JSONObject(new String(Files.readAllBytes(expectedFile.toPath()), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read " + expectedFile, e);
+        }
+        JSONObject actual = features.toJson();
+        for (String group : expected.keySet()) {
+            if (!(expected.get(group) instanceof JSONObject) || !actual.has(group)) {
+                continue;
+            }
+            JSONObject expectedGroup = expected.getJSONObject(group);
+            JSONObject actualGroup = actual.getJSONObject(group);
+            for (String feature : expectedGroup.keySet()) {
+                // feature names that changed since the expected outputs were produced are not compared
+                if (actualGroup.has(feature) && actualGroup.getInt(feature) != expectedGroup.getInt(feature)) {
+                    report.addFeatureMismatch(bugId + "/" + group + "." + feature);
+                }
+            }
+        }
+    }
+
+    private static long getGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    /**
+     * Peak resident set size of this JVM, read from /proc (Linux only, -1 elsewhere).
+     */
+    private static long getPeakRssKb() {
+        File status = new File("/proc/self/status");
+        if (!status.exists()) {
+            return -1;
+        }
+        try {
+            for (String line : Files.readAllLines(status.toPath())) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.substring("VmHWM:".length()).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+        return -1;
+    }
+
+    private static JSAP initJSAP() throws JSAPException {
+        JSAP jsap = new JSAP();
+
+        FlaggedOption opt = new FlaggedOption("patches");
+        opt.setLongFlag("patches");
+        opt.setDefault(System.getProperty(BenchmarkPatches.PATCHES_PROPERTY, BenchmarkPatches.DEFAULT_PATCHES_PATH));
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Provide the path to the patch corpus (one folder per patch with path.diff and buggy-version).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("expected");
+        opt.setLongFlag("expected");
+        opt.setDefault(DEFAULT_EXPECTED_PATH);
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Provide the path to the expected outputs (<bugId>_all.json).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("baseline");
+        opt.setLongFlag("baseline");
+        opt.setDefault(DEFAULT_BASELINE_PATH);
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Provide the path to the baseline JSON file.");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("threshold");
+        opt.setLongFlag("threshold");
+        opt.setDefault("0.10");
+        opt.setStringParser(JSAP.DOUBLE_PARSER);
+        opt.setHelp("Provide the accepted throughput loss compared to the baseline (0.10 is 10%).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("warmup");
+        opt.setLongFlag("warmup");
+        opt.setDefault("0");
+        opt.setStringParser(JSAP.INTEGER_PARSER);
+        opt.setHelp("Provide the number of patches analyzed before measuring.");
+        jsap.registerParameter(opt);
+
+        Switch sw = new Switch("updateBaseline");
+        sw.setLongFlag("updateBaseline");
+        sw.setHelp("Store the result of this run as the new baseline.");
+        jsap.registerParameter(sw);
+
+        return jsap;
+    }
+
+    public static void main(String[] args) throws Exception {
+        JSAP jsap = initJSAP();
+        JSAPResult arguments = jsap.parse(args);
+        if (!arguments.success()) {
+            for (Iterator<?> errs = arguments.getErrorMessageIterator(); errs.hasNext(); ) {
+                System.err.println("Error: " + errs.next());
+            }
+            System.err.println("Usage: java -cp benchmarks.jar " + CorpusBenchmark.class.getName() + " " + jsap.getUsage());
+            System.err.println(jsap.getHelp());
+            System.exit(-1);
+        }
+
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        CorpusBenchmark benchmark = new CorpusBenchmark(new File(arguments.getString("patches")), new File(arguments.getString("expected")));
+        CorpusReport report = benchmark.run(arguments.getInt("warmup"));
+
+        File baselineFile = new File(arguments.getString("baseline"));
+        CorpusReport baseline = null;
+        if (baselineFile.exists()) {
+            baseline = CorpusReport.fromJson(new JSONObject(new String(Files.readAllBytes(baselineFile.toPath()), StandardCharsets.UTF_8)));
+        }
+
+        System.out.println();
+        System.out.println(report.toText(baseline));
+
+        if (arguments.getBoolean("updateBaseline")) {
+            Files.write(baselineFile.toPath(), report.toJson().toString(4).getBytes(StandardCharsets.UTF_8));
+            System.out.println("Baseline written to " + baselineFile.getAbsolutePath());
+            return;
+        }
+        if (baseline == null) {
+            System.out.println("No baseline found at " + baselineFile.getAbsolutePath() + " (use --updateBaseline to create it).");
+            return;
+        }
+
+        List<String> regressions = new ArrayList<>(report.findRegressions(baseline, arguments.getDouble("threshold")));
+        if (regressions.isEmpty()) {
+            System.out.println("No regression compared to the baseline.");
+            return;
+        }
+        System.out.println("REGRESSION compared to " + baselineFile.getAbsolutePath() + ":");
+        for (String regression : regressions) {
+            System.out.println("  - " + regression);
+        }
+        System.exit(1);
+    }
+
+}
@@ -0,0 +1,161 @@
+package add.benchmark;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Result of one end-to-end run over the patch corpus, and its comparison against a baseline run.
+ */
+public class CorpusReport {
+
+    private int nbPatches;
+    private double totalSeconds;
+    private double patchesPerSecond;
+    private double p50Millis;
+    private double p95Millis;
+    private double p99Millis;
+    private long peakRssKb;
+    private long gcMillis;
+    private Set<String> failures = new TreeSet<>();
+    private Set<String> featureMismatches = new TreeSet<>();
+
+    public CorpusReport() {
+    }
+
+    public void setLatencies(long[] latenciesNanos, long totalNanos) {
+        long[] sorted = Arrays.copyOf(latenciesNanos, latenciesNanos.length);
+        Arrays.sort(sorted);
+        this.nbPatches = sorted.length;
+        this.totalSeconds = totalNanos / 1e9;
+        this.patchesPerSecond = this.totalSeconds > 0 ? this.nbPatches / this.totalSeconds : 0;
+        this.p50Millis = percentile(sorted, 50) / 1e6;
+        this.p95Millis = percentile(sorted, 95) / 1e6;
+        this.p99Millis = percentile(sorted, 99) / 1e6;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    public void setPeakRssKb(long peakRssKb) {
+        this.peakRssKb = peakRssKb;
+    }
+
+    public void setGcMillis(long gcMillis) {
+        this.gcMillis = gcMillis;
+    }
+
+    public void addFailure(String bugId) {
+        this.failures.add(bugId);
+    }
+
+    public void addFeatureMismatch(String mismatch) {
+        this.featureMismatches.add(mismatch);
+    }
+
+    public double getPatchesPerSecond() {
+        return patchesPerSecond;
+    }
+
+    public Set<String> getFailures() {
+        return failures;
+    }
+
+    public Set<String> getFeatureMismatches() {
+        return featureMismatches;
+    }
+
+    /**
+     * Returns the reasons why this run is a regression compared to the baseline (empty if it is not).
+     */
+    public List<String> findRegressions(CorpusReport baseline, double threshold) {
+        List<String> regressions = new ArrayList<>();
+        double minimumThroughput = baseline.patchesPerSecond * (1 - threshold);
+        if (this.patchesPerSecond < minimumThroughput) {
+            regressions.add(String.format("Throughput regressed: %.3f patches/s, baseline %.3f patches/s (minimum allowed %.3f with threshold %.0f%%)",
+                    this.patchesPerSecond, baseline.patchesPerSecond, minimumThroughput, threshold * 100));
+        }
+        for (String failure : this.failures) {
+            if (!baseline.failures.contains(failure)) {
+                regressions.add("New failure: " + failure);
+            }
+        }
+        for (String mismatch : this.featureMismatches) {
+            if (!baseline.featureMismatches.contains(mismatch)) {
+                regressions.add("New feature mismatch with the expected output: " + mismatch);
+            }
+        }
+        return regressions;
+    }
+
+    public String toText(CorpusReport baseline) {
+        StringBuilder output = new StringBuilder();
+        output.append(String.format("%-22s %12s %12s%n", "", "current", "baseline"));
+        appendLine(output, "patches", this.nbPatches, baseline == null ? null : (double) baseline.nbPatches, "%12.0f");
+        appendLine(output, "total time (s)", this.totalSeconds, baseline == null ? null : baseline.totalSeconds, "%12.2f");
+        appendLine(output, "throughput (patches/s)", this.patchesPerSecond, baseline == null ? null : baseline.patchesPerSecond, "%12.3f");
+        appendLine(output, "p50 latency (ms)", this.p50Millis, baseline == null ? null : baseline.p50Millis, "%12.1f");
+        appendLine(output, "p95 latency (ms)", this.p95Millis, baseline == null ? null : baseline.p95Millis, "%12.1f");
+        appendLine(output, "p99 latency (ms)", this.p99Millis, baseline == null ? null : baseline.p99Millis, "%12.1f");
+        appendLine(output, "peak RSS (MB)", this.peakRssKb / 1024.0, baseline == null ? null : baseline.peakRssKb / 1024.0, "%12.1f");
+        appendLine(output, "GC time (ms)", this.gcMillis, baseline == null ? null : (double) baseline.gcMillis, "%12.0f");
+        appendLine(output, "failures", this.failures.size(), baseline == null ? null : (double) baseline.failures.size(), "%12.0f");
+        appendLine(output, "feature mismatches", this.featureMismatches.size(), baseline == null ? null : (double) baseline.featureMismatches.size(), "%12.0f");
+        return output.toString();
+    }
+
+    private void appendLine(StringBuilder output, String name, double current, Double baseline, String format) {
+        output.append(String.format("%-22s " + format + " ", name, current));
+        if (baseline != null) {
+            output.append(String.format(format, baseline));
+        }
+        output.append(String.format("%n"));
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("nbPatches", this.nbPatches);
+        json.put("totalSeconds", this.totalSeconds);
+        json.put("patchesPerSecond", this.patchesPerSecond);
+        json.put("p50Millis", this.p50Millis);
+        json.put("p95Millis", this.p95Millis);
+        json.put("p99Millis", this.p99Millis);
+        json.put("peakRssKb", this.peakRssKb);
+        json.put("gcMillis", this.gcMillis);
+        json.put("failures", new JSONArray(this.failures));
+        json.put("featureMismatches", new JSONArray(this.featureMismatches));
+        return json;
+    }
+
+    public static CorpusReport fromJson(JSONObject json) {
+        CorpusReport report = new CorpusReport();
+        report.nbPatches = json.getInt("nbPatches");
+        report.totalSeconds = json.getDouble("totalSeconds");
+        report.patchesPerSecond = json.getDouble("patchesPerSecond");
+        report.p50Millis = json.getDouble("p50Millis");
+        report.p95Millis = json.getDouble("p95Millis");
+        report.p99Millis = json.getDouble("p99Millis");
+        report.peakRssKb = json.getLong("peakRssKb");
+        report.gcMillis = json.getLong("gcMillis");
+        JSONArray failures = json.getJSONArray("failures");
+        for (int i = 0; i < failures.length(); i++) {
+            report.failures.add(failures.getString(i));
+        }
+        JSONArray featureMismatches = json.getJSONArray("featureMismatches");
+        for (int i = 0; i < featureMismatches.length(); i++) {
+            report.featureMismatches.add(featureMismatches.getString(i));
+        }
+        return report;
+    }
+
+}
@@ -0,0 +1,58 @@
+package add.benchmark;
+
+import add.features.diffanalyzer.Changes;
+import add.features.diffanalyzer.JGitBasedDiffAnalyzer;
+import add.main.Config;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Diff parsing and reconstruction of the original and patched files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DiffAnalysisBenchmark {
+
+    @Param({"chart_1", "chart_4", "math_6", "mockito_19", "accumulo_13eb19c2", "jackrabbit-oak_999097e1"})
+    public String bugId;
+
+    private Config config;
+
+    @Setup
+    public void setup() {
+        this.config = BenchmarkPatches.setupConfig(this.bugId);
+    }
+
+    @Benchmark
+    public Changes parseDiff() {
+        return new JGitBasedDiffAnalyzer(this.config.getDiffPath()).analyze();
+    }
+
+    @Benchmark
+    public Map<String, List<String>> originalFiles() {
+        return new JGitBasedDiffAnalyzer(this.config.getDiffPath()).getOriginalFiles(this.config.getBuggySourceDirectoryPath());
+    }
+
+    @Benchmark
+    public Map<String, List<String>> patchedFiles() {
+        return new JGitBasedDiffAnalyzer(this.config.getDiffPath()).getPatchedFiles(this.config.getBuggySourceDirectoryPath());
+    }
+
+}
@@ -0,0 +1,83 @@
+package add.benchmark;
+
+import add.entities.Metrics;
+import add.entities.RepairActions;
+import add.entities.RepairPatterns;
+import add.features.detector.repairactions.CtElementAnalyzer;
+import add.features.detector.repairactions.RepairActionDetector;
+import add.features.detector.repairpatterns.RepairPatternDetector;
+import add.features.extractor.MetricExtractor;
+import add.main.Config;
+import gumtree.spoon.diff.Diff;
+import gumtree.spoon.diff.operations.DeleteOperation;
+import gumtree.spoon.diff.operations.InsertOperation;
+import gumtree.spoon.diff.operations.Operation;
+import gumtree.spoon.diff.operations.UpdateOperation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The three feature analyzers on an already computed edit script, plus CtElementAnalyzer alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeatureAnalyzerBenchmark {
+
+    @Param({"chart_1", "chart_4", "math_6", "mockito_19", "accumulo_13eb19c2", "jackrabbit-oak_999097e1"})
+    public String bugId;
+
+    private Config config;
+    private Diff editScript;
+
+    @Setup
+    public void setup() {
+        this.config = BenchmarkPatches.setupConfig(this.bugId);
+        this.editScript = new RepairPatternDetector(this.config).getEditScript();
+    }
+
+    @Benchmark
+    public RepairPatterns repairPatterns() {
+        return new RepairPatternDetector(this.config, this.editScript).analyze();
+    }
+
+    @Benchmark
+    public RepairActions repairActions() {
+        return new RepairActionDetector(this.config, this.editScript).analyze();
+    }
+
+    @Benchmark
+    public RepairActions ctElementAnalyzer() {
+        RepairActions repairActions = new RepairActions();
+        for (Operation operation : this.editScript.getRootOperations()) {
+            if (operation instanceof InsertOperation) {
+                new CtElementAnalyzer(operation.getSrcNode()).analyze(repairActions, CtElementAnalyzer.ACTION_TYPE.ADD);
+            } else if (operation instanceof DeleteOperation) {
+                new CtElementAnalyzer(operation.getSrcNode()).analyze(repairActions, CtElementAnalyzer.ACTION_TYPE.DELETE);
+            } else if (operation instanceof UpdateOperation) {
+                new CtElementAnalyzer(operation.getSrcNode(), operation.getDstNode()).analyze(repairActions, CtElementAnalyzer.ACTION_TYPE.UPDATE);
+            }
+        }
+        return repairActions;
+    }
+
+    @Benchmark
+    public Metrics metrics() {
+        return new MetricExtractor(this.config).analyze();
+    }
+
+}
@@ -0,0 +1,91 @@
+package add.benchmark;
+
+import add.entities.RepairPatterns;
+import add.features.detector.repairpatterns.AbstractPatternDetector;
+import add.features.detector.repairpatterns.CodeMovingDetector;
+import add.features.detector.repairpatterns.ConditionalBlockDetector;
+import add.features.detector.repairpatterns.ConstantChangeDetector;
+import add.features.detector.repairpatterns.CopyPasteDetector;
+import add.features.detector.repairpatterns.ExpressionFixDetector;
+import add.features.detector.repairpatterns.MissingNullCheckDetector;
+import add.features.detector.repairpatterns.RepairPatternDetector;
+import add.features.detector.repairpatterns.SingleLineDetector;
+import add.features.detector.repairpatterns.WrapsWithDetector;
+import add.features.detector.repairpatterns.WrongReferenceDetector;
+import add.main.Config;
+import gumtree.spoon.diff.operations.Operation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each repair-pattern detector in isolation, over an edit script computed once per patch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepairPatternDetectorBenchmark {
+
+    @Param({"chart_1", "chart_4", "math_6", "mockito_19", "accumulo_13eb19c2", "jackrabbit-oak_999097e1"})
+    public String bugId;
+
+    @Param({"MissingNullCheck", "SingleLine", "ConditionalBlock", "WrapsWith", "CopyPaste",
+            "ConstantChange", "CodeMoving", "ExpressionFix", "WrongReference"})
+    public String detector;
+
+    private Config config;
+    private List<Operation> operations;
+
+    @Setup
+    public void setup() {
+        this.config = BenchmarkPatches.setupConfig(this.bugId);
+        this.operations = new RepairPatternDetector(this.config).getEditScript().getRootOperations();
+    }
+
+    @Benchmark
+    public RepairPatterns detect() {
+        RepairPatterns repairPatterns = new RepairPatterns();
+        this.createDetector().detect(repairPatterns);
+        return repairPatterns;
+    }
+
+    private AbstractPatternDetector createDetector() {
+        switch (this.detector) {
+            case "MissingNullCheck":
+                return new MissingNullCheckDetector(this.operations);
+            case "SingleLine":
+                return new SingleLineDetector(this.config, this.operations);
+            case "ConditionalBlock":
+                return new ConditionalBlockDetector(this.operations);
+            case "WrapsWith":
+                return new WrapsWithDetector(this.operations);
+            case "CopyPaste":
+                return new CopyPasteDetector(this.operations);
+            case "ConstantChange":
+                return new ConstantChangeDetector(this.operations);
+            case "CodeMoving":
+                return new CodeMovingDetector(this.operations);
+            case "ExpressionFix":
+                return new ExpressionFixDetector(this.operations);
+            case "WrongReference":
+                return new WrongReferenceDetector(this.config, this.operations);
+            default:
+                throw new IllegalArgumentException("Unknown detector: " + this.detector);
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package add.benchmark;
+
+import add.features.detector.spoon.SpoonHelper;
+import add.features.diffanalyzer.JGitBasedDiffAnalyzer;
+import add.main.Config;
+import gumtree.spoon.diff.Diff;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import spoon.Launcher;
+import spoon.reflect.factory.Factory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spoon model building and GumTree diffing of the buggy and patched versions. The models are built either with a new
+ * Spoon launcher or with a context of {@link add.features.detector.spoon.SpoonModelPool}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpoonModelBenchmark {
+
+    @Param({"chart_1", "chart_4", "math_6", "mockito_19", "accumulo_13eb19c2", "jackrabbit-oak_999097e1"})
+    public String bugId;
+
+    private Map<String, List<String>> originalFiles;
+    private Map<String, List<String>> patchedFiles;
+    private Launcher oldSpoon;
+    private Launcher newSpoon;
+
+    @Setup
+    public void setup() {
+        System.setProperty("gumtree.match.gt.minh", "1");
+        System.setProperty("gumtree.match.bu.sim", "0.5");
+
+        Config config = BenchmarkPatches.setupConfig(this.bugId);
+        JGitBasedDiffAnalyzer jgitDiffAnalyzer = new JGitBasedDiffAnalyzer(config.getDiffPath());
+        this.originalFiles = jgitDiffAnalyzer.getOriginalFiles(config.getBuggySourceDirectoryPath());
+        this.patchedFiles = jgitDiffAnalyzer.getPatchedFiles(config.getBuggySourceDirectoryPath());
+        this.oldSpoon = SpoonHelper.initSpoon(this.originalFiles);
+        this.newSpoon = SpoonHelper.initSpoon(this.patchedFiles);
+    }
+
+    @Benchmark
+    public Launcher buildOriginalModel() {
+        return SpoonHelper.initSpoon(this.originalFiles);
+    }
+
+    @Benchmark
+    public Launcher buildPatchedModel() {
+        return SpoonHelper.initSpoon(this.patchedFiles);
+    }
+
+    @Benchmark
+    public Factory buildOriginalModelPooled() {
+        return SpoonHelper.buildModel(this.originalFiles);
+    }
+
+    @Benchmark
+    public Factory buildPatchedModelPooled() {
+        return SpoonHelper.buildModel(this.patchedFiles);
+    }
+
+    @Benchmark
+    public Diff gumTreeDiff() {
+        return SpoonHelper.getAstDiff(this.oldSpoon, this.newSpoon);
+    }
+
+}
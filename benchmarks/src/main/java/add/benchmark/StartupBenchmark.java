@@ -0,0 +1,156 @@
+package add.benchmark;
+
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Measures the cold start of ADD with and without the AppCDS archive dumped by {@code mvn package -Pcds}: each run
+ * launches a new JVM on the jar with dependencies, either with only the usage to print (the startup of the JVM and the
+ * loading of the launcher) or with a patch to analyze in ALL mode (the loading of Spoon, JDT, GumTree and JGit too).
+ * The runs with and without the archive alternate, so that both see the same state of the machine, and the median
+ * wall time of each is reported.
+ */
+public class StartupBenchmark {
+
+    public static final String DEFAULT_JAR_PATH = "../target/automatic-diff-dissection-1.1-SNAPSHOT-jar-with-dependencies.jar";
+
+    private final File jar;
+    private final File archive;
+    private final String java;
+
+    public StartupBenchmark(File jar, File archive) {
+        this.jar = jar;
+        this.archive = archive;
+        this.java = new File(new File(System.getProperty("java.home"), "bin"), "java").getAbsolutePath();
+    }
+
+    /**
+     * Returns the median wall times in milliseconds of the runs without and with the archive.
+     */
+    public long[] run(List<String> launcherArgs, int runs) throws IOException, InterruptedException {
+        long[] withoutArchive = new long[runs];
+        long[] withArchive = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            withoutArchive[i] = this.launch(launcherArgs, false);
+            withArchive[i] = this.launch(launcherArgs, true);
+        }
+        return new long[] {median(withoutArchive), median(withArchive)};
+    }
+
+    private long launch(List<String> launcherArgs, boolean withArchive) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(this.java);
+        if (withArchive) {
+            // -Xshare:on fails instead of silently ignoring an archive that does not match the jar or the JVM
+            command.add("-XX:SharedArchiveFile=" + this.archive.getAbsolutePath());
+            command.add("-Xshare:on");
+        }
+        command.add("-jar");
+        command.add(this.jar.getAbsolutePath());
+        command.addAll(launcherArgs);
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(ProcessBuilder.Redirect.to(new File(System.getProperty("os.name").startsWith("Windows") ? "NUL" : "/dev/null")));
+        long start = System.nanoTime();
+        int status = builder.start().waitFor();
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        // without any argument, the launcher prints the usage and exits with an error status
+        if (status != 0 && !launcherArgs.isEmpty()) {
+            throw new IllegalStateException("The run failed with status " + status + ": " + command);
+        }
+        return elapsed;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static JSAP initJSAP() throws JSAPException {
+        JSAP jsap = new JSAP();
+
+        FlaggedOption opt = new FlaggedOption("jar");
+        opt.setLongFlag("jar");
+        opt.setDefault(DEFAULT_JAR_PATH);
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Provide the path to the jar with dependencies of ADD.");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("archive");
+        opt.setLongFlag("archive");
+        opt.setRequired(false);
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Provide the path to the AppCDS archive (the jar with the .jsa extension by default).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("patches");
+        opt.setLongFlag("patches");
+        opt.setDefault(System.getProperty(BenchmarkPatches.PATCHES_PROPERTY, BenchmarkPatches.DEFAULT_PATCHES_PATH));
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Provide the path to the patch corpus (one folder per patch with path.diff and buggy-version).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("bugId");
+        opt.setLongFlag("bugId");
+        opt.setDefault("chart_4");
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Provide the patch analyzed by the runs.");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("runs");
+        opt.setLongFlag("runs");
+        opt.setDefault("10");
+        opt.setStringParser(JSAP.INTEGER_PARSER);
+        opt.setHelp("Provide the number of runs with and without the archive.");
+        jsap.registerParameter(opt);
+
+        return jsap;
+    }
+
+    public static void main(String[] args) throws Exception {
+        JSAP jsap = initJSAP();
+        JSAPResult arguments = jsap.parse(args);
+        if (!arguments.success()) {
+            for (Iterator<?> errs = arguments.getErrorMessageIterator(); errs.hasNext(); ) {
+                System.err.println("Error: " + errs.next());
+            }
+            System.err.println("Usage: java -cp benchmarks.jar " + StartupBenchmark.class.getName() + " " + jsap.getUsage());
+            System.err.println(jsap.getHelp());
+            System.exit(-1);
+        }
+
+        File jar = new File(arguments.getString("jar"));
+        File archive = new File(arguments.contains("archive") ? arguments.getString("archive")
+                : jar.getPath().replaceAll("\\.jar$", "") + ".jsa");
+        if (!jar.isFile() || !archive.isFile()) {
+            System.err.println("The jar or the archive is not found, build them with mvn package -Pcds: " + jar + ", " + archive);
+            System.exit(-1);
+        }
+
+        StartupBenchmark benchmark = new StartupBenchmark(jar, archive);
+        File patchDirectory = new File(arguments.getString("patches"), arguments.getString("bugId"));
+        List<String> analysisArgs = Arrays.asList("-m", "ALL", "-b", patchDirectory.getName(),
+                "--buggySourceDirectory", new File(patchDirectory, "buggy-version").getAbsolutePath(),
+                "--diff", new File(patchDirectory, "path.diff").getAbsolutePath());
+        int runs = arguments.getInt("runs");
+
+        report("usage", benchmark.run(new ArrayList<String>(), runs));
+        report("analysis of " + patchDirectory.getName(), benchmark.run(analysisArgs, runs));
+    }
+
+    private static void report(String name, long[] medians) {
+        System.out.println(String.format("%-24s without archive: %6d ms   with archive: %6d ms   gain: %5.1f%%",
+                name, medians[0], medians[1], 100.0 * (medians[0] - medians[1]) / medians[0]));
+    }
+
+}
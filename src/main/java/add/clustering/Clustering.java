@@ -0,0 +1,40 @@
+package add.clustering;
+
+/**
+ * The result of a clustering of the rows of a {@link FeatureMatrix}: the cluster of each row, numbered from 0, and the
+ * representative row of each cluster.
+ */
+public class Clustering {
+
+    private final int[] clusters;
+    private final int[] representatives;
+
+    public Clustering(int[] clusters, int[] representatives) {
+        this.clusters = clusters;
+        this.representatives = representatives;
+    }
+
+    public int getNbClusters() {
+        return this.representatives.length;
+    }
+
+    public int getCluster(int row) {
+        return this.clusters[row];
+    }
+
+    public int getRepresentative(int cluster) {
+        return this.representatives[cluster];
+    }
+
+    /**
+     * Returns the number of rows of each cluster.
+     */
+    public int[] getClusterSizes() {
+        int[] sizes = new int[this.representatives.length];
+        for (int cluster : this.clusters) {
+            sizes[cluster]++;
+        }
+        return sizes;
+    }
+
+}
@@ -0,0 +1,152 @@
+package add.clustering;
+
+import add.entities.FeatureRegistry;
+import add.store.ResultStore;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * The features of a corpus of patches as a sparse matrix in primitive arrays, with one row per patch and one column
+ * per feature of the {@link FeatureRegistry}: the positive counts of the row {@code i} are at the positions
+ * {@code rowStarts[i]} to {@code rowStarts[i + 1] - 1} of the arrays of the columns and of the values.
+ *
+ * As most counts of a patch are 0, the memory used depends on the number of positive counts, and the clustering
+ * algorithms only iterate over them. The values are {@code log(1 + count)}, so that the large counts, such as the
+ * sizes of the patches, do not dominate the other features.
+ */
+public class FeatureMatrix {
+
+    private final String[] bugIds;
+    private final int dimension;
+    private final int[] rowStarts;
+    private final int[] columns;
+    private final float[] values;
+
+    /**
+     * @param rows the counts of the features of each patch, a negative count (e.g. of a feature that was not extracted)
+     *             being considered as 0
+     */
+    public FeatureMatrix(String[] bugIds, int dimension, List<int[]> rows) {
+        this.bugIds = bugIds;
+        this.dimension = dimension;
+        this.rowStarts = new int[rows.size() + 1];
+        int nbValues = 0;
+        for (int row = 0; row < rows.size(); row++) {
+            for (int count : rows.get(row)) {
+                if (count > 0) {
+                    nbValues++;
+                }
+            }
+            this.rowStarts[row + 1] = nbValues;
+        }
+        this.columns = new int[nbValues];
+        this.values = new float[nbValues];
+        int position = 0;
+        for (int[] counts : rows) {
+            for (int column = 0; column < counts.length; column++) {
+                if (counts[column] > 0) {
+                    this.columns[position] = column;
+                    this.values[position] = (float) Math.log1p(counts[column]);
+                    position++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the features of all the bugs of the store.
+     */
+    public static FeatureMatrix of(ResultStore store) throws IOException {
+        List<String> bugIds = store.getBugIds();
+        String[] bugIdArray = bugIds.toArray(new String[bugIds.size()]);
+        // the rows are read from the mapped segments as the matrix is built, so that only the sparse matrix is kept
+        int dimension = FeatureRegistry.getFeatureNames().size();
+        RowReader reader = new RowReader(store, bugIdArray);
+        return new FeatureMatrix(bugIdArray, dimension, reader);
+    }
+
+    public int getNbRows() {
+        return this.bugIds.length;
+    }
+
+    public int getDimension() {
+        return this.dimension;
+    }
+
+    public String getBugId(int row) {
+        return this.bugIds[row];
+    }
+
+    int getRowStart(int row) {
+        return this.rowStarts[row];
+    }
+
+    int getRowEnd(int row) {
+        return this.rowStarts[row + 1];
+    }
+
+    int getColumn(int position) {
+        return this.columns[position];
+    }
+
+    float getValue(int position) {
+        return this.values[position];
+    }
+
+    /**
+     * Returns the Jaccard index of the sets of the positive features of two rows.
+     */
+    double jaccard(int row1, int row2) {
+        int i = this.rowStarts[row1];
+        int j = this.rowStarts[row2];
+        int end1 = this.rowStarts[row1 + 1];
+        int end2 = this.rowStarts[row2 + 1];
+        int union = end1 - i + end2 - j;
+        if (union == 0) {
+            return 1;
+        }
+        int intersection = 0;
+        while (i < end1 && j < end2) {
+            if (this.columns[i] < this.columns[j]) {
+                i++;
+            } else if (this.columns[i] > this.columns[j]) {
+                j++;
+            } else {
+                intersection++;
+                i++;
+                j++;
+            }
+        }
+        return (double) intersection / (union - intersection);
+    }
+
+    /**
+     * A read-only list of the rows of the store, read when they are iterated.
+     */
+    private static class RowReader extends AbstractList<int[]> {
+        private final ResultStore store;
+        private final String[] bugIds;
+
+        RowReader(ResultStore store, String[] bugIds) {
+            this.store = store;
+            this.bugIds = bugIds;
+        }
+
+        @Override
+        public int[] get(int index) {
+            try {
+                return this.store.getValues(this.bugIds[index]);
+            } catch (IOException e) {
+                throw new IllegalStateException("The features of " + this.bugIds[index] + " cannot be read.", e);
+            }
+        }
+
+        @Override
+        public int size() {
+            return this.bugIds.length;
+        }
+    }
+
+}
@@ -0,0 +1,304 @@
+package add.clustering;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The k-means clustering of the rows of a {@link FeatureMatrix}, by the Euclidean distance.
+ *
+ * The initial centroids are chosen by k-means++ among a sample of the rows, then each iteration assigns each row to its
+ * nearest centroid, on several threads that each handle a range of the rows and sum the rows of each cluster, and moves
+ * each centroid to the mean of its rows. The distance of a row to a centroid is computed from the positive counts of
+ * the row only, as {@code |c|^2 - 2 x.c} plus the norm of the row, which does not change the nearest centroid. The
+ * representative patch of a cluster is its row that is the nearest to its centroid.
+ */
+public class KMeans {
+    private static Logger LOGGER = LoggerFactory.getLogger(KMeans.class);
+
+    public static final int DEFAULT_MAX_ITERATIONS = 50;
+    /** The maximum number of rows among which the initial centroids are chosen. */
+    static final int MAX_SAMPLE_SIZE = 100000;
+
+    private final int k;
+    private final int maxIterations;
+    private final int nbThreads;
+    private final long seed;
+
+    public KMeans(int k, int maxIterations, int nbThreads, long seed) {
+        if (k < 1) {
+            throw new IllegalArgumentException("The number of clusters must be positive: " + k);
+        }
+        if (maxIterations < 1) {
+            throw new IllegalArgumentException("The number of iterations must be positive: " + maxIterations);
+        }
+        if (nbThreads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive: " + nbThreads);
+        }
+        this.k = k;
+        this.maxIterations = maxIterations;
+        this.nbThreads = nbThreads;
+        this.seed = seed;
+    }
+
+    public KMeans(int k, int nbThreads) {
+        this(k, DEFAULT_MAX_ITERATIONS, nbThreads, 0);
+    }
+
+    /**
+     * Clusters the rows of the matrix in at most k clusters: the clusters that end up empty (e.g. because the matrix
+     * has less than k distinct rows) are removed.
+     */
+    public Clustering cluster(final FeatureMatrix matrix) {
+        final int nbRows = matrix.getNbRows();
+        final int dimension = matrix.getDimension();
+        final int nbClusters = Math.min(this.k, nbRows);
+        if (nbClusters == 0) {
+            return new Clustering(new int[0], new int[0]);
+        }
+        final double[] centroids = this.initCentroids(matrix, nbClusters, new Random(this.seed));
+        final double[] centroidNorms = new double[nbClusters];
+        final int[] clusters = new int[nbRows];
+        Arrays.fill(clusters, -1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(this.nbThreads);
+        try {
+            RangeTasks tasks = new RangeTasks(executor, this.nbThreads);
+            for (int iteration = 1; iteration <= this.maxIterations; iteration++) {
+                computeNorms(centroids, dimension, centroidNorms);
+                List<Sums> partialSums = tasks.run(nbRows, new RangeTasks.RangeTask<Sums>() {
+                    @Override
+                    public Sums run(int start, int end) {
+                        return assign(matrix, start, end, centroids, centroidNorms, clusters);
+                    }
+                });
+                Sums sums = new Sums(nbClusters, dimension);
+                for (Sums partial : partialSums) {
+                    sums.add(partial);
+                }
+                LOGGER.debug("Iteration " + iteration + ": " + sums.nbChanges + " patches changed of cluster.");
+                if (sums.nbChanges == 0) {
+                    break;
+                }
+                for (int cluster = 0; cluster < nbClusters; cluster++) {
+                    // an empty cluster keeps its centroid
+                    if (sums.counts[cluster] > 0) {
+                        for (int column = 0; column < dimension; column++) {
+                            centroids[cluster * dimension + column] = sums.values[cluster * dimension + column] / sums.counts[cluster];
+                        }
+                    }
+                }
+            }
+
+            computeNorms(centroids, dimension, centroidNorms);
+            List<int[]> partialRepresentatives = tasks.run(nbRows, new RangeTasks.RangeTask<int[]>() {
+                @Override
+                public int[] run(int start, int end) {
+                    return findRepresentatives(matrix, start, end, centroids, centroidNorms, clusters);
+                }
+            });
+            return toClustering(matrix, centroids, centroidNorms, clusters, partialRepresentatives);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Chooses the initial centroids by k-means++: the first one is a row at random, and each next one is a row chosen
+     * with a probability proportional to its squared distance to the nearest centroid already chosen.
+     */
+    private double[] initCentroids(FeatureMatrix matrix, int nbClusters, Random random) {
+        int dimension = matrix.getDimension();
+        int[] sample = sample(matrix.getNbRows(), MAX_SAMPLE_SIZE, random);
+        double[] centroids = new double[nbClusters * dimension];
+        double[] distances = new double[sample.length];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+
+        int row = sample[random.nextInt(sample.length)];
+        for (int cluster = 0; cluster < nbClusters; cluster++) {
+            for (int position = matrix.getRowStart(row); position < matrix.getRowEnd(row); position++) {
+                centroids[cluster * dimension + matrix.getColumn(position)] = matrix.getValue(position);
+            }
+            double centroidNorm = 0;
+            for (int column = 0; column < dimension; column++) {
+                centroidNorm += centroids[cluster * dimension + column] * centroids[cluster * dimension + column];
+            }
+            double total = 0;
+            for (int i = 0; i < sample.length; i++) {
+                double distance = Math.max(0, squaredNorm(matrix, sample[i]) + centroidNorm
+                        - 2 * dotProduct(matrix, sample[i], centroids, cluster * dimension));
+                distances[i] = Math.min(distances[i], distance);
+                total += distances[i];
+            }
+            if (total == 0) {
+                // all the rows of the sample are centroids already
+                row = sample[random.nextInt(sample.length)];
+                continue;
+            }
+            double target = random.nextDouble() * total;
+            int chosen = 0;
+            while (chosen < sample.length - 1 && (target -= distances[chosen]) >= 0) {
+                chosen++;
+            }
+            row = sample[chosen];
+        }
+        return centroids;
+    }
+
+    /**
+     * Returns the rows in a random order, or a random subset of them if there are more rows than the size.
+     */
+    private static int[] sample(int nbRows, int size, Random random) {
+        int[] rows = new int[nbRows];
+        for (int row = 0; row < nbRows; row++) {
+            rows[row] = row;
+        }
+        int sampleSize = Math.min(size, nbRows);
+        for (int i = 0; i < sampleSize; i++) {
+            int j = i + random.nextInt(nbRows - i);
+            int row = rows[i];
+            rows[i] = rows[j];
+            rows[j] = row;
+        }
+        return Arrays.copyOf(rows, sampleSize);
+    }
+
+    private static Sums assign(FeatureMatrix matrix, int start, int end, double[] centroids, double[] centroidNorms, int[] clusters) {
+        int dimension = matrix.getDimension();
+        Sums sums = new Sums(centroidNorms.length, dimension);
+        for (int row = start; row < end; row++) {
+            int cluster = nearestCentroid(matrix, row, centroids, centroidNorms);
+            if (clusters[row] != cluster) {
+                clusters[row] = cluster;
+                sums.nbChanges++;
+            }
+            sums.counts[cluster]++;
+            for (int position = matrix.getRowStart(row); position < matrix.getRowEnd(row); position++) {
+                sums.values[cluster * dimension + matrix.getColumn(position)] += matrix.getValue(position);
+            }
+        }
+        return sums;
+    }
+
+    private static int[] findRepresentatives(FeatureMatrix matrix, int start, int end, double[] centroids, double[] centroidNorms, int[] clusters) {
+        int dimension = matrix.getDimension();
+        int[] representatives = new int[centroidNorms.length];
+        Arrays.fill(representatives, -1);
+        double[] distances = new double[centroidNorms.length];
+        for (int row = start; row < end; row++) {
+            int cluster = clusters[row];
+            double distance = squaredNorm(matrix, row) + centroidNorms[cluster]
+                    - 2 * dotProduct(matrix, row, centroids, cluster * dimension);
+            if (representatives[cluster] < 0 || distance < distances[cluster]) {
+                representatives[cluster] = row;
+                distances[cluster] = distance;
+            }
+        }
+        return representatives;
+    }
+
+    /**
+     * Keeps the non-empty clusters, numbered in the order of their centroids, with the nearest representative among
+     * the ones of the ranges of the rows.
+     */
+    private static Clustering toClustering(FeatureMatrix matrix, double[] centroids, double[] centroidNorms, int[] clusters, List<int[]> partialRepresentatives) {
+        int dimension = matrix.getDimension();
+        int[] numbers = new int[centroidNorms.length];
+        int[] representatives = new int[centroidNorms.length];
+        int nbClusters = 0;
+        for (int cluster = 0; cluster < centroidNorms.length; cluster++) {
+            int representative = -1;
+            double representativeDistance = 0;
+            for (int[] partial : partialRepresentatives) {
+                int row = partial[cluster];
+                if (row < 0) {
+                    continue;
+                }
+                double distance = squaredNorm(matrix, row) + centroidNorms[cluster]
+                        - 2 * dotProduct(matrix, row, centroids, cluster * dimension);
+                if (representative < 0 || distance < representativeDistance) {
+                    representative = row;
+                    representativeDistance = distance;
+                }
+            }
+            numbers[cluster] = nbClusters;
+            if (representative >= 0) {
+                representatives[nbClusters++] = representative;
+            }
+        }
+        for (int row = 0; row < clusters.length; row++) {
+            clusters[row] = numbers[clusters[row]];
+        }
+        return new Clustering(clusters, Arrays.copyOf(representatives, nbClusters));
+    }
+
+    private static int nearestCentroid(FeatureMatrix matrix, int row, double[] centroids, double[] centroidNorms) {
+        int dimension = matrix.getDimension();
+        int nearest = 0;
+        double nearestDistance = Double.POSITIVE_INFINITY;
+        for (int cluster = 0; cluster < centroidNorms.length; cluster++) {
+            double distance = centroidNorms[cluster] - 2 * dotProduct(matrix, row, centroids, cluster * dimension);
+            if (distance < nearestDistance) {
+                nearest = cluster;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    private static double dotProduct(FeatureMatrix matrix, int row, double[] centroids, int offset) {
+        double product = 0;
+        for (int position = matrix.getRowStart(row); position < matrix.getRowEnd(row); position++) {
+            product += matrix.getValue(position) * centroids[offset + matrix.getColumn(position)];
+        }
+        return product;
+    }
+
+    private static double squaredNorm(FeatureMatrix matrix, int row) {
+        double norm = 0;
+        for (int position = matrix.getRowStart(row); position < matrix.getRowEnd(row); position++) {
+            norm += matrix.getValue(position) * matrix.getValue(position);
+        }
+        return norm;
+    }
+
+    private static void computeNorms(double[] centroids, int dimension, double[] centroidNorms) {
+        for (int cluster = 0; cluster < centroidNorms.length; cluster++) {
+            double norm = 0;
+            for (int column = 0; column < dimension; column++) {
+                norm += centroids[cluster * dimension + column] * centroids[cluster * dimension + column];
+            }
+            centroidNorms[cluster] = norm;
+        }
+    }
+
+    /**
+     * The sums of the rows of each cluster computed by a thread, and the number of rows that changed of cluster.
+     */
+    private static class Sums {
+        final double[] values;
+        final int[] counts;
+        int nbChanges;
+
+        Sums(int nbClusters, int dimension) {
+            this.values = new double[nbClusters * dimension];
+            this.counts = new int[nbClusters];
+        }
+
+        void add(Sums sums) {
+            for (int i = 0; i < this.values.length; i++) {
+                this.values[i] += sums.values[i];
+            }
+            for (int i = 0; i < this.counts.length; i++) {
+                this.counts[i] += sums.counts[i];
+            }
+            this.nbChanges += sums.nbChanges;
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+package add.clustering;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The clustering of the rows of a {@link FeatureMatrix} whose sets of positive features are near duplicates, by
+ * MinHash locality-sensitive hashing.
+ *
+ * The MinHash signature of a row is made of the minimum of several random hash functions over its positive features,
+ * two rows having the same minimum for a function with a probability equal to the Jaccard index of their sets. The
+ * signature is split in bands of several minimums, and the rows with the same band are put in the same bucket, on
+ * several threads. Each row of a bucket is linked to the first row of the bucket if their Jaccard index reaches the
+ * threshold, and the clusters are the groups of linked rows. The representative patch of a cluster is its first row.
+ */
+public class MinHashLsh {
+    private static Logger LOGGER = LoggerFactory.getLogger(MinHashLsh.class);
+
+    public static final int DEFAULT_NB_BANDS = 16;
+    public static final int DEFAULT_NB_ROWS_PER_BAND = 4;
+    public static final double DEFAULT_THRESHOLD = 0.8;
+
+    private final int nbBands;
+    private final int nbRowsPerBand;
+    private final double threshold;
+    private final int nbThreads;
+    private final long seed;
+
+    public MinHashLsh(int nbBands, int nbRowsPerBand, double threshold, int nbThreads, long seed) {
+        if (nbBands < 1 || nbRowsPerBand < 1) {
+            throw new IllegalArgumentException("The numbers of bands and of rows per band must be positive: " + nbBands + ", " + nbRowsPerBand);
+        }
+        if (threshold < 0 || threshold > 1) {
+            throw new IllegalArgumentException("The threshold must be between 0 and 1: " + threshold);
+        }
+        if (nbThreads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive: " + nbThreads);
+        }
+        this.nbBands = nbBands;
+        this.nbRowsPerBand = nbRowsPerBand;
+        this.threshold = threshold;
+        this.nbThreads = nbThreads;
+        this.seed = seed;
+    }
+
+    public MinHashLsh(double threshold, int nbThreads) {
+        this(DEFAULT_NB_BANDS, DEFAULT_NB_ROWS_PER_BAND, threshold, nbThreads, 0);
+    }
+
+    public Clustering cluster(final FeatureMatrix matrix) {
+        final int nbRows = matrix.getNbRows();
+        final int[][] hashes = new int[this.nbBands * this.nbRowsPerBand][matrix.getDimension()];
+        Random random = new Random(this.seed);
+        for (int[] hash : hashes) {
+            for (int column = 0; column < hash.length; column++) {
+                hash[column] = random.nextInt();
+            }
+        }
+
+        int[] parents = new int[nbRows];
+        for (int row = 0; row < nbRows; row++) {
+            parents[row] = row;
+        }
+        // the bucket of a row and the row are packed in a long, so that the rows are grouped by a primitive sort
+        final long[] buckets = new long[nbRows];
+        ExecutorService executor = Executors.newFixedThreadPool(this.nbThreads);
+        try {
+            RangeTasks tasks = new RangeTasks(executor, this.nbThreads);
+            for (int band = 0; band < this.nbBands; band++) {
+                final int firstHash = band * this.nbRowsPerBand;
+                tasks.run(nbRows, new RangeTasks.RangeTask<Void>() {
+                    @Override
+                    public Void run(int start, int end) {
+                        for (int row = start; row < end; row++) {
+                            buckets[row] = (long) bucket(matrix, row, hashes, firstHash) << 32 | row;
+                        }
+                        return null;
+                    }
+                });
+                Arrays.sort(buckets);
+                int nbLinks = 0;
+                int first = 0;
+                for (int i = 1; i < nbRows; i++) {
+                    if (buckets[i] >>> 32 != buckets[first] >>> 32) {
+                        first = i;
+                    } else if (this.link(matrix, parents, (int) buckets[first], (int) buckets[i])) {
+                        nbLinks++;
+                    }
+                }
+                LOGGER.debug("Band " + band + ": " + nbLinks + " new links.");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return toClustering(parents);
+    }
+
+    /**
+     * Returns the hash of the minimums of the hash functions of a band over the positive features of the row.
+     */
+    private int bucket(FeatureMatrix matrix, int row, int[][] hashes, int firstHash) {
+        int bucket = 1;
+        for (int i = firstHash; i < firstHash + this.nbRowsPerBand; i++) {
+            int[] hash = hashes[i];
+            int minimum = Integer.MAX_VALUE;
+            for (int position = matrix.getRowStart(row); position < matrix.getRowEnd(row); position++) {
+                minimum = Math.min(minimum, hash[matrix.getColumn(position)]);
+            }
+            bucket = 31 * bucket + minimum;
+        }
+        return bucket;
+    }
+
+    /**
+     * Links the two rows if they are similar enough and not linked yet, the root of a group being its smallest row.
+     */
+    private boolean link(FeatureMatrix matrix, int[] parents, int row1, int row2) {
+        int root1 = find(parents, row1);
+        int root2 = find(parents, row2);
+        if (root1 == root2 || matrix.jaccard(row1, row2) < this.threshold) {
+            return false;
+        }
+        parents[Math.max(root1, root2)] = Math.min(root1, root2);
+        return true;
+    }
+
+    private static int find(int[] parents, int row) {
+        while (parents[row] != row) {
+            parents[row] = parents[parents[row]];
+            row = parents[row];
+        }
+        return row;
+    }
+
+    /**
+     * Numbers the groups in the order of their first rows.
+     */
+    private static Clustering toClustering(int[] parents) {
+        int[] clusters = new int[parents.length];
+        int[] representatives = new int[parents.length];
+        int nbClusters = 0;
+        for (int row = 0; row < parents.length; row++) {
+            int root = find(parents, row);
+            if (root == row) {
+                representatives[nbClusters] = row;
+                clusters[row] = nbClusters++;
+            } else {
+                clusters[row] = clusters[root];
+            }
+        }
+        return new Clustering(clusters, Arrays.copyOf(representatives, nbClusters));
+    }
+
+}
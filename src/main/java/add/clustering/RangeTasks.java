@@ -0,0 +1,56 @@
+package add.clustering;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Splits the rows of a matrix in as many contiguous ranges as threads, and runs a task on each range in parallel.
+ */
+class RangeTasks {
+
+    interface RangeTask<T> {
+        T run(int start, int end);
+    }
+
+    private final ExecutorService executor;
+    private final int nbRanges;
+
+    RangeTasks(ExecutorService executor, int nbRanges) {
+        this.executor = executor;
+        this.nbRanges = nbRanges;
+    }
+
+    /**
+     * Runs the task on each range of the rows, and returns the results in the order of the ranges.
+     */
+    <T> List<T> run(int nbRows, final RangeTask<T> task) {
+        List<Future<T>> futures = new ArrayList<>();
+        for (int range = 0; range < this.nbRanges; range++) {
+            final int start = (int) ((long) nbRows * range / this.nbRanges);
+            final int end = (int) ((long) nbRows * (range + 1) / this.nbRanges);
+            futures.add(this.executor.submit(new Callable<T>() {
+                @Override
+                public T call() {
+                    return task.run(start, end);
+                }
+            }));
+        }
+        List<T> results = new ArrayList<>();
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The clustering was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The clustering failed.", e.getCause());
+        }
+        return results;
+    }
+
+}
@@ -5,7 +5,6 @@ import add.main.Constants;
 import org.json.JSONObject;
 
 import java.lang.reflect.Field;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -54,41 +53,41 @@ public abstract class Feature {
     }
 
     public List<String> getFeatureNames() {
-        List<String> output = new ArrayList<>();
-        Field[] declaredFields = this.getClass().getDeclaredFields();
-        for (int i = 0; i < declaredFields.length; i++) {
-            FeatureAnnotation annotation = declaredFields[i].getAnnotation(FeatureAnnotation.class);
-            if (annotation != null) {
-                output.add(annotation.key());
-            }
-        }
-        return output;
+        return FeatureRegistry.getFeatureNames(this.getClass());
     }
 
     public String toCSV() {
         StringBuilder output = new StringBuilder();
         for (String featureName : getFeatureNames()) {
-            output.append(featureName + Constants.CSV_SEPARATOR);
+            output.append(featureName).append(Constants.CSV_SEPARATOR);
         }
         output.append(Constants.LINE_BREAK);
         for (String featureName : getFeatureNames()) {
             int counter = getFeatureCounter(featureName);
-            output.append(counter + Constants.CSV_SEPARATOR);
+            output.append(counter).append(Constants.CSV_SEPARATOR);
         }
         return output.toString();
     }
 
-    public JSONObject toJson() {
+    /**
+     * Returns the counters of the features, by feature name.
+     */
+    JSONObject getFeatureCounters() {
         JSONObject jsonObjectFeatures = new JSONObject();
         for (String featureName : getFeatureNames()) {
             int counter = getFeatureCounter(featureName);
             jsonObjectFeatures.put(featureName, counter);
         }
+        return jsonObjectFeatures;
+    }
+
+    public JSONObject toJson() {
+        JSONObject jsonObjectFeatures = getFeatureCounters();
         JSONObject json = new JSONObject();
         if (config != null) {
             json.put("bugId", this.config.getBugId());
         }
-        json.put(Character.toLowerCase(this.getClass().getSimpleName().charAt(0)) + this.getClass().getSimpleName().substring(1), jsonObjectFeatures);
+        json.put(FeatureRegistry.getGroupName(this.getClass()), jsonObjectFeatures);
         return json;
     }
 
@@ -5,6 +5,7 @@ import add.main.Constants;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -14,6 +15,7 @@ public class FeatureList {
 
     private List<Feature> featureList;
     private Config config;
+    private long[] signatures;
 
     public FeatureList(Config config) {
         this.config = config;
@@ -25,12 +27,29 @@ public class FeatureList {
         feature.setConfig(this.config);
     }
 
+    public List<Feature> getFeatures() {
+        return Collections.unmodifiableList(this.featureList);
+    }
+
+    /**
+     * Returns the signatures of the root operations of the edit script of the patch (see
+     * {@link add.features.detector.spoon.OperationSignature}), or null if no edit script was computed, i.e. in the
+     * metrics mode.
+     */
+    public long[] getSignatures() {
+        return this.signatures;
+    }
+
+    public void setSignatures(long[] signatures) {
+        this.signatures = signatures;
+    }
+
     public String toCSV() {
         StringBuilder output = new StringBuilder();
         for (int i = 0; i < featureList.size(); i++) {
             Feature feature = featureList.get(i);
             for (String featureName : feature.getFeatureNames()) {
-                output.append(featureName + Constants.CSV_SEPARATOR);
+                output.append(featureName).append(Constants.CSV_SEPARATOR);
             }
         }
         output.append(Constants.LINE_BREAK);
@@ -38,7 +57,7 @@ public class FeatureList {
             Feature feature = featureList.get(i);
             for (String featureName : feature.getFeatureNames()) {
                 int counter = feature.getFeatureCounter(featureName);
-                output.append(counter + Constants.CSV_SEPARATOR);
+                output.append(counter).append(Constants.CSV_SEPARATOR);
             }
         }
         return output.toString();
@@ -46,12 +65,12 @@ public class FeatureList {
 
     public JSONObject toJson() {
         JSONObject mergedJSON = new JSONObject();
+        if (config != null) {
+            mergedJSON.put("bugId", config.getBugId());
+        }
         for (int i = 0; i < featureList.size(); i++) {
             Feature feature = featureList.get(i);
-            JSONObject jsonObject = feature.toJson();
-            for (String key : JSONObject.getNames(jsonObject)) {
-                mergedJSON.put(key, jsonObject.get(key));
-            }
+            mergedJSON.put(FeatureRegistry.getGroupName(feature.getClass()), feature.getFeatureCounters());
         }
         return mergedJSON;
     }
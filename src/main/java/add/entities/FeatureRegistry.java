@@ -0,0 +1,67 @@
+package add.entities;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Fixed schema of the extracted features: the feature classes, in the order in which they are extracted, and the keys
+ * of their {@link FeatureAnnotation}s, in the order in which the fields are declared.
+ *
+ * The keys are unique across the feature classes, so a key alone identifies a column of a feature matrix.
+ */
+public class FeatureRegistry {
+
+    private static final List<Class<? extends Feature>> FEATURE_CLASSES = Collections.unmodifiableList(
+            Arrays.<Class<? extends Feature>>asList(RepairPatterns.class, RepairActions.class, Metrics.class));
+
+    private static final List<String> FEATURE_NAMES;
+    static {
+        List<String> featureNames = new ArrayList<>();
+        Set<String> uniqueFeatureNames = new HashSet<>();
+        for (Class<? extends Feature> featureClass : FEATURE_CLASSES) {
+            for (String featureName : getFeatureNames(featureClass)) {
+                if (!uniqueFeatureNames.add(featureName)) {
+                    throw new IllegalStateException("The feature " + featureName + " is declared twice.");
+                }
+                featureNames.add(featureName);
+            }
+        }
+        FEATURE_NAMES = Collections.unmodifiableList(featureNames);
+    }
+
+    public static List<Class<? extends Feature>> getFeatureClasses() {
+        return FEATURE_CLASSES;
+    }
+
+    /**
+     * Returns the keys of the features of all the feature classes.
+     */
+    public static List<String> getFeatureNames() {
+        return FEATURE_NAMES;
+    }
+
+    public static List<String> getFeatureNames(Class<? extends Feature> featureClass) {
+        List<String> featureNames = new ArrayList<>();
+        for (Field field : featureClass.getDeclaredFields()) {
+            FeatureAnnotation annotation = field.getAnnotation(FeatureAnnotation.class);
+            if (annotation != null) {
+                featureNames.add(annotation.key());
+            }
+        }
+        return featureNames;
+    }
+
+    /**
+     * Returns the name of the group of the features of the class in the JSON output, e.g. repairPatterns.
+     */
+    public static String getGroupName(Class<? extends Feature> featureClass) {
+        String simpleName = featureClass.getSimpleName();
+        return Character.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1);
+    }
+
+}
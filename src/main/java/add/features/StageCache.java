@@ -0,0 +1,377 @@
+package add.features;
+
+import add.entities.Feature;
+import add.features.detector.spoon.EditScriptSnapshotCache;
+import add.features.detector.spoon.ModelSnapshotCache;
+import add.features.diffanalyzer.JGitBasedDiffAnalyzer;
+import add.main.Config;
+import com.github.gumtreediff.tree.ITree;
+import gumtree.spoon.AstComparator;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Stores the features computed by each stage of the analysis of a patch (repair patterns, repair actions, metrics),
+ * so that a rerun only recomputes the stages whose inputs or implementation changed.
+ *
+ * The results of a stage are stored in {@code <cacheDirectory>/stages/<inputHash>/<stage>.json}. The input hash is
+ * the SHA-256 of the diff and of the original and patched files. The implementation hash is the SHA-256 of the
+ * classes of the tool, except the classes of the packages specific to the other stages, and of the versions of Spoon
+ * and GumTree (see {@link #getDependencyHash()}): changing a repair pattern detector does not invalidate the repair
+ * actions and the metrics.
+ */
+public class StageCache {
+    private static Logger LOGGER = LoggerFactory.getLogger(StageCache.class);
+
+    public static final String DIRECTORY_NAME = "stages";
+    public static final String FILE_SUFFIX = ".json";
+
+    public static final String REPAIR_PATTERNS = "repairPatterns";
+    public static final String REPAIR_ACTIONS = "repairActions";
+    public static final String METRICS = "metrics";
+    /**
+     * The edit script shared by the stages, whose snapshots are stored by {@link EditScriptSnapshotCache} with the
+     * implementation hash of this stage: the classes specific to the repair patterns and repair actions are not part of
+     * it, so changing a detector does not compute the edit script again.
+     */
+    public static final String EDIT_SCRIPT = "editScript";
+    /**
+     * The signatures of the root operations of the edit script (see {@link #loadSignatures()}).
+     */
+    public static final String SIGNATURES = "signatures";
+
+    private static final String CLASS_ROOT = "add/";
+    private static final Map<String, String> STAGE_PACKAGES;
+    static {
+        Map<String, String> stagePackages = new HashMap<>();
+        stagePackages.put(REPAIR_PATTERNS, "add/features/detector/repairpatterns/");
+        stagePackages.put(REPAIR_ACTIONS, "add/features/detector/repairactions/");
+        STAGE_PACKAGES = Collections.unmodifiableMap(stagePackages);
+    }
+
+    private static final Map<String, String> IMPLEMENTATION_HASHES = new HashMap<>();
+    private static String dependencyHash;
+
+    private File directory;
+
+    /**
+     * The cache is disabled (nothing is loaded nor stored) when no cache directory is configured.
+     */
+    public StageCache(Config config) {
+        this(config, null);
+    }
+
+    /**
+     * @param diffAnalyzer the analyzer of the diff of the config, or null to build a new one
+     */
+    public StageCache(Config config, JGitBasedDiffAnalyzer diffAnalyzer) {
+        if (config.getCacheDirectoryPath() != null) {
+            this.directory = new File(new File(config.getCacheDirectoryPath(), DIRECTORY_NAME), getInputHash(config, diffAnalyzer));
+        }
+    }
+
+    /**
+     * Returns the given feature filled with the stored results of the stage, or null if the stage has to be computed.
+     */
+    public <T extends Feature> T load(String stage, T feature) {
+        if (this.directory == null) {
+            return null;
+        }
+        File file = new File(this.directory, stage + FILE_SUFFIX);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            JSONObject json = new JSONObject(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+            if (!getImplementationHash(stage).equals(json.getString("implementation"))) {
+                return null;
+            }
+            JSONObject features = json.getJSONObject("features");
+            for (String featureName : feature.getFeatureNames()) {
+                feature.setFeatureCounter(featureName, features.getInt(featureName));
+            }
+            return feature;
+        } catch (IOException | JSONException e) {
+            LOGGER.error("The results of the stage " + stage + " cannot be loaded, the stage is computed again: " + e);
+            return null;
+        }
+    }
+
+    public void store(String stage, Feature feature) {
+        if (this.directory == null) {
+            return;
+        }
+        JSONObject features = new JSONObject();
+        for (String featureName : feature.getFeatureNames()) {
+            features.put(featureName, feature.getFeatureCounter(featureName));
+        }
+        JSONObject json = new JSONObject();
+        json.put("implementation", getImplementationHash(stage));
+        json.put("features", features);
+        this.write(stage, json);
+    }
+
+    /**
+     * Returns the stored signatures of the root operations of the edit script, or null if they have to be computed.
+     */
+    public long[] loadSignatures() {
+        if (this.directory == null) {
+            return null;
+        }
+        File file = new File(this.directory, SIGNATURES + FILE_SUFFIX);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            JSONObject json = new JSONObject(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+            if (!getImplementationHash(SIGNATURES).equals(json.getString("implementation"))) {
+                return null;
+            }
+            JSONArray values = json.getJSONArray(SIGNATURES);
+            long[] signatures = new long[values.length()];
+            for (int i = 0; i < signatures.length; i++) {
+                signatures[i] = Long.parseUnsignedLong(values.getString(i), 16);
+            }
+            return signatures;
+        } catch (IOException | JSONException | NumberFormatException e) {
+            LOGGER.error("The signatures cannot be loaded, they are computed again: " + e);
+            return null;
+        }
+    }
+
+    public void storeSignatures(long[] signatures) {
+        if (this.directory == null) {
+            return;
+        }
+        JSONArray values = new JSONArray();
+        for (long signature : signatures) {
+            values.put(Long.toHexString(signature));
+        }
+        JSONObject json = new JSONObject();
+        json.put("implementation", getImplementationHash(SIGNATURES));
+        json.put(SIGNATURES, values);
+        this.write(SIGNATURES, json);
+    }
+
+    private void write(String stage, JSONObject json) {
+        File file = new File(this.directory, stage + FILE_SUFFIX);
+        File temporaryFile = null;
+        try {
+            Files.createDirectories(this.directory.toPath());
+            // written aside then moved, so that a concurrent run never reads partial results
+            temporaryFile = File.createTempFile(file.getName(), ".tmp", this.directory);
+            Files.write(temporaryFile.toPath(), json.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.error("The results of the stage " + stage + " cannot be stored: " + e);
+            if (temporaryFile != null) {
+                temporaryFile.delete();
+            }
+        }
+    }
+
+    static String getInputHash(Config config) {
+        return getInputHash(config, null);
+    }
+
+    static String getInputHash(Config config, JGitBasedDiffAnalyzer diffAnalyzer) {
+        MessageDigest digest = newDigest();
+        JGitBasedDiffAnalyzer jgitDiffAnalyzer = diffAnalyzer != null ? diffAnalyzer : JGitBasedDiffAnalyzer.fromConfig(config);
+        digest.update(jgitDiffAnalyzer.getDiff());
+        update(digest, ModelSnapshotCache.getHash(jgitDiffAnalyzer.getOriginalFiles(config.getBuggySourceDirectoryPath())));
+        update(digest, ModelSnapshotCache.getHash(jgitDiffAnalyzer.getPatchedFiles(config.getBuggySourceDirectoryPath())));
+        return toHex(digest.digest());
+    }
+
+    public static synchronized String getImplementationHash(String stage) {
+        String hash = IMPLEMENTATION_HASHES.get(stage);
+        if (hash == null) {
+            hash = computeImplementationHash(stage);
+            IMPLEMENTATION_HASHES.put(stage, hash);
+        }
+        return hash;
+    }
+
+    private static String computeImplementationHash(String stage) {
+        MessageDigest digest = newDigest();
+        update(digest, getDependencyHash());
+        Map<String, byte[]> classes = readClasses(getLocation(StageCache.class), CLASS_ROOT);
+        List<String> classNames = new ArrayList<>(classes.keySet());
+        Collections.sort(classNames);
+        for (String className : classNames) {
+            if (!isSpecificToOtherStage(className, stage)) {
+                update(digest, className);
+                digest.update(classes.get(className));
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    static synchronized String getDependencyHash() {
+        if (dependencyHash == null) {
+            dependencyHash = computeDependencyHash();
+        }
+        return dependencyHash;
+    }
+
+    /**
+     * Returns the hash of the versions of Spoon and GumTree. The jars of the dependencies cannot be told apart by their
+     * location, which is the tool itself in the jar with dependencies, so the version of a dependency is read from its
+     * Maven metadata, which that jar keeps, and the classes of a dependency without such metadata are hashed.
+     */
+    private static String computeDependencyHash() {
+        MessageDigest digest = newDigest();
+        updateWithMavenVersion(digest, "fr.inria.gforge.spoon", "spoon-core", spoon.Launcher.class, "spoon/");
+        updateWithMavenVersion(digest, "fr.inria.gforge.spoon.labs", "gumtree-spoon-ast-diff", AstComparator.class, "gumtree/spoon/");
+        // the jar of GumTree has no Maven metadata
+        updateWithClasses(digest, ITree.class, "com/github/gumtreediff/");
+        return toHex(digest.digest());
+    }
+
+    private static void updateWithMavenVersion(MessageDigest digest, String groupId, String artifactId, Class<?> clazz, String classRoot) {
+        String version = getMavenVersion(clazz, groupId, artifactId);
+        if (version != null) {
+            update(digest, groupId + ":" + artifactId + ":" + version);
+        } else {
+            updateWithClasses(digest, clazz, classRoot);
+        }
+    }
+
+    /**
+     * Returns the version in the Maven metadata of the artifact, or null if it cannot be read.
+     */
+    static String getMavenVersion(Class<?> clazz, String groupId, String artifactId) {
+        String path = "/META-INF/maven/" + groupId + "/" + artifactId + "/pom.properties";
+        try (InputStream input = clazz.getResourceAsStream(path)) {
+            if (input == null) {
+                return null;
+            }
+            Properties properties = new Properties();
+            properties.load(input);
+            return properties.getProperty("version");
+        } catch (IOException e) {
+            LOGGER.error("The version of " + artifactId + " cannot be read, its classes are hashed instead: " + e);
+            return null;
+        }
+    }
+
+    private static void updateWithClasses(MessageDigest digest, Class<?> clazz, String classRoot) {
+        Map<String, byte[]> classes = readClasses(getLocation(clazz), classRoot);
+        List<String> classNames = new ArrayList<>(classes.keySet());
+        Collections.sort(classNames);
+        for (String className : classNames) {
+            update(digest, className);
+            digest.update(classes.get(className));
+        }
+    }
+
+    private static boolean isSpecificToOtherStage(String className, String stage) {
+        for (Map.Entry<String, String> stagePackage : STAGE_PACKAGES.entrySet()) {
+            if (!stagePackage.getKey().equals(stage) && className.startsWith(stagePackage.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Path getLocation(Class<?> clazz) {
+        try {
+            return Paths.get(clazz.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<String, byte[]> readClasses(Path location, String classRoot) {
+        final Map<String, byte[]> classes = new HashMap<>();
+        try {
+            if (Files.isDirectory(location)) {
+                final Path root = location;
+                Files.walkFileTree(root.resolve(classRoot), new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                        if (file.toString().endsWith(".class")) {
+                            classes.put(root.relativize(file).toString().replace(File.separatorChar, '/'), Files.readAllBytes(file));
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } else {
+                try (JarFile jarFile = new JarFile(location.toFile())) {
+                    Enumeration<JarEntry> entries = jarFile.entries();
+                    while (entries.hasMoreElements()) {
+                        JarEntry entry = entries.nextElement();
+                        if (entry.getName().startsWith(classRoot) && entry.getName().endsWith(".class")) {
+                            classes.put(entry.getName(), readAllBytes(jarFile, entry));
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("The classes of " + classRoot + " cannot be read from " + location, e);
+        }
+        return classes;
+    }
+
+    private static byte[] readAllBytes(JarFile jarFile, JarEntry entry) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream input = jarFile.getInputStream(entry)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+}
@@ -1,7 +1,13 @@
 package add.features.detector;
 
 import add.features.FeatureAnalyzer;
+import add.features.StageCache;
+import add.features.detector.spoon.EditScriptSnapshot;
+import add.features.detector.spoon.EditScriptSnapshotCache;
+import add.features.detector.spoon.EditScriptTracer;
+import add.features.detector.spoon.EmptyDiff;
 import add.features.detector.spoon.SpoonHelper;
+import add.features.diffanalyzer.FileChangeClassifier;
 import add.features.diffanalyzer.JGitBasedDiffAnalyzer;
 import add.main.Config;
 import gumtree.spoon.AstComparator;
@@ -10,8 +16,8 @@ import gumtree.spoon.diff.operations.DeleteOperation;
 import gumtree.spoon.diff.operations.MoveOperation;
 import gumtree.spoon.diff.operations.Operation;
 import gumtree.spoon.diff.operations.UpdateOperation;
-import spoon.Launcher;
 import spoon.reflect.declaration.CtElement;
+import spoon.reflect.factory.Factory;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -23,9 +29,21 @@ import java.util.Map;
 public abstract class EditScriptBasedDetector extends FeatureAnalyzer {
 
     protected Diff editScript;
+    protected Factory originalModel;
+    protected Factory patchedModel;
+    protected JGitBasedDiffAnalyzer diffAnalyzer;
 
     public EditScriptBasedDetector(Config config, Diff editScript) {
+        this(config, null, editScript);
+    }
+
+    /**
+     * The given diff analyzer, if any, is used instead of a new one to read the original and patched files, so that
+     * the diff of an analysis is parsed (or computed from a git repository) once.
+     */
+    public EditScriptBasedDetector(Config config, JGitBasedDiffAnalyzer diffAnalyzer, Diff editScript) {
         super(config);
+        this.diffAnalyzer = diffAnalyzer;
         if (editScript == null) {
             this.editScript = extractEditScript();
         } else {
@@ -34,7 +52,7 @@ public abstract class EditScriptBasedDetector extends FeatureAnalyzer {
     }
 
     public EditScriptBasedDetector(Config config) {
-        this(config, null);
+        this(config, null, null);
     }
 
     private Diff extractEditScript() {
@@ -42,16 +60,48 @@ public abstract class EditScriptBasedDetector extends FeatureAnalyzer {
         System.setProperty("gumtree.match.gt.minh", "1");
         System.setProperty("gumtree.match.bu.sim", "0.5");
 
-        JGitBasedDiffAnalyzer jgitDiffAnalyzer = new JGitBasedDiffAnalyzer(this.config.getDiffPath());
+        if (this.diffAnalyzer == null) {
+            this.diffAnalyzer = JGitBasedDiffAnalyzer.fromConfig(this.config);
+        }
+        JGitBasedDiffAnalyzer jgitDiffAnalyzer = this.diffAnalyzer;
 
         Map<String, List<String>> originalFiles = jgitDiffAnalyzer.getOriginalFiles(this.config.getBuggySourceDirectoryPath());
         Map<String, List<String>> patchedFiles = jgitDiffAnalyzer.getPatchedFiles(this.config.getBuggySourceDirectoryPath());
+        // the files whose AST is not changed by the patch are neither parsed nor compared
+        FileChangeClassifier.retainCodeChanges(originalFiles, patchedFiles);
+        if (originalFiles.isEmpty() && patchedFiles.isEmpty()) {
+            // no code token is changed by the patch: the AST-based features are computed on an empty edit script
+            Diff editScript = new EmptyDiff();
+            EditScriptTracer.trace(this.config, editScript);
+            return editScript;
+        }
+
+        EditScriptSnapshotCache snapshotCache = null;
+        if (this.config.getCacheDirectoryPath() != null) {
+            // the edit script does not depend on the detectors, so a change of a detector reuses it with its models
+            snapshotCache = new EditScriptSnapshotCache(this.config.getCacheDirectoryPath(), StageCache.getImplementationHash(StageCache.EDIT_SCRIPT));
+            EditScriptSnapshot snapshot = snapshotCache.load(originalFiles, patchedFiles);
+            if (snapshot != null) {
+                Diff editScript = snapshot.getEditScript();
+                this.originalModel = snapshot.getOldModel();
+                this.patchedModel = snapshot.getNewModel();
+                EditScriptTracer.trace(this.config, editScript);
+                return editScript;
+            }
+        }
 
-        Launcher oldSpoon = SpoonHelper.initSpoon(originalFiles);
-        Launcher newSpoon = SpoonHelper.initSpoon(patchedFiles);
+        Factory oldModel = SpoonHelper.getModel(originalFiles, this.config.getCacheDirectoryPath());
+        Factory newModel = SpoonHelper.getModel(patchedFiles, this.config.getCacheDirectoryPath());
 
-        Diff editScript = SpoonHelper.getAstDiff(oldSpoon, newSpoon);
+        Diff editScript = SpoonHelper.getAstDiff(oldModel, newModel);
         this.preprocessEditScript(editScript);
+        this.originalModel = oldModel;
+        this.patchedModel = newModel;
+        if (snapshotCache != null) {
+            snapshotCache.save(originalFiles, patchedFiles, oldModel, newModel, editScript);
+        }
+
+        EditScriptTracer.trace(this.config, editScript);
 
         return editScript;
     }
@@ -106,4 +156,18 @@ public abstract class EditScriptBasedDetector extends FeatureAnalyzer {
         return editScript;
     }
 
+    /**
+     * Returns the Spoon model of the original files, or null if the edit script was given to the detector.
+     */
+    public Factory getOriginalModel() {
+        return originalModel;
+    }
+
+    /**
+     * Returns the Spoon model of the patched files, or null if the edit script was given to the detector.
+     */
+    public Factory getPatchedModel() {
+        return patchedModel;
+    }
+
 }
@@ -2,7 +2,6 @@ package add.features.detector.repairactions;
 
 import add.entities.RepairActions;
 import add.features.detector.EditScriptBasedDetector;
-import add.features.detector.spoon.SpoonHelper;
 import add.main.Config;
 import gumtree.spoon.diff.Diff;
 import gumtree.spoon.diff.operations.DeleteOperation;
@@ -43,12 +42,10 @@ public class RepairActionDetector extends EditScriptBasedDetector {
             if (operation instanceof InsertOperation || operation instanceof DeleteOperation) {
                 this.detectRepairActions(srcNode, operation instanceof DeleteOperation ?
                         CtElementAnalyzer.ACTION_TYPE.DELETE : CtElementAnalyzer.ACTION_TYPE.ADD);
-                SpoonHelper.printInsertOrDeleteOperation(srcNode.getFactory().getEnvironment(), srcNode, operation);
             } else {
                 CtElement dstNode = operation.getDstNode();
                 if (operation instanceof UpdateOperation) {
                     this.detectRepairActionsInUpdate(srcNode, dstNode);
-                    SpoonHelper.printUpdateOperation(srcNode, dstNode, (UpdateOperation) operation);
                 } else {
                     if (srcNode instanceof CtInvocation) {
                         List<CtStatement> statements = srcNode.getElements(new LineFilter());
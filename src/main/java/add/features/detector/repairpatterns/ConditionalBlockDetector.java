@@ -1,8 +1,8 @@
 package add.features.detector.repairpatterns;
 
 import add.entities.RepairPatterns;
+import add.features.detector.spoon.ElementQuery;
 import add.features.detector.spoon.RepairPatternUtils;
-import add.features.detector.spoon.SpoonHelper;
 import gumtree.spoon.diff.operations.DeleteOperation;
 import gumtree.spoon.diff.operations.InsertOperation;
 import gumtree.spoon.diff.operations.Operation;
@@ -14,6 +14,7 @@ import spoon.reflect.code.CtExpression;
 import spoon.reflect.code.CtIf;
 import spoon.reflect.code.CtStatement;
 import spoon.reflect.declaration.CtElement;
+import spoon.reflect.visitor.Filter;
 import spoon.reflect.visitor.filter.TypeFilter;
 
 import java.util.List;
@@ -23,6 +24,19 @@ import java.util.List;
  */
 public class ConditionalBlockDetector extends AbstractPatternDetector {
 
+    private static final Filter<CtConditional> NEW_CONDITIONAL = new Filter<CtConditional>() {
+        @Override
+        public boolean matches(CtConditional ctConditional) {
+            if (ctConditional.getMetadata("new") != null) {
+                CtExpression thenExpression = ctConditional.getThenExpression();
+                CtExpression elseExpression = ctConditional.getElseExpression();
+                return thenExpression.getMetadata("new") != null &&
+                        elseExpression.getMetadata("new") != null;
+            }
+            return false;
+        }
+    };
+
     public ConditionalBlockDetector(List<Operation> operations) {
         super(operations);
     }
@@ -32,8 +46,6 @@ public class ConditionalBlockDetector extends AbstractPatternDetector {
         for (Operation operation : this.operations) {
             if (operation instanceof InsertOperation || operation instanceof DeleteOperation) {
                 CtElement ctElement = operation.getSrcNode();
-                SpoonHelper.printInsertOrDeleteOperation(ctElement.getFactory().getEnvironment(), ctElement, operation);
-
                 boolean wasPatternFound;
                 List<CtIf> ifList = ctElement.getElements(new TypeFilter<>(CtIf.class));
                 for (CtIf ctIf : ifList) {
@@ -79,19 +91,12 @@ public class ConditionalBlockDetector extends AbstractPatternDetector {
                     }
                 }
 
-                List<CtConditional> conditionalList = ctElement.getElements(new TypeFilter<>(CtConditional.class));
-                for (CtConditional ctConditional : conditionalList) {
-                    if (ctConditional.getMetadata("new") != null) {
-                        CtExpression thenExpression = ctConditional.getThenExpression();
-                        CtExpression elseExpression = ctConditional.getElseExpression();
-                        if (thenExpression.getMetadata("new") != null &&
-                                elseExpression.getMetadata("new") != null) {
-                            if (operation instanceof InsertOperation) {
-                                repairPatterns.incrementFeatureCounter("condBlockOthersAdd");
-                            } else {
-                                repairPatterns.incrementFeatureCounter("condBlockRem");
-                            }
-                        }
+                int nbNewConditionals = ElementQuery.count(ctElement, CtConditional.class, NEW_CONDITIONAL);
+                for (int i = 0; i < nbNewConditionals; i++) {
+                    if (operation instanceof InsertOperation) {
+                        repairPatterns.incrementFeatureCounter("condBlockOthersAdd");
+                    } else {
+                        repairPatterns.incrementFeatureCounter("condBlockRem");
                     }
                 }
 
@@ -110,28 +115,14 @@ public class ConditionalBlockDetector extends AbstractPatternDetector {
             } else {
                 if (operation instanceof UpdateOperation) {
                     CtElement srcNode = operation.getSrcNode();
-                    List<CtConditional> conditionalList = srcNode.getElements(new TypeFilter<>(CtConditional.class));
-                    for (CtConditional ctConditional : conditionalList) {
-                        if (ctConditional.getMetadata("new") != null) {
-                            CtExpression thenExpression = ctConditional.getThenExpression();
-                            CtExpression elseExpression = ctConditional.getElseExpression();
-                            if (thenExpression.getMetadata("new") != null &&
-                                    elseExpression.getMetadata("new") != null) {
-                                repairPatterns.incrementFeatureCounter("condBlockRem");
-                            }
-                        }
+                    int nbNewConditionals = ElementQuery.count(srcNode, CtConditional.class, NEW_CONDITIONAL);
+                    for (int i = 0; i < nbNewConditionals; i++) {
+                        repairPatterns.incrementFeatureCounter("condBlockRem");
                     }
                     CtElement dstNode = operation.getDstNode();
-                    conditionalList = dstNode.getElements(new TypeFilter<>(CtConditional.class));
-                    for (CtConditional ctConditional : conditionalList) {
-                        if (ctConditional.getMetadata("new") != null) {
-                            CtExpression thenExpression = ctConditional.getThenExpression();
-                            CtExpression elseExpression = ctConditional.getElseExpression();
-                            if (thenExpression.getMetadata("new") != null &&
-                                    elseExpression.getMetadata("new") != null) {
-                                repairPatterns.incrementFeatureCounter("condBlockOthersAdd");
-                            }
-                        }
+                    nbNewConditionals = ElementQuery.count(dstNode, CtConditional.class, NEW_CONDITIONAL);
+                    for (int i = 0; i < nbNewConditionals; i++) {
+                        repairPatterns.incrementFeatureCounter("condBlockOthersAdd");
                     }
                 }
             }
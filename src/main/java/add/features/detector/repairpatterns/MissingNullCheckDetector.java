@@ -1,8 +1,8 @@
 package add.features.detector.repairpatterns;
 
 import add.entities.RepairPatterns;
+import add.features.detector.spoon.ElementPredicates;
 import add.features.detector.spoon.RepairPatternUtils;
-import add.features.detector.spoon.SpoonHelper;
 import add.features.detector.spoon.filter.NullCheckFilter;
 import gumtree.spoon.diff.operations.InsertOperation;
 import gumtree.spoon.diff.operations.Operation;
@@ -33,21 +33,12 @@ public class MissingNullCheckDetector extends AbstractPatternDetector {
         for (Operation operation : this.operations) {
             if (operation instanceof InsertOperation) {
                 CtElement srcNode = operation.getSrcNode();
-                SpoonHelper.printInsertOrDeleteOperation(srcNode.getFactory().getEnvironment(), srcNode, operation);
-
                 List<CtBinaryOperator> binaryOperatorList = srcNode.getElements(new NullCheckFilter());
                 for (CtBinaryOperator binaryOperator : binaryOperatorList) {
                     if (RepairPatternUtils.isNewBinaryOperator(binaryOperator)) {
                         if (RepairPatternUtils.isNewConditionInBinaryOperator(binaryOperator)) {
-                            LOGGER.debug("-New null check: " + binaryOperator.toString());
-
-                            final CtElement referenceExpression;
-                            if (binaryOperator.getRightHandOperand().toString().equals("null")) {
-                                referenceExpression = binaryOperator.getLeftHandOperand();
-                            } else {
-                                referenceExpression = binaryOperator.getRightHandOperand();
-                            }
-                            LOGGER.debug("-Reference expression: " + referenceExpression.toString());
+                            final CtElement referenceExpression = ElementPredicates.getNullCheckedOperand(binaryOperator);
+                            LOGGER.trace("-New null check: {}, reference expression: {}", binaryOperator, referenceExpression);
 
                             boolean wasPatternFound = false;
 
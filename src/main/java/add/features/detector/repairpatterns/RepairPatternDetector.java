@@ -2,6 +2,7 @@ package add.features.detector.repairpatterns;
 
 import add.entities.RepairPatterns;
 import add.features.detector.EditScriptBasedDetector;
+import add.features.diffanalyzer.JGitBasedDiffAnalyzer;
 import add.main.Config;
 import gumtree.spoon.diff.Diff;
 import gumtree.spoon.diff.operations.Operation;
@@ -26,13 +27,18 @@ public class RepairPatternDetector extends EditScriptBasedDetector {
         this.repairPatterns = new RepairPatterns();
     }
 
+    public RepairPatternDetector(Config config, JGitBasedDiffAnalyzer diffAnalyzer) {
+        super(config, diffAnalyzer, null);
+        this.repairPatterns = new RepairPatterns();
+    }
+
     @Override
     public RepairPatterns analyze() {
         List<Operation> operations = this.editScript.getRootOperations();
 
         List<AbstractPatternDetector> detectors = new ArrayList<>();
         detectors.add(new MissingNullCheckDetector(operations));
-        detectors.add(new SingleLineDetector(this.config, operations));
+        detectors.add(new SingleLineDetector(this.config, operations, this.originalModel, this.patchedModel, this.diffAnalyzer));
         detectors.add(new ConditionalBlockDetector(operations));
         detectors.add(new WrapsWithDetector(operations));
         detectors.add(new CopyPasteDetector(operations));
@@ -3,6 +3,7 @@ package add.features.detector.repairpatterns;
 import add.entities.Metrics;
 import add.entities.RepairPatterns;
 import add.features.detector.spoon.RepairPatternUtils;
+import add.features.diffanalyzer.JGitBasedDiffAnalyzer;
 import add.features.extractor.MetricExtractor;
 import add.main.Config;
 import gumtree.spoon.diff.operations.DeleteOperation;
@@ -11,6 +12,7 @@ import gumtree.spoon.diff.operations.MoveOperation;
 import gumtree.spoon.diff.operations.Operation;
 import spoon.reflect.code.CtStatement;
 import spoon.reflect.declaration.CtElement;
+import spoon.reflect.factory.Factory;
 import spoon.reflect.visitor.filter.LineFilter;
 
 import java.util.List;
@@ -21,17 +23,31 @@ import java.util.List;
 public class SingleLineDetector extends AbstractPatternDetector {
 
     private Config config;
+    private Factory originalModel;
+    private Factory patchedModel;
+    private JGitBasedDiffAnalyzer diffAnalyzer;
 
     public SingleLineDetector(Config config, List<Operation> operations) {
+        this(config, operations, null, null);
+    }
+
+    public SingleLineDetector(Config config, List<Operation> operations, Factory originalModel, Factory patchedModel) {
+        this(config, operations, originalModel, patchedModel, null);
+    }
+
+    public SingleLineDetector(Config config, List<Operation> operations, Factory originalModel, Factory patchedModel, JGitBasedDiffAnalyzer diffAnalyzer) {
         super(operations);
         this.config = config;
+        this.originalModel = originalModel;
+        this.patchedModel = patchedModel;
+        this.diffAnalyzer = diffAnalyzer;
     }
 
     @Override
     public void detect(RepairPatterns repairPatterns) {
         boolean wasPatternFound = false;
 
-        MetricExtractor extractor = new MetricExtractor(this.config);
+        MetricExtractor extractor = new MetricExtractor(this.config, this.originalModel, this.patchedModel, this.diffAnalyzer);
         Metrics metrics = extractor.analyze();
         if (metrics.getFeatureCounter("patchSizeCodeOnly") == 1) {
             wasPatternFound = true;
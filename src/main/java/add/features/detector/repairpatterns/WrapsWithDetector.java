@@ -2,7 +2,6 @@ package add.features.detector.repairpatterns;
 
 import add.entities.RepairPatterns;
 import add.features.detector.spoon.RepairPatternUtils;
-import add.features.detector.spoon.SpoonHelper;
 import gumtree.spoon.diff.operations.DeleteOperation;
 import gumtree.spoon.diff.operations.InsertOperation;
 import gumtree.spoon.diff.operations.MoveOperation;
@@ -49,8 +48,6 @@ public class WrapsWithDetector extends AbstractPatternDetector {
     private void detectWrapsIf(Operation operation, RepairPatterns repairPatterns) {
         if (operation instanceof InsertOperation || operation instanceof DeleteOperation) {
             CtElement ctElement = operation.getSrcNode();
-            SpoonHelper.printInsertOrDeleteOperation(ctElement.getFactory().getEnvironment(), ctElement, operation);
-
             List<CtIf> ifList = ctElement.getElements(new TypeFilter<>(CtIf.class));
             for (CtIf ctIf : ifList) {
                 if (RepairPatternUtils.isNewIf(ctIf)) {
@@ -137,8 +134,6 @@ public class WrapsWithDetector extends AbstractPatternDetector {
     private void detectWrapsTryCatch(Operation operation, RepairPatterns repairPatterns) {
         if (operation instanceof InsertOperation || operation instanceof DeleteOperation) {
             CtElement ctElement = operation.getSrcNode();
-            SpoonHelper.printInsertOrDeleteOperation(ctElement.getFactory().getEnvironment(), ctElement, operation);
-
             List<CtTry> tryList = ctElement.getElements(new TypeFilter<>(CtTry.class));
             for (CtTry ctTry : tryList) {
                 if (ctTry.getMetadata("new") != null) {
@@ -220,8 +215,6 @@ public class WrapsWithDetector extends AbstractPatternDetector {
     private void detectWrapsLoop(Operation operation, RepairPatterns repairPatterns) {
         if (operation instanceof InsertOperation) {
             CtElement ctElement = operation.getSrcNode();
-            SpoonHelper.printInsertOrDeleteOperation(ctElement.getFactory().getEnvironment(), ctElement, operation);
-
             List<CtLoop> loopList = ctElement.getElements(new TypeFilter<>(CtLoop.class));
             for (CtLoop ctLoop : loopList) {
                 if ((ctLoop instanceof CtFor && RepairPatternUtils.isNewFor((CtFor) ctLoop)) ||
@@ -0,0 +1,330 @@
+package add.features.detector.spoon;
+
+import com.github.gumtreediff.actions.model.Delete;
+import com.github.gumtreediff.actions.model.Insert;
+import com.github.gumtreediff.actions.model.Move;
+import com.github.gumtreediff.actions.model.Update;
+import com.github.gumtreediff.matchers.MappingStore;
+import com.github.gumtreediff.tree.ITree;
+import com.github.gumtreediff.tree.TreeContext;
+import gumtree.spoon.builder.SpoonGumTreeBuilder;
+import gumtree.spoon.diff.Diff;
+import gumtree.spoon.diff.DiffImpl;
+import gumtree.spoon.diff.operations.DeleteOperation;
+import gumtree.spoon.diff.operations.InsertOperation;
+import gumtree.spoon.diff.operations.MoveOperation;
+import gumtree.spoon.diff.operations.Operation;
+import gumtree.spoon.diff.operations.OperationKind;
+import gumtree.spoon.diff.operations.UpdateOperation;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.factory.Factory;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * An edit script with the models of the original and patched files it refers to, which can be serialized as a single
+ * object graph (see {@link EditScriptSnapshotCache}).
+ *
+ * The GumTree actions of the operations are not serializable, so an operation is kept as its kind, its nodes, the type
+ * and label of its GumTree node, the parent and position of an insertion or a move, and the new value of an update;
+ * {@link #getEditScript()} creates the operations again, with GumTree nodes that carry the Spoon elements.
+ */
+public class EditScriptSnapshot implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Factory oldModel;
+    private final Factory newModel;
+    private final List<OperationRecord> allOperations;
+    private final List<OperationRecord> rootOperations;
+
+    private EditScriptSnapshot(Factory oldModel, Factory newModel, List<OperationRecord> allOperations, List<OperationRecord> rootOperations) {
+        this.oldModel = oldModel;
+        this.newModel = newModel;
+        this.allOperations = allOperations;
+        this.rootOperations = rootOperations;
+    }
+
+    /**
+     * @param editScript an edit script computed by GumTree, whose tree context gives the types of the nodes
+     */
+    public static EditScriptSnapshot of(Factory oldModel, Factory newModel, Diff editScript) {
+        if (!(editScript instanceof DiffImpl)) {
+            throw new IllegalArgumentException("Only an edit script computed by GumTree can be kept: " + editScript.getClass().getName());
+        }
+        TreeContext context = ((DiffImpl) editScript).getContext();
+        MappingStore mappings = editScript.getMappingsComp();
+        // the root operations are operations of the whole edit script, whose record is shared
+        Map<Operation, OperationRecord> records = new IdentityHashMap<>();
+        List<OperationRecord> allOperations = new ArrayList<>();
+        for (Operation operation : editScript.getAllOperations()) {
+            allOperations.add(getRecord(records, context, mappings, operation));
+        }
+        List<OperationRecord> rootOperations = new ArrayList<>();
+        for (Operation operation : editScript.getRootOperations()) {
+            rootOperations.add(getRecord(records, context, mappings, operation));
+        }
+        return new EditScriptSnapshot(oldModel, newModel, allOperations, rootOperations);
+    }
+
+    private static OperationRecord getRecord(Map<Operation, OperationRecord> records, TreeContext context, MappingStore mappings, Operation operation) {
+        OperationRecord record = records.get(operation);
+        if (record == null) {
+            record = new OperationRecord(context, mappings, operation);
+            records.put(operation, record);
+        }
+        return record;
+    }
+
+    public Factory getOldModel() {
+        return this.oldModel;
+    }
+
+    public Factory getNewModel() {
+        return this.newModel;
+    }
+
+    /**
+     * Returns the edit script, whose operations are created again at each call.
+     */
+    public Diff getEditScript() {
+        Map<OperationRecord, Operation> operations = new IdentityHashMap<>();
+        TreeContext context = new TreeContext();
+        List<Operation> allOperations = new ArrayList<>();
+        for (OperationRecord record : this.allOperations) {
+            allOperations.add(getOperation(operations, context, record));
+        }
+        List<Operation> rootOperations = new ArrayList<>();
+        List<CtElement> rootOriginalNodes = new ArrayList<>();
+        for (OperationRecord record : this.rootOperations) {
+            rootOperations.add(getOperation(operations, context, record));
+            rootOriginalNodes.add(record.getOriginalNode());
+        }
+        return new SnapshotDiff(context, allOperations, rootOperations, rootOriginalNodes);
+    }
+
+    private static Operation getOperation(Map<OperationRecord, Operation> operations, TreeContext context, OperationRecord record) {
+        Operation operation = operations.get(record);
+        if (operation == null) {
+            operation = record.toOperation(context);
+            operations.put(record, operation);
+        }
+        return operation;
+    }
+
+    private static class OperationRecord implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final OperationKind kind;
+        private final CtElement node;
+        private final int nodeType;
+        private final String nodeTypeLabel;
+        private final String nodeLabel;
+        private final CtElement destination;
+        private final CtElement parent;
+        private final CtElement originalParent;
+        private final int position;
+        private final String value;
+
+        OperationRecord(TreeContext context, MappingStore mappings, Operation operation) {
+            this.node = operation.getSrcNode();
+            ITree tree = operation.getAction().getNode();
+            this.nodeType = tree.getType();
+            this.nodeTypeLabel = context.getTypeLabel(tree);
+            this.nodeLabel = tree.getLabel();
+            if (operation instanceof InsertOperation) {
+                this.kind = OperationKind.Insert;
+                this.destination = null;
+                this.parent = ((InsertOperation) operation).getParent();
+                // the node of the original files where the node is inserted, if the parent is not inserted too
+                ITree originalParent = mappings.getSrc(tree.getParent());
+                this.originalParent = originalParent == null ? null : (CtElement) originalParent.getMetadata(SpoonGumTreeBuilder.SPOON_OBJECT);
+                this.position = ((InsertOperation) operation).getPosition();
+                this.value = null;
+            } else if (operation instanceof MoveOperation) {
+                this.kind = OperationKind.Move;
+                this.destination = operation.getDstNode();
+                this.parent = ((MoveOperation) operation).getParent();
+                this.originalParent = null;
+                this.position = ((MoveOperation) operation).getPosition();
+                this.value = null;
+            } else if (operation instanceof UpdateOperation) {
+                this.kind = OperationKind.Update;
+                this.destination = operation.getDstNode();
+                this.parent = null;
+                this.originalParent = null;
+                this.position = -1;
+                this.value = ((UpdateOperation) operation).getAction().getValue();
+            } else if (operation instanceof DeleteOperation) {
+                this.kind = OperationKind.Delete;
+                this.destination = null;
+                this.parent = null;
+                this.originalParent = null;
+                this.position = -1;
+                this.value = null;
+            } else {
+                throw new IllegalArgumentException("Unknown operation: " + operation.getClass().getName());
+            }
+        }
+
+        /**
+         * Returns the node of the original files changed by the operation: the parent of an insertion, as GumTree
+         * gives it, or else the node of the operation.
+         */
+        CtElement getOriginalNode() {
+            return this.kind == OperationKind.Insert ? this.originalParent : this.node;
+        }
+
+        Operation toOperation(TreeContext context) {
+            ITree node = context.createTree(this.nodeType, this.nodeLabel, this.nodeTypeLabel);
+            node.setMetadata(SpoonGumTreeBuilder.SPOON_OBJECT, this.node);
+            if (this.destination != null) {
+                node.setMetadata(SpoonGumTreeBuilder.SPOON_OBJECT_DEST, this.destination);
+            }
+            switch (this.kind) {
+                case Insert:
+                    return new InsertOperation(new Insert(node, newTree(context, this.parent), this.position));
+                case Move:
+                    return new MoveOperation(new Move(node, newTree(context, this.parent), this.position));
+                case Update:
+                    return new UpdateOperation(new Update(node, this.value));
+                default:
+                    return new DeleteOperation(new Delete(node));
+            }
+        }
+
+        private static ITree newTree(TreeContext context, CtElement element) {
+            ITree tree = context.createTree(ITree.NO_VALUE, ITree.NO_LABEL, ITree.NO_LABEL);
+            tree.setMetadata(SpoonGumTreeBuilder.SPOON_OBJECT, element);
+            return tree;
+        }
+    }
+
+    /**
+     * The edit script created again from a snapshot, which gives the same answers as the edit script computed by
+     * GumTree, except for the mappings, which are not kept.
+     */
+    private static class SnapshotDiff implements Diff {
+        private final TreeContext context;
+        private final List<Operation> allOperations;
+        private final List<Operation> rootOperations;
+        private final List<CtElement> rootOriginalNodes;
+
+        SnapshotDiff(TreeContext context, List<Operation> allOperations, List<Operation> rootOperations, List<CtElement> rootOriginalNodes) {
+            this.context = context;
+            this.allOperations = allOperations;
+            this.rootOperations = rootOperations;
+            this.rootOriginalNodes = rootOriginalNodes;
+        }
+
+        @Override
+        public List<Operation> getAllOperations() {
+            return this.allOperations;
+        }
+
+        @Override
+        public List<Operation> getRootOperations() {
+            return this.rootOperations;
+        }
+
+        /**
+         * Returns the given operations whose node is a child of the node of the parent operation (the diff computed by
+         * GumTree compares the parent node with the parent operation itself, which never matches).
+         */
+        @Override
+        public List<Operation> getOperationChildren(Operation operationParent, List<Operation> rootOperations) {
+            List<Operation> children = new ArrayList<>();
+            for (Operation operation : rootOperations) {
+                if (operation.getNode().isParentInitialized() && operation.getNode().getParent() == operationParent.getNode()) {
+                    children.add(operation);
+                }
+            }
+            return children;
+        }
+
+        @Override
+        public CtElement changedNode() {
+            if (this.rootOperations.size() != 1) {
+                throw new IllegalArgumentException("Should have only one root action.");
+            }
+            return this.commonAncestor();
+        }
+
+        @Override
+        public CtElement changedNode(Class<? extends Operation> operationWanted) {
+            for (Operation operation : this.rootOperations) {
+                if (operationWanted.isAssignableFrom(operation.getClass())) {
+                    return operation.getNode();
+                }
+            }
+            throw new NoSuchElementException();
+        }
+
+        @Override
+        public CtElement commonAncestor() {
+            if (this.rootOriginalNodes.isEmpty()) {
+                throw new IllegalStateException("The edit script has no operation.");
+            }
+            CtElement ancestor = this.rootOriginalNodes.get(0);
+            for (int i = 1; i < this.rootOriginalNodes.size(); i++) {
+                ancestor = commonAncestor(ancestor, this.rootOriginalNodes.get(i));
+            }
+            return ancestor;
+        }
+
+        private static CtElement commonAncestor(CtElement first, CtElement second) {
+            for (CtElement ancestor = first; ancestor != null; ancestor = ancestor.getParent()) {
+                for (CtElement element = second; element != null; element = element.getParent()) {
+                    if (ancestor == element) {
+                        return ancestor;
+                    }
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public boolean containsOperation(OperationKind kind, String nodeKind) {
+            for (Operation operation : this.rootOperations) {
+                if (this.isOperation(operation, kind, nodeKind)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean containsOperation(OperationKind kind, String nodeKind, String nodeLabel) {
+            return this.containsOperations(this.rootOperations, kind, nodeKind, nodeLabel);
+        }
+
+        @Override
+        public boolean containsOperations(List<Operation> operations, OperationKind kind, String nodeKind, String nodeLabel) {
+            for (Operation operation : operations) {
+                if (this.isOperation(operation, kind, nodeKind) && operation.getAction().getNode().getLabel().equals(nodeLabel)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean isOperation(Operation operation, OperationKind kind, String nodeKind) {
+            return operation.getAction().getClass().getSimpleName().equals(kind.name())
+                    && this.context.getTypeLabel(operation.getAction().getNode()).equals(nodeKind);
+        }
+
+        @Override
+        public void debugInformation() {
+        }
+
+        @Override
+        public MappingStore getMappingsComp() {
+            throw new UnsupportedOperationException("The mappings are not kept by the snapshot.");
+        }
+    }
+
+}
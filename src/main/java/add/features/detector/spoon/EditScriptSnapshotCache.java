@@ -0,0 +1,137 @@
+package add.features.detector.spoon;
+
+import com.github.gumtreediff.tree.ITree;
+import gumtree.spoon.diff.Diff;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spoon.reflect.factory.Factory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stores the edit scripts of patches as binary snapshots (see {@link EditScriptSnapshot}), so that a rerun whose edit
+ * script cannot have changed, e.g. after a change of a repair pattern detector, neither loads the models nor computes
+ * the GumTree diff again.
+ *
+ * A snapshot is stored in {@code <cacheDirectory>/editscripts/<hash>.editscript}, where the hash is the SHA-256 of the
+ * hashes of the original and patched files (see {@link ModelSnapshotCache#getHash(Map)}) and of the implementation of
+ * the edit script, which is given by the caller. The metadata that GumTree puts on the Spoon elements (its own nodes)
+ * is not part of the snapshot; the metadata put when the edit script is preprocessed is.
+ */
+public class EditScriptSnapshotCache {
+    private static Logger LOGGER = LoggerFactory.getLogger(EditScriptSnapshotCache.class);
+
+    public static final String DIRECTORY_NAME = "editscripts";
+    public static final String FILE_SUFFIX = ".editscript";
+
+    private static final String FORMAT_VERSION = "1";
+
+    private File directory;
+    private String implementationHash;
+
+    /**
+     * @param implementationHash the hash of the implementation of the edit script, i.e. of the way the models are
+     *                           built, compared and preprocessed
+     */
+    public EditScriptSnapshotCache(String cacheDirectoryPath, String implementationHash) {
+        this.directory = new File(cacheDirectoryPath, DIRECTORY_NAME);
+        this.implementationHash = implementationHash;
+    }
+
+    /**
+     * Returns the snapshot of the edit script between the files, or null if there is none.
+     */
+    public EditScriptSnapshot load(Map<String, List<String>> originalFiles, Map<String, List<String>> patchedFiles) {
+        File snapshot = this.getSnapshotFile(originalFiles, patchedFiles);
+        if (!snapshot.isFile()) {
+            return null;
+        }
+        try (ObjectInputStream input = new ObjectInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(snapshot.toPath()))))) {
+            EditScriptSnapshot editScriptSnapshot = (EditScriptSnapshot) input.readObject();
+            ModelSnapshotCache.indexCompilationUnits(editScriptSnapshot.getOldModel());
+            ModelSnapshotCache.indexCompilationUnits(editScriptSnapshot.getNewModel());
+            return editScriptSnapshot;
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            LOGGER.error("The edit script snapshot " + snapshot + " cannot be loaded, the edit script is computed again: " + e);
+            return null;
+        }
+    }
+
+    public void save(Map<String, List<String>> originalFiles, Map<String, List<String>> patchedFiles,
+                     Factory oldModel, Factory newModel, Diff editScript) {
+        File snapshot = this.getSnapshotFile(originalFiles, patchedFiles);
+        File temporaryFile = null;
+        try {
+            Files.createDirectories(this.directory.toPath());
+            // written aside then moved, so that a concurrent run never reads a partial snapshot
+            temporaryFile = File.createTempFile(snapshot.getName(), ".tmp", this.directory);
+            try (OutputStream outputStream = Files.newOutputStream(temporaryFile.toPath());
+                 ObjectOutputStream output = new SnapshotOutputStream(new GZIPOutputStream(new BufferedOutputStream(outputStream)))) {
+                output.writeObject(EditScriptSnapshot.of(oldModel, newModel, editScript));
+            }
+            Files.move(temporaryFile.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("The edit script snapshot " + snapshot + " cannot be saved: " + e);
+            if (temporaryFile != null) {
+                temporaryFile.delete();
+            }
+        }
+    }
+
+    private File getSnapshotFile(Map<String, List<String>> originalFiles, Map<String, List<String>> patchedFiles) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(digest, FORMAT_VERSION);
+        update(digest, this.implementationHash);
+        update(digest, ModelSnapshotCache.getHash(originalFiles));
+        update(digest, ModelSnapshotCache.getHash(patchedFiles));
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hash.append(String.format("%02x", b));
+        }
+        return new File(this.directory, hash + FILE_SUFFIX);
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Writes the GumTree nodes put on the Spoon elements as null, as they are not serializable and are not used once
+     * the edit script is computed.
+     */
+    private static class SnapshotOutputStream extends ObjectOutputStream {
+
+        SnapshotOutputStream(OutputStream output) throws IOException {
+            super(output);
+            this.enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object object) {
+            return object instanceof ITree ? null : object;
+        }
+    }
+
+}
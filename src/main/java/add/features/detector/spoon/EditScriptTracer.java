@@ -0,0 +1,119 @@
+package add.features.detector.spoon;
+
+import add.main.Config;
+import gumtree.spoon.diff.Diff;
+import gumtree.spoon.diff.operations.Operation;
+import gumtree.spoon.diff.operations.UpdateOperation;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spoon.reflect.cu.SourcePosition;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.visitor.DefaultJavaPrettyPrinter;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Traces the operations of an edit script, once per edit script.
+ *
+ * The trace is written at TRACE level in the log and, when a trace directory is configured, as JSON lines in
+ * {@code <traceDirectory>/<bugId>_trace.jsonl} (one line per root operation with the operation, the node kind, the
+ * position and the source code of the node, and the {@link OperationSignature} of the operation in hexadecimal). When
+ * neither is enabled, nothing is printed nor computed.
+ */
+public class EditScriptTracer {
+    private static Logger LOGGER = LoggerFactory.getLogger(EditScriptTracer.class);
+
+    public static final String FILE_SUFFIX = "_trace.jsonl";
+    public static final String SIGNATURE_KEY = "signature";
+
+    public static boolean isEnabled(Config config) {
+        return LOGGER.isTraceEnabled() || config.getTraceDirectoryPath() != null;
+    }
+
+    public static void trace(Config config, Diff editScript) {
+        if (!isEnabled(config)) {
+            return;
+        }
+        Writer writer = null;
+        try {
+            if (config.getTraceDirectoryPath() != null) {
+                File traceFile = new File(config.getTraceDirectoryPath(), config.getBugId() + FILE_SUFFIX);
+                writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(traceFile.toPath()), StandardCharsets.UTF_8));
+            }
+            for (Operation operation : editScript.getRootOperations()) {
+                JSONObject record = toJson(operation);
+                LOGGER.trace("{} {} at {}:{}{}{}", record.get("operation"), record.get("nodeKind"),
+                        record.opt("file"), record.opt("line"), System.lineSeparator(), record.get("source"));
+                if (writer != null) {
+                    writer.write(record.toString());
+                    writer.write("\n");
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.error(e.toString());
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    LOGGER.error(e.toString());
+                }
+            }
+        }
+    }
+
+    private static JSONObject toJson(Operation operation) {
+        CtElement srcNode = operation.getSrcNode();
+        JSONObject record = new JSONObject();
+        record.put("operation", operation.getClass().getSimpleName().replace("Operation", ""));
+        record.put("nodeKind", getNodeKind(srcNode));
+        record.put(SIGNATURE_KEY, Long.toHexString(OperationSignature.of(operation)));
+        SourcePosition position = srcNode.getPosition();
+        if (position.isValidPosition()) {
+            record.put("file", position.getFile().getPath());
+            record.put("line", position.getLine());
+            record.put("endLine", position.getEndLine());
+        }
+        if (operation instanceof UpdateOperation) {
+            record.put("source", srcNode.toString());
+            CtElement dstNode = operation.getDstNode();
+            record.put("newSource", dstNode != null ? dstNode.toString() : ((UpdateOperation) operation).getAction().getValue());
+        } else {
+            record.put("source", print(srcNode));
+        }
+        return record;
+    }
+
+    private static String getNodeKind(CtElement element) {
+        String kind = element.getClass().getSimpleName();
+        if (kind.startsWith("Ct") && kind.endsWith("Impl")) {
+            kind = kind.substring(2, kind.length() - "Impl".length());
+        }
+        return kind;
+    }
+
+    /**
+     * Prints the element without its moved sub-elements.
+     */
+    private static String print(CtElement element) {
+        DefaultJavaPrettyPrinter print = new DefaultJavaPrettyPrinter(element.getFactory().getEnvironment()) {
+            @Override
+            public DefaultJavaPrettyPrinter scan(CtElement e) {
+                if (e != null && e.getMetadata("isMoved") == null) {
+                    return super.scan(e);
+                }
+                return this;
+            }
+        };
+        print.scan(element);
+        return print.getResult();
+    }
+
+}
@@ -0,0 +1,54 @@
+package add.features.detector.spoon;
+
+import spoon.reflect.code.BinaryOperatorKind;
+import spoon.reflect.code.CtBinaryOperator;
+import spoon.reflect.code.CtExpression;
+import spoon.reflect.code.CtLiteral;
+import spoon.reflect.declaration.CtElement;
+
+import java.util.Objects;
+
+/**
+ * Structural predicates on Spoon elements, to be used instead of comparing the printed code of the elements.
+ */
+public class ElementPredicates {
+
+    /**
+     * Checks if the element is a literal with the given value and without cast, i.e. if it would be printed as
+     * the value itself.
+     */
+    public static boolean isLiteral(CtElement element, Object value) {
+        if (!(element instanceof CtLiteral)) {
+            return false;
+        }
+        CtLiteral<?> literal = (CtLiteral<?>) element;
+        return literal.getTypeCasts().isEmpty() && Objects.equals(literal.getValue(), value);
+    }
+
+    /**
+     * Checks if the element is the literal null (without cast).
+     */
+    public static boolean isNullLiteral(CtElement element) {
+        return isLiteral(element, null);
+    }
+
+    /**
+     * Checks if the binary operator compares an expression with null, i.e. "e == null", "e != null" or the reverse.
+     */
+    public static boolean isNullCheck(CtBinaryOperator<?> binaryOperator) {
+        BinaryOperatorKind operatorKind = binaryOperator.getKind();
+        return (operatorKind == BinaryOperatorKind.EQ || operatorKind == BinaryOperatorKind.NE) &&
+                (isNullLiteral(binaryOperator.getLeftHandOperand()) || isNullLiteral(binaryOperator.getRightHandOperand()));
+    }
+
+    /**
+     * Returns the operand of a null check that is compared with null.
+     */
+    public static CtExpression<?> getNullCheckedOperand(CtBinaryOperator<?> nullCheck) {
+        if (isNullLiteral(nullCheck.getRightHandOperand())) {
+            return nullCheck.getLeftHandOperand();
+        }
+        return nullCheck.getRightHandOperand();
+    }
+
+}
@@ -0,0 +1,102 @@
+package add.features.detector.spoon;
+
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.path.CtRole;
+import spoon.reflect.visitor.EarlyTerminatingScanner;
+import spoon.reflect.visitor.Filter;
+
+/**
+ * Queries on the elements of a subtree (the root included, in the same order as {@code getElements}), which neither
+ * build the list of the elements nor scan further than the first decisive element.
+ */
+public class ElementQuery {
+
+    private ElementQuery() {
+    }
+
+    /**
+     * Returns true if there is an element of the given type in the subtree.
+     */
+    public static <T extends CtElement> boolean anyMatch(CtElement root, Class<T> type) {
+        return anyMatch(root, type, null);
+    }
+
+    /**
+     * Returns true if an element of the given type in the subtree matches the filter. The scan stops at the first
+     * matching element.
+     */
+    public static <T extends CtElement> boolean anyMatch(CtElement root, Class<T> type, Filter<? super T> filter) {
+        QueryScanner<T> scanner = new QueryScanner<>(type, filter, true);
+        scanner.scan(root);
+        return scanner.count > 0;
+    }
+
+    /**
+     * Returns true if all the elements of the given type in the subtree match the filter (or if there is none). The
+     * scan stops at the first element which does not match.
+     */
+    public static <T extends CtElement> boolean allMatch(CtElement root, Class<T> type, Filter<? super T> filter) {
+        return !anyMatch(root, type, new NegatedFilter<T>(filter));
+    }
+
+    /**
+     * Returns the number of elements of the given type in the subtree which match the filter.
+     */
+    public static <T extends CtElement> int count(CtElement root, Class<T> type, Filter<? super T> filter) {
+        QueryScanner<T> scanner = new QueryScanner<>(type, filter, false);
+        scanner.scan(root);
+        return scanner.count;
+    }
+
+    /**
+     * Returns the first element of the given type in the subtree, or null if there is none.
+     */
+    public static <T extends CtElement> T findFirst(CtElement root, Class<T> type) {
+        QueryScanner<T> scanner = new QueryScanner<>(type, null, true);
+        scanner.scan(root);
+        return scanner.getResult();
+    }
+
+    private static class QueryScanner<T extends CtElement> extends EarlyTerminatingScanner<T> {
+        private final Class<T> type;
+        private final Filter<? super T> filter;
+        private final boolean stopAtFirstMatch;
+        private int count = 0;
+
+        QueryScanner(Class<T> type, Filter<? super T> filter, boolean stopAtFirstMatch) {
+            this.type = type;
+            this.filter = filter;
+            this.stopAtFirstMatch = stopAtFirstMatch;
+        }
+
+        @Override
+        protected void onElement(CtRole role, CtElement element) {
+            if (this.type.isInstance(element)) {
+                T candidate = this.type.cast(element);
+                if (this.filter == null || this.filter.matches(candidate)) {
+                    this.count++;
+                    if (this.stopAtFirstMatch) {
+                        this.setResult(candidate);
+                        this.terminate();
+                        return;
+                    }
+                }
+            }
+            super.onElement(role, element);
+        }
+    }
+
+    private static class NegatedFilter<T extends CtElement> implements Filter<T> {
+        private final Filter<? super T> filter;
+
+        NegatedFilter(Filter<? super T> filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean matches(T element) {
+            return !this.filter.matches(element);
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package add.features.detector.spoon;
+
+import com.github.gumtreediff.matchers.MappingStore;
+import gumtree.spoon.diff.Diff;
+import gumtree.spoon.diff.operations.Operation;
+import gumtree.spoon.diff.operations.OperationKind;
+import spoon.reflect.declaration.CtElement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Edit script of a patch that does not change the AST, used instead of comparing two identical models.
+ */
+public class EmptyDiff implements Diff {
+
+    @Override
+    public List<Operation> getAllOperations() {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<Operation> getRootOperations() {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<Operation> getOperationChildren(Operation operationParent, List<Operation> rootOperations) {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public CtElement changedNode() {
+        throw new IllegalArgumentException("Should have only one root action.");
+    }
+
+    @Override
+    public CtElement changedNode(Class<? extends Operation> operationWanted) {
+        throw new IllegalArgumentException("Should have only one root action.");
+    }
+
+    @Override
+    public CtElement commonAncestor() {
+        return null;
+    }
+
+    @Override
+    public boolean containsOperation(OperationKind kind, String nodeKind) {
+        return false;
+    }
+
+    @Override
+    public boolean containsOperation(OperationKind kind, String nodeKind, String nodeLabel) {
+        return false;
+    }
+
+    @Override
+    public boolean containsOperations(List<Operation> operations, OperationKind kind, String nodeKind, String nodeLabel) {
+        return false;
+    }
+
+    @Override
+    public void debugInformation() {
+    }
+
+    @Override
+    public MappingStore getMappingsComp() {
+        return new MappingStore();
+    }
+
+}
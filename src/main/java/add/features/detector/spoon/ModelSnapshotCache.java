@@ -0,0 +1,136 @@
+package add.features.detector.spoon;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spoon.reflect.cu.CompilationUnit;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.support.SerializationModelStreamer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stores the Spoon models built from a set of files as binary snapshots, so that a rerun on the same files loads the
+ * model instead of parsing the files again with JDT.
+ *
+ * A snapshot is stored in {@code <cacheDirectory>/models/<hash>.model}, where the hash is the SHA-256 of the paths and
+ * the contents of the files. The snapshot contains the whole model, source positions and element metadata included.
+ */
+public class ModelSnapshotCache {
+    private static Logger LOGGER = LoggerFactory.getLogger(ModelSnapshotCache.class);
+
+    public static final String DIRECTORY_NAME = "models";
+    public static final String FILE_SUFFIX = ".model";
+
+    /**
+     * To be changed when the way the models are built changes (see {@link SpoonHelper#buildModel(Map)}), so that the
+     * snapshots of the previous versions are not used anymore.
+     */
+    private static final String FORMAT_VERSION = "2";
+
+    private File directory;
+
+    public ModelSnapshotCache(String cacheDirectoryPath) {
+        this.directory = new File(cacheDirectoryPath, DIRECTORY_NAME);
+    }
+
+    /**
+     * Returns the model of the files, loaded from its snapshot if there is one, otherwise built and then stored.
+     */
+    public Factory getModel(Map<String, List<String>> files) {
+        File snapshot = new File(this.directory, getHash(files) + FILE_SUFFIX);
+        if (snapshot.isFile()) {
+            Factory model = this.load(snapshot);
+            if (model != null) {
+                return model;
+            }
+        }
+        Factory model = SpoonHelper.buildModel(files);
+        this.save(model, snapshot);
+        return model;
+    }
+
+    private Factory load(File snapshot) {
+        try (InputStream inputStream = Files.newInputStream(snapshot.toPath())) {
+            Factory model = new SerializationModelStreamer().load(inputStream);
+            indexCompilationUnits(model);
+            return model;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("The model snapshot " + snapshot + " cannot be loaded, the model is built again: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Indexes the compilation units of a deserialized model by file, as the index is not part of the serialized model.
+     */
+    static void indexCompilationUnits(Factory model) {
+        for (CtType<?> type : model.getModel().getAllTypes()) {
+            CompilationUnit compilationUnit = type.getPosition().getCompilationUnit();
+            if (compilationUnit != null && compilationUnit.getFile() != null) {
+                model.CompilationUnit().getMap().put(compilationUnit.getFile().getPath(), compilationUnit);
+            }
+        }
+    }
+
+    private void save(Factory model, File snapshot) {
+        File temporaryFile = null;
+        try {
+            Files.createDirectories(this.directory.toPath());
+            // written aside then moved, so that a concurrent run never reads a partial snapshot
+            temporaryFile = File.createTempFile(snapshot.getName(), ".tmp", this.directory);
+            try (OutputStream outputStream = Files.newOutputStream(temporaryFile.toPath())) {
+                new SerializationModelStreamer().save(model, outputStream);
+            }
+            Files.move(temporaryFile.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("The model snapshot " + snapshot + " cannot be saved: " + e);
+            if (temporaryFile != null) {
+                temporaryFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Returns the SHA-256 of the paths and contents of the files, as an hexadecimal string.
+     */
+    public static String getHash(Map<String, List<String>> files) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(digest, FORMAT_VERSION);
+        for (Map.Entry<String, List<String>> file : new TreeMap<>(files).entrySet()) {
+            update(digest, new File(file.getKey()).getAbsolutePath());
+            update(digest, String.valueOf(file.getValue().size()));
+            for (String line : file.getValue()) {
+                update(digest, line);
+            }
+        }
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hash.append(String.format("%02x", b));
+        }
+        return hash.toString();
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        // separator, so that consecutive values cannot be confused with their concatenation
+        digest.update((byte) 0);
+    }
+
+}
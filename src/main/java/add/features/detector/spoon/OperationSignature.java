@@ -0,0 +1,120 @@
+package add.features.detector.spoon;
+
+import gumtree.spoon.diff.Diff;
+import gumtree.spoon.diff.operations.Operation;
+import gumtree.spoon.diff.operations.UpdateOperation;
+import spoon.reflect.code.CtBinaryOperator;
+import spoon.reflect.code.CtBlock;
+import spoon.reflect.code.CtLiteral;
+import spoon.reflect.code.CtOperatorAssignment;
+import spoon.reflect.code.CtUnaryOperator;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.path.CtRole;
+import spoon.reflect.reference.CtReference;
+import spoon.reflect.visitor.CtScanner;
+
+import java.util.List;
+
+/**
+ * Computes a 64-bit signature of a root operation of an edit script, which is the same for the operations that make
+ * the same change in different code: it is made of the kind of the operation, the kind of the node and of its parent,
+ * and the shape of the subtree of the node, whose labels are anonymized. The names of the variables, types and
+ * methods and the values of the literals are ignored; the operators and the null and boolean literals are kept, as
+ * they are part of the change (e.g. {@code if (x != null)} is a null guard whatever x is).
+ *
+ * The model is only read, so signatures can be computed concurrently with other detectors.
+ */
+public class OperationSignature extends CtScanner {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final String LITERAL = "LITERAL";
+
+    private long hash = FNV_OFFSET_BASIS;
+
+    private OperationSignature() {
+    }
+
+    public static long of(Operation operation) {
+        OperationSignature signature = new OperationSignature();
+        CtElement node = operation.getSrcNode();
+        signature.mix(operation.getClass().getSimpleName());
+        signature.mix(node.isParentInitialized() && node.getParent() != null ? getKind(node.getParent()) : "");
+        // the node itself is part of the signature even if it is moved, but not its moved sub-elements
+        node.accept(signature);
+        if (operation instanceof UpdateOperation) {
+            CtElement dstNode = operation.getDstNode();
+            signature.mix(dstNode != null ? getLabel(dstNode) : "");
+        }
+        return signature.hash;
+    }
+
+    /**
+     * Returns the signatures of the root operations of the edit script, in the order of the operations.
+     */
+    public static long[] of(Diff editScript) {
+        List<Operation> operations = editScript.getRootOperations();
+        long[] signatures = new long[operations.size()];
+        for (int i = 0; i < signatures.length; i++) {
+            signatures[i] = of(operations.get(i));
+        }
+        return signatures;
+    }
+
+    @Override
+    public void scan(CtRole role, CtElement element) {
+        if (element == null || element.getMetadata("isMoved") != null || element instanceof CtReference) {
+            return;
+        }
+        if (element.isImplicit() && !(element instanceof CtBlock)) {
+            return;
+        }
+        super.scan(role, element);
+    }
+
+    @Override
+    protected void enter(CtElement element) {
+        this.mix(getKind(element));
+        this.mix(getLabel(element));
+    }
+
+    @Override
+    protected void exit(CtElement element) {
+        // closes the element so that the shape of the tree is part of the signature
+        this.mix(")");
+    }
+
+    private static String getKind(CtElement element) {
+        return element.getClass().getSimpleName();
+    }
+
+    /**
+     * Returns the anonymized label of the element: its operator, or the value of a null or boolean literal.
+     */
+    private static String getLabel(CtElement element) {
+        if (element instanceof CtBinaryOperator) {
+            return ((CtBinaryOperator<?>) element).getKind().name();
+        } else if (element instanceof CtUnaryOperator) {
+            return ((CtUnaryOperator<?>) element).getKind().name();
+        } else if (element instanceof CtOperatorAssignment) {
+            return ((CtOperatorAssignment<?, ?>) element).getKind().name();
+        } else if (element instanceof CtLiteral) {
+            Object value = ((CtLiteral<?>) element).getValue();
+            return value == null || value instanceof Boolean ? String.valueOf(value) : LITERAL;
+        }
+        return "";
+    }
+
+    private void mix(String value) {
+        long hash = this.hash;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        // separator, so that consecutive values cannot be confused with their concatenation
+        hash ^= 0xff;
+        hash *= FNV_PRIME;
+        this.hash = hash;
+    }
+
+}
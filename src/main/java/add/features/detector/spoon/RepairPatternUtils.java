@@ -26,7 +26,7 @@ import spoon.reflect.declaration.CtElement;
 import spoon.reflect.declaration.CtVariable;
 import spoon.reflect.declaration.ModifierKind;
 import spoon.reflect.reference.CtTypeReference;
-import spoon.reflect.visitor.filter.TypeFilter;
+import spoon.reflect.visitor.Filter;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -37,6 +37,34 @@ import java.util.Set;
  */
 public class RepairPatternUtils {
 
+    private static final Filter<CtBinaryOperator> NEW_BINARY_OPERATOR = new Filter<CtBinaryOperator>() {
+        @Override
+        public boolean matches(CtBinaryOperator binaryOperator) {
+            return isNewBinaryOperator(binaryOperator);
+        }
+    };
+
+    private static final Filter<CtUnaryOperator> NEW_UNARY_OPERATOR = new Filter<CtUnaryOperator>() {
+        @Override
+        public boolean matches(CtUnaryOperator unaryOperator) {
+            return isNewUnaryOperator(unaryOperator);
+        }
+    };
+
+    private static final Filter<CtElement> NEW_ELEMENT = new Filter<CtElement>() {
+        @Override
+        public boolean matches(CtElement element) {
+            return element.getMetadata("new") != null;
+        }
+    };
+
+    private static final Filter<CtTypeReference> STRING_TYPE_REFERENCE = new Filter<CtTypeReference>() {
+        @Override
+        public boolean matches(CtTypeReference typeReference) {
+            return typeReference.getSimpleName().equals("String");
+        }
+    };
+
     public static boolean isNewVariable(CtVariable variable) {
         if (variable.getMetadata("new") != null) {
             return true;
@@ -134,31 +162,12 @@ public class RepairPatternUtils {
     }
 
     public static boolean isStringInvolvedInBinaryOperator(CtBinaryOperator binaryOperator) {
-        boolean isStringInvolved = false;
-        List<CtTypeReference> types = binaryOperator.getElements(new TypeFilter<>(CtTypeReference.class));
-        for (CtTypeReference typeReference : types) {
-            if (typeReference.getSimpleName().equals("String")) {
-                isStringInvolved = true;
-            }
-        }
-        return isStringInvolved;
+        return ElementQuery.anyMatch(binaryOperator, CtTypeReference.class, STRING_TYPE_REFERENCE);
     }
 
     public static boolean wasConditionChangedInIf(CtIf ctIf) {
-        boolean wasConditionChanged = false;
-        List<CtBinaryOperator> binaryOperatorList = ctIf.getCondition().getElements(new TypeFilter<>(CtBinaryOperator.class));
-        for (CtBinaryOperator ctBinaryOperator : binaryOperatorList) {
-            if (RepairPatternUtils.isNewBinaryOperator(ctBinaryOperator)) {
-                wasConditionChanged = true;
-            }
-        }
-        List<CtUnaryOperator> unaryOperatorList = ctIf.getCondition().getElements(new TypeFilter<>(CtUnaryOperator.class));
-        for (CtUnaryOperator ctUnaryOperator : unaryOperatorList) {
-            if (RepairPatternUtils.isNewUnaryOperator(ctUnaryOperator)) {
-                wasConditionChanged = true;
-            }
-        }
-        return wasConditionChanged;
+        return ElementQuery.anyMatch(ctIf.getCondition(), CtBinaryOperator.class, NEW_BINARY_OPERATOR) ||
+                ElementQuery.anyMatch(ctIf.getCondition(), CtUnaryOperator.class, NEW_UNARY_OPERATOR);
     }
 
     public static boolean isNewStatement(CtStatement statement) {
@@ -191,38 +200,14 @@ public class RepairPatternUtils {
 
     public static boolean isNewIf(CtIf ctIf) {
         if (ctIf.getMetadata("new") != null) {
-            List<CtBinaryOperator> binaryOperatorList = ctIf.getCondition().getElements(new TypeFilter<>(CtBinaryOperator.class));
-            for (CtBinaryOperator ctBinaryOperator : binaryOperatorList) {
-                if (!isNewBinaryOperator(ctBinaryOperator)) {
-                    return false;
-                }
-            }
-            List<CtUnaryOperator> unaryOperatorList = ctIf.getCondition().getElements(new TypeFilter<>(CtUnaryOperator.class));
-            for (CtUnaryOperator ctUnaryOperator : unaryOperatorList) {
-                if (!isNewUnaryOperator(ctUnaryOperator)) {
-                    return false;
-                }
-            }
-            return true;
+            return areAllOperatorsNew(ctIf.getCondition());
         }
         return false;
     }
 
     public static boolean isNewWhile(CtWhile ctWhile) {
         if (ctWhile.getMetadata("new") != null) {
-            List<CtBinaryOperator> binaryOperatorList = ctWhile.getLoopingExpression().getElements(new TypeFilter<>(CtBinaryOperator.class));
-            for (CtBinaryOperator ctBinaryOperator : binaryOperatorList) {
-                if (!isNewBinaryOperator(ctBinaryOperator)) {
-                    return false;
-                }
-            }
-            List<CtUnaryOperator> unaryOperatorList = ctWhile.getLoopingExpression().getElements(new TypeFilter<>(CtUnaryOperator.class));
-            for (CtUnaryOperator ctUnaryOperator : unaryOperatorList) {
-                if (!isNewUnaryOperator(ctUnaryOperator)) {
-                    return false;
-                }
-            }
-            return true;
+            return areAllOperatorsNew(ctWhile.getLoopingExpression());
         }
         return false;
     }
@@ -230,19 +215,8 @@ public class RepairPatternUtils {
     public static boolean isNewFor(CtFor ctFor) {
         if (ctFor.getMetadata("new") != null) {
             CtExpression<Boolean> expression = ctFor.getExpression();
-            if (expression != null) {
-                List<CtBinaryOperator> binaryOperatorList = expression.getElements(new TypeFilter<>(CtBinaryOperator.class));
-                for (CtBinaryOperator ctBinaryOperator : binaryOperatorList) {
-                    if (!isNewBinaryOperator(ctBinaryOperator)) {
-                        return false;
-                    }
-                }
-                List<CtUnaryOperator> unaryOperatorList = expression.getElements(new TypeFilter<>(CtUnaryOperator.class));
-                for (CtUnaryOperator ctUnaryOperator : unaryOperatorList) {
-                    if (!isNewUnaryOperator(ctUnaryOperator)) {
-                        return false;
-                    }
-                }
+            if (expression != null && !areAllOperatorsNew(expression)) {
+                return false;
             }
             if (!isThereOnlyNewStatementsInStatementList(ctFor.getForInit())) {
                 return false;
@@ -255,6 +229,11 @@ public class RepairPatternUtils {
         return false;
     }
 
+    private static boolean areAllOperatorsNew(CtExpression expression) {
+        return ElementQuery.allMatch(expression, CtBinaryOperator.class, NEW_BINARY_OPERATOR) &&
+                ElementQuery.allMatch(expression, CtUnaryOperator.class, NEW_UNARY_OPERATOR);
+    }
+
     public static boolean isNewForEach(CtForEach ctForEach) {
         if (ctForEach.getMetadata("new") != null) {
             if (ctForEach.getVariable().getMetadata("new") == null) {
@@ -314,15 +293,15 @@ public class RepairPatternUtils {
             return ((CtVariableAccess) referenceExpression).getVariable().getDeclaration();
         }
         if (referenceExpression instanceof CtArrayAccess) {
-            List<CtVariableAccess> variableAccessList = ((CtArrayAccess) referenceExpression).getTarget().getElements(new TypeFilter<>(CtVariableAccess.class));
-            if (variableAccessList.size() > 0) {
-                return variableAccessList.get(0).getVariable().getDeclaration();
+            CtVariableAccess variableAccess = ElementQuery.findFirst(((CtArrayAccess) referenceExpression).getTarget(), CtVariableAccess.class);
+            if (variableAccess != null) {
+                return variableAccess.getVariable().getDeclaration();
             }
         }
         if (referenceExpression instanceof CtInvocation) {
-            List<CtVariableAccess> variableAccessList = ((CtInvocation) referenceExpression).getTarget().getElements(new TypeFilter<>(CtVariableAccess.class));
-            if (variableAccessList.size() > 0) {
-                return variableAccessList.get(0).getVariable().getDeclaration();
+            CtVariableAccess variableAccess = ElementQuery.findFirst(((CtInvocation) referenceExpression).getTarget(), CtVariableAccess.class);
+            if (variableAccess != null) {
+                return variableAccess.getVariable().getDeclaration();
             }
         }
         return null;
@@ -370,13 +349,11 @@ public class RepairPatternUtils {
     }
 
     public static boolean isThereReturnInIfOrCase(CtElement ctElement) {
-        List<CtReturn> returnList = ctElement.getElements(new ReturnInsideConditionalFilter(ctElement));
-        return (returnList.size() > 0) ? true : false;
+        return ElementQuery.anyMatch(ctElement, CtReturn.class, new ReturnInsideConditionalFilter(ctElement));
     }
 
     public static boolean isThereThrowInIfOrCase(CtElement ctElement) {
-        List<CtThrow> throwList = ctElement.getElements(new ThrowInsideConditionalFilter(ctElement));
-        return (throwList.size() > 0) ? true : false;
+        return ElementQuery.anyMatch(ctElement, CtThrow.class, new ThrowInsideConditionalFilter(ctElement));
     }
 
     public static boolean isThereOnlyNewCatch(List<CtCatch> catchList) {
@@ -389,14 +366,7 @@ public class RepairPatternUtils {
     }
 
     public static boolean isThereChangesInChildren(CtElement ctElement) {
-        boolean isThereChanges = false;
-        List<CtElement> children = ctElement.getElements(new TypeFilter<>(CtElement.class));
-        for (CtElement child : children) {
-            if (child.getMetadata("new") != null) {
-                isThereChanges = true;
-            }
-        }
-        return isThereChanges;
+        return ElementQuery.anyMatch(ctElement, CtElement.class, NEW_ELEMENT);
     }
 
     public static boolean isConstantVariableAccess(CtVariableAccess ctVariableAccess) {
@@ -3,17 +3,13 @@ package add.features.detector.spoon;
 import add.main.Constants;
 import gumtree.spoon.AstComparator;
 import gumtree.spoon.diff.Diff;
-import gumtree.spoon.diff.operations.Operation;
-import gumtree.spoon.diff.operations.UpdateOperation;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import spoon.Launcher;
-import spoon.compiler.Environment;
-import spoon.reflect.declaration.CtElement;
-import spoon.reflect.visitor.DefaultJavaPrettyPrinter;
+import spoon.compiler.SpoonResource;
+import spoon.reflect.factory.Factory;
 import spoon.support.compiler.VirtualFile;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -21,53 +17,53 @@ import java.util.Map;
  * Created by fermadeiral
  */
 public class SpoonHelper {
-    private static Logger LOGGER = LoggerFactory.getLogger(SpoonHelper.class);
 
     public static Launcher initSpoon(Map<String, List<String>> files) {
         Launcher spoon = new Launcher();
         spoon.getEnvironment().setNoClasspath(true);
         spoon.getEnvironment().setAutoImports(false);
         spoon.getEnvironment().setCommentEnabled(false);
+        spoon.getModelBuilder().addInputSources(getInputSources(files));
+        spoon.buildModel();
+        return spoon;
+    }
+
+    /**
+     * Returns the model of the files, built with the same configuration as {@link #initSpoon(Map)} but with a context
+     * of {@link SpoonModelPool}.
+     */
+    public static Factory buildModel(Map<String, List<String>> files) {
+        return SpoonModelPool.getInstance().buildModel(getInputSources(files));
+    }
+
+    /**
+     * Returns the model of the files, reusing the model snapshots of the cache directory if it is not null.
+     */
+    public static Factory getModel(Map<String, List<String>> files, String cacheDirectoryPath) {
+        if (cacheDirectoryPath == null) {
+            return buildModel(files);
+        }
+        return new ModelSnapshotCache(cacheDirectoryPath).getModel(files);
+    }
+
+    private static List<SpoonResource> getInputSources(Map<String, List<String>> files) {
+        List<SpoonResource> sources = new ArrayList<>();
         for (String path : files.keySet()) {
             String fileContent = String.join(Constants.LINE_BREAK, files.get(path))
                     .replace("import javax.annotation.Nullable", "// import javax.annotation.Nullable")
                     .replace("import javax.annotation.CheckForNull", "// import javax.annotation.CheckForNull");
-            VirtualFile virtualFile = new VirtualFile(fileContent, new File(path).getAbsolutePath());
-            spoon.getModelBuilder().addInputSource(virtualFile);
+            sources.add(new VirtualFile(fileContent, new File(path).getAbsolutePath()));
         }
-        spoon.buildModel();
-        return spoon;
+        return sources;
     }
 
     public static Diff getAstDiff(Launcher oldSpoon, Launcher newSpoon) {
-        AstComparator diff = new AstComparator();
-        return diff.compare(oldSpoon.getFactory().getModel().getRootPackage(), newSpoon.getFactory().getModel().getRootPackage());
+        return getAstDiff(oldSpoon.getFactory(), newSpoon.getFactory());
     }
 
-    public static void printInsertOrDeleteOperation(Environment env, CtElement element, Operation operation) {
-        DefaultJavaPrettyPrinter print = new DefaultJavaPrettyPrinter(env) {
-            @Override
-            public DefaultJavaPrettyPrinter scan(CtElement e) {
-                if (e != null && e.getMetadata("isMoved") == null) {
-                    return super.scan(e);
-                }
-                return this;
-            }
-        };
-        print.scan(element);
-        LOGGER.debug(operation.getClass().getSimpleName());
-        LOGGER.debug(print.getResult() + Constants.LINE_BREAK);
-    }
-
-    public static void printUpdateOperation(CtElement srcNode, CtElement dstNode, UpdateOperation operation) {
-        LOGGER.debug(UpdateOperation.class.getSimpleName());
-        LOGGER.debug(srcNode.toString());
-        LOGGER.debug("to");
-        if (dstNode != null) {
-            LOGGER.debug(dstNode + Constants.LINE_BREAK);
-        } else {
-            LOGGER.debug(operation.getAction().getValue() + Constants.LINE_BREAK);
-        }
+    public static Diff getAstDiff(Factory oldModel, Factory newModel) {
+        AstComparator diff = new AstComparator();
+        return diff.compare(oldModel.getModel().getRootPackage(), newModel.getModel().getRootPackage());
     }
 
 }
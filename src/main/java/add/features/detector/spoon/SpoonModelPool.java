@@ -0,0 +1,121 @@
+package add.features.detector.spoon;
+
+import org.eclipse.jdt.internal.compiler.batch.FileSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spoon.compiler.Environment;
+import spoon.compiler.SpoonResource;
+import spoon.reflect.factory.Factory;
+import spoon.reflect.factory.FactoryImpl;
+import spoon.support.DefaultCoreFactory;
+import spoon.support.StandardEnvironment;
+import spoon.support.compiler.jdt.JDTBasedSpoonCompiler;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Keeps pre-configured contexts to build Spoon models, so that the model of a small patch does not pay the setup of a
+ * new Spoon launcher and JDT compiler each time.
+ *
+ * Most of the cost of building the model of one or two files is JDT opening and indexing the jars of its class path,
+ * which it does again for each compilation. A context keeps the JDT name environment of the class path that Spoon uses
+ * by default (the boot class path and the class path of the JVM), so its jars are opened and indexed once, and the
+ * environment of Spoon (no class path, no auto-imports, no comments). Each build creates a new factory, since the model
+ * is given to the caller. A context is used by one thread at a time: the builds check out a context, and return it
+ * once the model is built; a new context is created when all of them are in use.
+ */
+public class SpoonModelPool {
+    private static Logger LOGGER = LoggerFactory.getLogger(SpoonModelPool.class);
+
+    private static final SpoonModelPool INSTANCE = new SpoonModelPool();
+
+    private final Deque<Context> contexts = new ConcurrentLinkedDeque<>();
+
+    public static SpoonModelPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the model of the sources, built with a context of the pool.
+     */
+    public Factory buildModel(List<SpoonResource> sources) {
+        Context context = this.checkOut();
+        try {
+            return context.buildModel(sources);
+        } finally {
+            this.contexts.addFirst(context);
+        }
+    }
+
+    /**
+     * Returns the number of idle contexts.
+     */
+    public int size() {
+        return this.contexts.size();
+    }
+
+    private Context checkOut() {
+        // the most recently used context is taken first, so that the others are created only under contention
+        Context context = this.contexts.pollFirst();
+        if (context == null) {
+            long start = System.nanoTime();
+            context = new Context();
+            LOGGER.debug("Spoon context created in " + (System.nanoTime() - start) / 1000000 + " ms.");
+        }
+        return context;
+    }
+
+    private static class Context {
+        private final Environment environment;
+        private final FileSystem nameEnvironment;
+
+        Context() {
+            this.environment = new StandardEnvironment();
+            this.environment.setNoClasspath(true);
+            this.environment.setAutoImports(false);
+            this.environment.setCommentEnabled(false);
+            this.nameEnvironment = new FileSystem(getClasspath(), null, this.environment.getEncoding().name());
+        }
+
+        Factory buildModel(List<SpoonResource> sources) {
+            Factory factory = new FactoryImpl(new DefaultCoreFactory(), this.environment);
+            JDTBasedSpoonCompiler compiler = new JDTBasedSpoonCompiler(factory);
+            compiler.setEnvironment(this.nameEnvironment);
+            compiler.addInputSources(sources);
+            compiler.build();
+            return factory;
+        }
+    }
+
+    /**
+     * Returns the class path that JDT uses when Spoon does not give any: the run-time image or the boot class path of
+     * the JVM, followed by its class path.
+     */
+    static String[] getClasspath() {
+        List<String> classpath = new ArrayList<>();
+        File runtimeImage = new File(new File(System.getProperty("java.home"), "lib"), "jrt-fs.jar");
+        if (runtimeImage.isFile()) {
+            classpath.add(runtimeImage.getPath());
+        } else {
+            addEntries(classpath, System.getProperty("sun.boot.class.path"));
+        }
+        addEntries(classpath, System.getProperty("java.class.path"));
+        return classpath.toArray(new String[classpath.size()]);
+    }
+
+    private static void addEntries(List<String> classpath, String entries) {
+        if (entries == null) {
+            return;
+        }
+        for (String entry : entries.split(File.pathSeparator)) {
+            if (!entry.isEmpty() && new File(entry).exists()) {
+                classpath.add(entry);
+            }
+        }
+    }
+
+}
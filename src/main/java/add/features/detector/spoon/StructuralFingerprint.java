@@ -0,0 +1,188 @@
+package add.features.detector.spoon;
+
+import spoon.reflect.code.CtArrayAccess;
+import spoon.reflect.code.CtBinaryOperator;
+import spoon.reflect.code.CtBlock;
+import spoon.reflect.code.CtComment;
+import spoon.reflect.code.CtExpression;
+import spoon.reflect.code.CtFor;
+import spoon.reflect.code.CtForEach;
+import spoon.reflect.code.CtIf;
+import spoon.reflect.code.CtLiteral;
+import spoon.reflect.code.CtNewArray;
+import spoon.reflect.code.CtOperatorAssignment;
+import spoon.reflect.code.CtStatement;
+import spoon.reflect.code.CtSwitch;
+import spoon.reflect.code.CtSynchronized;
+import spoon.reflect.code.CtTargetedExpression;
+import spoon.reflect.code.CtTry;
+import spoon.reflect.code.CtUnaryOperator;
+import spoon.reflect.code.CtVariableAccess;
+import spoon.reflect.code.CtWhile;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtModifiable;
+import spoon.reflect.declaration.CtNamedElement;
+import spoon.reflect.declaration.ModifierKind;
+import spoon.reflect.path.CtRole;
+import spoon.reflect.reference.CtExecutableReference;
+import spoon.reflect.reference.CtReference;
+import spoon.reflect.reference.CtTypeReference;
+import spoon.reflect.visitor.CtScanner;
+
+import java.util.TreeSet;
+
+/**
+ * Computes a 64-bit fingerprint of the code of a subtree, normalized in the same way as a copy/paste is recognized:
+ * moved elements are ignored (but a moved statement of a block leaves an empty statement, as in the printed code),
+ * every variable access and literal is replaced by a placeholder, and when one operand of a binary operator is moved
+ * the other one is at the same place whichever side it is on.
+ *
+ * The model is only read, so fingerprints can be computed concurrently with other detectors.
+ */
+public class StructuralFingerprint extends CtScanner {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final String PLACEHOLDER = "VAR";
+
+    private long hash = FNV_OFFSET_BASIS;
+    private int nbTokens = 0;
+    private boolean onlyPlaceholder = true;
+
+    private StructuralFingerprint() {
+    }
+
+    /**
+     * Returns the fingerprint of the element, or null if its normalized code is empty or a single placeholder.
+     */
+    public static Long of(CtElement element) {
+        StructuralFingerprint fingerprint = new StructuralFingerprint();
+        fingerprint.scan(null, element);
+        if (fingerprint.nbTokens == 0 || (fingerprint.nbTokens == 1 && fingerprint.onlyPlaceholder)) {
+            return null;
+        }
+        return fingerprint.hash;
+    }
+
+    @Override
+    public void scan(CtRole role, CtElement element) {
+        if (element == null) {
+            return;
+        }
+        if (element.getMetadata("isMoved") != null) {
+            // a moved statement of a block leaves its separator, as an empty statement, in the printed code
+            if (role == CtRole.STATEMENT && hasSeparator(element)) {
+                this.addToken(";");
+            }
+            return;
+        }
+        if (element instanceof CtVariableAccess || element instanceof CtLiteral) {
+            this.addToken(PLACEHOLDER);
+            this.scan(CtRole.CAST, ((CtExpression<?>) element).getTypeCasts());
+            if (element instanceof CtTargetedExpression) {
+                this.scan(CtRole.TARGET, ((CtTargetedExpression<?, ?>) element).getTarget());
+            }
+            return;
+        }
+        if (element instanceof CtReference) {
+            // the type of an expression is not part of its code, except for array creations
+            if (role != CtRole.TYPE || !element.isParentInitialized() || !(element.getParent() instanceof CtExpression)
+                    || element.getParent() instanceof CtNewArray) {
+                this.scanReference((CtReference) element);
+            }
+            return;
+        }
+        if (element.isImplicit() && !(element instanceof CtBlock)) {
+            return;
+        }
+        if (element instanceof CtBinaryOperator) {
+            this.scanBinaryOperator((CtBinaryOperator<?>) element);
+            return;
+        }
+        super.scan(role, element);
+    }
+
+    private static boolean hasSeparator(CtElement statement) {
+        return statement instanceof CtStatement
+                && !(statement instanceof CtBlock || statement instanceof CtIf || statement instanceof CtFor
+                || statement instanceof CtForEach || statement instanceof CtWhile || statement instanceof CtTry
+                || statement instanceof CtSwitch || statement instanceof CtSynchronized || statement instanceof CtClass
+                || statement instanceof CtComment);
+    }
+
+    private void scanBinaryOperator(CtBinaryOperator<?> binaryOperator) {
+        this.enter(binaryOperator);
+        this.scan(CtRole.CAST, binaryOperator.getTypeCasts());
+        // a moved operand adds nothing: the remaining operand is at the same place whichever side it is on
+        this.scan(CtRole.LEFT_OPERAND, binaryOperator.getLeftHandOperand());
+        this.scan(CtRole.RIGHT_OPERAND, binaryOperator.getRightHandOperand());
+        this.exit(binaryOperator);
+    }
+
+    private void scanReference(CtReference reference) {
+        if (reference.isImplicit()) {
+            return;
+        }
+        if (reference instanceof CtTypeReference) {
+            this.addToken(((CtTypeReference<?>) reference).getQualifiedName());
+            this.scan(CtRole.TYPE_ARGUMENT, ((CtTypeReference<?>) reference).getActualTypeArguments());
+        } else if (reference instanceof CtExecutableReference && ((CtExecutableReference<?>) reference).isConstructor()) {
+            CtTypeReference<?> type = ((CtExecutableReference<?>) reference).getType();
+            this.addToken(type == null ? reference.getSimpleName() : type.getQualifiedName());
+        } else {
+            this.addToken(reference.getSimpleName());
+        }
+    }
+
+    @Override
+    protected void enter(CtElement element) {
+        if (element.isImplicit()) {
+            return;
+        }
+        // reading and writing an array element are the same code
+        this.addToken(element instanceof CtArrayAccess ? CtArrayAccess.class.getSimpleName() : element.getClass().getSimpleName());
+        if (element instanceof CtNamedElement) {
+            this.mix(((CtNamedElement) element).getSimpleName());
+        }
+        if (element instanceof CtModifiable) {
+            for (ModifierKind modifier : new TreeSet<>(((CtModifiable) element).getModifiers())) {
+                this.mix(modifier.name());
+            }
+        }
+        if (element instanceof CtBinaryOperator) {
+            this.mix(((CtBinaryOperator<?>) element).getKind().name());
+        } else if (element instanceof CtUnaryOperator) {
+            this.mix(((CtUnaryOperator<?>) element).getKind().name());
+        } else if (element instanceof CtOperatorAssignment) {
+            this.mix(((CtOperatorAssignment<?, ?>) element).getKind().name());
+        }
+    }
+
+    @Override
+    protected void exit(CtElement element) {
+        if (!element.isImplicit()) {
+            // closes the element so that the shape of the tree is part of the fingerprint
+            this.mix(")");
+        }
+    }
+
+    private void addToken(String token) {
+        this.nbTokens++;
+        this.onlyPlaceholder = this.onlyPlaceholder && PLACEHOLDER.equals(token);
+        this.mix(token);
+    }
+
+    private void mix(String value) {
+        long hash = this.hash;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        // separator, so that consecutive values cannot be confused with their concatenation
+        hash ^= 0xff;
+        hash *= FNV_PRIME;
+        this.hash = hash;
+    }
+
+}
@@ -1,6 +1,6 @@
 package add.features.detector.spoon.filter;
 
-import spoon.reflect.code.BinaryOperatorKind;
+import add.features.detector.spoon.ElementPredicates;
 import spoon.reflect.code.CtBinaryOperator;
 import spoon.reflect.visitor.Filter;
 
@@ -14,12 +14,7 @@ public class NullCheckFilter implements Filter<CtBinaryOperator> {
 
     @Override
     public boolean matches(CtBinaryOperator ctBinaryOperator) {
-        BinaryOperatorKind operatorKind = ctBinaryOperator.getKind();
-        if ((operatorKind.equals(BinaryOperatorKind.EQ) || operatorKind.equals(BinaryOperatorKind.NE)) &&
-                ((ctBinaryOperator.getLeftHandOperand().toString().equals("null") || ctBinaryOperator.getRightHandOperand().toString().equals("null")))) {
-            return true;
-        }
-        return false;
+        return ElementPredicates.isNullCheck(ctBinaryOperator);
     }
 
 }
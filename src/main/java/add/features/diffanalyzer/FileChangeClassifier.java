@@ -0,0 +1,110 @@
+package add.features.diffanalyzer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Classifies the files of a patch before the Spoon models are built: the files that are not Java files and the Java
+ * files whose changes only touch comments, whitespace or unused imports do not change the AST, so they do not need to
+ * be parsed nor compared with GumTree.
+ *
+ * The two versions of a Java file are split into tokens by {@link JavaTokenizer}, which drops the whitespace and the
+ * comments, and the file is {@link Kind#FORMATTING} if the tokens are the same, except for single-type imports whose
+ * simple name is not used in the file. The classification is conservative: a file that cannot be tokenized, or whose
+ * tokens differ in any other way, is classified as {@link Kind#CODE}.
+ */
+public class FileChangeClassifier {
+
+    public enum Kind {
+        NON_CODE, FORMATTING, CODE
+    }
+
+    private static final String IMPORT = "import";
+    private static final String END_OF_DECLARATION = ";";
+
+    public static Kind classify(String fileName, List<String> originalLines, List<String> patchedLines) {
+        if (!fileName.endsWith(".java")) {
+            return Kind.NON_CODE;
+        }
+        List<String> originalTokens = JavaTokenizer.tokenize(originalLines);
+        List<String> patchedTokens = JavaTokenizer.tokenize(patchedLines);
+        if (originalTokens == null || patchedTokens == null) {
+            return Kind.CODE;
+        }
+        if (originalTokens.equals(patchedTokens)) {
+            return Kind.FORMATTING;
+        }
+
+        Set<List<String>> originalImports = new HashSet<>();
+        Set<List<String>> patchedImports = new HashSet<>();
+        List<String> originalCodeTokens = removeImports(originalTokens, originalImports);
+        if (!originalCodeTokens.equals(removeImports(patchedTokens, patchedImports))) {
+            return Kind.CODE;
+        }
+        Set<List<String>> changedImports = new HashSet<>(originalImports);
+        changedImports.addAll(patchedImports);
+        for (List<String> changedImport : changedImports) {
+            if (originalImports.contains(changedImport) != patchedImports.contains(changedImport) &&
+                    isUsed(changedImport, originalCodeTokens)) {
+                return Kind.CODE;
+            }
+        }
+        return Kind.FORMATTING;
+    }
+
+    /**
+     * Removes from the original and patched files the files whose changes are not {@link Kind#CODE} changes.
+     */
+    public static void retainCodeChanges(Map<String, List<String>> originalFiles, Map<String, List<String>> patchedFiles) {
+        Iterator<Map.Entry<String, List<String>>> iterator = originalFiles.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, List<String>> originalFile = iterator.next();
+            List<String> patchedLines = patchedFiles.get(originalFile.getKey());
+            if (patchedLines != null && classify(originalFile.getKey(), originalFile.getValue(), patchedLines) != Kind.CODE) {
+                iterator.remove();
+                patchedFiles.remove(originalFile.getKey());
+            }
+        }
+    }
+
+    /**
+     * Returns the tokens without the import declarations, which are added to the given set.
+     */
+    private static List<String> removeImports(List<String> tokens, Set<List<String>> imports) {
+        List<String> codeTokens = new ArrayList<>(tokens.size());
+        int i = 0;
+        while (i < tokens.size()) {
+            // import is a keyword, so it is a token only at the start of an import declaration
+            if (!IMPORT.equals(tokens.get(i))) {
+                codeTokens.add(tokens.get(i));
+                i++;
+                continue;
+            }
+            int end = tokens.subList(i, tokens.size()).indexOf(END_OF_DECLARATION);
+            if (end == -1) {
+                codeTokens.addAll(tokens.subList(i, tokens.size()));
+                break;
+            }
+            imports.add(new ArrayList<>(tokens.subList(i, i + end + 1)));
+            i += end + 1;
+        }
+        return codeTokens;
+    }
+
+    /**
+     * Returns true if the import declaration can change the meaning of the code: if it imports all the types or
+     * static members of a package or type, or if the simple name it imports is found in the code.
+     */
+    private static boolean isUsed(List<String> importDeclaration, List<String> codeTokens) {
+        if (importDeclaration.size() < 2) {
+            return true;
+        }
+        String simpleName = importDeclaration.get(importDeclaration.size() - 2);
+        return "*".equals(simpleName) || codeTokens.contains(simpleName);
+    }
+
+}
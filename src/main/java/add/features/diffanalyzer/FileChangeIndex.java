@@ -0,0 +1,132 @@
+package add.features.diffanalyzer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Interval index of the non-empty changes of a file, on the old and on the new version of the file.
+ *
+ * The changes of each side are sorted by first line, with the maximum last line of every prefix, so that the
+ * changes covering a line are found by binary search without looking at the changes of the other files.
+ */
+public class FileChangeIndex {
+
+    private final Intervals oldChanges;
+    private final Intervals newChanges;
+
+    public FileChangeIndex(Changes changes, String file) {
+        String fileName = file.replace("/", ".");
+        this.oldChanges = new Intervals(this.getFileChanges(changes.getOldChanges(), fileName));
+        this.newChanges = new Intervals(this.getFileChanges(changes.getNewChanges(), fileName));
+    }
+
+    private List<Change> getFileChanges(List<Change> changes, String fileName) {
+        List<Change> fileChanges = new ArrayList<>();
+        for (Change change : changes) {
+            if (change.getLength() != 0 && fileName.endsWith(change.getClassName() + ".java")) {
+                fileChanges.add(change);
+            }
+        }
+        return fileChanges;
+    }
+
+    /**
+     * Returns the change that contains the given line of the old version or the given line of the new version.
+     * If there is none, it looks at the previous line of both versions, and so on: the change returned is the
+     * closest one before the lines, a change on the old version being preferred to a change on the new version.
+     *
+     * @throws IllegalStateException if there is no change before the lines
+     */
+    public Change getChange(int oldLine, int newLine) {
+        int oldDistance = this.oldChanges.getDistance(oldLine);
+        int newDistance = this.newChanges.getDistance(newLine);
+        if (oldDistance == Integer.MAX_VALUE && newDistance == Integer.MAX_VALUE) {
+            throw new IllegalStateException("No change before line " + oldLine + " (old) / " + newLine + " (new)");
+        }
+        if (oldDistance <= newDistance) {
+            return this.oldChanges.getCovering(oldLine - oldDistance);
+        }
+        return this.newChanges.getCovering(newLine - newDistance);
+    }
+
+    private static class Intervals {
+        private final Change[] changes;
+        private final int[] order;
+        private final int[] lines;
+        private final int[] maxEndLines;
+
+        Intervals(final List<Change> fileChanges) {
+            Integer[] sortedIndexes = new Integer[fileChanges.size()];
+            for (int i = 0; i < sortedIndexes.length; i++) {
+                sortedIndexes[i] = i;
+            }
+            Arrays.sort(sortedIndexes, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer i1, Integer i2) {
+                    return Integer.compare(fileChanges.get(i1).getLine(), fileChanges.get(i2).getLine());
+                }
+            });
+
+            this.changes = new Change[sortedIndexes.length];
+            this.order = new int[sortedIndexes.length];
+            this.lines = new int[sortedIndexes.length];
+            this.maxEndLines = new int[sortedIndexes.length];
+            for (int i = 0; i < sortedIndexes.length; i++) {
+                Change change = fileChanges.get(sortedIndexes[i]);
+                this.changes[i] = change;
+                this.order[i] = sortedIndexes[i];
+                this.lines[i] = change.getLine();
+                this.maxEndLines[i] = i == 0 ? change.getEndLine() : Math.max(this.maxEndLines[i - 1], change.getEndLine());
+            }
+        }
+
+        /**
+         * Index of the last change starting at or before the line, -1 if there is none.
+         */
+        private int floor(int line) {
+            int low = 0;
+            int high = this.lines.length - 1;
+            int floor = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (this.lines[middle] <= line) {
+                    floor = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return floor;
+        }
+
+        /**
+         * Number of lines between the line and the closest change at or before it (0 if a change covers it),
+         * Integer.MAX_VALUE if there is no change before the line.
+         */
+        int getDistance(int line) {
+            int floor = this.floor(line);
+            if (floor == -1) {
+                return Integer.MAX_VALUE;
+            }
+            return Math.max(0, line - this.maxEndLines[floor]);
+        }
+
+        /**
+         * The change covering the line; if several do, the first one in the order of the patch.
+         */
+        Change getCovering(int line) {
+            Change covering = null;
+            int coveringOrder = Integer.MAX_VALUE;
+            for (int i = this.floor(line); i >= 0 && this.maxEndLines[i] >= line; i--) {
+                if (this.changes[i].getEndLine() >= line && this.order[i] < coveringOrder) {
+                    covering = this.changes[i];
+                    coveringOrder = this.order[i];
+                }
+            }
+            return covering;
+        }
+    }
+
+}
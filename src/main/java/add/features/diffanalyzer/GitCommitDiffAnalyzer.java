@@ -0,0 +1,129 @@
+package add.features.diffanalyzer;
+
+import add.main.Utils;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Analyzes the diff of a commit, or of a range of commits, of a local git repository. The diff is computed and the
+ * touched files are read from the object database of the repository, so the repository does not need to be checked
+ * out: the project root given to {@link #getOriginalFiles(String)} only prefixes the paths of the files.
+ */
+public class GitCommitDiffAnalyzer extends JGitBasedDiffAnalyzer {
+
+    private final Map<String, List<String>> originalFiles;
+
+    /**
+     * @param commits a commit, which is compared with its first parent, or a range {@code <old>..<new>}; both are
+     *                resolved as git revisions (e.g. a sha-1, a branch, {@code HEAD~2})
+     */
+    public GitCommitDiffAnalyzer(String repositoryPath, String commits) {
+        this(new CommitDiff(repositoryPath, commits));
+    }
+
+    /**
+     * @param oldCommit the commit before the patch, or null to compare with an empty tree
+     */
+    public GitCommitDiffAnalyzer(Repository repository, RevCommit oldCommit, RevCommit newCommit) {
+        this(new CommitDiff(repository, oldCommit, newCommit));
+    }
+
+    private GitCommitDiffAnalyzer(CommitDiff diff) {
+        super(diff.content);
+        this.originalFiles = diff.originalFiles;
+    }
+
+    @Override
+    protected List<String> getOriginalFile(String projectRoot, String fileName) {
+        List<String> lines = this.originalFiles.get(fileName);
+        // a copy, as the lines of the original files are modified to build the patched files
+        return lines == null ? new ArrayList<String>() : new ArrayList<>(lines);
+    }
+
+    public static Repository openRepository(String repositoryPath) throws IOException {
+        return new FileRepositoryBuilder().setMustExist(true).findGitDir(new File(repositoryPath)).build();
+    }
+
+    /**
+     * The content of the diff and of the original Java files it touches, read from the repository.
+     */
+    private static class CommitDiff {
+        private byte[] content;
+        private Map<String, List<String>> originalFiles = new HashMap<>();
+
+        CommitDiff(String repositoryPath, String commits) {
+            try (Repository repository = openRepository(repositoryPath);
+                 RevWalk revWalk = new RevWalk(repository)) {
+                String[] range = commits.split("\\.\\.", 2);
+                RevCommit newCommit = revWalk.parseCommit(resolve(repository, range[range.length - 1]));
+                RevCommit oldCommit;
+                if (range.length == 2) {
+                    oldCommit = revWalk.parseCommit(resolve(repository, range[0]));
+                } else {
+                    oldCommit = newCommit.getParentCount() == 0 ? null : revWalk.parseCommit(newCommit.getParent(0));
+                }
+                this.read(repository, oldCommit, newCommit);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("The commits " + commits + " cannot be read from " + repositoryPath, e);
+            }
+        }
+
+        CommitDiff(Repository repository, RevCommit oldCommit, RevCommit newCommit) {
+            try {
+                this.read(repository, oldCommit, newCommit);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("The commit " + newCommit.getName() + " cannot be read", e);
+            }
+        }
+
+        private static ObjectId resolve(Repository repository, String revision) throws IOException {
+            ObjectId objectId = repository.resolve(revision);
+            if (objectId == null) {
+                throw new IllegalArgumentException("Unknown revision: " + revision);
+            }
+            return objectId;
+        }
+
+        private void read(Repository repository, RevCommit oldCommit, RevCommit newCommit) throws IOException {
+            RevTree oldTree = oldCommit == null ? null : oldCommit.getTree();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try (DiffFormatter formatter = new DiffFormatter(output);
+                 ObjectReader reader = repository.newObjectReader()) {
+                formatter.setRepository(repository);
+                formatter.setDiffComparator(RawTextComparator.DEFAULT);
+                List<DiffEntry> entries = formatter.scan(oldTree, newCommit.getTree());
+                formatter.format(entries);
+                for (DiffEntry entry : entries) {
+                    String oldPath = entry.getOldPath();
+                    if (oldTree == null || entry.getChangeType() == DiffEntry.ChangeType.ADD || !oldPath.endsWith(".java")) {
+                        continue;
+                    }
+                    try (TreeWalk treeWalk = TreeWalk.forPath(reader, oldPath, oldTree)) {
+                        if (treeWalk != null) {
+                            this.originalFiles.put(oldPath, Utils.streamToLines(reader.open(treeWalk.getObjectId(0)).openStream()));
+                        }
+                    }
+                }
+            }
+            this.content = output.toByteArray();
+        }
+    }
+
+}
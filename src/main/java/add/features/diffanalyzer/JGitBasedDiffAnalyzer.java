@@ -1,5 +1,6 @@
 package add.features.diffanalyzer;
 
+import add.main.Config;
 import add.main.Utils;
 import org.eclipse.jgit.diff.Edit;
 import org.eclipse.jgit.diff.EditList;
@@ -10,8 +11,10 @@ import org.eclipse.jgit.patch.Patch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.FileInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -23,18 +26,51 @@ import java.util.Map;
 public class JGitBasedDiffAnalyzer {
     private static Logger LOGGER = LoggerFactory.getLogger(JGitBasedDiffAnalyzer.class);
 
+    private final byte[] diff;
     private final Patch patch;
     private int nbFiles;
 
     public JGitBasedDiffAnalyzer(String diffPath) {
+        this(readDiff(diffPath));
+    }
+
+    protected JGitBasedDiffAnalyzer(byte[] diff) {
+        this.diff = diff;
         this.patch = new Patch();
         try {
-            patch.parse(new FileInputStream(diffPath));
+            patch.parse(new ByteArrayInputStream(diff));
         } catch (IOException e) {
             LOGGER.error(e.toString());
         }
     }
 
+    /**
+     * Returns the analyzer of the diff given in the config: the diff of a commit (or range of commits) of a git
+     * repository if a repository is given, otherwise the diff file.
+     */
+    public static JGitBasedDiffAnalyzer fromConfig(Config config) {
+        if (config.getRepositoryPath() != null) {
+            return new GitCommitDiffAnalyzer(config.getRepositoryPath(), config.getCommit());
+        }
+        return new JGitBasedDiffAnalyzer(config.getDiffPath());
+    }
+
+    private static byte[] readDiff(String diffPath) {
+        try {
+            return Files.readAllBytes(Paths.get(diffPath));
+        } catch (IOException e) {
+            LOGGER.error(e.toString());
+            return new byte[0];
+        }
+    }
+
+    /**
+     * Returns the content of the diff.
+     */
+    public byte[] getDiff() {
+        return diff;
+    }
+
     public Changes analyze() {
         Changes changes = new Changes();
         this.nbFiles = patch.getFiles().size();
@@ -74,12 +110,18 @@ public class JGitBasedDiffAnalyzer {
             if (!fileName.endsWith(".java")) {
                 continue;
             }
-            fileName = Utils.getFullPath(projectRoot, fileName);
-            output.put(fileName, Utils.fileToLines(fileName));
+            output.put(Utils.getFullPath(projectRoot, fileName), this.getOriginalFile(projectRoot, fileName));
         }
         return output;
     }
 
+    /**
+     * Returns the lines of the file before the patch, given its path in the project.
+     */
+    protected List<String> getOriginalFile(String projectRoot, String fileName) {
+        return Utils.fileToLines(Utils.getFullPath(projectRoot, fileName));
+    }
+
     public Map<String, List<String>> getPatchedFiles(String projectRoot) {
         Map<String, List<String>> output = getOriginalFiles(projectRoot);
         for (int i = 0; i < patch.getFiles().size(); i++) {
@@ -0,0 +1,127 @@
+package add.features.diffanalyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lightweight lexer splitting Java source code into its tokens, without the whitespace and the comments.
+ *
+ * It only has to tell whether two versions of a file have the same tokens, so the tokens are not typed: identifiers
+ * and keywords, literals, separators and operators are strings. The operators are split by longest match, so that
+ * {@code a++b} and {@code a+ +b} do not have the same tokens.
+ */
+public class JavaTokenizer {
+
+    private static final String[] OPERATORS = {
+            ">>>=", "<<=", ">>=", ">>>", "...", "->", "::", "++", "--", "&&", "||", "==", "!=", "<=", ">=",
+            "+=", "-=", "*=", "/=", "&=", "|=", "^=", "%=", "<<", ">>"
+    };
+
+    /**
+     * Returns the tokens of the given lines, or null if they contain a unicode escape: an escape can stand for any
+     * character, including a line break or a quote, so the tokens cannot be found without translating them first.
+     */
+    public static List<String> tokenize(List<String> lines) {
+        StringBuilder source = new StringBuilder();
+        for (String line : lines) {
+            source.append(line).append('\n');
+        }
+        return tokenize(source.toString());
+    }
+
+    public static List<String> tokenize(String source) {
+        if (source.contains("\\u")) {
+            return null;
+        }
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            int end;
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            } else if (source.startsWith("//", i)) {
+                end = source.indexOf('\n', i);
+                i = end == -1 ? source.length() : end;
+                continue;
+            } else if (source.startsWith("/*", i)) {
+                end = source.indexOf("*/", i + 2);
+                i = end == -1 ? source.length() : end + 2;
+                continue;
+            } else if (source.startsWith("\"\"\"", i)) {
+                end = getLiteralEnd(source, i + 3, "\"\"\"");
+            } else if (c == '"') {
+                end = getLiteralEnd(source, i + 1, "\"");
+            } else if (c == '\'') {
+                end = getLiteralEnd(source, i + 1, "'");
+            } else if (Character.isJavaIdentifierStart(c)) {
+                end = i + 1;
+                while (end < source.length() && Character.isJavaIdentifierPart(source.charAt(end))) {
+                    end++;
+                }
+            } else if (Character.isDigit(c) || (c == '.' && i + 1 < source.length() && Character.isDigit(source.charAt(i + 1)))) {
+                end = getNumberEnd(source, i);
+            } else {
+                end = getOperatorEnd(source, i);
+            }
+            tokens.add(source.substring(i, end));
+            i = end;
+        }
+        return tokens;
+    }
+
+    /**
+     * Returns the index following the literal whose content starts at the given index: the index following the
+     * closing delimiter, or the end of the line for an unterminated string or character literal.
+     */
+    private static int getLiteralEnd(String source, int start, String delimiter) {
+        int i = start;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (source.startsWith(delimiter, i)) {
+                return i + delimiter.length();
+            } else if (c == '\n' && delimiter.length() == 1) {
+                return i;
+            } else {
+                i++;
+            }
+        }
+        return source.length();
+    }
+
+    private static int getNumberEnd(String source, int start) {
+        boolean isHexadecimal = source.startsWith("0x", start) || source.startsWith("0X", start);
+        int i = start;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == '_' || c == '.') {
+                i++;
+            } else if ((c == '+' || c == '-') && isExponent(source.charAt(i - 1), isHexadecimal)) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isExponent(char c, boolean isHexadecimal) {
+        if (isHexadecimal) {
+            return c == 'p' || c == 'P';
+        }
+        return c == 'e' || c == 'E';
+    }
+
+    private static int getOperatorEnd(String source, int start) {
+        for (String operator : OPERATORS) {
+            if (source.startsWith(operator, start)) {
+                return start + operator.length();
+            }
+        }
+        return start + 1;
+    }
+
+}
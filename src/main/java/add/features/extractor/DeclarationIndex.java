@@ -0,0 +1,115 @@
+package add.features.extractor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Index of the package, class and method declarations of a file, built with one scan of the file.
+ *
+ * For a line, it gives the last declarations written before that line, i.e. the last matches of the
+ * patterns in the content of the file up to that line. Matches that end before the line are found by
+ * binary search; only a match overlapping the line limit is matched again, on its own text.
+ */
+public class DeclarationIndex {
+
+    public static final Pattern PACKAGE_PATTERN = Pattern.compile("package\\s+([\\w\\.]+);");
+    public static final Pattern CLASS_DEFINITION_PATTERN = Pattern.compile("(^.*class\\s+(\\w+))", Pattern.MULTILINE);
+    public static final Pattern METHOD_DEFINITION_PATTERN = Pattern.compile("(((public|private|protected|static|final|native|synchronized|abstract|transient)+\\s)+[\\$_\\w\\<\\>\\w\\s\\[\\]]*\\s+[\\$_\\w]+\\([^\\)]*\\)?\\s*)", Pattern.MULTILINE);
+
+    private final String content;
+    private final int[] lineOffsets;
+    private final Declarations packages;
+    private final Declarations classes;
+    private final Declarations methods;
+
+    public DeclarationIndex(List<String> fileContent) {
+        StringBuilder builder = new StringBuilder();
+        this.lineOffsets = new int[fileContent.size() + 1];
+        int i = 0;
+        for (String line : fileContent) {
+            builder.append(line).append("\n");
+            this.lineOffsets[++i] = builder.length();
+        }
+        this.content = builder.toString();
+        this.packages = new Declarations(PACKAGE_PATTERN, 1);
+        this.classes = new Declarations(CLASS_DEFINITION_PATTERN, 2);
+        this.methods = new Declarations(METHOD_DEFINITION_PATTERN, 1);
+    }
+
+    /**
+     * Returns the last package name declared in the first lineLimit lines, or "" if there is none.
+     */
+    public String getPackageName(int lineLimit) {
+        String packageName = this.packages.getLastBefore(this.getOffset(lineLimit));
+        return packageName == null ? "" : packageName;
+    }
+
+    /**
+     * Returns the name of the last class declared in the first lineLimit lines, or null if there is none.
+     */
+    public String getClassName(int lineLimit) {
+        return this.classes.getLastBefore(this.getOffset(lineLimit));
+    }
+
+    /**
+     * Returns the signature of the last method declared in the first lineLimit lines, or null if there is none.
+     */
+    public String getMethodSignature(int lineLimit) {
+        return this.methods.getLastBefore(this.getOffset(lineLimit));
+    }
+
+    private int getOffset(int lineLimit) {
+        return this.lineOffsets[Math.max(0, Math.min(lineLimit, this.lineOffsets.length - 1))];
+    }
+
+    private class Declarations {
+        private final Pattern pattern;
+        private final int group;
+        private final List<String> names = new ArrayList<>();
+        private final List<Integer> starts = new ArrayList<>();
+        private final List<Integer> ends = new ArrayList<>();
+
+        Declarations(Pattern pattern, int group) {
+            this.pattern = pattern;
+            this.group = group;
+            Matcher matcher = pattern.matcher(content);
+            while (matcher.find()) {
+                this.names.add(matcher.group(group));
+                this.starts.add(matcher.start());
+                this.ends.add(matcher.end());
+            }
+        }
+
+        String getLastBefore(int offset) {
+            // last match that ends before the offset, matches end in increasing order
+            int low = 0;
+            int high = this.ends.size() - 1;
+            int last = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (this.ends.get(middle) <= offset) {
+                    last = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            String name = last == -1 ? null : this.names.get(last);
+
+            // the next match crosses the offset: a shorter match may exist in the truncated content
+            int next = last + 1;
+            if (next < this.starts.size() && this.starts.get(next) < offset) {
+                Matcher matcher = this.pattern.matcher(content);
+                matcher.useAnchoringBounds(false);
+                matcher.region(this.starts.get(next), offset);
+                while (matcher.find()) {
+                    name = matcher.group(this.group);
+                }
+            }
+            return name;
+        }
+    }
+
+}
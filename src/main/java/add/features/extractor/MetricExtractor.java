@@ -2,35 +2,67 @@ package add.features.extractor;
 
 import add.entities.Metrics;
 import add.features.FeatureAnalyzer;
+import add.features.detector.spoon.SpoonHelper;
 import add.features.diffanalyzer.Change;
 import add.features.diffanalyzer.Changes;
+import add.features.diffanalyzer.FileChangeIndex;
 import add.features.diffanalyzer.JGitBasedDiffAnalyzer;
 import add.main.Config;
-
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import spoon.reflect.cu.CompilationUnit;
+import spoon.reflect.declaration.CtAnonymousExecutable;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Created by tdurieux
  */
 public class MetricExtractor extends FeatureAnalyzer {
+    private static Logger LOGGER = LoggerFactory.getLogger(MetricExtractor.class);
 
     private Metrics metrics;
+    private Factory originalModel;
+    private Factory patchedModel;
+    private JGitBasedDiffAnalyzer diffAnalyzer;
 
     public MetricExtractor(Config config) {
+        this(config, null, null);
+    }
+
+    /**
+     * The modified classes and methods are found with the source positions of the Spoon models of the original and
+     * patched files: the deleted lines in the original model, the added and replaced lines in the patched model. The
+     * given models (e.g. the ones of the edit script) are reused, and the models of the changed files that are not in
+     * them are built.
+     */
+    public MetricExtractor(Config config, Factory originalModel, Factory patchedModel) {
+        this(config, originalModel, patchedModel, null);
+    }
+
+    /**
+     * When a diff analyzer is given, it is used instead of a new one built from the config.
+     */
+    public MetricExtractor(Config config, Factory originalModel, Factory patchedModel, JGitBasedDiffAnalyzer diffAnalyzer) {
         super(config);
         this.metrics = new Metrics();
+        this.originalModel = originalModel;
+        this.patchedModel = patchedModel;
+        this.diffAnalyzer = diffAnalyzer;
     }
 
     @Override
     public Metrics analyze() {
-        JGitBasedDiffAnalyzer jgitDiffAnalyzer = new JGitBasedDiffAnalyzer(this.config.getDiffPath());
+        JGitBasedDiffAnalyzer jgitDiffAnalyzer = this.diffAnalyzer != null ? this.diffAnalyzer : JGitBasedDiffAnalyzer.fromConfig(this.config);
 
         Changes changes = jgitDiffAnalyzer.analyze();
 
@@ -53,79 +85,162 @@ public class MetricExtractor extends FeatureAnalyzer {
         int nbModifiedClasses = 0;
         int nbModifiedMethods = 0;
 
-        Pattern packagePattern = Pattern.compile("package\\s+([\\w\\.]+);");
-        Pattern classDefinitionPattern = Pattern.compile("(^.*class\\s+(\\w+))", Pattern.MULTILINE);
-        Pattern methodDefinitionPattern = Pattern.compile("(((public|private|protected|static|final|native|synchronized|abstract|transient)+\\s)+[\\$_\\w\\<\\>\\w\\s\\[\\]]*\\s+[\\$_\\w]+\\([^\\)]*\\)?\\s*)", Pattern.MULTILINE);
+        Map<String, List<String>> originalFiles = jgitDiffAnalyzer.getOriginalFiles(this.config.getBuggySourceDirectoryPath());
+        Map<String, List<String>> patchedFiles = jgitDiffAnalyzer.getPatchedFiles(this.config.getBuggySourceDirectoryPath());
+
+        // all the changes of a patch are attributed the same way, with the models or, if they cannot be built, with
+        // regular expressions
+        Map<String, List<String>> modifiedClassesAndMethods;
+        try {
+            modifiedClassesAndMethods = this.getModifiedClassesAndMethods(changes, originalFiles, patchedFiles);
+        } catch (RuntimeException e) {
+            LOGGER.error("The Spoon models of the changed files cannot be built, the modified classes and methods are found with regular expressions", e);
+            modifiedClassesAndMethods = this.getModifiedClassesAndMethodsWithRegex(changes, patchedFiles);
+        }
+
+        nbModifiedClasses = modifiedClassesAndMethods.keySet().size();
+        for (List<String> methods : modifiedClassesAndMethods.values()) {
+            nbModifiedMethods += methods.size();
+        }
 
+        this.metrics.setFeatureCounter("nbModifiedClasses", nbModifiedClasses);
+        this.metrics.setFeatureCounter("nbModifiedMethods", nbModifiedMethods);
+    }
+
+    private Map<String, List<String>> getModifiedClassesAndMethods(Changes changes, Map<String, List<String>> originalFiles, Map<String, List<String>> patchedFiles) {
         Map<String, List<String>> modifiedClassesAndMethods = new HashMap<>();
 
-        Map<String, List<String>> patchedFiles = jgitDiffAnalyzer.getPatchedFiles(this.config.getBuggySourceDirectoryPath());
+        // the lines of a deletion are only in the original files, e.g. a removed method is a modified method
+        List<Change> deletions = new ArrayList<>();
+        for (Change change : changes.getNewChanges()) {
+            if (change.getLength() == 0) {
+                deletions.add(change.getAssociateChange());
+            }
+        }
+        Map<String, SourcePositionIndex> originalIndexes = this.getPositionIndexes(deletions, originalFiles, this.originalModel);
+        Map<String, SourcePositionIndex> patchedIndexes = this.getPositionIndexes(changes.getNewChanges(), patchedFiles, this.patchedModel);
 
         for (Change change : changes.getNewChanges()) {
-            String changedFile = change.getFile();
-            int changedLine = change.getLine();
+            this.addModifiedClassesAndMethods(modifiedClassesAndMethods, change, patchedFiles, patchedIndexes);
+        }
+        for (Change deletion : deletions) {
+            this.addModifiedClassesAndMethods(modifiedClassesAndMethods, deletion, originalFiles, originalIndexes);
+        }
+        return modifiedClassesAndMethods;
+    }
+
+    private void addModifiedClassesAndMethods(Map<String, List<String>> modifiedClassesAndMethods, Change change, Map<String, List<String>> files, Map<String, SourcePositionIndex> positionIndexes) {
+        SourcePositionIndex positionIndex = positionIndexes.get(this.getChangedFile(change, files));
+        if (positionIndex == null) {
+            return;
+        }
+        for (int line = change.getLine(); line <= change.getEndLine(); line++) {
+            this.addModifiedClassAndMethod(modifiedClassesAndMethods,
+                    positionIndex.getType(line, line), positionIndex.getExecutable(line, line));
+        }
+    }
+
+    /**
+     * Returns the source position indexes of the files with changed lines, by path. The compilation units are taken
+     * from the given model when it has them, and from a model of the other files otherwise.
+     */
+    private Map<String, SourcePositionIndex> getPositionIndexes(List<Change> changes, Map<String, List<String>> files, Factory model) {
+        Set<String> changedFiles = new HashSet<>();
+        for (Change change : changes) {
+            String changedFile = this.getChangedFile(change, files);
+            if (changedFile != null && change.getLength() > 0) {
+                changedFiles.add(changedFile);
+            }
+        }
 
-            List<String> newFileContent = null;
-            for (String patchedFile : patchedFiles.keySet()) {
-                if (patchedFile.endsWith(changedFile)) {
-                    newFileContent = patchedFiles.get(patchedFile);
-                    break;
+        Map<String, SourcePositionIndex> positionIndexes = new HashMap<>();
+        Map<String, List<String>> missingFiles = new HashMap<>();
+        for (String changedFile : changedFiles) {
+            CompilationUnit compilationUnit = this.getCompilationUnit(model, changedFile);
+            if (compilationUnit != null) {
+                positionIndexes.put(changedFile, new SourcePositionIndex(compilationUnit));
+            } else {
+                missingFiles.put(changedFile, files.get(changedFile));
+            }
+        }
+        if (!missingFiles.isEmpty()) {
+            Factory missingModel = SpoonHelper.getModel(missingFiles, this.config.getCacheDirectoryPath());
+            for (String missingFile : missingFiles.keySet()) {
+                CompilationUnit compilationUnit = this.getCompilationUnit(missingModel, missingFile);
+                if (compilationUnit != null) {
+                    positionIndexes.put(missingFile, new SourcePositionIndex(compilationUnit));
                 }
             }
-            if (newFileContent == null) {
+        }
+        return positionIndexes;
+    }
+
+    private Map<String, List<String>> getModifiedClassesAndMethodsWithRegex(Changes changes, Map<String, List<String>> patchedFiles) {
+        Map<String, List<String>> modifiedClassesAndMethods = new HashMap<>();
+        Map<String, DeclarationIndex> declarationIndexes = new HashMap<>();
+
+        for (Change change : changes.getNewChanges()) {
+            int changedLine = change.getLine();
+
+            String newFile = this.getChangedFile(change, patchedFiles);
+            if (newFile == null) {
                 continue;
             }
-            String inputToMatcher = this.putFileContentInString(newFileContent, changedLine - 1);
 
-            String packageName = "";
-            Matcher matcher = packagePattern.matcher(inputToMatcher);
-            while (matcher.find()) {
-                packageName = matcher.group(1);
+            DeclarationIndex declarationIndex = declarationIndexes.get(newFile);
+            if (declarationIndex == null) {
+                declarationIndex = new DeclarationIndex(patchedFiles.get(newFile));
+                declarationIndexes.put(newFile, declarationIndex);
             }
 
-            Map<String, Integer> classes = new HashMap<>();
-            matcher = classDefinitionPattern.matcher(inputToMatcher);
-            while (matcher.find()) {
-                classes.put(packageName + "." + matcher.group(2), matcher.end(2));
+            String className = declarationIndex.getClassName(changedLine - 1);
+            if (className != null) {
+                String closestClass = declarationIndex.getPackageName(changedLine - 1) + "." + className;
+                this.addModifiedClassAndMethod(modifiedClassesAndMethods, closestClass, declarationIndex.getMethodSignature(changedLine - 1));
             }
+        }
+        return modifiedClassesAndMethods;
+    }
 
-            Map<String, Integer> methods = new HashMap<>();
-            matcher = methodDefinitionPattern.matcher(inputToMatcher);
-            while (matcher.find()) {
-                methods.put(matcher.group(1), matcher.end(1));
+    private String getChangedFile(Change change, Map<String, List<String>> files) {
+        for (String file : files.keySet()) {
+            if (file.endsWith(change.getFile())) {
+                return file;
             }
+        }
+        return null;
+    }
 
-            if (!classes.isEmpty()) {
-                String closestClass = null;
-                for (Map.Entry<String, Integer> entry : classes.entrySet()) {
-                    if (closestClass == null || (closestClass != null && entry.getValue() > classes.get(closestClass))) {
-                        closestClass = entry.getKey();
-                    }
-                }
-                if (!modifiedClassesAndMethods.containsKey(closestClass)) {
-                    modifiedClassesAndMethods.put(closestClass, new ArrayList<>());
-                }
-                if (!methods.isEmpty()) {
-                    String closestMethod = null;
-                    for (Map.Entry<String, Integer> entry : methods.entrySet()) {
-                        if (closestMethod == null || (closestMethod != null && entry.getValue() > methods.get(closestMethod))) {
-                            closestMethod = entry.getKey();
-                        }
-                    }
-                    if (!modifiedClassesAndMethods.get(closestClass).contains(closestMethod)) {
-                        modifiedClassesAndMethods.get(closestClass).add(closestMethod);
-                    }
-                }
-            }
+    private CompilationUnit getCompilationUnit(Factory model, String file) {
+        if (model == null) {
+            return null;
         }
+        return model.CompilationUnit().getMap().get(new File(file).getAbsolutePath());
+    }
 
-        nbModifiedClasses = modifiedClassesAndMethods.keySet().size();
-        for (List<String> methods : modifiedClassesAndMethods.values()) {
-            nbModifiedMethods += methods.size();
+    private void addModifiedClassAndMethod(Map<String, List<String>> modifiedClassesAndMethods, CtType<?> type, CtExecutable<?> executable) {
+        if (type == null) {
+            return;
+        }
+        String method = null;
+        // a method belongs to the change's class only if it is declared in it or in one of its anonymous or local classes
+        if (executable != null && SourcePositionIndex.getDeclaringType(executable) == type) {
+            if (executable instanceof CtAnonymousExecutable) {
+                method = "initializer:" + executable.getPosition().getLine();
+            } else {
+                method = executable.getSignature();
+            }
         }
+        this.addModifiedClassAndMethod(modifiedClassesAndMethods, type.getQualifiedName(), method);
+    }
 
-        this.metrics.setFeatureCounter("nbModifiedClasses", nbModifiedClasses);
-        this.metrics.setFeatureCounter("nbModifiedMethods", nbModifiedMethods);
+    private void addModifiedClassAndMethod(Map<String, List<String>> modifiedClassesAndMethods, String className, String method) {
+        if (!modifiedClassesAndMethods.containsKey(className)) {
+            modifiedClassesAndMethods.put(className, new ArrayList<>());
+        }
+        if (method != null && !modifiedClassesAndMethods.get(className).contains(method)) {
+            modifiedClassesAndMethods.get(className).add(method);
+        }
     }
 
     /**
@@ -223,6 +338,8 @@ public class MetricExtractor extends FeatureAnalyzer {
             List<String> newFileContent = patchedFiles.get(file);
             List<String> oldFileContent = originalFiles.get(file);
 
+            FileChangeIndex changeIndex = new FileChangeIndex(changes, file);
+
             int lineDiff = 0;
             boolean first = false;
 
@@ -251,7 +368,7 @@ public class MetricExtractor extends FeatureAnalyzer {
 
                 lastUntouchedline = untouchedline;
                 lastTrimUntouchedLine = trimUntouchedLine;
-                Change change = getChange(changes, file, line + 1, line + lineDiff + 1);
+                Change change = changeIndex.getChange(line + 1, line + lineDiff + 1);
                 if (change.getType().equals("INSERT")) {
                     lineDiff++;
                     line--;
@@ -291,36 +408,6 @@ public class MetricExtractor extends FeatureAnalyzer {
         return changedFile;
     }
 
-    private Change getChange(Changes changes, String file, int oldLine, int newLine) {
-        for (int i = 0; i < changes.getOldChanges().size(); i++) {
-            Change change = changes.getOldChanges().get(i);
-            if (change.getLength() == 0) {
-                continue;
-            }
-            String fileName = file.replace("/", ".");
-            String className = change.getClassName() + ".java";
-            if (fileName.endsWith(className)) {
-                if (change.getLine() <= oldLine && change.getEndLine() >= oldLine) {
-                    return change;
-                }
-            }
-        }
-        for (int i = 0; i < changes.getNewChanges().size(); i++) {
-            Change change = changes.getNewChanges().get(i);
-            if (change.getLength() == 0) {
-                continue;
-            }
-            String fileName = file.replace("/", ".");
-            String className = change.getClassName() + ".java";
-            if (fileName.endsWith(className)) {
-                if (change.getLine() <= newLine && change.getEndLine() >= newLine) {
-                    return change;
-                }
-            }
-        }
-        return getChange(changes, file, oldLine - 1, newLine - 1);
-    }
-
     private boolean isComment(String s) {
         s = s.trim();
         return s.isEmpty() ||
@@ -352,14 +439,4 @@ public class MetricExtractor extends FeatureAnalyzer {
         return count;
     }
 
-    private String putFileContentInString(List<String> fileContent, int lineLimit) {
-        String content = "";
-        String line;
-        for (int i = 0; i < fileContent.size() && i < lineLimit; i++) {
-            line = fileContent.get(i);
-            content += line + "\n";
-        }
-        return content;
-    }
-
 }
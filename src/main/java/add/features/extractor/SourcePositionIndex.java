@@ -0,0 +1,121 @@
+package add.features.extractor;
+
+import spoon.reflect.cu.CompilationUnit;
+import spoon.reflect.cu.SourcePosition;
+import spoon.reflect.declaration.CtAnonymousExecutable;
+import spoon.reflect.declaration.CtConstructor;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.declaration.CtExecutable;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.declaration.CtTypeParameter;
+import spoon.reflect.visitor.CtScanner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Index from the lines of a compilation unit to the innermost type and the innermost method, constructor or
+ * initializer declared at these lines, built with one scan of the Spoon model of the compilation unit.
+ * Inner classes are types of their own, while anonymous and local classes are part of the type that declares them.
+ */
+public class SourcePositionIndex {
+
+    private CtType<?>[] types;
+    private CtExecutable<?>[] executables;
+
+    public SourcePositionIndex(CompilationUnit compilationUnit) {
+        final List<CtElement> declarations = new ArrayList<>();
+        CtScanner scanner = new CtScanner() {
+            @Override
+            protected void enter(CtElement element) {
+                if (isDeclaration(element) && !element.isImplicit() && element.getPosition().isValidPosition()) {
+                    declarations.add(element);
+                }
+            }
+        };
+        for (CtType<?> type : compilationUnit.getDeclaredTypes()) {
+            scanner.scan(type);
+        }
+
+        int nbLines = 0;
+        for (CtElement declaration : declarations) {
+            nbLines = Math.max(nbLines, declaration.getPosition().getEndLine());
+        }
+        this.types = new CtType<?>[nbLines + 1];
+        this.executables = new CtExecutable<?>[nbLines + 1];
+        // declarations are in pre-order: an inner declaration overwrites the declarations that contain it
+        for (CtElement declaration : declarations) {
+            SourcePosition position = declaration.getPosition();
+            for (int line = position.getLine(); line <= position.getEndLine(); line++) {
+                if (declaration instanceof CtType) {
+                    this.types[line] = (CtType<?>) declaration;
+                } else {
+                    this.executables[line] = (CtExecutable<?>) declaration;
+                }
+            }
+        }
+    }
+
+    private static boolean isDeclaration(CtElement element) {
+        return isNamedType(element)
+                || element instanceof CtMethod
+                || element instanceof CtConstructor
+                || element instanceof CtAnonymousExecutable;
+    }
+
+    private static boolean isNamedType(CtElement element) {
+        if (!(element instanceof CtType) || element instanceof CtTypeParameter) {
+            return false;
+        }
+        CtType<?> type = (CtType<?>) element;
+        return !type.isAnonymous() && !type.isLocalType();
+    }
+
+    /**
+     * Returns the innermost type, other than an anonymous or local class, that declares the given element, or null if
+     * there is none.
+     */
+    public static CtType<?> getDeclaringType(CtElement element) {
+        CtType<?> type = element.getParent(CtType.class);
+        while (type != null && !isNamedType(type)) {
+            type = type.getParent(CtType.class);
+        }
+        return type;
+    }
+
+    /**
+     * Returns the innermost type that contains all the lines from fromLine to toLine, or null if there is none.
+     */
+    public CtType<?> getType(int fromLine, int toLine) {
+        CtType<?> type = getAt(this.types, toLine);
+        while (type != null && type.getPosition().getLine() > fromLine) {
+            type = getDeclaringType(type);
+        }
+        return type;
+    }
+
+    /**
+     * Returns the innermost method, constructor or initializer that contains all the lines from fromLine to toLine,
+     * or null if there is none.
+     */
+    public CtExecutable<?> getExecutable(int fromLine, int toLine) {
+        CtExecutable<?> executable = getAt(this.executables, toLine);
+        while (executable != null && executable.getPosition().getLine() > fromLine) {
+            executable = executable.getParent(CtExecutable.class);
+            // lambdas are part of the method that declares them
+            while (executable != null && !isDeclaration(executable)) {
+                executable = executable.getParent(CtExecutable.class);
+            }
+        }
+        return executable;
+    }
+
+    private static <T> T getAt(T[] elements, int line) {
+        if (line < 0 || line >= elements.length) {
+            return null;
+        }
+        return elements[line];
+    }
+
+}
@@ -9,7 +9,14 @@ public class Config {
     private String bugId;
     private String buggySourceDirectoryPath;
     private String diffPath;
+    private String repositoryPath;
+    private String commit;
     private String outputDirectoryPath;
+    private String traceDirectoryPath;
+    private String signatureFilePath;
+    private String cacheDirectoryPath;
+    private String storeDirectoryPath;
+    private boolean prettyPrinted;
 
     public Config() {
     }
@@ -46,6 +53,22 @@ public class Config {
         this.diffPath = diffPath;
     }
 
+    public String getRepositoryPath() {
+        return repositoryPath;
+    }
+
+    public void setRepositoryPath(String repositoryPath) {
+        this.repositoryPath = repositoryPath;
+    }
+
+    public String getCommit() {
+        return commit;
+    }
+
+    public void setCommit(String commit) {
+        this.commit = commit;
+    }
+
     public String getOutputDirectoryPath() {
         return outputDirectoryPath;
     }
@@ -54,4 +77,47 @@ public class Config {
         this.outputDirectoryPath = outputDirectoryPath;
     }
 
+    public String getTraceDirectoryPath() {
+        return traceDirectoryPath;
+    }
+
+    public void setTraceDirectoryPath(String traceDirectoryPath) {
+        this.traceDirectoryPath = traceDirectoryPath;
+    }
+
+    /**
+     * Returns the file where the signatures of the operations are written, or null if they are not computed.
+     */
+    public String getSignatureFilePath() {
+        return signatureFilePath;
+    }
+
+    public void setSignatureFilePath(String signatureFilePath) {
+        this.signatureFilePath = signatureFilePath;
+    }
+
+    public String getCacheDirectoryPath() {
+        return cacheDirectoryPath;
+    }
+
+    public void setCacheDirectoryPath(String cacheDirectoryPath) {
+        this.cacheDirectoryPath = cacheDirectoryPath;
+    }
+
+    public String getStoreDirectoryPath() {
+        return storeDirectoryPath;
+    }
+
+    public void setStoreDirectoryPath(String storeDirectoryPath) {
+        this.storeDirectoryPath = storeDirectoryPath;
+    }
+
+    public boolean isPrettyPrinted() {
+        return prettyPrinted;
+    }
+
+    public void setPrettyPrinted(boolean prettyPrinted) {
+        this.prettyPrinted = prettyPrinted;
+    }
+
 }
@@ -0,0 +1,375 @@
+package add.main;
+
+import add.entities.FeatureList;
+import add.output.FeatureJsonSerializer;
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Keeps a warmed-up JVM running to analyze patches, so that an analysis does not pay the startup of the JVM and the
+ * loading of Spoon and JDT. The daemon listens on a loopback port, and analyzes the requests one at a time.
+ *
+ * A request is the token of the daemon, the working directory of the client and the arguments of {@link Launcher},
+ * one per line, ended by an empty line; the relative paths of the arguments are resolved against the working
+ * directory. The response is the exit status of the analysis on the first line (0 on success), followed by the JSON of
+ * the extracted features, or by the errors and the usage if the arguments are invalid. {@code add-client} in the
+ * {@code scripts} directory is a client of the daemon with the same arguments as {@link Launcher}.
+ *
+ * A client that does not send its request within {@link #DEFAULT_READ_TIMEOUT_MILLIS} is disconnected, and a failed
+ * analysis is answered with the status -1, so that neither blocks the next requests.
+ *
+ * The loopback port can be reached by every local user, while an analysis reads and writes files as the user who
+ * started the daemon, so the requests without the token are rejected. The token is random, and written when the daemon
+ * starts in {@code add-daemon-<port>.token}, which only its owner can read, in {@code $XDG_RUNTIME_DIR} or else in
+ * {@code ~/.add}; it is deleted when the daemon is closed.
+ */
+public class Daemon implements Closeable {
+    private static Logger LOGGER = LoggerFactory.getLogger(Daemon.class);
+
+    public static final int DEFAULT_PORT = 9889;
+    public static final int DEFAULT_NB_WARM_UP_RUNS = 3;
+    /** The time given to a client to send its request, so that an idle connection does not block the daemon. */
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 10000;
+
+    /** The arguments of {@link Launcher} whose value is a path. */
+    private static final List<String> PATH_FLAGS = Arrays.asList(
+            "--buggySourceDirectory", "--diff", "--repository", "-o", "--output", "--store", "--trace", "--signatures", "--cache");
+
+    private static final int TOKEN_LENGTH = 32;
+
+    private final ServerSocket serverSocket;
+    private final String token;
+    private final File tokenFile;
+    private int readTimeoutMillis = DEFAULT_READ_TIMEOUT_MILLIS;
+
+    public Daemon(int port) throws IOException {
+        this(port, getDefaultTokenDirectory());
+    }
+
+    /**
+     * @param tokenDirectory the directory where the token file is written, which is created if needed
+     */
+    public Daemon(int port, File tokenDirectory) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        byte[] bytes = new byte[TOKEN_LENGTH];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder token = new StringBuilder();
+        for (byte b : bytes) {
+            token.append(String.format("%02x", b));
+        }
+        this.token = token.toString();
+        this.tokenFile = new File(tokenDirectory, getTokenFileName(this.getPort()));
+        try {
+            writeToken(this.tokenFile, this.token);
+        } catch (IOException | RuntimeException e) {
+            this.serverSocket.close();
+            throw e;
+        }
+    }
+
+    public int getPort() {
+        return this.serverSocket.getLocalPort();
+    }
+
+    public File getTokenFile() {
+        return this.tokenFile;
+    }
+
+    void setReadTimeoutMillis(int readTimeoutMillis) {
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    /**
+     * Returns {@code $XDG_RUNTIME_DIR}, which only the user can access, or {@code ~/.add} if it is not set.
+     */
+    public static File getDefaultTokenDirectory() {
+        String runtimeDirectory = System.getenv("XDG_RUNTIME_DIR");
+        if (runtimeDirectory != null && new File(runtimeDirectory).isDirectory()) {
+            return new File(runtimeDirectory);
+        }
+        return new File(System.getProperty("user.home"), ".add");
+    }
+
+    public static String getTokenFileName(int port) {
+        return "add-daemon-" + port + ".token";
+    }
+
+    /**
+     * Writes the token in a file that only its owner can read and write, created aside then moved, so that the token is
+     * never readable by others, even partially.
+     */
+    private static void writeToken(File tokenFile, String token) throws IOException {
+        Path directory = tokenFile.getParentFile().toPath();
+        boolean isPosix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        if (!Files.isDirectory(directory)) {
+            if (isPosix) {
+                Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } else {
+                Files.createDirectories(directory);
+            }
+        }
+        Path temporaryFile;
+        if (isPosix) {
+            temporaryFile = Files.createTempFile(directory, tokenFile.getName(), ".tmp",
+                    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            temporaryFile = Files.createTempFile(directory, tokenFile.getName(), ".tmp");
+            File file = temporaryFile.toFile();
+            file.setReadable(false, false);
+            file.setReadable(true, true);
+            file.setWritable(false, false);
+            file.setWritable(true, true);
+        }
+        try {
+            Files.write(temporaryFile, (token + "\n").getBytes(StandardCharsets.UTF_8));
+            Files.move(temporaryFile, tokenFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Analyzes a small patch several times, so that the classes of the analysis are loaded and compiled before the
+     * first request.
+     */
+    public static void warmUp(int nbRuns) throws IOException {
+        File directory = Files.createTempDirectory("add-warm-up").toFile();
+        try {
+            File sourceFile = new File(directory, "WarmUp.java");
+            File diffFile = new File(directory, "path.diff");
+            Files.write(sourceFile.toPath(), Arrays.asList(
+                    "public class WarmUp {",
+                    "    public int get(Object value, int size) {",
+                    "        return value.hashCode() + size;",
+                    "    }",
+                    "}"), StandardCharsets.UTF_8);
+            Files.write(diffFile.toPath(), Arrays.asList(
+                    "--- a/WarmUp.java",
+                    "+++ b/WarmUp.java",
+                    "@@ -1,5 +1,8 @@",
+                    " public class WarmUp {",
+                    "     public int get(Object value, int size) {",
+                    "-        return value.hashCode() + size;",
+                    "+        if (value == null) {",
+                    "+            return 0;",
+                    "+        }",
+                    "+        return value.hashCode() + size - 1;",
+                    "     }",
+                    " }"), StandardCharsets.UTF_8);
+            Config config = new Config();
+            config.setLauncherMode(LauncherMode.ALL);
+            config.setBugId("warm-up");
+            config.setBuggySourceDirectoryPath(directory.getAbsolutePath());
+            config.setDiffPath(diffFile.getAbsolutePath());
+            for (int i = 0; i < nbRuns; i++) {
+                long start = System.nanoTime();
+                Launcher.extractFeatures(config);
+                LOGGER.info("Warm-up run " + (i + 1) + " in " + (System.nanoTime() - start) / 1000000 + " ms.");
+            }
+        } finally {
+            new File(directory, "WarmUp.java").delete();
+            new File(directory, "path.diff").delete();
+            directory.delete();
+        }
+    }
+
+    /**
+     * Serves the requests until the daemon is closed.
+     */
+    public void serve() throws IOException {
+        while (!this.serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = this.serverSocket.accept();
+            } catch (SocketException e) {
+                // the daemon was closed
+                return;
+            }
+            try {
+                socket.setSoTimeout(this.readTimeoutMillis);
+                this.handle(socket);
+            } catch (SocketTimeoutException e) {
+                LOGGER.warn("A request not sent within " + this.readTimeoutMillis + " ms is dropped.");
+            } catch (IOException e) {
+                LOGGER.error("The request cannot be answered: " + e);
+            } finally {
+                socket.close();
+            }
+        }
+    }
+
+    private void handle(Socket socket) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        String token = reader.readLine();
+        if (token == null || !MessageDigest.isEqual(this.token.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+            LOGGER.warn("A request without the token of the daemon is rejected.");
+            OutputStream out = socket.getOutputStream();
+            out.write(("-1\nError: the token of the daemon is missing or invalid (see " + this.tokenFile + ").\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            return;
+        }
+        String workingDirectory = reader.readLine();
+        List<String> args = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null && !line.isEmpty()) {
+            args.add(line);
+        }
+        if (workingDirectory == null) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        int status = this.analyze(new File(workingDirectory), args.toArray(new String[args.size()]), output);
+        LOGGER.info("Request " + args + " answered in " + (System.nanoTime() - start) / 1000000 + " ms.");
+
+        OutputStream out = socket.getOutputStream();
+        out.write((status + "\n").getBytes(StandardCharsets.UTF_8));
+        output.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Analyzes the patch of the arguments, and returns the exit status of the analysis.
+     */
+    int analyze(File workingDirectory, String[] args, OutputStream output) throws UnsupportedEncodingException {
+        PrintStream err = new PrintStream(output, true, StandardCharsets.UTF_8.name());
+        try {
+            Config config = Launcher.parseConfig(resolvePaths(workingDirectory, args), err);
+            if (config == null) {
+                return -1;
+            }
+            FeatureList features = new Launcher(config).execute();
+            Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+            new FeatureJsonSerializer().write(writer, config.getBugId(), features);
+            writer.write("\n");
+            writer.flush();
+            return 0;
+        } catch (JSAPException | IOException | RuntimeException | StackOverflowError e) {
+            // an analysis that fails must not stop the daemon, e.g. a deep AST that overflows the stack of Spoon
+            LOGGER.error("The patch cannot be analyzed", e);
+            err.println("Error: " + e);
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the arguments whose relative paths are resolved against the working directory of the client.
+     */
+    static String[] resolvePaths(File workingDirectory, String[] args) {
+        String[] resolved = args.clone();
+        for (int i = 0; i < resolved.length; i++) {
+            int equals = resolved[i].indexOf('=');
+            if (equals > 0 && PATH_FLAGS.contains(resolved[i].substring(0, equals))) {
+                resolved[i] = resolved[i].substring(0, equals + 1) + resolvePath(workingDirectory, resolved[i].substring(equals + 1));
+            } else if (PATH_FLAGS.contains(resolved[i]) && i + 1 < resolved.length) {
+                resolved[i + 1] = resolvePath(workingDirectory, resolved[i + 1]);
+                i++;
+            }
+        }
+        return resolved;
+    }
+
+    private static String resolvePath(File workingDirectory, String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? path : new File(workingDirectory, path).getAbsolutePath();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.serverSocket.close();
+        Files.deleteIfExists(this.tokenFile.toPath());
+    }
+
+    private static JSAP initJSAP() throws JSAPException {
+        JSAP jsap = new JSAP();
+
+        FlaggedOption opt = new FlaggedOption("port");
+        opt.setLongFlag("port");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setDefault(String.valueOf(DEFAULT_PORT));
+        opt.setStringParser(JSAP.INTEGER_PARSER);
+        opt.setHelp("Provide the loopback port on which the daemon listens (optional, " + DEFAULT_PORT + " by default).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("warmUp");
+        opt.setLongFlag("warmUp");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setDefault(String.valueOf(DEFAULT_NB_WARM_UP_RUNS));
+        opt.setStringParser(JSAP.INTEGER_PARSER);
+        opt.setHelp("Provide the number of analyses of a small patch run before serving the requests (optional, " + DEFAULT_NB_WARM_UP_RUNS + " by default).");
+        jsap.registerParameter(opt);
+
+        return jsap;
+    }
+
+    public static void main(String[] args) throws Exception {
+        JSAP jsap = initJSAP();
+        JSAPResult arguments = jsap.parse(args);
+        if (!arguments.success()) {
+            System.err.println();
+            for (Iterator<?> errs = arguments.getErrorMessageIterator(); errs.hasNext(); ) {
+                System.err.println("Error: " + errs.next());
+            }
+            System.err.println();
+            System.err.println("Usage: java -cp patchclustering.jar " + Daemon.class.getName() + " <arguments>");
+            System.err.println();
+            System.err.println("Arguments:");
+            System.err.println();
+            System.err.println(jsap.getHelp());
+            System.exit(-1);
+        }
+
+        final Daemon daemon = new Daemon(arguments.getInt("port"));
+        // the token file is deleted when the daemon is stopped
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                try {
+                    daemon.close();
+                } catch (IOException e) {
+                    LOGGER.error("The daemon cannot be closed: " + e);
+                }
+            }
+        });
+        warmUp(arguments.getInt("warmUp"));
+        LOGGER.info("Listening on 127.0.0.1:" + daemon.getPort() + ", with the token in " + daemon.getTokenFile() + ".");
+        daemon.serve();
+    }
+
+}
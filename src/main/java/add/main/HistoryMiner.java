@@ -0,0 +1,532 @@
+package add.main;
+
+import add.entities.FeatureList;
+import add.features.diffanalyzer.GitCommitDiffAnalyzer;
+import add.output.ColumnarFeatureWriter;
+import add.output.FeatureWriter;
+import add.output.JsonLinesFeatureWriter;
+import add.output.TabularFeatureWriter;
+import add.similarity.SignatureFile;
+import add.store.ResultStore;
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.stringparsers.EnumeratedStringParser;
+import com.martiansoftware.jsap.stringparsers.FileStringParser;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts the features of every commit of the history of a local git repository, and writes them with a
+ * {@link FeatureWriter} (e.g. one JSON line or one CSV row per commit, with the sha-1 of the commit as bug id) as soon
+ * as they are computed.
+ *
+ * The commit graph is walked in a single thread, which also selects the commits: merge commits, commits that do not
+ * modify a Java file, and commits whose message or modified Java files do not match the filters are skipped. The
+ * selected commits are analyzed by a pool of worker threads, which read the files from the object database of the
+ * repository, compute the diff and run the detectors. At most twice as many commits as workers are pending at a time,
+ * and the commit graph is walked in chunks, each with a new walk that is disposed at its end, so the memory used does
+ * not depend on the length of the history, except for the 64-bit keys of the walked commits.
+ * The features are written in the order in which the analyses end, not in the order of the history.
+ */
+public class HistoryMiner {
+    private static Logger LOGGER = LoggerFactory.getLogger(HistoryMiner.class);
+
+    private static final String JSON_FORMAT = "JSON";
+    private static final String COLUMNAR_FORMAT = "COLUMNAR";
+    private static final String CSV_FORMAT = "CSV";
+    private static final String TSV_FORMAT = "TSV";
+    private static final String STORE_FORMAT = "STORE";
+
+    /**
+     * The number of commits walked by a walk before it is disposed and a new one is started from its frontier.
+     */
+    static final int CHUNK_SIZE = 10000;
+
+    private Config config;
+    private String revisions;
+    private Pattern messagePattern;
+    private List<PathMatcher> pathMatchers;
+    private int nbThreads;
+    private int chunkSize = CHUNK_SIZE;
+
+    /**
+     * @param config     the launcher mode, repository path, cache directory and signature file used to analyze each
+     *                   commit
+     * @param revisions  the commit from which the history is walked, or a range {@code <old>..<new>} to walk only the
+     *                   commits reachable from {@code <new>} but not from {@code <old>}
+     * @param messagePattern a pattern that must be found in the message of the mined commits, or null
+     * @param pathGlobs  glob patterns (e.g. {@code src/main/**}) of which one must match one of the Java files modified
+     *                   by the mined commits, or an empty list
+     */
+    public HistoryMiner(Config config, String revisions, Pattern messagePattern, List<String> pathGlobs, int nbThreads) {
+        if (nbThreads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive: " + nbThreads);
+        }
+        this.config = config;
+        this.revisions = revisions;
+        this.messagePattern = messagePattern;
+        this.pathMatchers = new ArrayList<>();
+        for (String pathGlob : pathGlobs) {
+            this.pathMatchers.add(FileSystems.getDefault().getPathMatcher("glob:" + pathGlob));
+        }
+        this.nbThreads = nbThreads;
+    }
+
+    void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Mines the history and writes the features of each mined commit with the given writer, which is not closed. If the
+     * config has a signature file, the signatures of the operations of each mined commit are written in it as one line
+     * (see {@link SignatureFile}).
+     *
+     * @return the number of mined commits
+     */
+    public int mine(final FeatureWriter output) throws IOException, InterruptedException {
+        final Writer signatureOutput = this.config.getSignatureFilePath() == null ? null : new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(this.config.getSignatureFilePath()), StandardCharsets.UTF_8));
+        try {
+            return this.mine(output, signatureOutput);
+        } finally {
+            if (signatureOutput != null) {
+                signatureOutput.close();
+            }
+        }
+    }
+
+    private int mine(final FeatureWriter output, final Writer signatureOutput) throws IOException, InterruptedException {
+        final AtomicInteger nbMinedCommits = new AtomicInteger();
+        // bounds the number of commits waiting for a worker, so that the walk does not run ahead of the analyses
+        final Semaphore pendingCommits = new Semaphore(2 * this.nbThreads);
+        // the repository is shared by the workers, which read the diffs of their commits from it
+        try (final Repository repository = GitCommitDiffAnalyzer.openRepository(this.config.getRepositoryPath());
+             DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+            formatter.setRepository(repository);
+            formatter.setPathFilter(PathSuffixFilter.create(".java"));
+            String[] range = this.revisions.split("\\.\\.", 2);
+            List<ObjectId> frontier = new ArrayList<>();
+            frontier.add(resolve(repository, range[range.length - 1]));
+            ObjectId uninteresting = range.length == 2 ? resolve(repository, range[0]) : null;
+            WalkedCommits walkedCommits = new WalkedCommits();
+
+            final ExecutorService executor = Executors.newFixedThreadPool(this.nbThreads);
+            try {
+                while (!frontier.isEmpty()) {
+                    frontier = this.walkChunk(repository, formatter, frontier, uninteresting, walkedCommits, new CommitHandler() {
+                        @Override
+                        public void handle(final String commitName) throws InterruptedException {
+                            pendingCommits.acquire();
+                            executor.execute(new Runnable() {
+                                @Override
+                                public void run() {
+                                    try {
+                                        FeatureList features = extractFeatures(repository, commitName);
+                                        synchronized (output) {
+                                            output.write(commitName, features);
+                                        }
+                                        if (signatureOutput != null && features.getSignatures() != null) {
+                                            synchronized (signatureOutput) {
+                                                SignatureFile.write(signatureOutput, commitName, features.getSignatures());
+                                                signatureOutput.flush();
+                                            }
+                                        }
+                                        nbMinedCommits.incrementAndGet();
+                                    } catch (RuntimeException | IOException e) {
+                                        LOGGER.error("The commit " + commitName + " cannot be analyzed: " + e);
+                                    } finally {
+                                        pendingCommits.release();
+                                    }
+                                }
+                            });
+                        }
+                    });
+                }
+            } finally {
+                executor.shutdown();
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            }
+        }
+        return nbMinedCommits.get();
+    }
+
+    /**
+     * The keys of the walked commits, in a single sorted array: a key is looked up with a binary search, and the keys of
+     * a chunk are merged into the array at the end of the chunk.
+     */
+    private static class WalkedCommits {
+        private long[] keys = new long[0];
+
+        boolean contains(long key) {
+            return Arrays.binarySearch(this.keys, key) >= 0;
+        }
+
+        void addAll(long[] chunkKeys, int nbChunkKeys) {
+            long[] sortedChunkKeys = Arrays.copyOf(chunkKeys, nbChunkKeys);
+            Arrays.sort(sortedChunkKeys);
+            long[] merged = new long[this.keys.length + nbChunkKeys];
+            int i = 0;
+            int j = 0;
+            for (int k = 0; k < merged.length; k++) {
+                if (j == nbChunkKeys || (i < this.keys.length && this.keys[i] <= sortedChunkKeys[j])) {
+                    merged[k] = this.keys[i++];
+                } else {
+                    merged[k] = sortedChunkKeys[j++];
+                }
+            }
+            this.keys = merged;
+        }
+    }
+
+    private interface CommitHandler {
+        void handle(String commitName) throws InterruptedException;
+    }
+
+    /**
+     * Walks at most {@link #chunkSize} commits from the given frontier with a new walk, which is disposed at the end of
+     * the chunk, so that the walk never retains more than a chunk of the commit graph. The commits that are mined are
+     * given to the handler.
+     *
+     * A commit may be reached again from the frontier of a later chunk when its commit time is more recent than the
+     * one of one of its children (i.e. with clock skew), so the walked commits are recorded, with the first 64 bits of
+     * their sha-1, and skipped when they are walked again.
+     *
+     * @return the frontier of the next chunk: the commits that are not walked yet but whose child is, which is empty
+     * once the history is walked
+     */
+    private List<ObjectId> walkChunk(Repository repository, DiffFormatter formatter, List<ObjectId> frontier,
+                                     ObjectId uninteresting, WalkedCommits walkedCommits, CommitHandler handler)
+            throws IOException, InterruptedException {
+        List<RevCommit> commits = new ArrayList<>();
+        long[] walked = new long[this.chunkSize];
+        int nbWalked = 0;
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            // the message of a commit is only read if it has to match the pattern, and is not kept by the walk
+            revWalk.setRetainBody(false);
+            RevFlag walkedFlag = revWalk.newFlag("walked");
+            List<RevCommit> starts = new ArrayList<>();
+            for (ObjectId objectId : frontier) {
+                RevCommit start = revWalk.parseCommit(objectId);
+                starts.add(start);
+                revWalk.markStart(start);
+            }
+            if (uninteresting != null) {
+                revWalk.markUninteresting(revWalk.parseCommit(uninteresting));
+            }
+
+            RevCommit commit;
+            while (commits.size() < this.chunkSize && (commit = revWalk.next()) != null) {
+                commit.add(walkedFlag);
+                commits.add(commit);
+                long key = getKey(commit);
+                if (walkedCommits.contains(key)) {
+                    continue;
+                }
+                walked[nbWalked++] = key;
+                if (this.isMined(revWalk, formatter, commit)) {
+                    handler.handle(commit.getName());
+                }
+                commit.disposeBody();
+            }
+
+            walkedCommits.addAll(walked, nbWalked);
+            List<ObjectId> nextFrontier = new ArrayList<>();
+            if (commits.size() < this.chunkSize) {
+                return nextFrontier;
+            }
+            // the pending commits of the walk: the starts and parents of the walked commits that are not walked yet
+            List<RevCommit> candidates = new ArrayList<>(starts);
+            for (RevCommit walkedCommit : commits) {
+                candidates.addAll(Arrays.asList(walkedCommit.getParents()));
+            }
+            RevFlag frontierFlag = revWalk.newFlag("frontier");
+            for (RevCommit candidate : candidates) {
+                if (!candidate.has(walkedFlag) && !candidate.has(RevFlag.UNINTERESTING) && !candidate.has(frontierFlag)) {
+                    candidate.add(frontierFlag);
+                    nextFrontier.add(candidate.copy());
+                }
+            }
+            return nextFrontier;
+        }
+    }
+
+    private static long getKey(ObjectId objectId) {
+        byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+        objectId.copyRawTo(raw, 0);
+        return ByteBuffer.wrap(raw).getLong();
+    }
+
+    private static ObjectId resolve(Repository repository, String revision) throws IOException {
+        ObjectId objectId = repository.resolve(revision);
+        if (objectId == null) {
+            throw new IllegalArgumentException("Unknown revision: " + revision);
+        }
+        return objectId;
+    }
+
+    private boolean isMined(RevWalk revWalk, DiffFormatter formatter, RevCommit commit) throws IOException {
+        if (commit.getParentCount() > 1) {
+            return false;
+        }
+        if (this.messagePattern != null) {
+            revWalk.parseBody(commit);
+            if (!this.messagePattern.matcher(commit.getFullMessage()).find()) {
+                return false;
+            }
+        }
+        RevCommit parent = commit.getParentCount() == 0 ? null : revWalk.parseCommit(commit.getParent(0));
+        // only the Java files are analyzed, so a commit is mined if it modifies a Java file matching the globs
+        for (DiffEntry entry : formatter.scan(parent == null ? null : parent.getTree(), commit.getTree())) {
+            if (this.matchesPathGlobs(entry.getNewPath()) || this.matchesPathGlobs(entry.getOldPath())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesPathGlobs(String path) {
+        if (DiffEntry.DEV_NULL.equals(path)) {
+            return false;
+        }
+        if (this.pathMatchers.isEmpty()) {
+            return true;
+        }
+        for (PathMatcher pathMatcher : this.pathMatchers) {
+            if (pathMatcher.matches(Paths.get(path))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Extracts the features of the commit, whose diff is computed once, from the repository opened by the walk, and
+     * shared by the stages of the analysis.
+     */
+    private FeatureList extractFeatures(Repository repository, String commitName) throws IOException {
+        Config commitConfig = new Config();
+        commitConfig.setLauncherMode(this.config.getLauncherMode());
+        commitConfig.setBugId(commitName);
+        commitConfig.setRepositoryPath(this.config.getRepositoryPath());
+        commitConfig.setCommit(commitName);
+        commitConfig.setBuggySourceDirectoryPath(this.config.getRepositoryPath());
+        commitConfig.setCacheDirectoryPath(this.config.getCacheDirectoryPath());
+        // the signatures are computed for the signature file of the miner, which writes them itself
+        commitConfig.setSignatureFilePath(this.config.getSignatureFilePath());
+        GitCommitDiffAnalyzer diffAnalyzer;
+        // a walk of the worker, as a walk is not thread-safe
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            RevCommit commit = revWalk.parseCommit(ObjectId.fromString(commitName));
+            RevCommit parent = commit.getParentCount() == 0 ? null : revWalk.parseCommit(commit.getParent(0));
+            diffAnalyzer = new GitCommitDiffAnalyzer(repository, parent, commit);
+        }
+        return Launcher.extractFeatures(commitConfig, diffAnalyzer);
+    }
+
+    private static JSAP initJSAP() throws JSAPException {
+        JSAP jsap = new JSAP();
+
+        String launcherModeValues = "";
+        for (LauncherMode mode : LauncherMode.values()) {
+            launcherModeValues += mode.name() + ";";
+        }
+        launcherModeValues = launcherModeValues.substring(0, launcherModeValues.length() - 1);
+
+        FlaggedOption opt = new FlaggedOption("launcherMode");
+        opt.setShortFlag('m');
+        opt.setLongFlag("launcherMode");
+        opt.setRequired(true);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setUsageName(launcherModeValues);
+        opt.setStringParser(EnumeratedStringParser.getParser(launcherModeValues));
+        opt.setHelp("Provide the launcher mode, which is the type of the features that will be extracted.");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("repository");
+        opt.setLongFlag("repository");
+        opt.setRequired(true);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setStringParser(FileStringParser.getParser().setMustBeDirectory(true).setMustExist(true));
+        opt.setHelp("Provide the path to the local git repository to mine.");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("revisions");
+        opt.setLongFlag("revisions");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setDefault("HEAD");
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Provide the commit from which the history is mined, or a range of commits <old>..<new> (optional, HEAD by default).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("message");
+        opt.setLongFlag("message");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Provide a regular expression that must be found in the message of the mined commits (optional).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("paths");
+        opt.setLongFlag("paths");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(true);
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Provide a glob pattern of which one must match a Java file modified by the mined commits (optional, can be repeated).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("threads");
+        opt.setLongFlag("threads");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setDefault(String.valueOf(Runtime.getRuntime().availableProcessors()));
+        opt.setStringParser(JSAP.INTEGER_PARSER);
+        opt.setHelp("Provide the number of commits analyzed in parallel (optional, the number of processors by default).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("format");
+        opt.setLongFlag("format");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setDefault(JSON_FORMAT);
+        String formatValues = JSON_FORMAT + ";" + COLUMNAR_FORMAT + ";" + CSV_FORMAT + ";" + TSV_FORMAT + ";" + STORE_FORMAT;
+        opt.setUsageName(formatValues);
+        opt.setStringParser(EnumeratedStringParser.getParser(formatValues));
+        opt.setHelp("Provide the output format: JSON lines, a columnar binary file with one column per feature, which requires --output, a CSV or TSV feature matrix with one column per feature, or a result store, whose directory is given by --output (optional, JSON by default).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("outputFile");
+        opt.setShortFlag('o');
+        opt.setLongFlag("output");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setStringParser(FileStringParser.getParser());
+        opt.setHelp("Provide the path of the file (or of the result store) where the features are written (optional with the JSON, CSV and TSV formats, printed in the terminal by default).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("signatureFile");
+        opt.setLongFlag("signatures");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setStringParser(FileStringParser.getParser());
+        opt.setHelp("Provide the path of the file where the signatures of the operations of the mined commits are written, to search near-duplicate commits with " + NearDuplicateSearch.class.getSimpleName() + " (optional, not with the METRICS mode).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("cacheDirectory");
+        opt.setLongFlag("cache");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setStringParser(FileStringParser.getParser().setMustBeDirectory(true).setMustExist(true));
+        opt.setHelp("Provide an existing path to store the Spoon models and the results of each analysis stage, which are then reused by the next runs on the same files (optional).");
+        jsap.registerParameter(opt);
+
+        return jsap;
+    }
+
+    public static void main(String[] args) throws Exception {
+        JSAP jsap = initJSAP();
+        JSAPResult arguments = jsap.parse(args);
+        if (arguments.success()) {
+            String format = arguments.getString("format");
+            boolean isStore = STORE_FORMAT.equalsIgnoreCase(format);
+            File outputFile = arguments.getFile("outputFile");
+            if ((isStore || COLUMNAR_FORMAT.equalsIgnoreCase(format)) && outputFile == null) {
+                arguments.addException("outputFile", new JSAPException("--output must be provided with the " + format.toUpperCase() + " format."));
+            } else if (outputFile != null && (isStore ? outputFile.isFile() : outputFile.isDirectory())) {
+                arguments.addException("outputFile", new JSAPException(outputFile + " must be " + (isStore ? "a directory" : "a file") + " with the " + format.toUpperCase() + " format."));
+            }
+            if (arguments.getFile("signatureFile") != null && LauncherMode.METRICS.name().equalsIgnoreCase(arguments.getString("launcherMode"))) {
+                arguments.addException("signatureFile", new JSAPException("--signatures requires an edit script, which is not computed with the METRICS mode."));
+            }
+        }
+        if (!arguments.success()) {
+            System.err.println();
+            for (Iterator<?> errs = arguments.getErrorMessageIterator(); errs.hasNext(); ) {
+                System.err.println("Error: " + errs.next());
+            }
+            System.err.println();
+            System.err.println("Usage: java -cp patchclustering.jar " + HistoryMiner.class.getName() + " <arguments>");
+            System.err.println();
+            System.err.println("Arguments:");
+            System.err.println();
+            System.err.println(jsap.getHelp());
+            System.exit(-1);
+        }
+
+        Config config = new Config();
+        config.setLauncherMode(LauncherMode.valueOf(arguments.getString("launcherMode").toUpperCase()));
+        config.setRepositoryPath(arguments.getFile("repository").getAbsolutePath());
+        if (arguments.getFile("cacheDirectory") != null) {
+            config.setCacheDirectoryPath(arguments.getFile("cacheDirectory").getAbsolutePath());
+        }
+        if (arguments.getFile("signatureFile") != null) {
+            config.setSignatureFilePath(arguments.getFile("signatureFile").getAbsolutePath());
+        }
+        Pattern messagePattern = arguments.contains("message") ? Pattern.compile(arguments.getString("message")) : null;
+        List<String> pathGlobs = new ArrayList<>();
+        for (String pathGlob : arguments.getStringArray("paths")) {
+            pathGlobs.add(pathGlob);
+        }
+        HistoryMiner historyMiner = new HistoryMiner(config, arguments.getString("revisions"), messagePattern, pathGlobs, arguments.getInt("threads"));
+
+        File outputFile = arguments.getFile("outputFile");
+        String format = arguments.getString("format");
+        FeatureWriter output;
+        if (COLUMNAR_FORMAT.equalsIgnoreCase(format)) {
+            output = new ColumnarFeatureWriter(outputFile);
+        } else if (STORE_FORMAT.equalsIgnoreCase(format)) {
+            output = new ResultStore(outputFile);
+        } else {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    outputFile == null ? System.out : new FileOutputStream(outputFile), StandardCharsets.UTF_8));
+            if (CSV_FORMAT.equalsIgnoreCase(format)) {
+                output = new TabularFeatureWriter(writer, TabularFeatureWriter.CSV_SEPARATOR);
+            } else if (TSV_FORMAT.equalsIgnoreCase(format)) {
+                output = new TabularFeatureWriter(writer, TabularFeatureWriter.TSV_SEPARATOR);
+            } else {
+                output = new JsonLinesFeatureWriter(writer);
+            }
+        }
+        try {
+            int nbMinedCommits = historyMiner.mine(output);
+            LOGGER.info(nbMinedCommits + " commits mined.");
+        } finally {
+            output.close();
+        }
+    }
+
+}
@@ -1,9 +1,15 @@
 package add.main;
 
+import add.entities.FeatureList;
+import add.output.FeatureJsonSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.FileWriter;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Created by fermadeiral
@@ -13,12 +19,17 @@ public class JSONOutputFileCreator {
 
     public static String FILE_EXTENSION = ".json";
 
-    public static void writeJSONfile(String jsonString, Config config) {
-        FileWriter fileWriter;
-        try {
-            fileWriter = new FileWriter(config.getOutputDirectoryPath() + "/" + config.getBugId() + "_" + config.getLauncherMode().name().toLowerCase() + FILE_EXTENSION);
-            fileWriter.write(jsonString);
-            fileWriter.flush();
+    public static final int PRETTY_PRINT_INDENT_FACTOR = 4;
+
+    /**
+     * Writes the features in the output directory of the config, as compact JSON unless the config asks for
+     * pretty-printed JSON.
+     */
+    public static void writeJSONfile(FeatureList features, Config config) {
+        String path = config.getOutputDirectoryPath() + "/" + config.getBugId() + "_" + config.getLauncherMode().name().toLowerCase() + FILE_EXTENSION;
+        FeatureJsonSerializer serializer = new FeatureJsonSerializer(config.isPrettyPrinted() ? PRETTY_PRINT_INDENT_FACTOR : 0);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8))) {
+            serializer.write(writer, config.getBugId(), features);
         } catch (Exception e) {
             LOGGER.error(e.toString());
         }
@@ -1,25 +1,35 @@
 package add.main;
 
+import add.entities.Feature;
 import add.entities.FeatureList;
-import add.features.FeatureAnalyzer;
+import add.entities.Metrics;
+import add.entities.RepairActions;
+import add.entities.RepairPatterns;
+import add.features.StageCache;
 import add.features.detector.repairactions.RepairActionDetector;
 import add.features.detector.repairpatterns.RepairPatternDetector;
+import add.features.detector.spoon.OperationSignature;
+import add.features.diffanalyzer.JGitBasedDiffAnalyzer;
 import add.features.extractor.MetricExtractor;
+import add.similarity.SignatureFile;
+import add.store.ResultStore;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import com.martiansoftware.jsap.FlaggedOption;
 import com.martiansoftware.jsap.JSAP;
 import com.martiansoftware.jsap.JSAPException;
 import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Switch;
 import com.martiansoftware.jsap.stringparsers.EnumeratedStringParser;
 import com.martiansoftware.jsap.stringparsers.FileStringParser;
 import gumtree.spoon.diff.Diff;
-import org.json.JSONObject;
 import org.slf4j.LoggerFactory;
+import spoon.reflect.factory.Factory;
 
-import java.util.ArrayList;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.Iterator;
-import java.util.List;
 
 /**
  * Created by tdurieux
@@ -30,40 +40,67 @@ public class Launcher {
     private Config config;
 
     public Launcher(String[] args) throws JSAPException {
-        JSAP jsap = this.initJSAP();
-        JSAPResult arguments = this.parseArguments(args, jsap);
-        if (arguments == null) {
+        this.config = parseConfig(args, System.err);
+        if (this.config == null) {
             System.exit(-1);
         }
-        this.initConfig(arguments);
 
         Logger logger = (Logger) LoggerFactory.getLogger("fr.inria");
         logger.setLevel(Level.DEBUG);
     }
 
-    private void showUsage(JSAP jsap) {
-        System.err.println();
-        System.err.println("Usage: java -jar patchclustering.jar <arguments>");
-        System.err.println();
-        System.err.println("Arguments:");
-        System.err.println();
-        System.err.println(jsap.getHelp());
+    public Launcher(Config config) {
+        this.config = config;
     }
 
-    private JSAPResult parseArguments(String[] args, JSAP jsap) {
+    /**
+     * Returns the configuration of the arguments, or null if they are invalid, in which case the errors and the usage
+     * are printed on the given stream.
+     */
+    public static Config parseConfig(String[] args, PrintStream err) throws JSAPException {
+        JSAP jsap = initJSAP();
+        JSAPResult arguments = parseArguments(args, jsap, err);
+        if (arguments == null) {
+            return null;
+        }
+        return initConfig(arguments);
+    }
+
+    private static void showUsage(JSAP jsap, PrintStream err) {
+        err.println();
+        err.println("Usage: java -jar patchclustering.jar <arguments>");
+        err.println();
+        err.println("Arguments:");
+        err.println();
+        err.println(jsap.getHelp());
+    }
+
+    private static JSAPResult parseArguments(String[] args, JSAP jsap, PrintStream err) {
         JSAPResult config = jsap.parse(args);
+        if (config.success()) {
+            boolean isRepositoryMode = config.contains("repository") || config.contains("commit");
+            if (isRepositoryMode && !(config.contains("repository") && config.contains("commit"))) {
+                config.addException("repository", new JSAPException("--repository and --commit must be provided together."));
+            }
+            if (!isRepositoryMode && !(config.contains("buggySourceDirectory") && config.contains("diffPath"))) {
+                config.addException("diffPath", new JSAPException("--buggySourceDirectory and --diff must be provided, unless --repository and --commit are."));
+            }
+            if (config.contains("signatureFile") && LauncherMode.METRICS.name().equalsIgnoreCase(config.getString("launcherMode"))) {
+                config.addException("signatureFile", new JSAPException("--signatures requires an edit script, which is not computed with the METRICS mode."));
+            }
+        }
         if (!config.success()) {
-            System.err.println();
+            err.println();
             for (Iterator<?> errs = config.getErrorMessageIterator(); errs.hasNext(); ) {
-                System.err.println("Error: " + errs.next());
+                err.println("Error: " + errs.next());
             }
-            this.showUsage(jsap);
+            showUsage(jsap, err);
             return null;
         }
         return config;
     }
 
-    private JSAP initJSAP() throws JSAPException {
+    private static JSAP initJSAP() throws JSAPException {
         JSAP jsap = new JSAP();
 
         String launcherModeValues = "";
@@ -93,18 +130,34 @@ public class Launcher {
 
         opt = new FlaggedOption("buggySourceDirectory");
         opt.setLongFlag("buggySourceDirectory");
-        opt.setRequired(true);
+        opt.setRequired(false);
         opt.setAllowMultipleDeclarations(false);
         opt.setStringParser(JSAP.STRING_PARSER);
-        opt.setHelp("Provide the path to the buggy source code directory of the bug.");
+        opt.setHelp("Provide the path to the buggy source code directory of the bug (required without --repository).");
         jsap.registerParameter(opt);
 
         opt = new FlaggedOption("diffPath");
         opt.setLongFlag("diff");
-        opt.setRequired(true);
+        opt.setRequired(false);
         opt.setAllowMultipleDeclarations(true);
         opt.setStringParser(JSAP.STRING_PARSER);
-        opt.setHelp("Provide the path to the diff file.");
+        opt.setHelp("Provide the path to the diff file (required without --repository).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("repository");
+        opt.setLongFlag("repository");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setStringParser(FileStringParser.getParser().setMustBeDirectory(true).setMustExist(true));
+        opt.setHelp("Provide the path to a local git repository, to analyze a commit of the repository instead of a buggy source directory and a diff file.");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("commit");
+        opt.setLongFlag("commit");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Provide the commit to analyze, compared with its first parent, or a range of commits <old>..<new> (required with --repository).");
         jsap.registerParameter(opt);
 
         opt = new FlaggedOption("outputDirectory");
@@ -116,50 +169,163 @@ public class Launcher {
         opt.setHelp("Provide an existing path to output the extracted features as a JSON file (optional).");
         jsap.registerParameter(opt);
 
+        opt = new FlaggedOption("storeDirectory");
+        opt.setLongFlag("store");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setStringParser(FileStringParser.getParser().setMustBeDirectory(true));
+        opt.setHelp("Provide the path to a result store where the extracted features are appended, which is created if needed (optional).");
+        jsap.registerParameter(opt);
+
+        Switch prettySwitch = new Switch("pretty");
+        prettySwitch.setLongFlag("pretty");
+        prettySwitch.setHelp("Pretty-print the JSON file of the extracted features, which is compact by default (optional).");
+        jsap.registerParameter(prettySwitch);
+
+        opt = new FlaggedOption("traceDirectory");
+        opt.setLongFlag("trace");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setStringParser(FileStringParser.getParser().setMustBeDirectory(true).setMustExist(true));
+        opt.setHelp("Provide an existing path to output the operations of the edit script as a JSON lines file (optional).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("signatureFile");
+        opt.setLongFlag("signatures");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setStringParser(FileStringParser.getParser().setMustBeFile(true));
+        opt.setHelp("Provide the path of a file where the signatures of the operations of the edit script are appended, to search near-duplicate patches with " + NearDuplicateSearch.class.getSimpleName() + " (optional, not with the METRICS mode).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("cacheDirectory");
+        opt.setLongFlag("cache");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setStringParser(FileStringParser.getParser().setMustBeDirectory(true).setMustExist(true));
+        opt.setHelp("Provide an existing path to store the Spoon models and the results of each analysis stage, which are then reused by the next runs on the same files (optional).");
+        jsap.registerParameter(opt);
+
         return jsap;
     }
 
-    private void initConfig(JSAPResult arguments) {
-        this.config = new Config();
-        this.config.setLauncherMode(LauncherMode.valueOf(arguments.getString("launcherMode").toUpperCase()));
-        this.config.setBugId(arguments.getString("bugId"));
-        this.config.setBuggySourceDirectoryPath(arguments.getString("buggySourceDirectory"));
-        this.config.setDiffPath(arguments.getString("diffPath"));
+    private static Config initConfig(JSAPResult arguments) {
+        Config config = new Config();
+        config.setLauncherMode(LauncherMode.valueOf(arguments.getString("launcherMode").toUpperCase()));
+        config.setBugId(arguments.getString("bugId"));
+        if (arguments.contains("repository")) {
+            // the files are read from the repository: the repository path only prefixes their paths
+            config.setRepositoryPath(arguments.getFile("repository").getAbsolutePath());
+            config.setCommit(arguments.getString("commit"));
+            config.setBuggySourceDirectoryPath(config.getRepositoryPath());
+        } else {
+            config.setBuggySourceDirectoryPath(arguments.getString("buggySourceDirectory"));
+            config.setDiffPath(arguments.getString("diffPath"));
+        }
         if (arguments.getFile("outputDirectory") != null) {
-            this.config.setOutputDirectoryPath(arguments.getFile("outputDirectory").getAbsolutePath());
+            config.setOutputDirectoryPath(arguments.getFile("outputDirectory").getAbsolutePath());
+        }
+        if (arguments.getFile("storeDirectory") != null) {
+            config.setStoreDirectoryPath(arguments.getFile("storeDirectory").getAbsolutePath());
+        }
+        config.setPrettyPrinted(arguments.getBoolean("pretty"));
+        if (arguments.getFile("traceDirectory") != null) {
+            config.setTraceDirectoryPath(arguments.getFile("traceDirectory").getAbsolutePath());
+        }
+        if (arguments.getFile("signatureFile") != null) {
+            config.setSignatureFilePath(arguments.getFile("signatureFile").getAbsolutePath());
+        }
+        if (arguments.getFile("cacheDirectory") != null) {
+            config.setCacheDirectoryPath(arguments.getFile("cacheDirectory").getAbsolutePath());
         }
+        return config;
     }
 
-    protected void execute() {
-        FeatureList features = new FeatureList(this.config);
-        List<FeatureAnalyzer> featureAnalyzers = new ArrayList<>();
+    protected FeatureList execute() {
+        FeatureList features = extractFeatures(this.config);
 
-        Diff editScript = null;
-        if (this.config.getLauncherMode() == LauncherMode.REPAIR_PATTERNS ||
-                this.config.getLauncherMode() == LauncherMode.ALL) {
-            RepairPatternDetector detector = new RepairPatternDetector(this.config);
-            editScript = detector.getEditScript();
-            featureAnalyzers.add(detector);
+        LOGGER.info(features.toCSV());
+
+        if (this.config.getOutputDirectoryPath() != null) {
+            JSONOutputFileCreator.writeJSONfile(features, this.config);
         }
-        if (this.config.getLauncherMode() == LauncherMode.REPAIR_ACTIONS ||
-                this.config.getLauncherMode() == LauncherMode.ALL) {
-            featureAnalyzers.add(new RepairActionDetector(this.config, editScript));
+        if (this.config.getSignatureFilePath() != null && features.getSignatures() != null) {
+            try {
+                SignatureFile.append(new File(this.config.getSignatureFilePath()), this.config.getBugId(), features.getSignatures());
+            } catch (IOException e) {
+                LOGGER.error("The signatures cannot be appended to the signature file: " + e);
+            }
         }
-        if (this.config.getLauncherMode() == LauncherMode.METRICS ||
-                this.config.getLauncherMode() == LauncherMode.ALL) {
-            featureAnalyzers.add(new MetricExtractor(this.config));
+        if (this.config.getStoreDirectoryPath() != null) {
+            try (ResultStore store = new ResultStore(new File(this.config.getStoreDirectoryPath()))) {
+                store.append(this.config.getBugId(), features);
+            } catch (IOException e) {
+                LOGGER.error("The features cannot be appended to the result store: " + e);
+            }
         }
+        return features;
+    }
 
-        for (FeatureAnalyzer featureAnalyzer : featureAnalyzers) {
-            features.add(featureAnalyzer.analyze());
-        }
+    public static FeatureList extractFeatures(Config config) {
+        return extractFeatures(config, JGitBasedDiffAnalyzer.fromConfig(config));
+    }
 
-        LOGGER.info(features.toCSV());
+    /**
+     * Extracts the features of the diff read by the given analyzer, which is shared by the stages so that the diff is
+     * parsed (or computed from the git repository) once.
+     */
+    public static FeatureList extractFeatures(Config config, JGitBasedDiffAnalyzer diffAnalyzer) {
+        LauncherMode mode = config.getLauncherMode();
+        boolean withRepairPatterns = mode == LauncherMode.REPAIR_PATTERNS || mode == LauncherMode.ALL;
+        boolean withRepairActions = mode == LauncherMode.REPAIR_ACTIONS || mode == LauncherMode.ALL;
+        boolean withMetrics = mode == LauncherMode.METRICS || mode == LauncherMode.ALL;
 
-        if (this.config.getOutputDirectoryPath() != null) {
-            JSONObject json = new JSONObject(features.toString());
-            JSONOutputFileCreator.writeJSONfile(json.toString(4), this.config);
+        // only the stages whose results are not in the cache are computed
+        StageCache stageCache = new StageCache(config, diffAnalyzer);
+        Feature repairPatterns = withRepairPatterns ? stageCache.load(StageCache.REPAIR_PATTERNS, new RepairPatterns()) : null;
+        Feature repairActions = withRepairActions ? stageCache.load(StageCache.REPAIR_ACTIONS, new RepairActions()) : null;
+        Feature metrics = withMetrics ? stageCache.load(StageCache.METRICS, new Metrics()) : null;
+
+        // the signatures of the operations are only computed when they are written
+        boolean withSignatures = config.getSignatureFilePath() != null && (withRepairPatterns || withRepairActions);
+        long[] signatures = withSignatures ? stageCache.loadSignatures() : null;
+
+        RepairPatternDetector repairPatternDetector = null;
+        Diff editScript = null;
+        Factory originalModel = null;
+        Factory patchedModel = null;
+        if ((withRepairPatterns && repairPatterns == null) || (withRepairActions && repairActions == null) ||
+                (withRepairPatterns && withMetrics && metrics == null) || (withSignatures && signatures == null)) {
+            repairPatternDetector = new RepairPatternDetector(config, diffAnalyzer);
+            editScript = repairPatternDetector.getEditScript();
+            originalModel = repairPatternDetector.getOriginalModel();
+            patchedModel = repairPatternDetector.getPatchedModel();
+        }
+        if (withSignatures && signatures == null) {
+            signatures = OperationSignature.of(editScript);
+            stageCache.storeSignatures(signatures);
+        }
+        if (withRepairPatterns && repairPatterns == null) {
+            repairPatterns = repairPatternDetector.analyze();
+            stageCache.store(StageCache.REPAIR_PATTERNS, repairPatterns);
+        }
+        if (withRepairActions && repairActions == null) {
+            repairActions = new RepairActionDetector(config, editScript).analyze();
+            stageCache.store(StageCache.REPAIR_ACTIONS, repairActions);
+        }
+        if (withMetrics && metrics == null) {
+            metrics = new MetricExtractor(config, originalModel, patchedModel, diffAnalyzer).analyze();
+            stageCache.store(StageCache.METRICS, metrics);
+        }
+
+        FeatureList features = new FeatureList(config);
+        for (Feature feature : new Feature[] {repairPatterns, repairActions, metrics}) {
+            if (feature != null) {
+                features.add(feature);
+            }
         }
+        features.setSignatures(signatures);
+        return features;
     }
 
     public static void main(String[] args) throws Exception {
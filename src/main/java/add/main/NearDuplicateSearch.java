@@ -0,0 +1,137 @@
+package add.main;
+
+import add.similarity.EditScriptIndex;
+import add.similarity.Neighbor;
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.stringparsers.FileStringParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Finds the patches whose edit scripts make structurally the same changes, from the signature files written by
+ * {@link Launcher} and {@link HistoryMiner} with {@code --signatures}, or from the trace files
+ * written by {@link Launcher} with {@code --trace}: the patches similar to given ones, or all the pairs of similar
+ * patches of the corpus.
+ */
+public class NearDuplicateSearch {
+    private static Logger LOGGER = LoggerFactory.getLogger(NearDuplicateSearch.class);
+
+    private static final double DEFAULT_THRESHOLD = 0.8;
+
+    private static JSAP initJSAP() throws JSAPException {
+        JSAP jsap = new JSAP();
+
+        FlaggedOption opt = new FlaggedOption("traces");
+        opt.setLongFlag("traces");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setStringParser(FileStringParser.getParser().setMustBeDirectory(true).setMustExist(true));
+        opt.setHelp("Provide the path to the trace directory of the patches among which the near duplicates are searched (--traces or --signatures is required).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("signatures");
+        opt.setLongFlag("signatures");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setStringParser(FileStringParser.getParser().setMustExist(true));
+        opt.setHelp("Provide the path to the signature file of the patches among which the near duplicates are searched, or to a directory of signature files (<name>_signatures.jsonl) (--traces or --signatures is required).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("threshold");
+        opt.setLongFlag("threshold");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setDefault(String.valueOf(DEFAULT_THRESHOLD));
+        opt.setStringParser(JSAP.DOUBLE_PARSER);
+        opt.setHelp("Provide the minimum Jaccard index of the operation signatures of two near-duplicate patches (optional, " + DEFAULT_THRESHOLD + " by default).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("bugId");
+        opt.setShortFlag('b');
+        opt.setLongFlag("bugId");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(true);
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Provide the id of an indexed bug whose near duplicates are searched (can be repeated; all the pairs of near duplicates are written if neither --bugId nor --trace is provided).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("trace");
+        opt.setLongFlag("trace");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(true);
+        opt.setStringParser(FileStringParser.getParser().setMustBeFile(true).setMustExist(true));
+        opt.setHelp("Provide a trace file of a patch whose near duplicates are searched (can be repeated).");
+        jsap.registerParameter(opt);
+
+        return jsap;
+    }
+
+    public static void main(String[] args) throws Exception {
+        JSAP jsap = initJSAP();
+        JSAPResult arguments = jsap.parse(args);
+        if (arguments.success() && (arguments.getDouble("threshold") <= 0 || arguments.getDouble("threshold") > 1)) {
+            arguments.addException("threshold", new JSAPException("--threshold must be greater than 0 and at most 1."));
+        }
+        if (arguments.success() && arguments.contains("traces") == arguments.contains("signatures")) {
+            arguments.addException("signatures", new JSAPException("Exactly one of --traces and --signatures must be provided."));
+        }
+        if (!arguments.success()) {
+            System.err.println();
+            for (Iterator<?> errs = arguments.getErrorMessageIterator(); errs.hasNext(); ) {
+                System.err.println("Error: " + errs.next());
+            }
+            System.err.println();
+            System.err.println("Usage: java -cp patchclustering.jar " + NearDuplicateSearch.class.getName() + " <arguments>");
+            System.err.println();
+            System.err.println("Arguments:");
+            System.err.println();
+            System.err.println(jsap.getHelp());
+            System.exit(-1);
+        }
+
+        long start = System.nanoTime();
+        EditScriptIndex index = EditScriptIndex.of(arguments.contains("traces") ? arguments.getFile("traces") : arguments.getFile("signatures"));
+        LOGGER.info("Index of " + index.size() + " patches built in " + (System.nanoTime() - start) / 1000000 + " ms.");
+        double threshold = arguments.getDouble("threshold");
+
+        String[] bugIds = arguments.getStringArray("bugId");
+        File[] traceFiles = arguments.getFileArray("trace");
+        if (bugIds.length == 0 && traceFiles.length == 0) {
+            // each pair is written once, from the patch that comes first in the index
+            List<String> indexedBugIds = index.getBugIds();
+            for (int i = 0; i < indexedBugIds.size(); i++) {
+                for (Neighbor neighbor : index.search(indexedBugIds.get(i), threshold)) {
+                    if (indexedBugIds.get(i).compareTo(neighbor.getBugId()) < 0) {
+                        print(indexedBugIds.get(i), neighbor);
+                    }
+                }
+            }
+            return;
+        }
+        for (String bugId : bugIds) {
+            if (index.getSignatures(bugId) == null) {
+                System.err.println("Unknown bug, or bug without any operation: " + bugId);
+            }
+            for (Neighbor neighbor : index.search(bugId, threshold)) {
+                print(bugId, neighbor);
+            }
+        }
+        for (File traceFile : traceFiles) {
+            for (Neighbor neighbor : index.search(EditScriptIndex.readSignatures(traceFile), threshold)) {
+                print(traceFile.getName(), neighbor);
+            }
+        }
+    }
+
+    private static void print(String query, Neighbor neighbor) {
+        System.out.println(query + Constants.CSV_SEPARATOR + neighbor.getBugId() + Constants.CSV_SEPARATOR + neighbor.getSimilarity());
+    }
+
+}
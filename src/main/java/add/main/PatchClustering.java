@@ -0,0 +1,176 @@
+package add.main;
+
+import add.clustering.Clustering;
+import add.clustering.FeatureMatrix;
+import add.clustering.KMeans;
+import add.clustering.MinHashLsh;
+import add.store.ResultStore;
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.stringparsers.EnumeratedStringParser;
+import com.martiansoftware.jsap.stringparsers.FileStringParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+
+/**
+ * Clusters the patches of a {@link ResultStore} by their features, with k-means or by MinHash-LSH, and writes the
+ * cluster and the representative patch of the cluster of each patch.
+ */
+public class PatchClustering {
+    private static Logger LOGGER = LoggerFactory.getLogger(PatchClustering.class);
+
+    private static final String SEPARATOR = "\t";
+
+    private static JSAP initJSAP() throws JSAPException {
+        JSAP jsap = new JSAP();
+
+        FlaggedOption opt = new FlaggedOption("store");
+        opt.setLongFlag("store");
+        opt.setRequired(true);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setStringParser(FileStringParser.getParser().setMustBeDirectory(true).setMustExist(true));
+        opt.setHelp("Provide the path to the result store of the patches to cluster.");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("algorithm");
+        opt.setLongFlag("algorithm");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setDefault("KMEANS");
+        opt.setUsageName("KMEANS;MINHASH");
+        opt.setStringParser(EnumeratedStringParser.getParser("KMEANS;MINHASH"));
+        opt.setHelp("Provide the clustering algorithm: k-means on the feature counts, or MinHash-LSH grouping the patches with near-duplicate sets of features (optional, KMEANS by default).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("k");
+        opt.setShortFlag('k');
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setDefault("10");
+        opt.setStringParser(JSAP.INTEGER_PARSER);
+        opt.setHelp("Provide the number of clusters of k-means (optional, 10 by default).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("iterations");
+        opt.setLongFlag("iterations");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setDefault(String.valueOf(KMeans.DEFAULT_MAX_ITERATIONS));
+        opt.setStringParser(JSAP.INTEGER_PARSER);
+        opt.setHelp("Provide the maximum number of iterations of k-means (optional, " + KMeans.DEFAULT_MAX_ITERATIONS + " by default).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("threshold");
+        opt.setLongFlag("threshold");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setDefault(String.valueOf(MinHashLsh.DEFAULT_THRESHOLD));
+        opt.setStringParser(JSAP.DOUBLE_PARSER);
+        opt.setHelp("Provide the minimum Jaccard index of the features of two patches grouped by MinHash-LSH (optional, " + MinHashLsh.DEFAULT_THRESHOLD + " by default).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("bands");
+        opt.setLongFlag("bands");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setDefault(String.valueOf(MinHashLsh.DEFAULT_NB_BANDS));
+        opt.setStringParser(JSAP.INTEGER_PARSER);
+        opt.setHelp("Provide the number of bands of the MinHash signatures (optional, " + MinHashLsh.DEFAULT_NB_BANDS + " by default).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("rows");
+        opt.setLongFlag("rows");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setDefault(String.valueOf(MinHashLsh.DEFAULT_NB_ROWS_PER_BAND));
+        opt.setStringParser(JSAP.INTEGER_PARSER);
+        opt.setHelp("Provide the number of hash functions of each band of the MinHash signatures (optional, " + MinHashLsh.DEFAULT_NB_ROWS_PER_BAND + " by default).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("threads");
+        opt.setLongFlag("threads");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setDefault(String.valueOf(Runtime.getRuntime().availableProcessors()));
+        opt.setStringParser(JSAP.INTEGER_PARSER);
+        opt.setHelp("Provide the number of threads of the clustering (optional, the number of processors by default).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("output");
+        opt.setShortFlag('o');
+        opt.setLongFlag("output");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setStringParser(FileStringParser.getParser());
+        opt.setHelp("Provide the path to the file of the clusters (optional, the standard output by default).");
+        jsap.registerParameter(opt);
+
+        return jsap;
+    }
+
+    public static void main(String[] args) throws Exception {
+        JSAP jsap = initJSAP();
+        JSAPResult arguments = jsap.parse(args);
+        if (!arguments.success()) {
+            System.err.println();
+            for (Iterator<?> errs = arguments.getErrorMessageIterator(); errs.hasNext(); ) {
+                System.err.println("Error: " + errs.next());
+            }
+            System.err.println();
+            System.err.println("Usage: java -cp patchclustering.jar " + PatchClustering.class.getName() + " <arguments>");
+            System.err.println();
+            System.err.println("Arguments:");
+            System.err.println();
+            System.err.println(jsap.getHelp());
+            System.exit(-1);
+        }
+
+        long start = System.nanoTime();
+        FeatureMatrix matrix = FeatureMatrix.of(new ResultStore(arguments.getFile("store")));
+        LOGGER.info("Features of " + matrix.getNbRows() + " patches read in " + (System.nanoTime() - start) / 1000000 + " ms.");
+
+        start = System.nanoTime();
+        Clustering clustering;
+        if ("MINHASH".equalsIgnoreCase(arguments.getString("algorithm"))) {
+            clustering = new MinHashLsh(arguments.getInt("bands"), arguments.getInt("rows"), arguments.getDouble("threshold"), arguments.getInt("threads"), 0).cluster(matrix);
+        } else {
+            clustering = new KMeans(arguments.getInt("k"), arguments.getInt("iterations"), arguments.getInt("threads"), 0).cluster(matrix);
+        }
+        LOGGER.info(clustering.getNbClusters() + " clusters found in " + (System.nanoTime() - start) / 1000000 + " ms.");
+
+        File output = arguments.getFile("output");
+        Writer writer = new BufferedWriter(output == null
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : Files.newBufferedWriter(output.toPath(), StandardCharsets.UTF_8));
+        try {
+            writeClusters(writer, matrix, clustering);
+        } finally {
+            writer.flush();
+            if (output != null) {
+                writer.close();
+            }
+        }
+    }
+
+    static void writeClusters(Writer writer, FeatureMatrix matrix, Clustering clustering) throws IOException {
+        writer.append("bugId").append(SEPARATOR).append("cluster").append(SEPARATOR).append("representative").append('\n');
+        for (int row = 0; row < matrix.getNbRows(); row++) {
+            int cluster = clustering.getCluster(row);
+            writer.append(matrix.getBugId(row)).append(SEPARATOR)
+                    .append(String.valueOf(cluster)).append(SEPARATOR)
+                    .append(matrix.getBugId(clustering.getRepresentative(cluster))).append('\n');
+        }
+    }
+
+}
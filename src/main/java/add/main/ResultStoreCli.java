@@ -0,0 +1,231 @@
+package add.main;
+
+import add.entities.Feature;
+import add.entities.FeatureList;
+import add.entities.FeatureRegistry;
+import add.output.FeatureJsonSerializer;
+import add.similarity.SignatureFile;
+import add.store.Predicate;
+import add.store.ResultStore;
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.Switch;
+import com.martiansoftware.jsap.stringparsers.FileStringParser;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Command line interface of a {@link ResultStore}: imports the JSON files written by {@link Launcher} and
+ * {@link HistoryMiner}, compacts the store, prints the features of bugs, and queries the bugs whose features match a
+ * conjunction of predicates such as {@code wrapsIf>0} and {@code patchSizeCodeOnly<5}.
+ */
+public class ResultStoreCli {
+    private static Logger LOGGER = LoggerFactory.getLogger(ResultStoreCli.class);
+
+    /**
+     * Writes the features of the JSON file (one object per bug, pretty-printed or as JSON lines) in the store. The
+     * signature files and the objects without any feature group are skipped, so that they do not replace the features
+     * of their bugs with missing ones.
+     *
+     * @return the number of imported bugs
+     */
+    static int importJsonFile(ResultStore store, File file) throws IOException {
+        if (file.getName().endsWith(SignatureFile.FILE_SUFFIX)) {
+            LOGGER.info("The signature file " + file + " is not imported.");
+            return 0;
+        }
+        int nbBugs = 0;
+        try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            JSONTokener tokener = new JSONTokener(reader);
+            while (tokener.nextClean() != 0) {
+                tokener.back();
+                JSONObject json = new JSONObject(tokener);
+                FeatureList features = toFeatures(json);
+                if (features.getFeatures().isEmpty()) {
+                    LOGGER.warn("The object of " + json.optString("bugId") + " in " + file + " has no features, it is not imported.");
+                    continue;
+                }
+                store.write(json.getString("bugId"), features);
+                nbBugs++;
+            }
+        } catch (JSONException e) {
+            LOGGER.error("The JSON file " + file + " cannot be imported after its first " + nbBugs + " bugs: " + e);
+        }
+        return nbBugs;
+    }
+
+    /**
+     * Returns the features of a JSON object written by ADD, the features missing from the object being counted as 0.
+     */
+    static FeatureList toFeatures(JSONObject json) {
+        FeatureList features = new FeatureList(null);
+        for (Class<? extends Feature> featureClass : FeatureRegistry.getFeatureClasses()) {
+            JSONObject counters = json.optJSONObject(FeatureRegistry.getGroupName(featureClass));
+            if (counters == null) {
+                continue;
+            }
+            Feature feature;
+            try {
+                feature = featureClass.newInstance();
+            } catch (InstantiationException | IllegalAccessException e) {
+                throw new IllegalStateException("The feature class " + featureClass.getName() + " cannot be instantiated.", e);
+            }
+            for (String featureName : feature.getFeatureNames()) {
+                // the features added after the file was written are not counted
+                feature.setFeatureCounter(featureName, counters.optInt(featureName, 0));
+            }
+            features.add(feature);
+        }
+        return features;
+    }
+
+    private static JSAP initJSAP() throws JSAPException {
+        JSAP jsap = new JSAP();
+
+        FlaggedOption opt = new FlaggedOption("store");
+        opt.setLongFlag("store");
+        opt.setRequired(true);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setStringParser(FileStringParser.getParser().setMustBeDirectory(true));
+        opt.setHelp("Provide the path to the directory of the result store, which is created if needed.");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("import");
+        opt.setLongFlag("import");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(true);
+        opt.setStringParser(FileStringParser.getParser().setMustExist(true));
+        opt.setHelp("Provide a JSON file of features, or a directory of such files, to import in the store (optional, can be repeated).");
+        jsap.registerParameter(opt);
+
+        Switch compactSwitch = new Switch("compact");
+        compactSwitch.setLongFlag("compact");
+        compactSwitch.setHelp("Rewrite the store in as few segments as possible, keeping only the last version of each bug (optional).");
+        jsap.registerParameter(compactSwitch);
+
+        opt = new FlaggedOption("bugId");
+        opt.setShortFlag('b');
+        opt.setLongFlag("bugId");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(true);
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Provide the id of a bug whose features are printed as a JSON line (optional, can be repeated).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("where");
+        opt.setLongFlag("where");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(true);
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Provide a predicate <feature><operator><integer>, with one of the operators > >= < <= = !=, that the features of the queried bugs must match, e.g. wrapsIf>0 (optional, can be repeated).");
+        jsap.registerParameter(opt);
+
+        Switch countSwitch = new Switch("count");
+        countSwitch.setLongFlag("count");
+        countSwitch.setHelp("Print the number of bugs matching the predicates instead of their ids (optional).");
+        jsap.registerParameter(countSwitch);
+
+        return jsap;
+    }
+
+    public static void main(String[] args) throws Exception {
+        JSAP jsap = initJSAP();
+        JSAPResult arguments = jsap.parse(args);
+        List<Predicate> predicates = new ArrayList<>();
+        if (arguments.success()) {
+            for (String predicate : arguments.getStringArray("where")) {
+                try {
+                    predicates.add(Predicate.parse(predicate));
+                } catch (IllegalArgumentException e) {
+                    arguments.addException("where", new JSAPException(e.getMessage()));
+                }
+            }
+        }
+        if (!arguments.success()) {
+            System.err.println();
+            for (Iterator<?> errs = arguments.getErrorMessageIterator(); errs.hasNext(); ) {
+                System.err.println("Error: " + errs.next());
+            }
+            System.err.println();
+            System.err.println("Usage: java -cp patchclustering.jar " + ResultStoreCli.class.getName() + " <arguments>");
+            System.err.println();
+            System.err.println("Arguments:");
+            System.err.println();
+            System.err.println(jsap.getHelp());
+            System.exit(-1);
+        }
+
+        ResultStore store = new ResultStore(arguments.getFile("store"));
+        try {
+            for (File file : arguments.getFileArray("import")) {
+                List<File> files = new ArrayList<>();
+                if (file.isDirectory()) {
+                    File[] directoryFiles = file.listFiles();
+                    Arrays.sort(directoryFiles);
+                    for (File directoryFile : directoryFiles) {
+                        if (directoryFile.isFile() && (directoryFile.getName().endsWith(".json") || directoryFile.getName().endsWith(".jsonl"))) {
+                            files.add(directoryFile);
+                        }
+                    }
+                } else {
+                    files.add(file);
+                }
+                int nbBugs = 0;
+                for (File jsonFile : files) {
+                    nbBugs += importJsonFile(store, jsonFile);
+                }
+                store.flush();
+                LOGGER.info(nbBugs + " bugs imported from " + file + ".");
+            }
+            if (arguments.getBoolean("compact")) {
+                store.compact();
+            }
+
+            Writer output = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            FeatureJsonSerializer serializer = new FeatureJsonSerializer();
+            for (String bugId : arguments.getStringArray("bugId")) {
+                FeatureList features = store.get(bugId);
+                if (features == null) {
+                    System.err.println("Unknown bug: " + bugId);
+                    continue;
+                }
+                serializer.write(output, bugId, features);
+                output.write(Constants.LINE_BREAK);
+            }
+            if (!predicates.isEmpty() || arguments.getBoolean("count")) {
+                long start = System.nanoTime();
+                if (arguments.getBoolean("count")) {
+                    output.write(store.count(predicates) + Constants.LINE_BREAK);
+                } else {
+                    for (String bugId : store.query(predicates)) {
+                        output.write(bugId);
+                        output.write(Constants.LINE_BREAK);
+                    }
+                }
+                LOGGER.info("Query " + predicates + " over " + store.size() + " bugs answered in " + (System.nanoTime() - start) / 1000000 + " ms.");
+            }
+            output.flush();
+        } finally {
+            store.close();
+        }
+    }
+
+}
@@ -4,13 +4,28 @@ import add.entities.FeatureList;
 import add.features.FeatureAnalyzer;
 import add.features.detector.repairactions.RepairActionDetector;
 import add.features.detector.repairpatterns.RepairPatternDetector;
+import add.features.diffanalyzer.JGitBasedDiffAnalyzer;
 import add.features.extractor.MetricExtractor;
+import add.output.FeatureJsonSerializer;
+import add.similarity.FeatureVector;
+import add.similarity.Neighbor;
+import add.similarity.Similarity;
+import add.similarity.VpTree;
+import add.store.ResultStore;
 import fi.iki.elonen.NanoHTTPD;
 import gumtree.spoon.diff.Diff;
+import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
@@ -19,21 +34,113 @@ import java.util.Map;
  */
 public class Server extends NanoHTTPD {
 
+    public static final String SIMILAR_URI = "/similar";
+
+    private ResultStore store;
+    private Map<Similarity, VpTree> similarityIndexes = new EnumMap<>(Similarity.class);
+
     public Server() throws IOException {
+        this(null);
+    }
+
+    /**
+     * @param store the result store in which the similar patches are searched, or null
+     */
+    public Server(ResultStore store) throws IOException {
         super(9888);
+        this.store = store;
+        if (store != null) {
+            // indexes the store before the requests, which are served concurrently
+            store.size();
+        }
         start(NanoHTTPD.SOCKET_READ_TIMEOUT, false);
         System.out.println("\nRunning! Point your browsers to http://localhost:9888/ \n");
     }
 
     public static void main(String[] args) {
         try {
-            new Server();
+            new Server(args.length > 0 ? new ResultStore(new File(args[0])) : null);
         } catch (IOException ioe) {
             System.err.println("Couldn't start server:\n" + ioe);
             ioe.printStackTrace();
         }
     }
 
+    private static FeatureList analyze(JSONObject data) {
+        Config config = new Config();
+        config.setLauncherMode(LauncherMode.METRICS);
+        config.setBugId(data.getString("bugId"));
+        config.setBuggySourceDirectoryPath(data.getString("buggySourceDirectory"));
+        config.setDiffPath(data.getString("diffPath"));
+
+        FeatureList features = new FeatureList(config);
+
+        List<FeatureAnalyzer> featureAnalyzers = new ArrayList<>();
+
+        JGitBasedDiffAnalyzer diffAnalyzer = JGitBasedDiffAnalyzer.fromConfig(config);
+        RepairPatternDetector detector = new RepairPatternDetector(config, diffAnalyzer);
+        Diff editScript = detector.getEditScript();
+        featureAnalyzers.add(detector);
+        featureAnalyzers.add(new RepairActionDetector(config, editScript));
+        featureAnalyzers.add(new MetricExtractor(config, detector.getOriginalModel(), detector.getPatchedModel(), diffAnalyzer));
+
+        for (FeatureAnalyzer featureAnalyzer : featureAnalyzers) {
+            features.add(featureAnalyzer.analyze());
+        }
+        return features;
+    }
+
+    /**
+     * Searches the patches of the store that are the most similar to the patch of the request, which is analyzed if
+     * the request has a diffPath, and is a patch of the store otherwise. The optional parameters of the request are k
+     * (10 by default) and similarity (COSINE by default).
+     */
+    private Response serveSimilarPatches(JSONObject data) throws IOException {
+        if (this.store == null) {
+            return newFixedLengthResponse(Response.Status.NOT_FOUND, MIME_PLAINTEXT, "The server was started without a result store.");
+        }
+        String bugId = data.getString("bugId");
+        FeatureVector query;
+        if (data.has("diffPath")) {
+            query = FeatureVector.of(bugId, analyze(data));
+        } else {
+            int[] values = this.store.getValues(bugId);
+            if (values == null) {
+                return newFixedLengthResponse(Response.Status.NOT_FOUND, MIME_PLAINTEXT, "Unknown bug: " + bugId);
+            }
+            query = new FeatureVector(bugId, values);
+        }
+        Similarity similarity = Similarity.valueOf(data.optString("similarity", Similarity.COSINE.name()).toUpperCase());
+
+        JSONArray neighbors = new JSONArray();
+        for (Neighbor neighbor : this.getSimilarityIndex(similarity).search(query, data.optInt("k", 10))) {
+            JSONObject json = new JSONObject();
+            json.put("bugId", neighbor.getBugId());
+            json.put("similarity", neighbor.getSimilarity());
+            neighbors.put(json);
+        }
+        JSONObject json = new JSONObject();
+        json.put("bugId", bugId);
+        json.put("similarity", similarity.name());
+        json.put("neighbors", neighbors);
+        Response response = newFixedLengthResponse(Response.Status.OK, "application/json", json.toString());
+        response.addHeader("Access-Control-Allow-Origin", "*");
+        response.addHeader("Access-Control-Allow-Headers", "*");
+        return response;
+    }
+
+    /**
+     * Returns the index of the patches of the store, which is built at the first search with the similarity.
+     */
+    private synchronized VpTree getSimilarityIndex(Similarity similarity) throws IOException {
+        VpTree index = this.similarityIndexes.get(similarity);
+        if (index == null) {
+            index = VpTree.of(this.store, similarity);
+            this.similarityIndexes.put(similarity, index);
+        }
+        return index;
+    }
+
     @Override
     public Response serve(IHTTPSession session) {
         if (session.getMethod() == Method.POST) {
@@ -43,28 +150,20 @@ public class Server extends NanoHTTPD {
                 Map<String, String> parms = session.getParms();
                 session.parseBody(parms);
                 JSONObject data = new JSONObject(parms.get("postData"));
+                if (SIMILAR_URI.equals(session.getUri())) {
+                    return this.serveSimilarPatches(data);
+                }
 
-                Config config = new Config();
-                config.setLauncherMode(LauncherMode.METRICS);
-                config.setBugId(data.getString("bugId"));
-                config.setBuggySourceDirectoryPath(data.getString("buggySourceDirectory"));
-                config.setDiffPath(data.getString("diffPath"));
-
-                FeatureList features = new FeatureList(config);
-
-                List<FeatureAnalyzer> featureAnalyzers = new ArrayList<>();
-
-                RepairPatternDetector detector = new RepairPatternDetector(config);
-                Diff editScript = detector.getEditScript();
-                featureAnalyzers.add(detector);
-                featureAnalyzers.add(new RepairActionDetector(config, editScript));
-                featureAnalyzers.add(new MetricExtractor(config));
+                FeatureList features = analyze(data);
 
-                for (FeatureAnalyzer featureAnalyzer : featureAnalyzers) {
-                    features.add(featureAnalyzer.analyze());
+                // compact JSON, unless the request has the parameter pretty=true
+                boolean isPrettyPrinted = Boolean.parseBoolean(parms.get("pretty"));
+                ByteArrayOutputStream json = new ByteArrayOutputStream();
+                try (Writer writer = new OutputStreamWriter(json, StandardCharsets.UTF_8)) {
+                    new FeatureJsonSerializer(isPrettyPrinted ? JSONOutputFileCreator.PRETTY_PRINT_INDENT_FACTOR : 0).write(writer, data.getString("bugId"), features);
                 }
-
-                Response response = newFixedLengthResponse(Response.Status.OK, "application/json", features.toJson().toString(4));
+                Response response = newFixedLengthResponse(Response.Status.OK, "application/json",
+                        new ByteArrayInputStream(json.toByteArray()), json.size());
                 response.addHeader("Access-Control-Allow-Origin", "*");
                 response.addHeader("Access-Control-Allow-Headers", "*");
                 return response;
@@ -0,0 +1,146 @@
+package add.main;
+
+import add.similarity.FeatureVector;
+import add.similarity.Neighbor;
+import add.similarity.Similarity;
+import add.similarity.VpTree;
+import add.store.ResultStore;
+import com.martiansoftware.jsap.FlaggedOption;
+import com.martiansoftware.jsap.JSAP;
+import com.martiansoftware.jsap.JSAPException;
+import com.martiansoftware.jsap.JSAPResult;
+import com.martiansoftware.jsap.stringparsers.EnumeratedStringParser;
+import com.martiansoftware.jsap.stringparsers.FileStringParser;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Finds the patches of a {@link ResultStore} whose features are the most similar to the ones of given patches, which
+ * are either in the store or described by the JSON files written by {@link Launcher}.
+ */
+public class SimilaritySearch {
+    private static Logger LOGGER = LoggerFactory.getLogger(SimilaritySearch.class);
+
+    private static JSAP initJSAP() throws JSAPException {
+        JSAP jsap = new JSAP();
+
+        String similarityValues = "";
+        for (Similarity similarity : Similarity.values()) {
+            similarityValues += similarity.name() + ";";
+        }
+        similarityValues = similarityValues.substring(0, similarityValues.length() - 1);
+
+        FlaggedOption opt = new FlaggedOption("store");
+        opt.setLongFlag("store");
+        opt.setRequired(true);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setStringParser(FileStringParser.getParser().setMustBeDirectory(true).setMustExist(true));
+        opt.setHelp("Provide the path to the result store of the patches among which the similar ones are searched.");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("similarity");
+        opt.setLongFlag("similarity");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setDefault(Similarity.COSINE.name());
+        opt.setUsageName(similarityValues);
+        opt.setStringParser(EnumeratedStringParser.getParser(similarityValues));
+        opt.setHelp("Provide the similarity of the patches: the cosine of their vectors of feature counts, or the Jaccard index of their sets of features (optional, COSINE by default).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("k");
+        opt.setShortFlag('k');
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(false);
+        opt.setDefault("10");
+        opt.setStringParser(JSAP.INTEGER_PARSER);
+        opt.setHelp("Provide the number of similar patches found for each patch (optional, 10 by default).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("bugId");
+        opt.setShortFlag('b');
+        opt.setLongFlag("bugId");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(true);
+        opt.setStringParser(JSAP.STRING_PARSER);
+        opt.setHelp("Provide the id of a bug of the store whose similar patches are searched (can be repeated).");
+        jsap.registerParameter(opt);
+
+        opt = new FlaggedOption("features");
+        opt.setLongFlag("features");
+        opt.setRequired(false);
+        opt.setAllowMultipleDeclarations(true);
+        opt.setStringParser(FileStringParser.getParser().setMustBeFile(true).setMustExist(true));
+        opt.setHelp("Provide a JSON file of the features of a patch whose similar patches are searched (can be repeated).");
+        jsap.registerParameter(opt);
+
+        return jsap;
+    }
+
+    public static void main(String[] args) throws Exception {
+        JSAP jsap = initJSAP();
+        JSAPResult arguments = jsap.parse(args);
+        if (arguments.success()) {
+            if (arguments.getStringArray("bugId").length == 0 && arguments.getFileArray("features").length == 0) {
+                arguments.addException("bugId", new JSAPException("--bugId or --features must be provided."));
+            }
+            if (arguments.getInt("k") < 1) {
+                arguments.addException("k", new JSAPException("-k must be positive."));
+            }
+        }
+        if (!arguments.success()) {
+            System.err.println();
+            for (Iterator<?> errs = arguments.getErrorMessageIterator(); errs.hasNext(); ) {
+                System.err.println("Error: " + errs.next());
+            }
+            System.err.println();
+            System.err.println("Usage: java -cp patchclustering.jar " + SimilaritySearch.class.getName() + " <arguments>");
+            System.err.println();
+            System.err.println("Arguments:");
+            System.err.println();
+            System.err.println(jsap.getHelp());
+            System.exit(-1);
+        }
+
+        ResultStore store = new ResultStore(arguments.getFile("store"));
+        List<FeatureVector> queries = new ArrayList<>();
+        for (String bugId : arguments.getStringArray("bugId")) {
+            int[] values = store.getValues(bugId);
+            if (values == null) {
+                System.err.println("Unknown bug: " + bugId);
+            } else {
+                queries.add(new FeatureVector(bugId, values));
+            }
+        }
+        for (File file : arguments.getFileArray("features")) {
+            queries.add(readFeatureVector(file));
+        }
+
+        long start = System.nanoTime();
+        VpTree tree = VpTree.of(store, Similarity.valueOf(arguments.getString("similarity").toUpperCase()));
+        LOGGER.info("Index of " + tree.size() + " patches built in " + (System.nanoTime() - start) / 1000000 + " ms.");
+        for (FeatureVector query : queries) {
+            start = System.nanoTime();
+            List<Neighbor> neighbors = tree.search(query, arguments.getInt("k"));
+            LOGGER.info("Similar patches of " + query.getBugId() + " found in " + (System.nanoTime() - start) / 1000 + " us.");
+            for (Neighbor neighbor : neighbors) {
+                System.out.println(query.getBugId() + Constants.CSV_SEPARATOR + neighbor.getBugId() + Constants.CSV_SEPARATOR + neighbor.getSimilarity());
+            }
+        }
+    }
+
+    private static FeatureVector readFeatureVector(File file) throws IOException {
+        JSONObject json = new JSONObject(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        return FeatureVector.of(json.optString("bugId", file.getName()), ResultStoreCli.toFeatures(json));
+    }
+
+}
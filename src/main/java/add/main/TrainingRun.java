@@ -0,0 +1,44 @@
+package add.main;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+
+/**
+ * Runs {@link Launcher} on a few patches, so that the classes of the analyses are loaded, e.g. to dump a class data
+ * sharing archive of them at the exit of the JVM ({@code scripts/cds/add-cds train}).
+ *
+ * The arguments are directories of patches with {@code buggy-version} and {@code path.diff}, as in
+ * {@code src/test/resources/patches}; without any, a small generated patch is analyzed.
+ */
+public class TrainingRun {
+    private static Logger LOGGER = LoggerFactory.getLogger(TrainingRun.class);
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            Daemon.warmUp(1);
+            return;
+        }
+        for (String path : args) {
+            File patchDirectory = new File(path);
+            String[] launcherArgs = new String[] {"-m", LauncherMode.ALL.name(),
+                    "-b", patchDirectory.getName(),
+                    "--buggySourceDirectory", new File(patchDirectory, "buggy-version").getAbsolutePath(),
+                    "--diff", new File(patchDirectory, "path.diff").getAbsolutePath()};
+            Config config = Launcher.parseConfig(launcherArgs, System.err);
+            if (config == null) {
+                System.exit(-1);
+            }
+            long start = System.nanoTime();
+            try {
+                new Launcher(config).execute();
+            } catch (RuntimeException e) {
+                // a failing patch still loads classes: the training run goes on
+                LOGGER.error("The patch " + path + " cannot be analyzed: " + e);
+            }
+            LOGGER.info("Training run on " + path + " in " + (System.nanoTime() - start) / 1000000 + " ms.");
+        }
+    }
+
+}
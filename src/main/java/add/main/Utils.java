@@ -29,18 +29,23 @@ public class Utils {
     }
 
     public static List<String> fileToLines(String filename) {
+        try {
+            return streamToLines(new FileInputStream(filename));
+        } catch (IOException e) {
+            LOGGER.error(e.toString());
+        }
+        return new LinkedList<String>();
+    }
+
+    public static List<String> streamToLines(InputStream is) throws IOException {
         List<String> lines = new LinkedList<String>();
         String line;
-        try {
-            InputStream is = new FileInputStream(filename);
-            int BUFFER_SIZE = 8192;
+        int BUFFER_SIZE = 8192;
 
-            BufferedReader in = new BufferedReader(new InputStreamReader(is, Charset.forName("ISO-8859-1")), BUFFER_SIZE);
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(is, Charset.forName("ISO-8859-1")), BUFFER_SIZE)) {
             while ((line = in.readLine()) != null) {
                 lines.add(line);
             }
-        } catch (IOException e) {
-            LOGGER.error(e.toString());
         }
         return lines;
     }
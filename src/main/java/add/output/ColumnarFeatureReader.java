@@ -0,0 +1,179 @@
+package add.output;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a file written by {@link ColumnarFeatureWriter}, one row group at a time. Only the columns given to the
+ * reader are read from the file: the chunks of the other columns are skipped without being read nor decoded.
+ */
+public class ColumnarFeatureReader implements Closeable {
+    private static Logger LOGGER = LoggerFactory.getLogger(ColumnarFeatureReader.class);
+
+    private final RandomAccessFile file;
+    private final List<String> columnNames;
+    private final boolean[] isColumnRead;
+    private long position;
+
+    /**
+     * @param columns the names of the columns to read
+     * @throws IllegalArgumentException if the file is not a columnar feature file, or a column is not in the file
+     */
+    public ColumnarFeatureReader(File file, Collection<String> columns) throws IOException {
+        this.file = new RandomAccessFile(file, "r");
+        try {
+            byte[] magic = new byte[ColumnarFeatureWriter.MAGIC.length];
+            this.file.readFully(magic);
+            if (!Arrays.equals(magic, ColumnarFeatureWriter.MAGIC)) {
+                throw new IllegalArgumentException(file + " is not a columnar feature file.");
+            }
+            int version = this.file.readInt();
+            if (version != ColumnarFeatureWriter.FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported version of the columnar feature format: " + version);
+            }
+            int nbColumns = this.file.readInt();
+            List<String> columnNames = new ArrayList<>(nbColumns);
+            for (int i = 0; i < nbColumns; i++) {
+                columnNames.add(this.file.readUTF());
+            }
+            this.columnNames = Collections.unmodifiableList(columnNames);
+            this.isColumnRead = new boolean[nbColumns];
+            for (String column : columns) {
+                int index = columnNames.indexOf(column);
+                if (index == -1) {
+                    throw new IllegalArgumentException("Unknown column: " + column);
+                }
+                this.isColumnRead[index] = true;
+            }
+            this.position = this.file.getFilePointer();
+        } catch (IOException | RuntimeException e) {
+            this.file.close();
+            throw e;
+        }
+    }
+
+    public List<String> getColumnNames() {
+        return this.columnNames;
+    }
+
+    /**
+     * Returns the offset of the end of the last row group read, which is the end of the valid content of the file
+     * once {@link #nextRowGroup()} returned null.
+     */
+    long getPosition() {
+        return this.position;
+    }
+
+    /**
+     * Returns the next row group, or null at the end of the file. A row group left incomplete by an interrupted
+     * writer is ignored.
+     */
+    public RowGroup nextRowGroup() throws IOException {
+        long length = this.file.length();
+        if (this.position + 4 > length) {
+            return null;
+        }
+        this.file.seek(this.position);
+        long end = this.position + 4 + this.file.readInt();
+        if (end > length) {
+            LOGGER.warn("The incomplete row group at the end of the file is ignored.");
+            return null;
+        }
+
+        int nbRows = this.file.readInt();
+        String[] dictionary = new String[this.file.readInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = this.file.readUTF();
+        }
+        int[] chunkLengths = new int[this.columnNames.size() + 1];
+        for (int i = 0; i < chunkLengths.length; i++) {
+            chunkLengths[i] = this.file.readInt();
+        }
+
+        String[] bugIds = new String[nbRows];
+        int[] bugIdIndexes = this.readChunk(chunkLengths[0], nbRows);
+        for (int row = 0; row < nbRows; row++) {
+            bugIds[row] = dictionary[bugIdIndexes[row]];
+        }
+        Map<String, int[]> columns = new HashMap<>();
+        for (int column = 0; column < this.columnNames.size(); column++) {
+            if (this.isColumnRead[column]) {
+                columns.put(this.columnNames.get(column), this.readChunk(chunkLengths[column + 1], nbRows));
+            } else {
+                this.file.seek(this.file.getFilePointer() + chunkLengths[column + 1]);
+            }
+        }
+        this.position = end;
+        return new RowGroup(bugIds, columns);
+    }
+
+    private int[] readChunk(int length, int nbRows) throws IOException {
+        byte[] chunk = new byte[length];
+        this.file.readFully(chunk);
+        int[] values = new int[nbRows];
+        int offset = 0;
+        for (int row = 0; row < nbRows; row++) {
+            int zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = chunk[offset++];
+                zigzag |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            values[row] = (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.file.close();
+    }
+
+    /**
+     * The bug ids and the values of the columns read of the rows of a row group.
+     */
+    public static class RowGroup {
+        private final String[] bugIds;
+        private final Map<String, int[]> columns;
+
+        RowGroup(String[] bugIds, Map<String, int[]> columns) {
+            this.bugIds = bugIds;
+            this.columns = columns;
+        }
+
+        public int getNbRows() {
+            return this.bugIds.length;
+        }
+
+        public String getBugId(int row) {
+            return this.bugIds[row];
+        }
+
+        /**
+         * Returns the values of the column, indexed by row, {@link ColumnarFeatureWriter#MISSING_VALUE} standing for
+         * a feature that was not extracted.
+         */
+        public int[] getColumn(String columnName) {
+            int[] column = this.columns.get(columnName);
+            if (column == null) {
+                throw new IllegalArgumentException("The column " + columnName + " was not read.");
+            }
+            return column;
+        }
+    }
+
+}
@@ -0,0 +1,187 @@
+package add.output;
+
+import add.entities.Feature;
+import add.entities.FeatureList;
+import add.entities.FeatureRegistry;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the features in a columnar binary file, with one int column per feature of the {@link FeatureRegistry}, so
+ * that a corpus of any size is stored in a single file whose columns can be read independently by
+ * {@link ColumnarFeatureReader}.
+ *
+ * The file starts with a header (magic number, format version and the names of the columns), followed by row groups
+ * of at most {@code rowGroupSize} bugs. A row group holds:
+ * <ul>
+ * <li>its length in bytes and its number of rows;</li>
+ * <li>the dictionary of the bug ids of the group, and the length in bytes of each column chunk;</li>
+ * <li>the chunk of the bug ids, as indexes in the dictionary, then one chunk per feature.</li>
+ * </ul>
+ * The values are written as zigzag variable-length ints, so most counters take one byte. A feature that was not
+ * extracted (e.g. the metrics in the REPAIR_PATTERNS mode) has the value {@link #MISSING_VALUE}.
+ *
+ * A row group is written at once, and an existing file is appended to: a row group left incomplete by an interrupted
+ * run is removed before the new rows are appended.
+ */
+public class ColumnarFeatureWriter implements FeatureWriter {
+
+    static final byte[] MAGIC = "ADDC".getBytes(StandardCharsets.US_ASCII);
+    static final int FORMAT_VERSION = 1;
+
+    public static final int MISSING_VALUE = -1;
+    public static final int DEFAULT_ROW_GROUP_SIZE = 4096;
+
+    private final List<String> columnNames = FeatureRegistry.getFeatureNames();
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+    private final int rowGroupSize;
+    private final DataOutputStream output;
+
+    private final List<String> bugIds = new ArrayList<>();
+    private final List<int[]> rows = new ArrayList<>();
+
+    public ColumnarFeatureWriter(File file) throws IOException {
+        this(file, DEFAULT_ROW_GROUP_SIZE);
+    }
+
+    public ColumnarFeatureWriter(File file, int rowGroupSize) throws IOException {
+        if (rowGroupSize < 1) {
+            throw new IllegalArgumentException("The size of the row groups must be positive: " + rowGroupSize);
+        }
+        this.rowGroupSize = rowGroupSize;
+        for (int i = 0; i < this.columnNames.size(); i++) {
+            this.columnIndexes.put(this.columnNames.get(i), i);
+        }
+        boolean isNewFile = !file.exists() || file.length() == 0;
+        if (!isNewFile) {
+            this.truncateIncompleteRowGroup(file);
+        }
+        this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+        if (isNewFile) {
+            this.output.write(MAGIC);
+            this.output.writeInt(FORMAT_VERSION);
+            this.output.writeInt(this.columnNames.size());
+            for (String columnName : this.columnNames) {
+                this.output.writeUTF(columnName);
+            }
+            this.output.flush();
+        }
+    }
+
+    private void truncateIncompleteRowGroup(File file) throws IOException {
+        long length;
+        try (ColumnarFeatureReader reader = new ColumnarFeatureReader(file, new ArrayList<String>())) {
+            if (!this.columnNames.equals(reader.getColumnNames())) {
+                throw new IllegalArgumentException("The columns of " + file + " are not the features of this version.");
+            }
+            while (reader.nextRowGroup() != null) {
+                // only the end of the last complete row group is needed
+            }
+            length = reader.getPosition();
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(length);
+        }
+    }
+
+    @Override
+    public void write(String bugId, FeatureList features) throws IOException {
+        int[] row = new int[this.columnNames.size()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = MISSING_VALUE;
+        }
+        for (Feature feature : features.getFeatures()) {
+            for (String featureName : feature.getFeatureNames()) {
+                Integer column = this.columnIndexes.get(featureName);
+                if (column == null) {
+                    throw new IllegalArgumentException("The feature " + featureName + " is not in the feature registry.");
+                }
+                row[column] = feature.getFeatureCounter(featureName);
+            }
+        }
+        this.bugIds.add(bugId);
+        this.rows.add(row);
+        if (this.rows.size() == this.rowGroupSize) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Writes the buffered rows as a row group.
+     */
+    public void flush() throws IOException {
+        if (this.rows.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        ByteArrayOutputStream bugIdChunk = new ByteArrayOutputStream();
+        for (String bugId : this.bugIds) {
+            Integer index = dictionary.get(bugId);
+            if (index == null) {
+                index = dictionary.size();
+                dictionary.put(bugId, index);
+            }
+            writeVarInt(bugIdChunk, index);
+        }
+        List<byte[]> chunks = new ArrayList<>();
+        chunks.add(bugIdChunk.toByteArray());
+        for (int column = 0; column < this.columnNames.size(); column++) {
+            ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+            for (int[] row : this.rows) {
+                writeVarInt(chunk, row[column]);
+            }
+            chunks.add(chunk.toByteArray());
+        }
+
+        ByteArrayOutputStream rowGroup = new ByteArrayOutputStream();
+        DataOutputStream rowGroupOutput = new DataOutputStream(rowGroup);
+        rowGroupOutput.writeInt(this.rows.size());
+        rowGroupOutput.writeInt(dictionary.size());
+        for (String bugId : dictionary.keySet()) {
+            rowGroupOutput.writeUTF(bugId);
+        }
+        for (byte[] chunk : chunks) {
+            rowGroupOutput.writeInt(chunk.length);
+        }
+        for (byte[] chunk : chunks) {
+            rowGroupOutput.write(chunk);
+        }
+
+        this.output.writeInt(rowGroup.size());
+        rowGroup.writeTo(this.output);
+        this.output.flush();
+        this.bugIds.clear();
+        this.rows.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.flush();
+        } finally {
+            this.output.close();
+        }
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream output, int value) {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            output.write((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        output.write(zigzag);
+    }
+
+}
@@ -0,0 +1,146 @@
+package add.output;
+
+import add.entities.Feature;
+import add.entities.FeatureList;
+import add.entities.FeatureRegistry;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes the features as JSON directly to a writer, in the layout of {@link FeatureList#toJson()}:
+ * <pre>
+ * {"bugId":"chart_1","repairPatterns":{"condBlockOthersAdd":0,...},"repairActions":{...},"metrics":{...}}
+ * </pre>
+ * The features are written in the order of the {@link FeatureRegistry}, without building any JSON object, so the
+ * serialization of a bug only allocates the characters of its counters.
+ *
+ * The JSON is compact by default, and pretty-printed with the given indentation otherwise.
+ */
+public class FeatureJsonSerializer {
+
+    private final int indentFactor;
+
+    /**
+     * Creates a serializer of compact JSON.
+     */
+    public FeatureJsonSerializer() {
+        this(0);
+    }
+
+    /**
+     * @param indentFactor the number of spaces added at each level of indentation, or 0 for compact JSON
+     */
+    public FeatureJsonSerializer(int indentFactor) {
+        if (indentFactor < 0) {
+            throw new IllegalArgumentException("The indentation must not be negative: " + indentFactor);
+        }
+        this.indentFactor = indentFactor;
+    }
+
+    /**
+     * Writes the features of a bug as one JSON object, whose bugId is omitted if null.
+     */
+    public void write(Writer writer, String bugId, FeatureList features) throws IOException {
+        writer.write('{');
+        boolean isFirst = true;
+        if (bugId != null) {
+            this.writeKey(writer, "bugId", 1, isFirst);
+            writeString(writer, bugId);
+            isFirst = false;
+        }
+        for (Feature feature : features.getFeatures()) {
+            this.writeGroup(writer, feature, 1, isFirst);
+            isFirst = false;
+        }
+        this.writeEnd(writer, 0, isFirst);
+    }
+
+    /**
+     * Writes the features of a single class as one JSON object, in the layout of {@link Feature#toJson()}.
+     */
+    public void write(Writer writer, String bugId, Feature feature) throws IOException {
+        writer.write('{');
+        boolean isFirst = true;
+        if (bugId != null) {
+            this.writeKey(writer, "bugId", 1, isFirst);
+            writeString(writer, bugId);
+            isFirst = false;
+        }
+        this.writeGroup(writer, feature, 1, isFirst);
+        this.writeEnd(writer, 0, false);
+    }
+
+    private void writeGroup(Writer writer, Feature feature, int level, boolean isFirst) throws IOException {
+        this.writeKey(writer, FeatureRegistry.getGroupName(feature.getClass()), level, isFirst);
+        writer.write('{');
+        boolean isFirstFeature = true;
+        for (String featureName : feature.getFeatureNames()) {
+            this.writeKey(writer, featureName, level + 1, isFirstFeature);
+            writer.write(Integer.toString(feature.getFeatureCounter(featureName)));
+            isFirstFeature = false;
+        }
+        this.writeEnd(writer, level, isFirstFeature);
+    }
+
+    private void writeKey(Writer writer, String key, int level, boolean isFirst) throws IOException {
+        if (!isFirst) {
+            writer.write(',');
+        }
+        this.writeIndentation(writer, level);
+        writeString(writer, key);
+        writer.write(':');
+        if (this.indentFactor > 0) {
+            writer.write(' ');
+        }
+    }
+
+    private void writeEnd(Writer writer, int level, boolean isEmpty) throws IOException {
+        if (!isEmpty) {
+            this.writeIndentation(writer, level);
+        }
+        writer.write('}');
+    }
+
+    private void writeIndentation(Writer writer, int level) throws IOException {
+        if (this.indentFactor == 0) {
+            return;
+        }
+        writer.write('\n');
+        for (int i = 0; i < level * this.indentFactor; i++) {
+            writer.write(' ');
+        }
+    }
+
+    private static void writeString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+
+}
@@ -0,0 +1,15 @@
+package add.output;
+
+import add.entities.FeatureList;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes the features of a series of bugs (or commits) to a single output.
+ */
+public interface FeatureWriter extends Closeable {
+
+    void write(String bugId, FeatureList features) throws IOException;
+
+}
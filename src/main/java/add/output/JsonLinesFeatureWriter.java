@@ -0,0 +1,32 @@
+package add.output;
+
+import add.entities.FeatureList;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes the features of each bug as a JSON object on its own line, flushed as soon as it is written.
+ */
+public class JsonLinesFeatureWriter implements FeatureWriter {
+
+    private Writer writer;
+    private FeatureJsonSerializer serializer = new FeatureJsonSerializer();
+
+    public JsonLinesFeatureWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void write(String bugId, FeatureList features) throws IOException {
+        this.serializer.write(this.writer, bugId, features);
+        this.writer.write('\n');
+        this.writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+    }
+
+}
@@ -0,0 +1,115 @@
+package add.output;
+
+import add.entities.Feature;
+import add.entities.FeatureList;
+import add.entities.FeatureRegistry;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the features as a feature matrix in a delimiter-separated text format (CSV or TSV): a header with the bug id
+ * column and one column per feature of the {@link FeatureRegistry}, then one row per bug, in a single streaming pass.
+ *
+ * The cells of the features that were not extracted (e.g. the metrics in the REPAIR_PATTERNS mode) are left empty.
+ * A bug id containing the separator, a double quote or a line break is quoted as in RFC 4180.
+ */
+public class TabularFeatureWriter implements FeatureWriter {
+
+    public static final char CSV_SEPARATOR = ',';
+    public static final char TSV_SEPARATOR = '\t';
+
+    private final List<String> columnNames = FeatureRegistry.getFeatureNames();
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+    private final Writer writer;
+    private final char separator;
+    private final int[] row;
+    private final boolean[] isExtracted;
+
+    /**
+     * @param writer    the writer of the matrix, which should be buffered as it is written cell by cell
+     * @param separator the separator of the cells, e.g. {@link #CSV_SEPARATOR} or {@link #TSV_SEPARATOR}
+     */
+    public TabularFeatureWriter(Writer writer, char separator) throws IOException {
+        if (separator == '"' || separator == '\n' || separator == '\r') {
+            throw new IllegalArgumentException("Invalid separator: " + separator);
+        }
+        this.writer = writer;
+        this.separator = separator;
+        this.row = new int[this.columnNames.size()];
+        this.isExtracted = new boolean[this.columnNames.size()];
+        for (int i = 0; i < this.columnNames.size(); i++) {
+            this.columnIndexes.put(this.columnNames.get(i), i);
+        }
+
+        this.writer.write("bugId");
+        for (String columnName : this.columnNames) {
+            this.writer.write(this.separator);
+            this.writer.write(columnName);
+        }
+        this.writer.write('\n');
+    }
+
+    @Override
+    public void write(String bugId, FeatureList features) throws IOException {
+        for (int i = 0; i < this.isExtracted.length; i++) {
+            this.isExtracted[i] = false;
+        }
+        for (Feature feature : features.getFeatures()) {
+            for (String featureName : feature.getFeatureNames()) {
+                Integer column = this.columnIndexes.get(featureName);
+                if (column == null) {
+                    throw new IllegalArgumentException("The feature " + featureName + " is not in the feature registry.");
+                }
+                this.row[column] = feature.getFeatureCounter(featureName);
+                this.isExtracted[column] = true;
+            }
+        }
+
+        this.writeBugId(bugId);
+        for (int column = 0; column < this.row.length; column++) {
+            this.writer.write(this.separator);
+            if (this.isExtracted[column]) {
+                this.writer.write(Integer.toString(this.row[column]));
+            }
+        }
+        this.writer.write('\n');
+    }
+
+    private void writeBugId(String bugId) throws IOException {
+        boolean isQuoted = false;
+        for (int i = 0; i < bugId.length() && !isQuoted; i++) {
+            char c = bugId.charAt(i);
+            isQuoted = c == this.separator || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!isQuoted) {
+            this.writer.write(bugId);
+            return;
+        }
+        this.writer.write('"');
+        for (int i = 0; i < bugId.length(); i++) {
+            char c = bugId.charAt(i);
+            if (c == '"') {
+                this.writer.write('"');
+            }
+            this.writer.write(c);
+        }
+        this.writer.write('"');
+    }
+
+    /**
+     * Flushes the rows written so far.
+     */
+    public void flush() throws IOException {
+        this.writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+    }
+
+}
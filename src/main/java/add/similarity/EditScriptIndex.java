@@ -0,0 +1,288 @@
+package add.similarity;
+
+import add.features.detector.spoon.EditScriptTracer;
+import add.features.detector.spoon.OperationSignature;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * An index of the patches by the sets of the {@link OperationSignature}s of their edit scripts, which finds the
+ * patches that make structurally the same changes as a query, such as the same null guard in different projects.
+ *
+ * The similarity of two patches is the Jaccard index of their sets of signatures. The MinHash signature of each set is
+ * split in bands, and a search only compares the query with the patches that share a band with it, so that it does not
+ * depend on the size of the corpus: a patch whose similarity to the query is s shares a band with a probability of
+ * {@code 1 - (1 - s^rows)^bands}, i.e. more than 99% for a similarity of 0.8 with the default 16 bands of 4 rows. The
+ * patches without any operation are not indexed.
+ */
+public class EditScriptIndex {
+
+    public static final int DEFAULT_NB_BANDS = 16;
+    public static final int DEFAULT_NB_ROWS_PER_BAND = 4;
+
+    private final int nbRowsPerBand;
+    private final long[] seeds;
+    private final List<String> bugIds = new ArrayList<>();
+    private final Map<String, long[]> signatures = new HashMap<>();
+    /** The patches of each bucket of each band. */
+    private final List<Map<Long, List<Integer>>> buckets = new ArrayList<>();
+
+    public EditScriptIndex(int nbBands, int nbRowsPerBand) {
+        if (nbBands < 1 || nbRowsPerBand < 1) {
+            throw new IllegalArgumentException("The numbers of bands and of rows per band must be positive: " + nbBands + ", " + nbRowsPerBand);
+        }
+        this.nbRowsPerBand = nbRowsPerBand;
+        this.seeds = new long[nbBands * nbRowsPerBand];
+        // fixed seeds, so that the buckets do not change between runs
+        Random random = new Random(0);
+        for (int i = 0; i < this.seeds.length; i++) {
+            this.seeds[i] = random.nextLong();
+        }
+        for (int band = 0; band < nbBands; band++) {
+            this.buckets.add(new HashMap<Long, List<Integer>>());
+        }
+    }
+
+    public EditScriptIndex() {
+        this(DEFAULT_NB_BANDS, DEFAULT_NB_ROWS_PER_BAND);
+    }
+
+    /**
+     * Indexes the patches of a signature file (see {@link SignatureFile}), or of the signature files
+     * ({@code <bugId>_signatures.jsonl}) and trace files ({@code <bugId>_trace.jsonl}, written by
+     * {@link EditScriptTracer}) of a directory. A patch with both a signature file and a trace file is indexed once.
+     */
+    public static EditScriptIndex of(File file) throws IOException {
+        EditScriptIndex index = new EditScriptIndex();
+        if (file.isFile()) {
+            for (Map.Entry<String, long[]> patch : SignatureFile.read(file).entrySet()) {
+                index.add(patch.getKey(), patch.getValue());
+            }
+            return index;
+        }
+        File[] files = file.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File candidate) {
+                String name = candidate.getName();
+                return candidate.isFile() && (name.endsWith(SignatureFile.FILE_SUFFIX) || name.endsWith(EditScriptTracer.FILE_SUFFIX));
+            }
+        });
+        if (files == null) {
+            throw new IOException("The directory cannot be read: " + file);
+        }
+        Arrays.sort(files);
+        Set<String> indexedBugIds = new HashSet<>();
+        for (File signatureFile : files) {
+            if (signatureFile.getName().endsWith(SignatureFile.FILE_SUFFIX)) {
+                for (Map.Entry<String, long[]> patch : SignatureFile.read(signatureFile).entrySet()) {
+                    if (indexedBugIds.add(patch.getKey())) {
+                        index.add(patch.getKey(), patch.getValue());
+                    }
+                }
+            }
+        }
+        for (File traceFile : files) {
+            String name = traceFile.getName();
+            if (name.endsWith(EditScriptTracer.FILE_SUFFIX)) {
+                String bugId = name.substring(0, name.length() - EditScriptTracer.FILE_SUFFIX.length());
+                if (indexedBugIds.add(bugId)) {
+                    index.add(bugId, readSignatures(traceFile));
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Reads the signatures of the operations of a trace file written by {@link EditScriptTracer}.
+     */
+    public static long[] readSignatures(File traceFile) throws IOException {
+        List<Long> signatures = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(traceFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                JSONObject record = new JSONObject(line);
+                // the traces written before the signatures were added have none
+                if (record.has(EditScriptTracer.SIGNATURE_KEY)) {
+                    signatures.add(Long.parseUnsignedLong(record.getString(EditScriptTracer.SIGNATURE_KEY), 16));
+                }
+            }
+        }
+        long[] values = new long[signatures.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = signatures.get(i);
+        }
+        return values;
+    }
+
+    public int size() {
+        return this.bugIds.size();
+    }
+
+    /**
+     * Returns the distinct signatures of the patch in increasing order, or null if it is not indexed.
+     */
+    public long[] getSignatures(String bugId) {
+        return this.signatures.get(bugId);
+    }
+
+    public List<String> getBugIds() {
+        return Collections.unmodifiableList(this.bugIds);
+    }
+
+    /**
+     * Indexes the signatures of the operations of a patch, which may contain duplicates.
+     */
+    public void add(String bugId, long[] operationSignatures) {
+        if (this.signatures.containsKey(bugId)) {
+            throw new IllegalArgumentException("The patch is already indexed: " + bugId);
+        }
+        long[] set = toSet(operationSignatures);
+        if (set.length == 0) {
+            return;
+        }
+        int id = this.bugIds.size();
+        this.bugIds.add(bugId);
+        this.signatures.put(bugId, set);
+        long[] keys = this.getBandKeys(set);
+        for (int band = 0; band < keys.length; band++) {
+            List<Integer> bucket = this.buckets.get(band).get(keys[band]);
+            if (bucket == null) {
+                bucket = new ArrayList<>(1);
+                this.buckets.get(band).put(keys[band], bucket);
+            }
+            bucket.add(id);
+        }
+    }
+
+    /**
+     * Returns the other patches whose similarity to the indexed patch reaches the threshold, from the most similar one.
+     */
+    public List<Neighbor> search(String bugId, double threshold) {
+        long[] set = this.signatures.get(bugId);
+        if (set == null) {
+            return new ArrayList<>();
+        }
+        return this.search(bugId, set, threshold);
+    }
+
+    /**
+     * Returns the patches whose similarity to the signatures of the operations of a patch reaches the threshold, from
+     * the most similar one.
+     */
+    public List<Neighbor> search(long[] operationSignatures, double threshold) {
+        return this.search(null, toSet(operationSignatures), threshold);
+    }
+
+    private List<Neighbor> search(String queryBugId, long[] set, double threshold) {
+        List<Neighbor> neighbors = new ArrayList<>();
+        if (set.length == 0) {
+            return neighbors;
+        }
+        Set<Integer> candidates = new TreeSet<>();
+        long[] keys = this.getBandKeys(set);
+        for (int band = 0; band < keys.length; band++) {
+            List<Integer> bucket = this.buckets.get(band).get(keys[band]);
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+        for (int candidate : candidates) {
+            String bugId = this.bugIds.get(candidate);
+            if (bugId.equals(queryBugId)) {
+                continue;
+            }
+            double similarity = jaccard(set, this.signatures.get(bugId));
+            if (similarity >= threshold) {
+                neighbors.add(new Neighbor(bugId, similarity));
+            }
+        }
+        Collections.sort(neighbors, new Comparator<Neighbor>() {
+            @Override
+            public int compare(Neighbor n1, Neighbor n2) {
+                int comparison = Double.compare(n2.getSimilarity(), n1.getSimilarity());
+                return comparison != 0 ? comparison : n1.getBugId().compareTo(n2.getBugId());
+            }
+        });
+        return neighbors;
+    }
+
+    /**
+     * Returns the key of each band of the MinHash signature of the set.
+     */
+    private long[] getBandKeys(long[] set) {
+        long[] keys = new long[this.buckets.size()];
+        for (int band = 0; band < keys.length; band++) {
+            long key = band;
+            for (int i = band * this.nbRowsPerBand; i < (band + 1) * this.nbRowsPerBand; i++) {
+                long minimum = Long.MAX_VALUE;
+                for (long value : set) {
+                    minimum = Math.min(minimum, mix(value ^ this.seeds[i]));
+                }
+                key = 31 * key + minimum;
+            }
+            keys[band] = key;
+        }
+        return keys;
+    }
+
+    /**
+     * The finalizer of SplitMix64, so that the hashes of close signatures are independent.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    static double jaccard(long[] set1, long[] set2) {
+        int i = 0;
+        int j = 0;
+        int intersection = 0;
+        while (i < set1.length && j < set2.length) {
+            if (set1[i] < set2[j]) {
+                i++;
+            } else if (set1[i] > set2[j]) {
+                j++;
+            } else {
+                intersection++;
+                i++;
+                j++;
+            }
+        }
+        return (double) intersection / (set1.length + set2.length - intersection);
+    }
+
+    private static long[] toSet(long[] values) {
+        long[] set = values.clone();
+        Arrays.sort(set);
+        int size = 0;
+        for (int i = 0; i < set.length; i++) {
+            if (i == 0 || set[i] != set[i - 1]) {
+                set[size++] = set[i];
+            }
+        }
+        return Arrays.copyOf(set, size);
+    }
+
+}
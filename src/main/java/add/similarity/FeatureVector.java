@@ -0,0 +1,110 @@
+package add.similarity;
+
+import add.entities.Feature;
+import add.entities.FeatureList;
+import add.entities.FeatureRegistry;
+
+import java.util.List;
+
+/**
+ * The counts of the features of a patch, in the order of the {@link FeatureRegistry}. As most counts of a patch are 0,
+ * the vector keeps the indexes and the values of the positive counts only, with their norm and the set of the positive
+ * features, which are precomputed for the similarities.
+ */
+public class FeatureVector {
+
+    private final String bugId;
+    private final int dimension;
+    private final int[] indexes;
+    private final int[] values;
+    private final double norm;
+    private final long[] positiveFeatures;
+
+    /**
+     * @param values the counts of the features, a negative count (e.g. of a feature that was not extracted) being
+     *               considered as 0
+     */
+    public FeatureVector(String bugId, int[] values) {
+        this.bugId = bugId;
+        this.dimension = values.length;
+        this.positiveFeatures = new long[(values.length + 63) / 64];
+        int nbPositiveFeatures = 0;
+        for (int value : values) {
+            if (value > 0) {
+                nbPositiveFeatures++;
+            }
+        }
+        this.indexes = new int[nbPositiveFeatures];
+        this.values = new int[nbPositiveFeatures];
+        double squaredNorm = 0;
+        int position = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] > 0) {
+                this.indexes[position] = i;
+                this.values[position] = values[i];
+                position++;
+                squaredNorm += (double) values[i] * values[i];
+                this.positiveFeatures[i / 64] |= 1L << (i % 64);
+            }
+        }
+        this.norm = Math.sqrt(squaredNorm);
+    }
+
+    /**
+     * Returns the vector of the features, the features that were not extracted being counted as 0.
+     */
+    public static FeatureVector of(String bugId, FeatureList features) {
+        List<String> featureNames = FeatureRegistry.getFeatureNames();
+        int[] values = new int[featureNames.size()];
+        for (Feature feature : features.getFeatures()) {
+            for (String featureName : feature.getFeatureNames()) {
+                int index = featureNames.indexOf(featureName);
+                if (index == -1) {
+                    throw new IllegalArgumentException("The feature " + featureName + " is not in the feature registry.");
+                }
+                values[index] = feature.getFeatureCounter(featureName);
+            }
+        }
+        return new FeatureVector(bugId, values);
+    }
+
+    public String getBugId() {
+        return this.bugId;
+    }
+
+    public int getDimension() {
+        return this.dimension;
+    }
+
+    /**
+     * Returns the dot product of the vectors, computed on their positive counts.
+     */
+    double dotProduct(FeatureVector vector) {
+        double dotProduct = 0;
+        int i = 0;
+        int j = 0;
+        while (i < this.indexes.length && j < vector.indexes.length) {
+            if (this.indexes[i] < vector.indexes[j]) {
+                i++;
+            } else if (this.indexes[i] > vector.indexes[j]) {
+                j++;
+            } else {
+                dotProduct += (double) this.values[i++] * vector.values[j++];
+            }
+        }
+        return dotProduct;
+    }
+
+    double getNorm() {
+        return this.norm;
+    }
+
+    long[] getPositiveFeatures() {
+        return this.positiveFeatures;
+    }
+
+    int getNbPositiveFeatures() {
+        return this.indexes.length;
+    }
+
+}
@@ -0,0 +1,29 @@
+package add.similarity;
+
+/**
+ * A patch found by a similarity search, with its similarity to the query.
+ */
+public class Neighbor {
+
+    private final String bugId;
+    private final double similarity;
+
+    public Neighbor(String bugId, double similarity) {
+        this.bugId = bugId;
+        this.similarity = similarity;
+    }
+
+    public String getBugId() {
+        return this.bugId;
+    }
+
+    public double getSimilarity() {
+        return this.similarity;
+    }
+
+    @Override
+    public String toString() {
+        return this.bugId + " " + this.similarity;
+    }
+
+}
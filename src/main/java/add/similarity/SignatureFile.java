@@ -0,0 +1,88 @@
+package add.similarity;
+
+import add.features.detector.spoon.OperationSignature;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads and writes the signature files, which keep the {@link OperationSignature}s of the root operations of the edit
+ * scripts of patches, so that they can be indexed by {@link EditScriptIndex} without the traces. A signature file holds
+ * one JSON object per line and per patch:
+ * <pre>
+ * {"bugId":"chart_1","signatures":["9f1c04a8e2b3d7c5","3e5a7b21c0d9f684"]}
+ * </pre>
+ * The signatures are only computed when they are asked for: the launcher appends the line of its patch to the file
+ * given with {@code --signatures}, and the history miner writes the lines of all the mined commits to the file given
+ * with {@code --signatures}.
+ */
+public class SignatureFile {
+
+    public static final String FILE_SUFFIX = "_signatures.jsonl";
+
+    private static final String BUG_ID_KEY = "bugId";
+    private static final String SIGNATURES_KEY = "signatures";
+
+    private SignatureFile() {
+    }
+
+    /**
+     * Writes the signatures of a patch as one line.
+     */
+    public static void write(Writer writer, String bugId, long[] signatures) throws IOException {
+        writer.write(toLine(bugId, signatures));
+    }
+
+    /**
+     * Appends the signatures of a patch to the signature file, which is created if needed. The line is appended with a
+     * single write, so that the lines of concurrent runs are not interleaved.
+     */
+    public static void append(File signatureFile, String bugId, long[] signatures) throws IOException {
+        Files.write(signatureFile.toPath(), toLine(bugId, signatures).getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static String toLine(String bugId, long[] signatures) {
+        JSONArray values = new JSONArray();
+        for (long signature : signatures) {
+            values.put(Long.toHexString(signature));
+        }
+        JSONObject record = new JSONObject();
+        record.put(BUG_ID_KEY, bugId);
+        record.put(SIGNATURES_KEY, values);
+        return record.toString() + '\n';
+    }
+
+    /**
+     * Reads the signatures of the patches of a signature file, by bug id in the order of the file.
+     */
+    public static Map<String, long[]> read(File signatureFile) throws IOException {
+        Map<String, long[]> signatures = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(signatureFile.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                JSONObject record = new JSONObject(line);
+                JSONArray values = record.getJSONArray(SIGNATURES_KEY);
+                long[] patchSignatures = new long[values.length()];
+                for (int i = 0; i < patchSignatures.length; i++) {
+                    patchSignatures[i] = Long.parseUnsignedLong(values.getString(i), 16);
+                }
+                signatures.put(record.getString(BUG_ID_KEY), patchSignatures);
+            }
+        }
+        return signatures;
+    }
+
+}
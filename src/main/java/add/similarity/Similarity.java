@@ -0,0 +1,63 @@
+package add.similarity;
+
+/**
+ * The similarities between feature vectors, each with a distance that is a metric (it satisfies the triangle
+ * inequality), as needed by the {@link VpTree}.
+ */
+public enum Similarity {
+
+    /**
+     * The cosine of the angle between the vectors of counts. Its distance is the angle, divided by pi. A vector
+     * without any positive count is orthogonal to all the other vectors, and identical to the other empty vectors.
+     */
+    COSINE {
+        @Override
+        public double distance(FeatureVector a, FeatureVector b) {
+            if (a.getNorm() == 0 || b.getNorm() == 0) {
+                return a.getNorm() == b.getNorm() ? 0 : 0.5;
+            }
+            double cosine = Math.max(-1, Math.min(1, a.dotProduct(b) / (a.getNorm() * b.getNorm())));
+            return Math.acos(cosine) / Math.PI;
+        }
+
+        @Override
+        public double toSimilarity(double distance) {
+            return Math.cos(distance * Math.PI);
+        }
+    },
+
+    /**
+     * The Jaccard index of the sets of the positive features. Its distance is 1 minus the index. Two vectors without
+     * any positive count are identical.
+     */
+    JACCARD {
+        @Override
+        public double distance(FeatureVector a, FeatureVector b) {
+            int union = a.getNbPositiveFeatures() + b.getNbPositiveFeatures();
+            if (union == 0) {
+                return 0;
+            }
+            int intersection = 0;
+            long[] aFeatures = a.getPositiveFeatures();
+            long[] bFeatures = b.getPositiveFeatures();
+            for (int i = 0; i < aFeatures.length; i++) {
+                intersection += Long.bitCount(aFeatures[i] & bFeatures[i]);
+            }
+            return 1 - (double) intersection / (union - intersection);
+        }
+
+        @Override
+        public double toSimilarity(double distance) {
+            return 1 - distance;
+        }
+    };
+
+    public abstract double distance(FeatureVector a, FeatureVector b);
+
+    public abstract double toSimilarity(double distance);
+
+    public double similarity(FeatureVector a, FeatureVector b) {
+        return this.toSimilarity(this.distance(a, b));
+    }
+
+}
@@ -0,0 +1,209 @@
+package add.similarity;
+
+import add.store.ResultStore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * A vantage-point tree of feature vectors, which answers the k-nearest-neighbour queries of a {@link Similarity} by
+ * computing the distance of the query to a small part of the vectors only.
+ *
+ * The tree is stored in the array of the vectors: a node is a range of the array, whose first vector is the vantage
+ * point; the vectors of the first half of the rest of the range are at most at the threshold distance of the vantage
+ * point, and the vectors of the second half at least at this distance. A search skips a half when the triangle
+ * inequality shows that it cannot contain a vector nearer than the k-th nearest one found so far. The small ranges are
+ * leaves, whose vectors are all compared with the query.
+ */
+public class VpTree {
+
+    /** The margin of the pruning, so that a rounding error of a distance does not lose a neighbor. */
+    private static final double EPSILON = 1e-9;
+    private static final int LEAF_SIZE = 8;
+
+    private final Similarity similarity;
+    private final FeatureVector[] vectors;
+    /** The threshold distance of each node, at the index of its vantage point. */
+    private final double[] thresholds;
+
+    public VpTree(List<FeatureVector> vectors, Similarity similarity) {
+        this.similarity = similarity;
+        this.vectors = vectors.toArray(new FeatureVector[vectors.size()]);
+        this.thresholds = new double[this.vectors.length];
+        // the vantage points are chosen at random, with a fixed seed so that the tree does not change between runs
+        this.build(0, this.vectors.length, new double[this.vectors.length], new Random(0));
+    }
+
+    /**
+     * Builds the tree of the features of all the bugs of the store.
+     */
+    public static VpTree of(ResultStore store, Similarity similarity) throws IOException {
+        List<FeatureVector> vectors = new ArrayList<>();
+        for (String bugId : store.getBugIds()) {
+            vectors.add(new FeatureVector(bugId, store.getValues(bugId)));
+        }
+        return new VpTree(vectors, similarity);
+    }
+
+    public Similarity getSimilarity() {
+        return this.similarity;
+    }
+
+    public int size() {
+        return this.vectors.length;
+    }
+
+    private void build(int start, int end, double[] distances, Random random) {
+        if (end - start <= LEAF_SIZE) {
+            return;
+        }
+        this.swap(start, start + random.nextInt(end - start), distances);
+        FeatureVector vantagePoint = this.vectors[start];
+        for (int i = start + 1; i < end; i++) {
+            distances[i] = this.similarity.distance(vantagePoint, this.vectors[i]);
+        }
+        int middle = (start + 1 + end) >>> 1;
+        this.select(start + 1, end, middle, distances);
+        this.thresholds[start] = distances[middle];
+        this.build(start + 1, middle, distances, random);
+        this.build(middle, end, distances, random);
+    }
+
+    /**
+     * Reorders the range so that the vector at the given index is the one of its rank by distance, the vectors before
+     * it being at most at its distance and the ones after it at least at its distance.
+     */
+    private void select(int start, int end, int rank, double[] distances) {
+        int low = start;
+        int high = end - 1;
+        while (low < high) {
+            double pivot = distances[(low + high) >>> 1];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (distances[i] < pivot) {
+                    i++;
+                }
+                while (distances[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    this.swap(i, j, distances);
+                    i++;
+                    j--;
+                }
+            }
+            if (rank <= j) {
+                high = j;
+            } else if (rank >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j, double[] distances) {
+        FeatureVector vector = this.vectors[i];
+        this.vectors[i] = this.vectors[j];
+        this.vectors[j] = vector;
+        double distance = distances[i];
+        distances[i] = distances[j];
+        distances[j] = distance;
+    }
+
+    /**
+     * Returns the k vectors that are the most similar to the query, from the most similar one, the vector of the bug of
+     * the query (if it is in the tree) being excluded.
+     */
+    public List<Neighbor> search(FeatureVector query, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("The number of neighbors must be positive: " + k);
+        }
+        PriorityQueue<Candidate> nearest = new PriorityQueue<>(k, Collections.reverseOrder(Candidate.COMPARATOR));
+        this.search(0, this.vectors.length, query, k, nearest);
+
+        List<Candidate> candidates = new ArrayList<>(nearest);
+        Collections.sort(candidates, Candidate.COMPARATOR);
+        List<Neighbor> neighbors = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            neighbors.add(new Neighbor(candidate.vector.getBugId(), this.similarity.toSimilarity(candidate.distance)));
+        }
+        return neighbors;
+    }
+
+    private void search(int start, int end, FeatureVector query, int k, PriorityQueue<Candidate> nearest) {
+        if (end - start <= LEAF_SIZE) {
+            for (int i = start; i < end; i++) {
+                this.offer(query, this.vectors[i], this.similarity.distance(query, this.vectors[i]), k, nearest);
+            }
+            return;
+        }
+        FeatureVector vantagePoint = this.vectors[start];
+        double distance = this.similarity.distance(query, vantagePoint);
+        this.offer(query, vantagePoint, distance, k, nearest);
+
+        int middle = (start + 1 + end) >>> 1;
+        double threshold = this.thresholds[start];
+        if (distance < threshold) {
+            if (distance - this.getRadius(nearest, k) <= threshold) {
+                this.search(start + 1, middle, query, k, nearest);
+            }
+            if (distance + this.getRadius(nearest, k) >= threshold) {
+                this.search(middle, end, query, k, nearest);
+            }
+        } else {
+            if (distance + this.getRadius(nearest, k) >= threshold) {
+                this.search(middle, end, query, k, nearest);
+            }
+            if (distance - this.getRadius(nearest, k) <= threshold) {
+                this.search(start + 1, middle, query, k, nearest);
+            }
+        }
+    }
+
+    private void offer(FeatureVector query, FeatureVector vector, double distance, int k, PriorityQueue<Candidate> nearest) {
+        if (query.getBugId() != null && query.getBugId().equals(vector.getBugId())) {
+            return;
+        }
+        if (nearest.size() < k) {
+            nearest.add(new Candidate(vector, distance));
+        } else if (distance < nearest.peek().distance || (distance == nearest.peek().distance
+                && Candidate.COMPARATOR.compare(new Candidate(vector, distance), nearest.peek()) < 0)) {
+            nearest.poll();
+            nearest.add(new Candidate(vector, distance));
+        }
+    }
+
+    private double getRadius(PriorityQueue<Candidate> nearest, int k) {
+        return nearest.size() < k ? Double.POSITIVE_INFINITY : nearest.peek().distance + EPSILON;
+    }
+
+    private static class Candidate {
+        /** By distance, then by bug id so that the neighbors at the same distance are always the same ones. */
+        static final Comparator<Candidate> COMPARATOR = new Comparator<Candidate>() {
+            @Override
+            public int compare(Candidate c1, Candidate c2) {
+                int comparison = Double.compare(c1.distance, c2.distance);
+                if (comparison != 0) {
+                    return comparison;
+                }
+                return String.valueOf(c1.vector.getBugId()).compareTo(String.valueOf(c2.vector.getBugId()));
+            }
+        };
+
+        final FeatureVector vector;
+        final double distance;
+
+        Candidate(FeatureVector vector, double distance) {
+            this.vector = vector;
+            this.distance = distance;
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+package add.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The append log of a {@link ResultStore}, where the rows written one at a time (e.g. by each run of the launcher)
+ * are staged before they are folded into a segment.
+ *
+ * A log file holds a header (magic number, format version and the names of the columns), then one record per row:
+ * its length, the bug id and the values of the row as 32-bit ints. A record is appended with a single write, so a
+ * truncated record can only be the last one of the file (while it is appended, or after a crash), and it is ignored.
+ */
+class AppendLog {
+
+    static final byte[] MAGIC = "ADDL".getBytes(StandardCharsets.US_ASCII);
+    static final int FORMAT_VERSION = 1;
+
+    private final List<String> columnNames;
+    private final List<String> bugIds;
+    private final List<int[]> rows;
+
+    private AppendLog(List<String> columnNames, List<String> bugIds, List<int[]> rows) {
+        this.columnNames = columnNames;
+        this.bugIds = bugIds;
+        this.rows = rows;
+    }
+
+    /**
+     * Returns whether the log file may hold as many rows as given, from its size: the records of the rows are at least
+     * as large as the ones of empty bug ids.
+     */
+    static boolean isFull(File file, List<String> columnNames, int nbRows) {
+        long headerSize = MAGIC.length + 8;
+        for (String columnName : columnNames) {
+            headerSize += 4 + columnName.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return file.length() - headerSize >= nbRows * (8 + 4L * columnNames.size());
+    }
+
+    /**
+     * Appends the row to the log file, which is created if needed, and forces it to the disk. The caller must hold the
+     * lock of the store, so that the records of two processes are not interleaved.
+     */
+    static void append(File file, List<String> columnNames, String bugId, int[] row) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            if (channel.size() == 0) {
+                output.write(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                output.writeInt(columnNames.size());
+                for (String columnName : columnNames) {
+                    writeString(output, columnName);
+                }
+            }
+            byte[] bugIdBytes = bugId.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(4 + bugIdBytes.length + 4 * row.length);
+            output.writeInt(bugIdBytes.length);
+            output.write(bugIdBytes);
+            for (int value : row) {
+                output.writeInt(value);
+            }
+            output.flush();
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Reads the complete records of a log file, or returns null if there is no log.
+     *
+     * @throws IllegalArgumentException if the file is not an append log
+     */
+    static AppendLog read(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        if (!buffer.hasRemaining()) {
+            return null;
+        }
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IllegalArgumentException(file + " is not the append log of a result store.");
+            }
+            int version = buffer.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported version of the append log format: " + version);
+            }
+            int nbColumns = buffer.getInt();
+            List<String> columnNames = new ArrayList<>(nbColumns);
+            for (int i = 0; i < nbColumns; i++) {
+                columnNames.add(readString(buffer));
+            }
+            List<String> bugIds = new ArrayList<>();
+            List<int[]> rows = new ArrayList<>();
+            while (buffer.remaining() >= 4) {
+                int length = buffer.getInt();
+                if (length > buffer.remaining()) {
+                    break;
+                }
+                bugIds.add(readString(buffer));
+                int[] row = new int[nbColumns];
+                for (int column = 0; column < nbColumns; column++) {
+                    row[column] = buffer.getInt();
+                }
+                rows.add(row);
+            }
+            return new AppendLog(Collections.unmodifiableList(columnNames), bugIds, rows);
+        } catch (RuntimeException e) {
+            if (e instanceof IllegalArgumentException) {
+                throw e;
+            }
+            throw new IllegalArgumentException(file + " is not a valid append log of a result store.", e);
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    List<String> getColumnNames() {
+        return this.columnNames;
+    }
+
+    List<String> getBugIds() {
+        return this.bugIds;
+    }
+
+    List<int[]> getRows() {
+        return this.rows;
+    }
+
+}
@@ -0,0 +1,126 @@
+package add.store;
+
+import add.entities.FeatureRegistry;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A comparison of a feature with a constant, e.g. {@code wrapsIf>0} or {@code patchSizeCodeOnly<5}. A feature that
+ * was not extracted for a bug matches no predicate.
+ */
+public class Predicate {
+
+    private static final Pattern PATTERN = Pattern.compile("\\s*(\\w+)\\s*(>=|<=|!=|>|<|=)\\s*(-?\\d+)\\s*");
+
+    public enum Operator {
+        GREATER(">"), GREATER_OR_EQUAL(">="), LESS("<"), LESS_OR_EQUAL("<="), EQUAL("="), NOT_EQUAL("!=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        public String getSymbol() {
+            return this.symbol;
+        }
+
+        static Operator fromSymbol(String symbol) {
+            for (Operator operator : values()) {
+                if (operator.symbol.equals(symbol)) {
+                    return operator;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operator: " + symbol);
+        }
+    }
+
+    private final String featureName;
+    private final Operator operator;
+    private final int value;
+
+    public Predicate(String featureName, Operator operator, int value) {
+        if (!FeatureRegistry.getFeatureNames().contains(featureName)) {
+            throw new IllegalArgumentException("Unknown feature: " + featureName);
+        }
+        this.featureName = featureName;
+        this.operator = operator;
+        this.value = value;
+    }
+
+    /**
+     * Parses a predicate written as {@code <feature><operator><integer>}, the operator being one of
+     * {@code > >= < <= = !=}.
+     *
+     * @throws IllegalArgumentException if the predicate is malformed or the feature is unknown
+     */
+    public static Predicate parse(String predicate) {
+        Matcher matcher = PATTERN.matcher(predicate);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Malformed predicate: " + predicate);
+        }
+        return new Predicate(matcher.group(1), Operator.fromSymbol(matcher.group(2)), Integer.parseInt(matcher.group(3)));
+    }
+
+    public String getFeatureName() {
+        return this.featureName;
+    }
+
+    public Operator getOperator() {
+        return this.operator;
+    }
+
+    public int getValue() {
+        return this.value;
+    }
+
+    /**
+     * Returns whether the predicate can only match positive values, so that the candidate rows are restricted by the
+     * bitmap of the positive values of the feature.
+     */
+    boolean requiresPositive() {
+        switch (this.operator) {
+            case GREATER:
+                return this.value >= 0;
+            case GREATER_OR_EQUAL:
+            case EQUAL:
+                return this.value >= 1;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns whether the predicate matches exactly the positive values, so that the bitmap is enough to evaluate it.
+     */
+    boolean isPositive() {
+        return (this.operator == Operator.GREATER && this.value == 0) || (this.operator == Operator.GREATER_OR_EQUAL && this.value == 1);
+    }
+
+    public boolean matches(int featureValue) {
+        if (featureValue == ResultStore.MISSING_VALUE) {
+            return false;
+        }
+        switch (this.operator) {
+            case GREATER:
+                return featureValue > this.value;
+            case GREATER_OR_EQUAL:
+                return featureValue >= this.value;
+            case LESS:
+                return featureValue < this.value;
+            case LESS_OR_EQUAL:
+                return featureValue <= this.value;
+            case EQUAL:
+                return featureValue == this.value;
+            default:
+                return featureValue != this.value;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return this.featureName + this.operator.getSymbol() + this.value;
+    }
+
+}
@@ -0,0 +1,545 @@
+package add.store;
+
+import add.entities.Feature;
+import add.entities.FeatureList;
+import add.entities.FeatureRegistry;
+import add.main.Config;
+import add.output.FeatureWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An embedded, append-only store of the features of analyzed bugs, in a directory of immutable segment files.
+ *
+ * The written results are buffered, and each flush writes them as a new segment, with one column per feature of the
+ * {@link FeatureRegistry} ({@link #MISSING_VALUE} for the features that were not extracted) and, for each feature, a
+ * bitmap of the bugs for which it is positive. The results of a single bug (e.g. of a launcher run) are instead
+ * {@link #append(String, FeatureList) appended} to the append log of the store, which is folded into a segment once it
+ * holds as many bugs as a segment, and before any other segment is written. A bug written again is superseded by its
+ * last version.
+ *
+ * Before the first read, the segments and the append log are read (the large segments are memory-mapped) and an index
+ * of the bug ids is built (a store that is only appended to does not read them), so that a bug is found with a hash
+ * lookup, and a query such as {@code wrapsIf>0 patchSizeCodeOnly<5} only reads the values of the bugs that are in the
+ * bitmaps of its positive predicates. The written results are visible once flushed.
+ *
+ * Several processes can append to the same store: the writes of the append log and of the segments, and the
+ * compactions, hold the lock file of the store. Each segment is written in a temporary file and then linked with a new
+ * sequence number, so a reader never sees a partial segment.
+ */
+public class ResultStore implements FeatureWriter {
+    private static Logger LOGGER = LoggerFactory.getLogger(ResultStore.class);
+
+    public static final int MISSING_VALUE = -1;
+    public static final int DEFAULT_SEGMENT_SIZE = 65536;
+    public static final int MAX_SEGMENT_SIZE = 1 << 20;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_EXTENSION = ".adds";
+    private static final String APPEND_LOG_NAME = "append.addl";
+    private static final String LOCK_FILE_NAME = "store.lock";
+
+    /** The monitors of the stores opened by this process, since a file lock cannot be taken twice by the same JVM. */
+    private static final Map<File, Object> MONITORS = new HashMap<>();
+
+    private final File directory;
+    private final File appendLogFile;
+    private final File lockFile;
+    private final int segmentSize;
+    private final List<String> columnNames = FeatureRegistry.getFeatureNames();
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+
+    private final List<Segment> segments = new ArrayList<>();
+    /** The bits of the rows of each segment that are not superseded by a later version of the same bug. */
+    private final List<long[]> liveRows = new ArrayList<>();
+    /** The location of the last version of each bug: the index of its segment, then its row, in a long. */
+    private final Map<String, Long> bugIndex = new HashMap<>();
+    private boolean isLoaded;
+
+    private final List<String> bufferedBugIds = new ArrayList<>();
+    private final List<int[]> bufferedRows = new ArrayList<>();
+
+    public ResultStore(File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens the store in the directory, which is created if needed.
+     *
+     * @param segmentSize the maximum number of bugs per segment
+     */
+    public ResultStore(File directory, int segmentSize) throws IOException {
+        if (segmentSize < 1 || segmentSize > MAX_SEGMENT_SIZE) {
+            throw new IllegalArgumentException("The size of the segments must be between 1 and " + MAX_SEGMENT_SIZE + ": " + segmentSize);
+        }
+        if (directory.isFile()) {
+            throw new IllegalArgumentException(directory + " is not a directory.");
+        }
+        Files.createDirectories(directory.toPath());
+        this.directory = directory;
+        this.appendLogFile = new File(directory, APPEND_LOG_NAME);
+        this.lockFile = new File(directory, LOCK_FILE_NAME);
+        this.segmentSize = segmentSize;
+        for (int i = 0; i < this.columnNames.size(); i++) {
+            this.columnIndexes.put(this.columnNames.get(i), i);
+        }
+    }
+
+    private void load() throws IOException {
+        if (this.isLoaded) {
+            return;
+        }
+        // the lock keeps a fold or a compaction from deleting the files being read
+        this.runLocked(new LockedOperation() {
+            @Override
+            public void run() throws IOException {
+                ResultStore.this.loadLocked();
+            }
+        });
+    }
+
+    private void loadLocked() throws IOException {
+        for (File file : this.listSegmentFiles()) {
+            this.addSegment(Segment.open(file));
+        }
+        // the rows of the append log are more recent than the ones of the segments
+        AppendLog appendLog = AppendLog.read(this.appendLogFile);
+        if (appendLog != null && !appendLog.getRows().isEmpty()) {
+            this.addSegment(Segment.of(this.appendLogFile, appendLog.getColumnNames(), appendLog.getBugIds(), appendLog.getRows()));
+        }
+        this.isLoaded = true;
+    }
+
+    /**
+     * Forgets the segments that were read, so that the next read loads the store again.
+     */
+    private void unload() {
+        this.segments.clear();
+        this.liveRows.clear();
+        this.bugIndex.clear();
+        this.isLoaded = false;
+    }
+
+    private interface LockedOperation {
+        void run() throws IOException;
+    }
+
+    /**
+     * Runs the operation while holding the lock of the store, against the other processes and the other instances of
+     * this process.
+     */
+    private void runLocked(LockedOperation operation) throws IOException {
+        Object monitor;
+        synchronized (MONITORS) {
+            File key = this.directory.getCanonicalFile();
+            monitor = MONITORS.get(key);
+            if (monitor == null) {
+                monitor = new Object();
+                MONITORS.put(key, monitor);
+            }
+        }
+        synchronized (monitor) {
+            try (FileChannel channel = FileChannel.open(this.lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock lock = channel.lock()) {
+                operation.run();
+            }
+        }
+    }
+
+    private File[] listSegmentFiles() {
+        File[] files = this.directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.getName().startsWith(SEGMENT_PREFIX) && file.getName().endsWith(SEGMENT_EXTENSION);
+            }
+        });
+        // the sequence numbers have a fixed width, so the names are sorted in the order of the writes
+        Arrays.sort(files);
+        return files;
+    }
+
+    private void addSegment(Segment segment) {
+        if (!this.columnNames.equals(segment.getColumnNames())) {
+            throw new IllegalArgumentException("The columns of " + segment.getFile() + " are not the features of this version.");
+        }
+        int segmentIndex = this.segments.size();
+        long[] live = new long[segment.getNbWords()];
+        this.segments.add(segment);
+        this.liveRows.add(live);
+        for (int row = 0; row < segment.getNbRows(); row++) {
+            live[row / 64] |= 1L << (row % 64);
+            Long previous = this.bugIndex.put(segment.getBugId(row), ((long) segmentIndex << 32) | row);
+            if (previous != null) {
+                int previousRow = (int) previous.longValue();
+                this.liveRows.get((int) (previous >>> 32))[previousRow / 64] &= ~(1L << (previousRow % 64));
+            }
+        }
+    }
+
+    public File getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Returns the number of bugs in the flushed segments.
+     */
+    public int size() throws IOException {
+        this.load();
+        return this.bugIndex.size();
+    }
+
+    @Override
+    public void write(String bugId, FeatureList features) throws IOException {
+        this.bufferedBugIds.add(bugId);
+        this.bufferedRows.add(this.toRow(features));
+        if (this.bufferedRows.size() == this.segmentSize) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Appends the features of the bug to the append log of the store, where they are visible at once, instead of
+     * buffering them. This is meant for a process that writes a single bug, which would otherwise write a segment of one
+     * row.
+     */
+    public void append(final String bugId, FeatureList features) throws IOException {
+        final int[] row = this.toRow(features);
+        this.runLocked(new LockedOperation() {
+            @Override
+            public void run() throws IOException {
+                if (AppendLog.isFull(ResultStore.this.appendLogFile, ResultStore.this.columnNames, ResultStore.this.segmentSize)) {
+                    ResultStore.this.foldAppendLog();
+                }
+                AppendLog.append(ResultStore.this.appendLogFile, ResultStore.this.columnNames, bugId, row);
+            }
+        });
+        if (this.isLoaded) {
+            this.unload();
+        }
+    }
+
+    private int[] toRow(FeatureList features) {
+        int[] row = new int[this.columnNames.size()];
+        Arrays.fill(row, MISSING_VALUE);
+        for (Feature feature : features.getFeatures()) {
+            for (String featureName : feature.getFeatureNames()) {
+                Integer column = this.columnIndexes.get(featureName);
+                if (column == null) {
+                    throw new IllegalArgumentException("The feature " + featureName + " is not in the feature registry.");
+                }
+                row[column] = feature.getFeatureCounter(featureName);
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Writes the buffered results as a new segment.
+     */
+    public void flush() throws IOException {
+        if (this.bufferedRows.isEmpty()) {
+            return;
+        }
+        this.runLocked(new LockedOperation() {
+            @Override
+            public void run() throws IOException {
+                ResultStore.this.flushLocked();
+            }
+        });
+    }
+
+    private void flushLocked() throws IOException {
+        if (this.bufferedRows.isEmpty()) {
+            return;
+        }
+        // the appended rows are older than the buffered ones, so they must be in an earlier segment
+        this.foldAppendLog();
+        this.writeSegment(this.bufferedBugIds, this.bufferedRows);
+        this.bufferedBugIds.clear();
+        this.bufferedRows.clear();
+    }
+
+    /**
+     * Writes the rows of the append log as a new segment, and deletes the log. If the log is deleted before it is
+     * written as a segment, its rows are written again by the next fold, which gives the same store.
+     */
+    private void foldAppendLog() throws IOException {
+        AppendLog appendLog = AppendLog.read(this.appendLogFile);
+        if (appendLog == null) {
+            return;
+        }
+        if (!this.columnNames.equals(appendLog.getColumnNames())) {
+            throw new IllegalArgumentException("The columns of " + this.appendLogFile + " are not the features of this version.");
+        }
+        if (!appendLog.getRows().isEmpty()) {
+            if (this.isLoaded) {
+                // the rows of the log were read as the last segment, which is replaced by the new one
+                this.unload();
+            }
+            this.writeSegment(appendLog.getBugIds(), appendLog.getRows());
+        }
+        Files.delete(this.appendLogFile.toPath());
+    }
+
+    private void writeSegment(List<String> bugIds, List<int[]> rows) throws IOException {
+        File temporaryFile = File.createTempFile(".segment", ".tmp", this.directory);
+        try {
+            Segment.write(temporaryFile, this.columnNames, bugIds, rows);
+            File file = this.linkToNextSegmentFile(temporaryFile);
+            if (this.isLoaded) {
+                this.addSegment(Segment.open(file));
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile.toPath());
+        }
+    }
+
+    private File linkToNextSegmentFile(File temporaryFile) throws IOException {
+        long sequenceNumber = 0;
+        File[] files = this.listSegmentFiles();
+        if (files.length > 0) {
+            String name = files[files.length - 1].getName();
+            sequenceNumber = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_EXTENSION.length())) + 1;
+        }
+        while (true) {
+            File file = new File(this.directory, String.format("%s%012d%s", SEGMENT_PREFIX, sequenceNumber, SEGMENT_EXTENSION));
+            try {
+                // unlike a rename, a link never replaces a segment, e.g. one written by a version without the lock
+                Files.createLink(file.toPath(), temporaryFile.toPath());
+                return file;
+            } catch (FileAlreadyExistsException e) {
+                LOGGER.debug("The segment " + file + " was written by another process.");
+            }
+            sequenceNumber++;
+        }
+    }
+
+    /**
+     * Returns the last version of the features of the bug, without the features that were not extracted, or null if
+     * the bug is not in the store.
+     */
+    public FeatureList get(String bugId) throws IOException {
+        this.load();
+        Long location = this.bugIndex.get(bugId);
+        if (location == null) {
+            return null;
+        }
+        Segment segment = this.segments.get((int) (location >>> 32));
+        int row = (int) location.longValue();
+
+        Config config = new Config();
+        config.setBugId(bugId);
+        FeatureList features = new FeatureList(config);
+        int column = 0;
+        for (Class<? extends Feature> featureClass : FeatureRegistry.getFeatureClasses()) {
+            List<String> featureNames = FeatureRegistry.getFeatureNames(featureClass);
+            if (segment.getValue(column, row) != MISSING_VALUE) {
+                Feature feature = newFeature(featureClass);
+                for (String featureName : featureNames) {
+                    feature.setFeatureCounter(featureName, segment.getValue(column, row));
+                    column++;
+                }
+                features.add(feature);
+            } else {
+                column += featureNames.size();
+            }
+        }
+        return features;
+    }
+
+    /**
+     * Returns the values of the features of the last version of the bug, in the order of the {@link FeatureRegistry},
+     * with {@link #MISSING_VALUE} for the features that were not extracted, or null if the bug is not in the store.
+     */
+    public int[] getValues(String bugId) throws IOException {
+        this.load();
+        Long location = this.bugIndex.get(bugId);
+        if (location == null) {
+            return null;
+        }
+        Segment segment = this.segments.get((int) (location >>> 32));
+        int row = (int) location.longValue();
+        int[] values = new int[this.columnNames.size()];
+        for (int column = 0; column < values.length; column++) {
+            values[column] = segment.getValue(column, row);
+        }
+        return values;
+    }
+
+    /**
+     * Returns the ids of all the bugs, in the order in which they were written.
+     */
+    public List<String> getBugIds() throws IOException {
+        return this.query(new ArrayList<Predicate>());
+    }
+
+    private static Feature newFeature(Class<? extends Feature> featureClass) {
+        try {
+            return featureClass.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalStateException("The feature class " + featureClass.getName() + " cannot be instantiated.", e);
+        }
+    }
+
+    /**
+     * Returns the ids of the bugs matching all the predicates, in the order in which they were written.
+     */
+    public List<String> query(List<Predicate> predicates) throws IOException {
+        final List<String> bugIds = new ArrayList<>();
+        this.query(predicates, new RowVisitor() {
+            @Override
+            public void visit(Segment segment, int row) {
+                bugIds.add(segment.getBugId(row));
+            }
+        });
+        return bugIds;
+    }
+
+    /**
+     * Returns the number of bugs matching all the predicates.
+     */
+    public int count(List<Predicate> predicates) throws IOException {
+        final int[] count = new int[1];
+        this.query(predicates, new RowVisitor() {
+            @Override
+            public void visit(Segment segment, int row) {
+                count[0]++;
+            }
+        });
+        return count[0];
+    }
+
+    private interface RowVisitor {
+        void visit(Segment segment, int row);
+    }
+
+    private void query(List<Predicate> predicates, RowVisitor visitor) throws IOException {
+        this.load();
+        // the positive predicates are evaluated on the bitmaps only, the other ones on the candidate rows
+        List<Integer> positiveColumns = new ArrayList<>();
+        List<Predicate> rowPredicates = new ArrayList<>();
+        List<Integer> rowColumns = new ArrayList<>();
+        for (Predicate predicate : predicates) {
+            int column = this.columnIndexes.get(predicate.getFeatureName());
+            if (predicate.requiresPositive()) {
+                positiveColumns.add(column);
+            }
+            if (!predicate.isPositive()) {
+                rowPredicates.add(predicate);
+                rowColumns.add(column);
+            }
+        }
+
+        for (int segmentIndex = 0; segmentIndex < this.segments.size(); segmentIndex++) {
+            Segment segment = this.segments.get(segmentIndex);
+            long[] live = this.liveRows.get(segmentIndex);
+            for (int word = 0; word < live.length; word++) {
+                long candidates = live[word];
+                for (int i = 0; i < positiveColumns.size() && candidates != 0; i++) {
+                    candidates &= segment.getPositiveWord(positiveColumns.get(i), word);
+                }
+                while (candidates != 0) {
+                    int row = word * 64 + Long.numberOfTrailingZeros(candidates);
+                    candidates &= candidates - 1;
+                    boolean isMatching = true;
+                    for (int i = 0; i < rowPredicates.size() && isMatching; i++) {
+                        isMatching = rowPredicates.get(i).matches(segment.getValue(rowColumns.get(i), row));
+                    }
+                    if (isMatching) {
+                        visitor.visit(segment, row);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Rewrites the last version of every bug in as few segments as possible, and deletes the previous segments and the
+     * append log. The segments are read one at a time, and the store is locked meanwhile, so the other processes wait
+     * to append to it. The result of a compaction interrupted before the deletion is the same store, as the new
+     * segments supersede the previous ones.
+     */
+    public void compact() throws IOException {
+        this.runLocked(new LockedOperation() {
+            @Override
+            public void run() throws IOException {
+                ResultStore.this.compactLocked();
+            }
+        });
+    }
+
+    private void compactLocked() throws IOException {
+        this.flushLocked();
+        this.foldAppendLog();
+        this.unload();
+        File[] previousFiles = this.listSegmentFiles();
+        // the location of the last version of each bug, from the headers of the segments
+        Map<String, Long> lastVersions = new HashMap<>();
+        for (int segmentIndex = 0; segmentIndex < previousFiles.length; segmentIndex++) {
+            String[] bugIds = Segment.readBugIds(previousFiles[segmentIndex]);
+            for (int row = 0; row < bugIds.length; row++) {
+                lastVersions.put(bugIds[row], ((long) segmentIndex << 32) | row);
+            }
+        }
+
+        List<String> bugIds = new ArrayList<>();
+        List<int[]> rows = new ArrayList<>();
+        for (int segmentIndex = 0; segmentIndex < previousFiles.length; segmentIndex++) {
+            Segment segment = Segment.open(previousFiles[segmentIndex]);
+            try {
+                if (!this.columnNames.equals(segment.getColumnNames())) {
+                    throw new IllegalArgumentException("The columns of " + segment.getFile() + " are not the features of this version.");
+                }
+                for (int row = 0; row < segment.getNbRows(); row++) {
+                    if (lastVersions.get(segment.getBugId(row)) != (((long) segmentIndex << 32) | row)) {
+                        continue;
+                    }
+                    int[] values = new int[this.columnNames.size()];
+                    for (int column = 0; column < values.length; column++) {
+                        values[column] = segment.getValue(column, row);
+                    }
+                    bugIds.add(segment.getBugId(row));
+                    rows.add(values);
+                    if (rows.size() == this.segmentSize) {
+                        this.writeSegment(bugIds, rows);
+                        bugIds.clear();
+                        rows.clear();
+                    }
+                }
+            } finally {
+                segment.close();
+            }
+        }
+        if (!rows.isEmpty()) {
+            this.writeSegment(bugIds, rows);
+        }
+
+        for (File file : previousFiles) {
+            Files.deleteIfExists(file.toPath());
+        }
+    }
+
+    /**
+     * Flushes the buffered results, and forgets the segments that were read.
+     */
+    @Override
+    public void close() throws IOException {
+        this.flush();
+        this.unload();
+    }
+
+}
@@ -0,0 +1,290 @@
+package add.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable segment of a {@link ResultStore}, memory-mapped when opened, unless it is smaller than
+ * {@link #MAPPING_THRESHOLD}: it is then read in the heap, so that a store of many small segments does not exhaust the
+ * memory mappings of the process.
+ *
+ * A segment file holds a header (magic number, format version, the names of the columns, the number of rows and the
+ * bug id of each row), then one block per column, aligned on 8 bytes: the bitmap of the rows whose value is positive,
+ * as 64-bit words, followed by the values of the rows as 32-bit ints.
+ */
+class Segment {
+
+    static final byte[] MAGIC = "ADDS".getBytes(StandardCharsets.US_ASCII);
+    static final int FORMAT_VERSION = 1;
+    static final int MAPPING_THRESHOLD = 1 << 20;
+
+    private final File file;
+    private final List<String> columnNames;
+    private final String[] bugIds;
+    private final ByteBuffer buffer;
+    private final int dataOffset;
+    private final int nbWords;
+    private final int columnBlockSize;
+
+    private Segment(File file, List<String> columnNames, String[] bugIds, ByteBuffer buffer, int dataOffset) {
+        this.file = file;
+        this.columnNames = columnNames;
+        this.bugIds = bugIds;
+        this.buffer = buffer;
+        this.dataOffset = dataOffset;
+        this.nbWords = getNbWords(bugIds.length);
+        this.columnBlockSize = getColumnBlockSize(bugIds.length);
+    }
+
+    static int getNbWords(int nbRows) {
+        return (nbRows + 63) / 64;
+    }
+
+    private static int getColumnBlockSize(int nbRows) {
+        return getNbWords(nbRows) * 8 + align(nbRows * 4);
+    }
+
+    private static int align(int size) {
+        return (size + 7) / 8 * 8;
+    }
+
+    /**
+     * Writes the rows in a new segment file, and forces it to the disk.
+     */
+    static void write(File file, List<String> columnNames, List<String> bugIds, List<int[]> rows) throws IOException {
+        try (FileOutputStream fileOutput = new FileOutputStream(file)) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput));
+            write(output, columnNames, bugIds, rows);
+            output.flush();
+            fileOutput.getFD().sync();
+        }
+    }
+
+    /**
+     * Returns a segment of the rows that is only in memory, such as the rows of the append log of a store.
+     */
+    static Segment of(File file, List<String> columnNames, List<String> bugIds, List<int[]> rows) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        write(output, columnNames, bugIds, rows);
+        output.flush();
+        return parse(file, ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    private static void write(DataOutputStream output, List<String> columnNames, List<String> bugIds, List<int[]> rows) throws IOException {
+        int nbRows = rows.size();
+        output.write(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        output.writeInt(columnNames.size());
+        for (String columnName : columnNames) {
+            writeString(output, columnName);
+        }
+        output.writeInt(nbRows);
+        for (String bugId : bugIds) {
+            writeString(output, bugId);
+        }
+        int headerSize = output.size();
+        for (int i = headerSize; i < align(headerSize); i++) {
+            output.write(0);
+        }
+
+        long[] bitmap = new long[getNbWords(nbRows)];
+        for (int column = 0; column < columnNames.size(); column++) {
+            Arrays.fill(bitmap, 0L);
+            for (int row = 0; row < nbRows; row++) {
+                if (rows.get(row)[column] > 0) {
+                    bitmap[row / 64] |= 1L << (row % 64);
+                }
+            }
+            for (long word : bitmap) {
+                output.writeLong(word);
+            }
+            for (int[] values : rows) {
+                output.writeInt(values[column]);
+            }
+            for (int i = nbRows * 4; i < align(nbRows * 4); i++) {
+                output.write(0);
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Maps a segment file, or reads it if it is small.
+     *
+     * @throws IllegalArgumentException if the file is not a segment file
+     */
+    static Segment open(File file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < MAPPING_THRESHOLD) {
+                buffer = ByteBuffer.allocate((int) channel.size());
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // the file is read until the end
+                }
+                buffer.flip();
+            } else {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        return parse(file, buffer);
+    }
+
+    private static Segment parse(File file, ByteBuffer buffer) {
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IllegalArgumentException(file + " is not a segment of a result store.");
+            }
+            int version = buffer.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported version of the result store format: " + version);
+            }
+            int nbColumns = buffer.getInt();
+            List<String> columnNames = new ArrayList<>(nbColumns);
+            for (int i = 0; i < nbColumns; i++) {
+                columnNames.add(readString(buffer));
+            }
+            String[] bugIds = new String[buffer.getInt()];
+            for (int row = 0; row < bugIds.length; row++) {
+                bugIds[row] = readString(buffer);
+            }
+            int dataOffset = align(buffer.position());
+            if ((long) dataOffset + (long) nbColumns * getColumnBlockSize(bugIds.length) > buffer.capacity()) {
+                throw new IllegalArgumentException(file + " is truncated.");
+            }
+            return new Segment(file, Collections.unmodifiableList(columnNames), bugIds, buffer, dataOffset);
+        } catch (RuntimeException e) {
+            if (e instanceof IllegalArgumentException) {
+                throw e;
+            }
+            throw new IllegalArgumentException(file + " is not a valid segment of a result store.", e);
+        }
+    }
+
+    /**
+     * Returns the bug ids of the rows of a segment file, reading only its header.
+     *
+     * @throws IllegalArgumentException if the file is not a segment file
+     */
+    static String[] readBugIds(File file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            byte[] magic = new byte[MAGIC.length];
+            input.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IllegalArgumentException(file + " is not a segment of a result store.");
+            }
+            int version = input.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported version of the result store format: " + version);
+            }
+            int nbColumns = input.readInt();
+            for (int i = 0; i < nbColumns; i++) {
+                readString(input);
+            }
+            String[] bugIds = new String[input.readInt()];
+            for (int row = 0; row < bugIds.length; row++) {
+                bugIds[row] = readString(input);
+            }
+            return bugIds;
+        }
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    File getFile() {
+        return this.file;
+    }
+
+    List<String> getColumnNames() {
+        return this.columnNames;
+    }
+
+    int getNbRows() {
+        return this.bugIds.length;
+    }
+
+    int getNbWords() {
+        return this.nbWords;
+    }
+
+    String getBugId(int row) {
+        return this.bugIds[row];
+    }
+
+    /**
+     * Returns the word of the bitmap of the rows whose value of the column is positive.
+     */
+    long getPositiveWord(int column, int word) {
+        return this.buffer.getLong(this.dataOffset + column * this.columnBlockSize + word * 8);
+    }
+
+    int getValue(int column, int row) {
+        return this.buffer.getInt(this.dataOffset + column * this.columnBlockSize + this.nbWords * 8 + row * 4);
+    }
+
+    /**
+     * Unmaps the segment if it is mapped, instead of waiting for the garbage collector to do it. The segment must not
+     * be read anymore.
+     */
+    void close() {
+        if (!(this.buffer instanceof MappedByteBuffer)) {
+            return;
+        }
+        try {
+            // Java 9 and later
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), this.buffer);
+        } catch (NoSuchMethodException e) {
+            // Java 8
+            try {
+                Method cleanerMethod = this.buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(this.buffer);
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            } catch (ReflectiveOperationException | RuntimeException e1) {
+                // the mapping is released by the garbage collector
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // the mapping is released by the garbage collector
+        }
+    }
+
+}
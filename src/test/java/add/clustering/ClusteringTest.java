@@ -0,0 +1,102 @@
+package add.clustering;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class ClusteringTest {
+
+    private static final int DIMENSION = 200;
+
+    @Test
+    public void testKMeansFindsTheGroupsOfPatches() {
+        FeatureMatrix matrix = this.getMatrix(4, 250, new Random(42));
+        Clustering clustering = new KMeans(4, 2).cluster(matrix);
+
+        Assert.assertEquals(4, clustering.getNbClusters());
+        this.assertGroupsAreClusters(matrix, clustering, 250);
+    }
+
+    @Test
+    public void testKMeansWithMoreClustersThanDistinctPatches() {
+        List<int[]> rows = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            rows.add(new int[] {1, 0, 2});
+        }
+        rows.add(new int[] {0, 0, 0});
+        FeatureMatrix matrix = new FeatureMatrix(new String[] {"bug_0", "bug_1", "bug_2", "bug_3"}, 3, rows);
+        Clustering clustering = new KMeans(3, 1).cluster(matrix);
+
+        Assert.assertEquals(2, clustering.getNbClusters());
+        Assert.assertEquals(clustering.getCluster(0), clustering.getCluster(2));
+        Assert.assertNotEquals(clustering.getCluster(0), clustering.getCluster(3));
+        Assert.assertEquals(3, clustering.getRepresentative(clustering.getCluster(3)));
+    }
+
+    @Test
+    public void testMinHashGroupsTheNearDuplicates() {
+        FeatureMatrix matrix = this.getMatrix(4, 250, new Random(42));
+        Clustering clustering = new MinHashLsh(0.8, 2).cluster(matrix);
+
+        Assert.assertEquals(4, clustering.getNbClusters());
+        this.assertGroupsAreClusters(matrix, clustering, 250);
+        for (int cluster = 0; cluster < clustering.getNbClusters(); cluster++) {
+            Assert.assertEquals(cluster * 250, clustering.getRepresentative(cluster));
+        }
+    }
+
+    @Test
+    public void testMinHashKeepsTheDissimilarPatchesApart() {
+        List<int[]> rows = new ArrayList<>();
+        rows.add(new int[] {1, 1, 1, 1, 0, 0});
+        rows.add(new int[] {2, 1, 1, 1, 0, 0});
+        rows.add(new int[] {1, 1, 0, 0, 1, 1});
+        rows.add(new int[] {0, 0, 0, 0, 0, 0});
+        FeatureMatrix matrix = new FeatureMatrix(new String[] {"bug_0", "bug_1", "bug_2", "bug_3"}, 6, rows);
+        Clustering clustering = new MinHashLsh(0.8, 1).cluster(matrix);
+
+        Assert.assertEquals(3, clustering.getNbClusters());
+        Assert.assertEquals(clustering.getCluster(0), clustering.getCluster(1));
+        Assert.assertEquals(2, clustering.getClusterSizes()[clustering.getCluster(0)]);
+        Assert.assertEquals("bug_2", matrix.getBugId(clustering.getRepresentative(clustering.getCluster(2))));
+    }
+
+    /**
+     * Returns groups of patches, each made of a random set of features whose counts vary between its patches.
+     */
+    private FeatureMatrix getMatrix(int nbGroups, int groupSize, Random random) {
+        String[] bugIds = new String[nbGroups * groupSize];
+        List<int[]> rows = new ArrayList<>();
+        for (int group = 0; group < nbGroups; group++) {
+            // disjoint sets of features, as the patches of different kinds of changes
+            int[] features = new int[10];
+            for (int i = 0; i < features.length; i++) {
+                features[i] = group * DIMENSION / nbGroups + random.nextInt(DIMENSION / nbGroups);
+            }
+            for (int i = 0; i < groupSize; i++) {
+                int[] counts = new int[DIMENSION];
+                for (int feature : features) {
+                    counts[feature] = 1 + random.nextInt(3);
+                }
+                bugIds[rows.size()] = "bug_" + rows.size();
+                rows.add(counts);
+            }
+        }
+        return new FeatureMatrix(bugIds, DIMENSION, rows);
+    }
+
+    private void assertGroupsAreClusters(FeatureMatrix matrix, Clustering clustering, int groupSize) {
+        for (int row = 0; row < matrix.getNbRows(); row++) {
+            Assert.assertEquals(matrix.getBugId(row), clustering.getCluster(row - row % groupSize), clustering.getCluster(row));
+        }
+        int[] sizes = clustering.getClusterSizes();
+        for (int cluster = 0; cluster < sizes.length; cluster++) {
+            Assert.assertEquals(groupSize, sizes[cluster]);
+            Assert.assertEquals(cluster, clustering.getCluster(clustering.getRepresentative(cluster)));
+        }
+    }
+
+}
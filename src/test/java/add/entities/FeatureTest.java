@@ -2,6 +2,8 @@ package add.entities;
 
 import org.junit.Test;
 
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -15,6 +17,15 @@ public class FeatureTest {
         assertEquals(50, actions.getFeatureNames().size());
     }
 
+    @Test
+    public void testFeatureRegistry() {
+        List<String> featureNames = FeatureRegistry.getFeatureNames();
+        assertEquals(26 + 50 + 14, featureNames.size());
+        assertEquals(new RepairPatterns().getFeatureNames(), featureNames.subList(0, 26));
+        assertEquals(new Metrics().getFeatureNames(), featureNames.subList(26 + 50, featureNames.size()));
+        assertEquals("repairActions", FeatureRegistry.getGroupName(RepairActions.class));
+    }
+
     @Test
     public void testIncrementFeatureCounter() {
         RepairActions actions = new RepairActions();
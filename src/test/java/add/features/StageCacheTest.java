@@ -0,0 +1,112 @@
+package add.features;
+
+import add.entities.RepairActions;
+import add.entities.RepairPatterns;
+import add.features.diffanalyzer.JGitBasedDiffAnalyzer;
+import add.main.Config;
+import add.main.Launcher;
+import add.main.LauncherMode;
+import add.utils.TestUtils;
+import gumtree.spoon.AstComparator;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class StageCacheTest {
+
+    @Rule
+    public TemporaryFolder cacheDirectory = new TemporaryFolder();
+
+    @Test
+    public void testStoredResultsAreReused() throws Exception {
+        Config config = TestUtils.setupConfig("chart_12");
+        config.setLauncherMode(LauncherMode.ALL);
+        String expected = Launcher.extractFeatures(config).toString();
+
+        config.setCacheDirectoryPath(this.cacheDirectory.getRoot().getAbsolutePath());
+        Assert.assertEquals(expected, Launcher.extractFeatures(config).toString());
+
+        File stageDirectory = new File(new File(this.cacheDirectory.getRoot(), StageCache.DIRECTORY_NAME), StageCache.getInputHash(config));
+        File repairPatternsFile = new File(stageDirectory, StageCache.REPAIR_PATTERNS + StageCache.FILE_SUFFIX);
+        Assert.assertTrue(repairPatternsFile.isFile());
+        Assert.assertTrue(new File(stageDirectory, StageCache.REPAIR_ACTIONS + StageCache.FILE_SUFFIX).isFile());
+        Assert.assertTrue(new File(stageDirectory, StageCache.METRICS + StageCache.FILE_SUFFIX).isFile());
+
+        // the stored results are used as they are: a modified counter shows up in the features
+        JSONObject json = new JSONObject(new String(Files.readAllBytes(repairPatternsFile.toPath()), StandardCharsets.UTF_8));
+        json.getJSONObject("features").put("wrapsLoop", 42);
+        Files.write(repairPatternsFile.toPath(), json.toString().getBytes(StandardCharsets.UTF_8));
+        RepairPatterns repairPatterns = new StageCache(config).load(StageCache.REPAIR_PATTERNS, new RepairPatterns());
+        Assert.assertEquals(42, repairPatterns.getFeatureCounter("wrapsLoop"));
+        Assert.assertTrue(Launcher.extractFeatures(config).toString().contains("\"wrapsLoop\": 42"));
+
+        // results stored by another implementation of the stage are not used
+        json.put("implementation", "another implementation");
+        Files.write(repairPatternsFile.toPath(), json.toString().getBytes(StandardCharsets.UTF_8));
+        Assert.assertNull(new StageCache(config).load(StageCache.REPAIR_PATTERNS, new RepairPatterns()));
+        Assert.assertEquals(expected, Launcher.extractFeatures(config).toString());
+    }
+
+    @Test
+    public void testSharedDiffAnalyzerGivesTheSameResults() {
+        Config config = TestUtils.setupConfig("chart_12");
+        config.setLauncherMode(LauncherMode.ALL);
+        JGitBasedDiffAnalyzer diffAnalyzer = new JGitBasedDiffAnalyzer(config.getDiffPath());
+
+        Assert.assertEquals(StageCache.getInputHash(config), StageCache.getInputHash(config, diffAnalyzer));
+        Assert.assertEquals(Launcher.extractFeatures(config).toString(), Launcher.extractFeatures(config, diffAnalyzer).toString());
+    }
+
+    @Test
+    public void testSignaturesAreStoredWithTheStages() {
+        Config config = TestUtils.setupConfig("chart_12");
+        config.setLauncherMode(LauncherMode.REPAIR_ACTIONS);
+        // the signatures are only computed when they are written
+        Assert.assertNull(Launcher.extractFeatures(config).getSignatures());
+        config.setSignatureFilePath(new File(this.cacheDirectory.getRoot(), "patches.jsonl").getAbsolutePath());
+        long[] expected = Launcher.extractFeatures(config).getSignatures();
+        Assert.assertTrue(expected.length > 0);
+
+        config.setCacheDirectoryPath(this.cacheDirectory.getRoot().getAbsolutePath());
+        Assert.assertArrayEquals(expected, Launcher.extractFeatures(config).getSignatures());
+        Assert.assertArrayEquals(expected, new StageCache(config).loadSignatures());
+        // the signatures are given even when all the stages are loaded
+        Assert.assertArrayEquals(expected, Launcher.extractFeatures(config).getSignatures());
+
+        config.setLauncherMode(LauncherMode.METRICS);
+        Assert.assertNull(Launcher.extractFeatures(config).getSignatures());
+    }
+
+    @Test
+    public void testCacheIsDisabledWithoutDirectory() {
+        Config config = TestUtils.setupConfig("chart_12");
+        StageCache stageCache = new StageCache(config);
+        stageCache.store(StageCache.REPAIR_ACTIONS, new RepairActions());
+        Assert.assertNull(stageCache.load(StageCache.REPAIR_ACTIONS, new RepairActions()));
+    }
+
+    @Test
+    public void testDependencyVersionsAreReadFromTheirMavenMetadata() throws Exception {
+        // the version of the jar of the class path, which is a single jar with dependencies once packaged
+        File spoonJar = new File(spoon.Launcher.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        Assert.assertEquals(spoonJar.getName(),
+                "spoon-core-" + StageCache.getMavenVersion(spoon.Launcher.class, "fr.inria.gforge.spoon", "spoon-core") + ".jar");
+        Assert.assertNotNull(StageCache.getMavenVersion(AstComparator.class, "fr.inria.gforge.spoon.labs", "gumtree-spoon-ast-diff"));
+        Assert.assertNull(StageCache.getMavenVersion(AstComparator.class, "org.example", "unknown"));
+    }
+
+    @Test
+    public void testImplementationHashIgnoresTheOtherStages() {
+        Assert.assertNotEquals(StageCache.getImplementationHash(StageCache.REPAIR_PATTERNS),
+                StageCache.getImplementationHash(StageCache.REPAIR_ACTIONS));
+        Assert.assertNotEquals(StageCache.getImplementationHash(StageCache.REPAIR_PATTERNS),
+                StageCache.getImplementationHash(StageCache.METRICS));
+    }
+
+}
@@ -1,10 +1,72 @@
 package add.features.detector;
 
+import add.entities.RepairPatterns;
+import add.features.detector.repairpatterns.RepairPatternDetector;
+import add.features.detector.spoon.EmptyDiff;
+import add.main.Config;
+import add.main.LauncherMode;
+import org.eclipse.jgit.api.Git;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
 /**
  * Created by tdurieux
  */
 public class EditScriptBasedDetectorTest {
 
+    @Rule
+    public TemporaryFolder repositoryDirectory = new TemporaryFolder();
+
+    private Config config;
+
+    @Before
+    public void setUp() throws Exception {
+        this.config = new Config();
+        this.config.setLauncherMode(LauncherMode.REPAIR_PATTERNS);
+        this.config.setRepositoryPath(this.repositoryDirectory.getRoot().getAbsolutePath());
+        this.config.setBuggySourceDirectoryPath(this.config.getRepositoryPath());
+        try (Git git = Git.init().setDirectory(this.repositoryDirectory.getRoot()).call()) {
+            this.commit(git, "import java.util.List;\nclass Foo {\n    int foo(int a) {\n        return a+1;\n    }\n}\n", "first");
+            this.commit(git, "/** Foo. */\nclass Foo {\n    int foo(int a) { return a + 1; } // successor\n}\n", "format");
+            this.commit(git, "class Foo {\n    int foo(int a) { return a + 2; }\n}\n", "fix");
+        }
+    }
+
+    @Test
+    public void testPatchWithoutCodeChanges() {
+        this.config.setCommit("HEAD~1");
+        RepairPatternDetector detector = new RepairPatternDetector(this.config);
+        Assert.assertTrue(detector.getEditScript() instanceof EmptyDiff);
+        Assert.assertNull(detector.getPatchedModel());
+
+        RepairPatterns repairPatterns = detector.analyze();
+        for (String featureName : repairPatterns.getFeatureNames()) {
+            Assert.assertEquals(featureName, 0, repairPatterns.getFeatureCounter(featureName));
+        }
+    }
+
+    @Test
+    public void testPatchWithCodeChanges() {
+        this.config.setCommit("HEAD");
+        RepairPatternDetector detector = new RepairPatternDetector(this.config);
+        Assert.assertFalse(detector.getEditScript() instanceof EmptyDiff);
+        Assert.assertEquals(1, detector.getEditScript().getRootOperations().size());
+        Assert.assertEquals(1, detector.analyze().getFeatureCounter("constChange"));
+    }
 
+    private void commit(Git git, String content, String message) throws Exception {
+        File file = new File(this.repositoryDirectory.getRoot(), "src/Foo.java");
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage(message).setAuthor("author", "author@example.com").setCommitter("author", "author@example.com").call();
+    }
 
 }
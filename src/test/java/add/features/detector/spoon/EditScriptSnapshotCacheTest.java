@@ -0,0 +1,124 @@
+package add.features.detector.spoon;
+
+import add.features.StageCache;
+import add.features.detector.repairpatterns.RepairPatternDetector;
+import add.features.diffanalyzer.FileChangeClassifier;
+import add.features.diffanalyzer.JGitBasedDiffAnalyzer;
+import add.main.Config;
+import add.main.Launcher;
+import add.main.LauncherMode;
+import add.utils.TestUtils;
+import com.github.gumtreediff.tree.TreeContext;
+import gumtree.spoon.diff.Diff;
+import gumtree.spoon.diff.DiffImpl;
+import gumtree.spoon.diff.operations.Operation;
+import gumtree.spoon.diff.operations.OperationKind;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import spoon.reflect.declaration.CtElement;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public class EditScriptSnapshotCacheTest {
+
+    @Rule
+    public TemporaryFolder cacheDirectory = new TemporaryFolder();
+
+    @Test
+    public void testFeaturesAreTheSameWithASnapshot() throws IOException {
+        // patches with insertions, deletions, updates and moves
+        for (String bugId : new String[] {"chart_1", "chart_12", "closure_13", "chart_17"}) {
+            Config config = TestUtils.setupConfig(bugId);
+            config.setLauncherMode(LauncherMode.ALL);
+            String expected = Launcher.extractFeatures(config).toString();
+
+            config.setCacheDirectoryPath(this.cacheDirectory.getRoot().getAbsolutePath());
+            // the first detector stores the snapshot of its edit script, the second one loads it
+            String operations = new RepairPatternDetector(config).getEditScript().getRootOperations().toString();
+            File[] snapshots = new File(this.cacheDirectory.getRoot(), EditScriptSnapshotCache.DIRECTORY_NAME).listFiles();
+            Assert.assertEquals(bugId, 1, snapshots.length);
+            Assert.assertEquals(bugId, operations, new RepairPatternDetector(config).getEditScript().getRootOperations().toString());
+
+            // without the model snapshots, the stages are computed from the edit script snapshot
+            delete(new File(this.cacheDirectory.getRoot(), ModelSnapshotCache.DIRECTORY_NAME));
+            Assert.assertEquals(bugId, expected, Launcher.extractFeatures(config).toString());
+            Assert.assertFalse(bugId, new File(this.cacheDirectory.getRoot(), ModelSnapshotCache.DIRECTORY_NAME).exists());
+
+            delete(this.cacheDirectory.getRoot());
+            this.cacheDirectory.getRoot().mkdirs();
+        }
+    }
+
+    @Test
+    public void testSnapshotEditScriptAnswersAsTheComputedOne() {
+        for (String bugId : new String[] {"chart_1", "chart_12", "closure_13"}) {
+            Config config = TestUtils.setupConfig(bugId);
+            config.setCacheDirectoryPath(new File(this.cacheDirectory.getRoot(), bugId).getAbsolutePath());
+            Diff computed = new RepairPatternDetector(config).getEditScript();
+            Diff loaded = new RepairPatternDetector(config).getEditScript();
+            Assert.assertTrue(bugId, computed instanceof DiffImpl);
+            Assert.assertFalse(bugId, loaded instanceof DiffImpl);
+
+            TreeContext context = ((DiffImpl) computed).getContext();
+            List<Operation> computedOperations = computed.getRootOperations();
+            List<Operation> loadedOperations = loaded.getRootOperations();
+            for (int i = 0; i < computedOperations.size(); i++) {
+                Operation operation = computedOperations.get(i);
+                OperationKind kind = OperationKind.valueOf(operation.getAction().getClass().getSimpleName());
+                String nodeKind = context.getTypeLabel(operation.getAction().getNode());
+                String nodeLabel = operation.getAction().getNode().getLabel();
+                Assert.assertTrue(bugId, loaded.containsOperation(kind, nodeKind));
+                Assert.assertTrue(bugId, loaded.containsOperation(kind, nodeKind, nodeLabel));
+                Assert.assertFalse(bugId, loaded.containsOperation(kind, nodeKind, nodeLabel + "_"));
+                for (Operation child : loaded.getOperationChildren(loadedOperations.get(i), loaded.getAllOperations())) {
+                    Assert.assertSame(bugId, loadedOperations.get(i).getNode(), child.getNode().getParent());
+                }
+                Assert.assertEquals(bugId, toString(computed.changedNode(operation.getClass())), toString(loaded.changedNode(operation.getClass())));
+            }
+            Assert.assertEquals(bugId, toString(computed.commonAncestor()), toString(loaded.commonAncestor()));
+        }
+    }
+
+    private static String toString(CtElement element) {
+        return element == null ? null : element.getClass().getSimpleName() + " " + element.getPosition();
+    }
+
+    @Test
+    public void testSnapshotsDependOnTheImplementation() {
+        Config config = TestUtils.setupConfig("chart_12");
+        config.setCacheDirectoryPath(this.cacheDirectory.getRoot().getAbsolutePath());
+        new RepairPatternDetector(config);
+
+        JGitBasedDiffAnalyzer jgitDiffAnalyzer = new JGitBasedDiffAnalyzer(config.getDiffPath());
+        Map<String, List<String>> originalFiles = jgitDiffAnalyzer.getOriginalFiles(config.getBuggySourceDirectoryPath());
+        Map<String, List<String>> patchedFiles = jgitDiffAnalyzer.getPatchedFiles(config.getBuggySourceDirectoryPath());
+        FileChangeClassifier.retainCodeChanges(originalFiles, patchedFiles);
+
+        EditScriptSnapshotCache snapshotCache = new EditScriptSnapshotCache(config.getCacheDirectoryPath(), "another implementation");
+        Assert.assertNull(snapshotCache.load(originalFiles, patchedFiles));
+        snapshotCache = new EditScriptSnapshotCache(config.getCacheDirectoryPath(), StageCache.getImplementationHash(StageCache.EDIT_SCRIPT));
+        EditScriptSnapshot snapshot = snapshotCache.load(originalFiles, patchedFiles);
+        Assert.assertNotNull(snapshot);
+        // the compilation units of the loaded models are indexed by file
+        Assert.assertFalse(snapshot.getNewModel().CompilationUnit().getMap().isEmpty());
+    }
+
+    private static void delete(File directory) throws IOException {
+        if (!directory.exists()) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+}
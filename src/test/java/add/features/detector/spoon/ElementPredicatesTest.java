@@ -0,0 +1,35 @@
+package add.features.detector.spoon;
+
+import org.junit.Assert;
+import org.junit.Test;
+import spoon.Launcher;
+import spoon.reflect.code.CtBinaryOperator;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+import java.util.List;
+
+public class ElementPredicatesTest {
+
+    @Test
+    public void testNullChecks() {
+        CtClass<?> ctClass = Launcher.parseClass("class A { void m(Object o, String s) {"
+                + " boolean b1 = o == null;"
+                + " boolean b2 = null != s;"
+                + " boolean b3 = o == (Object) null;"
+                + " boolean b4 = o == s;"
+                + " boolean b5 = \"null\" == s;"
+                + " } }");
+        List<CtBinaryOperator> binaryOperators = ctClass.getElements(new TypeFilter<>(CtBinaryOperator.class));
+
+        Assert.assertTrue(ElementPredicates.isNullCheck(binaryOperators.get(0)));
+        Assert.assertEquals("o", ElementPredicates.getNullCheckedOperand(binaryOperators.get(0)).toString());
+        Assert.assertTrue(ElementPredicates.isNullCheck(binaryOperators.get(1)));
+        Assert.assertEquals("s", ElementPredicates.getNullCheckedOperand(binaryOperators.get(1)).toString());
+        // a casted null is not printed as "null"
+        Assert.assertFalse(ElementPredicates.isNullCheck(binaryOperators.get(2)));
+        Assert.assertFalse(ElementPredicates.isNullCheck(binaryOperators.get(3)));
+        Assert.assertFalse(ElementPredicates.isNullCheck(binaryOperators.get(4)));
+    }
+
+}
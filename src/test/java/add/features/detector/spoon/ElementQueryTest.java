@@ -0,0 +1,70 @@
+package add.features.detector.spoon;
+
+import org.junit.Assert;
+import org.junit.Test;
+import spoon.Launcher;
+import spoon.reflect.code.CtBinaryOperator;
+import spoon.reflect.code.CtIf;
+import spoon.reflect.code.CtLiteral;
+import spoon.reflect.code.CtVariableAccess;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtElement;
+import spoon.reflect.visitor.Filter;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+public class ElementQueryTest {
+
+    private static final Filter<CtLiteral> ZERO = new Filter<CtLiteral>() {
+        @Override
+        public boolean matches(CtLiteral literal) {
+            return Integer.valueOf(0).equals(literal.getValue());
+        }
+    };
+
+    @Test
+    public void testSameResultsAsGetElements() {
+        CtIf ctIf = this.parseIf("if (a > 0 && b < 0 || a == 1) { a = 0; }");
+
+        Assert.assertEquals(ctIf.getElements(new TypeFilter<>(CtBinaryOperator.class)).size(),
+                ElementQuery.count(ctIf, CtBinaryOperator.class, null));
+        Assert.assertEquals(3, ElementQuery.count(ctIf, CtLiteral.class, ZERO));
+        Assert.assertEquals(ctIf.getElements(new TypeFilter<>(CtVariableAccess.class)).get(0),
+                ElementQuery.findFirst(ctIf, CtVariableAccess.class));
+        Assert.assertTrue(ElementQuery.anyMatch(ctIf, CtLiteral.class, ZERO));
+        Assert.assertFalse(ElementQuery.allMatch(ctIf, CtLiteral.class, ZERO));
+        // the root is part of the subtree
+        Assert.assertTrue(ElementQuery.anyMatch(ctIf, CtIf.class));
+        Assert.assertNull(ElementQuery.findFirst(ctIf.getCondition(), CtIf.class));
+        Assert.assertTrue(ElementQuery.allMatch(ctIf.getCondition(), CtIf.class, new Filter<CtIf>() {
+            @Override
+            public boolean matches(CtIf element) {
+                return false;
+            }
+        }));
+    }
+
+    @Test
+    public void testScanStopsAtFirstDecisiveElement() {
+        CtIf ctIf = this.parseIf("if (a > 0 && b < 1 || a == 2) { a = 3; }");
+        final int[] nbVisited = {0};
+        Filter<CtElement> countingFilter = new Filter<CtElement>() {
+            @Override
+            public boolean matches(CtElement element) {
+                nbVisited[0]++;
+                return element instanceof CtLiteral;
+            }
+        };
+
+        Assert.assertTrue(ElementQuery.anyMatch(ctIf, CtElement.class, countingFilter));
+        int nbVisitedByAnyMatch = nbVisited[0];
+        nbVisited[0] = 0;
+        Assert.assertEquals(4, ElementQuery.count(ctIf, CtElement.class, countingFilter));
+        Assert.assertTrue(nbVisitedByAnyMatch < nbVisited[0]);
+    }
+
+    private CtIf parseIf(String ifStatement) {
+        CtClass<?> ctClass = Launcher.parseClass("class A { int a, b; void m() {\n" + ifStatement + "\n} }");
+        return ctClass.getMethodsByName("m").get(0).getBody().getStatement(0);
+    }
+
+}
@@ -0,0 +1,52 @@
+package add.features.detector.spoon;
+
+import add.main.Config;
+import add.main.Launcher;
+import add.main.LauncherMode;
+import add.utils.TestUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ModelSnapshotCacheTest {
+
+    @Rule
+    public TemporaryFolder cacheDirectory = new TemporaryFolder();
+
+    @Test
+    public void testFeaturesAreTheSameWithSnapshots() {
+        Config config = TestUtils.setupConfig("chart_12");
+        config.setLauncherMode(LauncherMode.ALL);
+        String expected = Launcher.extractFeatures(config).toString();
+
+        config.setCacheDirectoryPath(this.cacheDirectory.getRoot().getAbsolutePath());
+        // the first run stores the models of the original and of the patched file, the second one loads them
+        Assert.assertEquals(expected, Launcher.extractFeatures(config).toString());
+        File[] snapshots = new File(this.cacheDirectory.getRoot(), ModelSnapshotCache.DIRECTORY_NAME).listFiles();
+        Assert.assertEquals(2, snapshots.length);
+        Assert.assertEquals(expected, Launcher.extractFeatures(config).toString());
+    }
+
+    @Test
+    public void testHashDependsOnPathsAndContents() {
+        Map<String, List<String>> files = new HashMap<>();
+        files.put("A.java", Arrays.asList("class A {", "}"));
+        String hash = ModelSnapshotCache.getHash(files);
+
+        Map<String, List<String>> sameFiles = new HashMap<>();
+        sameFiles.put("A.java", Arrays.asList("class A {", "}"));
+        Assert.assertEquals(hash, ModelSnapshotCache.getHash(sameFiles));
+
+        Assert.assertNotEquals(hash, ModelSnapshotCache.getHash(Collections.singletonMap("B.java", Arrays.asList("class A {", "}"))));
+        Assert.assertNotEquals(hash, ModelSnapshotCache.getHash(Collections.singletonMap("A.java", Arrays.asList("class A {}"))));
+    }
+
+}
@@ -0,0 +1,60 @@
+package add.features.detector.spoon;
+
+import gumtree.spoon.AstComparator;
+import gumtree.spoon.diff.Diff;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class OperationSignatureTest {
+
+    @Test
+    public void testSameChangeInDifferentCodeHasTheSameSignatures() {
+        long[] nullGuard = this.getSignatures(
+                "class A { void m(Object o) { o.toString(); } }",
+                "class A { void m(Object o) { if (o == null) { return; } o.toString(); } }");
+        long[] otherNullGuard = this.getSignatures(
+                "class B { int size; void n(String text, int i) { size = text.length() + i; } }",
+                "class B { int size; void n(String text, int i) { if (text == null) { return; } size = text.length() + i; } }");
+        long[] emptinessGuard = this.getSignatures(
+                "class B { int size; void n(String text, int i) { size = text.length() + i; } }",
+                "class B { int size; void n(String text, int i) { if (text.isEmpty()) { return; } size = text.length() + i; } }");
+
+        Assert.assertEquals(1, nullGuard.length);
+        Assert.assertArrayEquals(nullGuard, otherNullGuard);
+        Assert.assertFalse(Arrays.equals(nullGuard, emptinessGuard));
+    }
+
+    @Test
+    public void testOperatorsAreKeptAndLiteralsAnonymized() {
+        long[] lessThan = this.getSignatures(
+                "class A { boolean m(int a) { return a < 10; } }",
+                "class A { boolean m(int a) { return a <= 10; } }");
+        long[] otherLessThan = this.getSignatures(
+                "class C { boolean n(int b) { return b < 3; } }",
+                "class C { boolean n(int b) { return b <= 3; } }");
+        long[] greaterThan = this.getSignatures(
+                "class A { boolean m(int a) { return a < 10; } }",
+                "class A { boolean m(int a) { return a > 10; } }");
+        long[] constant = this.getSignatures(
+                "class A { boolean m(int a) { return a < 10; } }",
+                "class A { boolean m(int a) { return a < 11; } }");
+        long[] otherConstant = this.getSignatures(
+                "class A { boolean m(int a) { return a < 10; } }",
+                "class A { boolean m(int a) { return a < 12; } }");
+
+        Assert.assertArrayEquals(lessThan, otherLessThan);
+        Assert.assertFalse(Arrays.equals(lessThan, greaterThan));
+        Assert.assertArrayEquals(constant, otherConstant);
+        Assert.assertFalse(Arrays.equals(lessThan, constant));
+    }
+
+    private long[] getSignatures(String oldCode, String newCode) {
+        Diff editScript = new AstComparator().compare(oldCode, newCode);
+        long[] signatures = OperationSignature.of(editScript);
+        Arrays.sort(signatures);
+        return signatures;
+    }
+
+}
@@ -0,0 +1,72 @@
+package add.features.detector.spoon;
+
+import add.features.diffanalyzer.JGitBasedDiffAnalyzer;
+import add.main.Config;
+import add.utils.TestUtils;
+import gumtree.spoon.diff.Diff;
+import org.junit.Assert;
+import org.junit.Test;
+import spoon.compiler.SpoonResource;
+import spoon.reflect.declaration.CtType;
+import spoon.reflect.factory.Factory;
+import spoon.support.compiler.VirtualFile;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class SpoonModelPoolTest {
+
+    @Test
+    public void testModelsAreTheOnesOfANewLauncher() {
+        Config config = TestUtils.setupConfig("chart_1");
+        JGitBasedDiffAnalyzer jgitDiffAnalyzer = new JGitBasedDiffAnalyzer(config.getDiffPath());
+        Map<String, List<String>> originalFiles = jgitDiffAnalyzer.getOriginalFiles(config.getBuggySourceDirectoryPath());
+        Map<String, List<String>> patchedFiles = jgitDiffAnalyzer.getPatchedFiles(config.getBuggySourceDirectoryPath());
+
+        Factory expectedOldModel = SpoonHelper.initSpoon(originalFiles).getFactory();
+        Factory expectedNewModel = SpoonHelper.initSpoon(patchedFiles).getFactory();
+        Factory oldModel = SpoonHelper.buildModel(originalFiles);
+        Factory newModel = SpoonHelper.buildModel(patchedFiles);
+
+        Assert.assertEquals(print(expectedOldModel), print(oldModel));
+        Assert.assertEquals(print(expectedNewModel), print(newModel));
+        Diff expectedDiff = SpoonHelper.getAstDiff(expectedOldModel, expectedNewModel);
+        Diff diff = SpoonHelper.getAstDiff(oldModel, newModel);
+        Assert.assertEquals(expectedDiff.getRootOperations().toString(), diff.getRootOperations().toString());
+    }
+
+    @Test
+    public void testContextsAreReused() {
+        SpoonModelPool pool = new SpoonModelPool();
+        Assert.assertEquals(0, pool.size());
+
+        Factory model = pool.buildModel(Arrays.<SpoonResource>asList(new VirtualFile(String.join("\n",
+                "import java.util.List;",
+                "class A {",
+                "    int size(List<String> values) {",
+                "        return values.size();",
+                "    }",
+                "}"), "A.java")));
+        Assert.assertEquals(1, pool.size());
+        Assert.assertEquals("A", model.Type().getAll().get(0).getSimpleName());
+        // the types of the class path are resolved
+        Assert.assertEquals("java.util.List", model.Type().getAll().get(0).getMethodsByName("size").get(0)
+                .getParameters().get(0).getType().getQualifiedName());
+
+        model = pool.buildModel(Arrays.<SpoonResource>asList(new VirtualFile("class B {\n}", "B.java")));
+        Assert.assertEquals(1, pool.size());
+        // the models of two builds are independent
+        Assert.assertEquals(1, model.Type().getAll().size());
+        Assert.assertEquals("B", model.Type().getAll().get(0).getSimpleName());
+    }
+
+    private static String print(Factory model) {
+        StringBuilder builder = new StringBuilder();
+        for (CtType<?> type : model.Type().getAll()) {
+            builder.append(type.getQualifiedName()).append('\n').append(type).append('\n');
+        }
+        return builder.toString();
+    }
+
+}
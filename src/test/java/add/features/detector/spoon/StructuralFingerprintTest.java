@@ -0,0 +1,88 @@
+package add.features.detector.spoon;
+
+import org.junit.Assert;
+import org.junit.Test;
+import spoon.Launcher;
+import spoon.reflect.code.CtArrayAccess;
+import spoon.reflect.code.CtInvocation;
+import spoon.reflect.code.CtLiteral;
+import spoon.reflect.code.CtStatement;
+import spoon.reflect.declaration.CtClass;
+import spoon.reflect.declaration.CtMethod;
+import spoon.reflect.visitor.filter.TypeFilter;
+
+import java.util.List;
+
+public class StructuralFingerprintTest {
+
+    @Test
+    public void testVariablesAndLiteralsAreNormalized() {
+        List<CtStatement> statements = this.parseStatements(
+                "foo(a, 1);",
+                "foo(b, 2);",
+                "bar(a, 1);",
+                "foo(1, a);",
+                "foo(this.c, 1);");
+
+        Long fingerprint = StructuralFingerprint.of(statements.get(0));
+        Assert.assertNotNull(fingerprint);
+        Assert.assertEquals(fingerprint, StructuralFingerprint.of(statements.get(1)));
+        Assert.assertNotEquals(fingerprint, StructuralFingerprint.of(statements.get(2)));
+        Assert.assertEquals(fingerprint, StructuralFingerprint.of(statements.get(3)));
+        Assert.assertNotEquals(fingerprint, StructuralFingerprint.of(statements.get(4)));
+    }
+
+    @Test
+    public void testMovedElementsAreIgnored() {
+        List<CtStatement> statements = this.parseStatements(
+                "foo(a + 1);",
+                "foo(a);");
+
+        Long fingerprint = StructuralFingerprint.of(statements.get(1));
+        Assert.assertNotEquals(fingerprint, StructuralFingerprint.of(statements.get(0)));
+
+        statements.get(0).getElements(new TypeFilter<>(CtLiteral.class)).get(0).putMetadata("isMoved", true);
+        // the binary operator is still there, but with a single operand
+        Assert.assertNotEquals(fingerprint, StructuralFingerprint.of(statements.get(0)));
+
+        statements.get(0).putMetadata("isMoved", true);
+        Assert.assertNull(StructuralFingerprint.of(statements.get(0)));
+    }
+
+    @Test
+    public void testMovedStatementsLeaveAnEmptyStatement() {
+        List<CtStatement> statements = this.parseStatements(
+                "if (a == 1) { foo(a); }",
+                "if (a == 2) { }");
+
+        statements.get(0).getElements(new TypeFilter<>(CtInvocation.class)).get(0).putMetadata("isMoved", true);
+        // as in the printed code, "if (a == 1) { ; }" is not "if (a == 2) { }"
+        Assert.assertNotEquals(StructuralFingerprint.of(statements.get(1)), StructuralFingerprint.of(statements.get(0)));
+    }
+
+    @Test
+    public void testArrayReadsAndWritesAreTheSame() {
+        List<CtStatement> statements = this.parseStatements("d[a] = d[b];");
+
+        List<CtArrayAccess> arrayAccesses = statements.get(0).getElements(new TypeFilter<>(CtArrayAccess.class));
+        Assert.assertEquals(2, arrayAccesses.size());
+        Assert.assertEquals(StructuralFingerprint.of(arrayAccesses.get(0)), StructuralFingerprint.of(arrayAccesses.get(1)));
+    }
+
+    @Test
+    public void testSinglePlaceholderHasNoFingerprint() {
+        List<CtStatement> statements = this.parseStatements("a = 1;");
+
+        Assert.assertNull(StructuralFingerprint.of(statements.get(0).getElements(new TypeFilter<>(CtLiteral.class)).get(0)));
+        Assert.assertNotNull(StructuralFingerprint.of(statements.get(0)));
+    }
+
+    private List<CtStatement> parseStatements(String... statements) {
+        String body = String.join("\n", statements);
+        CtClass<?> ctClass = Launcher.parseClass("class A { int a, b, c; int[] d; void foo(int x) {} void foo(int x, int y) {} void bar(int x, int y) {}"
+                + " void m() {\n" + body + "\n} }");
+        CtMethod<?> method = ctClass.getMethodsByName("m").get(0);
+        return method.getBody().getStatements();
+    }
+
+}
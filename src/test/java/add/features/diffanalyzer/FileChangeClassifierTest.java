@@ -0,0 +1,125 @@
+package add.features.diffanalyzer;
+
+import add.features.diffanalyzer.FileChangeClassifier.Kind;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class FileChangeClassifierTest {
+
+    private static final List<String> FOO = Arrays.asList(
+            "class Foo {",
+            "    int foo(int a) {",
+            "        return a + 1;",
+            "    }",
+            "}");
+
+    @Test
+    public void testNonJavaFile() {
+        Assert.assertEquals(Kind.NON_CODE, FileChangeClassifier.classify("README.md", FOO, Arrays.asList("Foo")));
+    }
+
+    @Test
+    public void testCommentsBlankLinesAndIndentation() {
+        List<String> patched = Arrays.asList(
+                "/**",
+                " * Foo. // not a line comment",
+                " */",
+                "class Foo {",
+                "",
+                "  int foo(int a) { ",
+                "      // returns a + 1",
+                "      return a + 1; /* the successor */",
+                "  }",
+                "}");
+        Assert.assertEquals(Kind.FORMATTING, FileChangeClassifier.classify("Foo.java", FOO, patched));
+    }
+
+    @Test
+    public void testCodeChanges() {
+        List<String> patched = Arrays.asList(
+                "class Foo {",
+                "    int foo(int a) {",
+                "        return a + 2;",
+                "    }",
+                "}");
+        Assert.assertEquals(Kind.CODE, FileChangeClassifier.classify("Foo.java", FOO, patched));
+
+        // code commented out
+        patched = Arrays.asList(
+                "class Foo {",
+                "    int foo(int a) {",
+                "        return a + 1; // }",
+                "}");
+        Assert.assertEquals(Kind.CODE, FileChangeClassifier.classify("Foo.java", FOO, patched));
+
+        patched = Arrays.asList(
+                "class Foo {",
+                "    int foo(int a) {",
+                "        return a + +1;",
+                "    }",
+                "}");
+        Assert.assertEquals(Kind.CODE, FileChangeClassifier.classify("Foo.java", FOO, patched));
+    }
+
+    @Test
+    public void testCodeReformatted() {
+        List<String> patched = Arrays.asList(
+                "class Foo",
+                "{",
+                "    int foo(int a) { return a+1; }",
+                "}");
+        Assert.assertEquals(Kind.FORMATTING, FileChangeClassifier.classify("Foo.java", FOO, patched));
+    }
+
+    @Test
+    public void testImports() {
+        List<String> original = Arrays.asList("import a.B;", "import c.D;", "class Foo {", "    B b;", "}");
+        // unused imports added, removed or reordered
+        List<String> patched = Arrays.asList("import static e.F.g;", "import a.B;", "class Foo {", "    B b;", "}");
+        Assert.assertEquals(Kind.FORMATTING, FileChangeClassifier.classify("Foo.java", original, patched));
+
+        // an import of a name used in the code can change what the name refers to
+        patched = Arrays.asList("import c.D;", "class Foo {", "    B b;", "}");
+        Assert.assertEquals(Kind.CODE, FileChangeClassifier.classify("Foo.java", original, patched));
+        patched = Arrays.asList("import e.*;", "import a.B;", "import c.D;", "class Foo {", "    B b;", "}");
+        Assert.assertEquals(Kind.CODE, FileChangeClassifier.classify("Foo.java", original, patched));
+    }
+
+    @Test
+    public void testCommentDelimitersInLiterals() {
+        List<String> original = Arrays.asList("class Foo {", "    String s = \"/*\";", "    char c = '\\'';", "}");
+        List<String> patched = Arrays.asList("class Foo {", "    String s = \"/*\";", "    char c = '\\''; // quote", "}");
+        Assert.assertEquals(Kind.FORMATTING, FileChangeClassifier.classify("Foo.java", original, patched));
+
+        patched = Arrays.asList("class Foo {", "    String s = \"// \";", "    char c = '\\'';", "}");
+        Assert.assertEquals(Kind.CODE, FileChangeClassifier.classify("Foo.java", original, patched));
+    }
+
+    @Test
+    public void testUnicodeEscapesAreNotClassified() {
+        List<String> original = Arrays.asList("class Foo {", "    // \\u000a int a;", "}");
+        List<String> patched = Arrays.asList("class Foo {", "}");
+        Assert.assertEquals(Kind.CODE, FileChangeClassifier.classify("Foo.java", original, patched));
+    }
+
+    @Test
+    public void testRetainCodeChanges() {
+        Map<String, List<String>> originalFiles = new HashMap<>();
+        Map<String, List<String>> patchedFiles = new HashMap<>();
+        originalFiles.put("Foo.java", FOO);
+        patchedFiles.put("Foo.java", Arrays.asList("// Foo", "class Foo {", "int foo(int a) {", "return a + 1;", "}", "}"));
+        originalFiles.put("Bar.java", Arrays.asList("class Bar {", "}"));
+        patchedFiles.put("Bar.java", Arrays.asList("class Bar {", "    int b;", "}"));
+
+        FileChangeClassifier.retainCodeChanges(originalFiles, patchedFiles);
+        Assert.assertEquals(originalFiles.keySet(), patchedFiles.keySet());
+        Assert.assertTrue(originalFiles.containsKey("Bar.java"));
+        Assert.assertFalse(originalFiles.containsKey("Foo.java"));
+    }
+
+}
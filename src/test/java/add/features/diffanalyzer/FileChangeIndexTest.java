@@ -0,0 +1,49 @@
+package add.features.diffanalyzer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertSame;
+
+public class FileChangeIndexTest {
+
+    private static final String FILE = "src/main/java/org/example/Foo.java";
+
+    @Test
+    public void testGetChange() {
+        Changes changes = new Changes();
+        // lines 3-4 replaced by lines 3-5, line 10 deleted, 2 lines inserted after line 20
+        Change replaceOld = addChange(changes, "REPLACE", 3, 4, 3, 5);
+        Change deleteOld = addChange(changes, "DELETE", 10, 10, 12, 11);
+        Change insertNew = addChange(changes, "INSERT", 21, 20, 22, 23).getAssociateChange();
+        Change otherFile = new Change("DELETE", "src/main/java/org/example/Bar.java", 1, 30, 30);
+        changes.addOldChange(otherFile);
+
+        FileChangeIndex changeIndex = new FileChangeIndex(changes, FILE);
+
+        assertSame(replaceOld, changeIndex.getChange(3, 3));
+        assertSame(replaceOld, changeIndex.getChange(7, 8));
+        assertSame(deleteOld, changeIndex.getChange(10, 11));
+        // the old version is checked first at the same distance
+        assertSame(deleteOld, changeIndex.getChange(15, 10));
+        assertSame(insertNew, changeIndex.getChange(21, 23));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNoChangeBefore() {
+        Changes changes = new Changes();
+        addChange(changes, "REPLACE", 3, 4, 3, 5);
+
+        new FileChangeIndex(changes, FILE).getChange(1, 1);
+    }
+
+    private Change addChange(Changes changes, String type, int oldLine, int oldEndLine, int newLine, int newEndLine) {
+        Change oldChange = new Change(type, FILE, oldLine, oldEndLine, oldEndLine - oldLine + 1);
+        Change newChange = new Change(type, FILE, newLine, newEndLine, newEndLine - newLine + 1);
+        newChange.setAssociateChange(oldChange);
+        oldChange.setAssociateChange(newChange);
+        changes.addOldChange(oldChange);
+        changes.addNewChange(newChange);
+        return oldChange;
+    }
+
+}
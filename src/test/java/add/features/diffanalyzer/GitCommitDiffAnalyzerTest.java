@@ -0,0 +1,90 @@
+package add.features.diffanalyzer;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+public class GitCommitDiffAnalyzerTest {
+
+    private static final String FILE = "src/org/example/Foo.java";
+
+    @Rule
+    public TemporaryFolder repositoryDirectory = new TemporaryFolder();
+
+    private String repositoryPath;
+    private String projectRoot = "/project";
+
+    @Before
+    public void setUp() throws Exception {
+        this.repositoryPath = this.repositoryDirectory.getRoot().getAbsolutePath();
+        try (Git git = Git.init().setDirectory(this.repositoryDirectory.getRoot()).call()) {
+            this.commit(git, "class Foo {\n    int a = 1;\n}\n", "README", "first");
+            this.commit(git, "class Foo {\n    int a = 2;\n}\n", "README", "second");
+            this.commit(git, "class Foo {\n    int a = 2;\n    int b = 3;\n}\n", "README changed", "third");
+        }
+    }
+
+    @Test
+    public void testCommitIsComparedWithItsParent() {
+        GitCommitDiffAnalyzer analyzer = new GitCommitDiffAnalyzer(this.repositoryPath, "HEAD~1");
+
+        Map<String, List<String>> originalFiles = analyzer.getOriginalFiles(this.projectRoot);
+        Assert.assertEquals(Arrays.asList("class Foo {", "    int a = 1;", "}"), originalFiles.get(this.projectRoot + "/" + FILE));
+        Map<String, List<String>> patchedFiles = analyzer.getPatchedFiles(this.projectRoot);
+        Assert.assertEquals(Arrays.asList("class Foo {", "    int a = 2;", "}"), patchedFiles.get(this.projectRoot + "/" + FILE));
+
+        Changes changes = analyzer.analyze();
+        Assert.assertEquals(1, analyzer.getNbFiles());
+        Assert.assertEquals(1, changes.getNewChanges().size());
+        Assert.assertEquals(2, changes.getNewChanges().get(0).getLine());
+    }
+
+    @Test
+    public void testRangeOfCommits() {
+        GitCommitDiffAnalyzer analyzer = new GitCommitDiffAnalyzer(this.repositoryPath, "HEAD~2..HEAD");
+
+        Assert.assertEquals(Arrays.asList("class Foo {", "    int a = 1;", "}"),
+                analyzer.getOriginalFiles(this.projectRoot).get(this.projectRoot + "/" + FILE));
+        Assert.assertEquals(Arrays.asList("class Foo {", "    int a = 2;", "    int b = 3;", "}"),
+                analyzer.getPatchedFiles(this.projectRoot).get(this.projectRoot + "/" + FILE));
+        // the README is in the diff, but only the Java files are read
+        analyzer.analyze();
+        Assert.assertEquals(2, analyzer.getNbFiles());
+        Assert.assertEquals(1, analyzer.getOriginalFiles(this.projectRoot).size());
+    }
+
+    @Test
+    public void testFirstCommitIsComparedWithAnEmptyTree() {
+        GitCommitDiffAnalyzer analyzer = new GitCommitDiffAnalyzer(this.repositoryPath, "HEAD~2");
+
+        Assert.assertTrue(analyzer.getOriginalFiles(this.projectRoot).isEmpty());
+        analyzer.analyze();
+        Assert.assertEquals(2, analyzer.getNbFiles());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownRevision() {
+        new GitCommitDiffAnalyzer(this.repositoryPath, "unknown");
+    }
+
+    private RevCommit commit(Git git, String fooContent, String readmeContent, String message) throws Exception {
+        File foo = new File(this.repositoryDirectory.getRoot(), FILE);
+        foo.getParentFile().mkdirs();
+        Files.write(foo.toPath(), fooContent.getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(this.repositoryDirectory.getRoot(), "README").toPath(), readmeContent.getBytes(StandardCharsets.UTF_8));
+        git.add().addFilepattern(".").call();
+        return git.commit().setMessage(message).setAuthor("author", "author@example.com").setCommitter("author", "author@example.com").call();
+    }
+
+}
@@ -0,0 +1,41 @@
+package add.features.diffanalyzer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class JavaTokenizerTest {
+
+    @Test
+    public void testWhitespaceAndCommentsAreDropped() {
+        Assert.assertEquals(Arrays.asList("int", "a", "=", "b", "+", "1", ";"),
+                JavaTokenizer.tokenize("int a = /* one */ b+1; // comment\n"));
+        Assert.assertEquals(JavaTokenizer.tokenize("int a=b+1;"), JavaTokenizer.tokenize(Arrays.asList("int a", "  = b", "  + 1;")));
+    }
+
+    @Test
+    public void testOperatorsAreSplitByLongestMatch() {
+        Assert.assertEquals(Arrays.asList("a", "++", "b"), JavaTokenizer.tokenize("a++b"));
+        Assert.assertEquals(Arrays.asList("a", "+", "+", "b"), JavaTokenizer.tokenize("a+ +b"));
+        Assert.assertEquals(Arrays.asList("x", ">>>=", "1", ";"), JavaTokenizer.tokenize("x>>>=1;"));
+        Assert.assertEquals(Arrays.asList("f", "=", "(", "a", ")", "->", "a", "::", "b"), JavaTokenizer.tokenize("f=(a)->a::b"));
+    }
+
+    @Test
+    public void testLiterals() {
+        Assert.assertEquals(Arrays.asList("s", "=", "\"a /* b */ \\\" // c\"", ";"),
+                JavaTokenizer.tokenize("s = \"a /* b */ \\\" // c\";"));
+        Assert.assertEquals(Arrays.asList("c", "=", "'\\''", ";"), JavaTokenizer.tokenize("c = '\\'';"));
+        Assert.assertEquals(Arrays.asList("s", "=", "\"\"\"\n  a \"b\"\n  \"\"\"", ";"),
+                JavaTokenizer.tokenize("s = \"\"\"\n  a \"b\"\n  \"\"\";"));
+        Assert.assertEquals(Arrays.asList("d", "=", "1.5e-3", "+", "0x1p+2", "-", ".5f", "-", "1_000L"),
+                JavaTokenizer.tokenize("d = 1.5e-3 + 0x1p+2 - .5f - 1_000L"));
+    }
+
+    @Test
+    public void testUnicodeEscapesAreNotTokenized() {
+        Assert.assertNull(JavaTokenizer.tokenize("// \\u000a int a;"));
+    }
+
+}
@@ -0,0 +1,52 @@
+package add.features.extractor;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DeclarationIndexTest {
+
+    private static final List<String> FILE = Arrays.asList(
+            "package org.example;",
+            "",
+            "public class Outer {",
+            "    private int field;",
+            "    public void first(int a,",
+            "                      int b) {",
+            "    }",
+            "    static class Inner {",
+            "        protected String second() {",
+            "            return null;",
+            "        }",
+            "    }",
+            "}");
+
+    @Test
+    public void testDeclarationsBeforeLine() {
+        DeclarationIndex declarationIndex = new DeclarationIndex(FILE);
+
+        assertEquals("", declarationIndex.getPackageName(0));
+        assertNull(declarationIndex.getClassName(0));
+        assertNull(declarationIndex.getMethodSignature(2));
+
+        assertEquals("org.example", declarationIndex.getPackageName(4));
+        assertEquals("Outer", declarationIndex.getClassName(4));
+        assertEquals("Inner", declarationIndex.getClassName(9));
+        assertEquals("Inner", declarationIndex.getClassName(100));
+        assertEquals("protected String second() ", declarationIndex.getMethodSignature(10));
+    }
+
+    @Test
+    public void testDeclarationCrossingTheLine() {
+        DeclarationIndex declarationIndex = new DeclarationIndex(FILE);
+
+        // the signature of first is split on two lines: only its first line is before line 6
+        assertEquals("public void first(int a,\n", declarationIndex.getMethodSignature(5));
+        assertEquals("public void first(int a,\n                      int b) ", declarationIndex.getMethodSignature(6));
+    }
+
+}
@@ -1,6 +1,7 @@
 package add.features.extractor;
 
 import add.entities.Metrics;
+import add.features.detector.repairpatterns.RepairPatternDetector;
 import add.main.Config;
 import add.utils.TestUtils;
 import org.junit.Test;
@@ -188,4 +189,33 @@ public class PatchSpreadingMetricsTest {
         assertEquals(3, metrics.getFeatureCounter("nbModifiedMethods"));
     }
 
+    @Test
+    public void testNbModifiedClassesAndMethodsWithModelLang13() {
+        Config config = TestUtils.setupConfig("lang_13");
+
+        // all the changes are in a nested class, the word "class" in its javadoc is not a class
+        RepairPatternDetector detector = new RepairPatternDetector(config);
+        MetricExtractor extractor = new MetricExtractor(config, detector.getOriginalModel(), detector.getPatchedModel());
+        Metrics metrics = extractor.analyze();
+        assertEquals(1, metrics.getFeatureCounter("nbModifiedClasses"));
+        assertEquals(2, metrics.getFeatureCounter("nbModifiedMethods"));
+    }
+
+    @Test
+    public void testNbModifiedClassesAndMethodsWithModelClosure46() {
+        Config config = TestUtils.setupConfig("closure_46");
+
+        // the patch removes a whole method, which is found in the original version
+        RepairPatternDetector detector = new RepairPatternDetector(config);
+        MetricExtractor extractor = new MetricExtractor(config, detector.getOriginalModel(), detector.getPatchedModel());
+        Metrics metrics = extractor.analyze();
+        assertEquals(1, metrics.getFeatureCounter("nbModifiedClasses"));
+        assertEquals(1, metrics.getFeatureCounter("nbModifiedMethods"));
+
+        // without the models of the edit script, the same classes and methods are found
+        Metrics metricsWithoutModels = new MetricExtractor(config).analyze();
+        assertEquals(1, metricsWithoutModels.getFeatureCounter("nbModifiedClasses"));
+        assertEquals(1, metricsWithoutModels.getFeatureCounter("nbModifiedMethods"));
+    }
+
 }
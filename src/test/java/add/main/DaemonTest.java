@@ -0,0 +1,159 @@
+package add.main;
+
+import add.utils.TestUtils;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DaemonTest {
+
+    @Rule
+    public TemporaryFolder tokenDirectory = new TemporaryFolder();
+
+    private Daemon daemon;
+
+    @Before
+    public void setUp() throws IOException {
+        this.daemon = new Daemon(0, new File(this.tokenDirectory.getRoot(), "add"));
+        this.daemon.setReadTimeoutMillis(500);
+        final Daemon daemon = this.daemon;
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    daemon.serve();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.daemon.close();
+    }
+
+    @Test
+    public void testRequestsAreAnalyzed() throws IOException {
+        Config config = TestUtils.setupConfig("chart_1");
+        File buggySourceDirectory = new File(config.getBuggySourceDirectoryPath());
+        // the paths are relative to the working directory of the client
+        List<String> response = this.request(buggySourceDirectory.getParentFile(), "-m", LauncherMode.REPAIR_PATTERNS.name(),
+                "-b", config.getBugId(),
+                "--buggySourceDirectory", buggySourceDirectory.getName(),
+                "--diff", new File(config.getDiffPath()).getName());
+
+        Assert.assertEquals("0", response.get(0));
+        JSONObject features = new JSONObject(response.get(1));
+        Assert.assertEquals("chart_1", features.getString("bugId"));
+        Assert.assertTrue(features.has("repairPatterns"));
+
+        response = this.request(buggySourceDirectory.getParentFile(), "-b", config.getBugId());
+        Assert.assertEquals("-1", response.get(0));
+        Assert.assertTrue(String.join("\n", response).contains("Error: Parameter 'launcherMode' is required."));
+    }
+
+    @Test
+    public void testRequestsWithoutTheTokenAreRejected() throws IOException {
+        Config config = TestUtils.setupConfig("chart_1");
+        File buggySourceDirectory = new File(config.getBuggySourceDirectoryPath());
+        String[] args = {"-m", LauncherMode.REPAIR_PATTERNS.name(), "-b", config.getBugId(),
+                "--buggySourceDirectory", buggySourceDirectory.getAbsolutePath(), "--diff", config.getDiffPath()};
+
+        List<String> response = this.request("not the token", buggySourceDirectory.getParentFile(), args);
+        Assert.assertEquals("-1", response.get(0));
+        Assert.assertTrue(String.join("\n", response).contains("Error: the token of the daemon is missing or invalid"));
+        // without the token, the working directory is taken as the token
+        response = this.request(buggySourceDirectory.getParentFile().getAbsolutePath(), buggySourceDirectory.getParentFile(), args);
+        Assert.assertEquals("-1", response.get(0));
+    }
+
+    @Test
+    public void testIdleConnectionsAreDropped() throws IOException {
+        Config config = TestUtils.setupConfig("chart_1");
+        File buggySourceDirectory = new File(config.getBuggySourceDirectoryPath());
+        try (Socket idleSocket = new Socket(InetAddress.getLoopbackAddress(), this.daemon.getPort())) {
+            // the request sent after a connection that sends nothing is answered
+            List<String> response = this.request(buggySourceDirectory.getParentFile(), "-b", config.getBugId());
+            Assert.assertEquals("-1", response.get(0));
+            Assert.assertTrue(String.join("\n", response).contains("Error: Parameter 'launcherMode' is required."));
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(idleSocket.getInputStream(), StandardCharsets.UTF_8));
+            Assert.assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    public void testTokenFileIsPrivate() throws IOException {
+        File tokenFile = this.daemon.getTokenFile();
+        Assert.assertEquals(Daemon.getTokenFileName(this.daemon.getPort()), tokenFile.getName());
+        Assert.assertEquals(64, readToken().length());
+        Assume.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        Assert.assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile.toPath())));
+        Assert.assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile.getParentFile().toPath())));
+
+        this.daemon.close();
+        Assert.assertFalse(tokenFile.exists());
+    }
+
+    @Test
+    public void testRelativePathsAreResolved() {
+        String[] args = Daemon.resolvePaths(new File("/work"), new String[] {"-b", "diff", "--diff", "path.diff",
+                "--buggySourceDirectory=src", "-o", "/tmp", "--store", "../store"});
+        Assert.assertArrayEquals(new String[] {"-b", "diff", "--diff", new File("/work/path.diff").getAbsolutePath(),
+                "--buggySourceDirectory=" + new File("/work/src").getAbsolutePath(), "-o", "/tmp",
+                "--store", new File("/work/../store").getAbsolutePath()}, args);
+    }
+
+    private String readToken() throws IOException {
+        return new String(Files.readAllBytes(this.daemon.getTokenFile().toPath()), StandardCharsets.UTF_8).trim();
+    }
+
+    private List<String> request(File workingDirectory, String... args) throws IOException {
+        return this.request(this.readToken(), workingDirectory, args);
+    }
+
+    private List<String> request(String token, File workingDirectory, String... args) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), this.daemon.getPort())) {
+            Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            writer.write(token + "\n");
+            writer.write(workingDirectory.getAbsolutePath() + "\n");
+            for (String arg : args) {
+                writer.write(arg + "\n");
+            }
+            writer.write("\n");
+            writer.flush();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+            return lines;
+        }
+    }
+
+}
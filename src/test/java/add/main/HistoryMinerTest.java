@@ -0,0 +1,179 @@
+package add.main;
+
+import add.output.JsonLinesFeatureWriter;
+import add.similarity.EditScriptIndex;
+import add.similarity.SignatureFile;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.regex.Pattern;
+
+public class HistoryMinerTest {
+
+    @Rule
+    public TemporaryFolder repositoryDirectory = new TemporaryFolder();
+
+    @Rule
+    public TemporaryFolder skewedRepositoryDirectory = new TemporaryFolder();
+
+    private Config config;
+    private RevCommit first;
+    private RevCommit fix;
+    private RevCommit documentation;
+    private RevCommit testFix;
+
+    @Before
+    public void setUp() throws Exception {
+        this.config = new Config();
+        this.config.setLauncherMode(LauncherMode.ALL);
+        this.config.setRepositoryPath(this.repositoryDirectory.getRoot().getAbsolutePath());
+        try (Git git = Git.init().setDirectory(this.repositoryDirectory.getRoot()).call()) {
+            this.first = this.commit(git, "src/org/example/Foo.java", "class Foo {\n    int foo(int a) {\n        return a;\n    }\n}\n", "first");
+            this.fix = this.commit(git, "src/org/example/Foo.java", "class Foo {\n    int foo(int a) {\n        if (a < 0) {\n            return 0;\n        }\n        return a;\n    }\n}\n", "Fix a negative value");
+            this.documentation = this.commit(git, "README", "Foo\n", "Document Foo");
+            this.testFix = this.commit(git, "test/org/example/FooTest.java", "class FooTest {\n    int a = 2;\n}\n", "Fix the test");
+        }
+    }
+
+    @Test
+    public void testEveryCommitModifyingJavaFilesIsMined() throws Exception {
+        Map<String, JSONObject> features = this.mine(new HistoryMiner(this.config, "HEAD", null, Collections.<String>emptyList(), 2));
+
+        Assert.assertEquals(3, features.size());
+        Assert.assertTrue(features.containsKey(this.first.getName()));
+        Assert.assertFalse(features.containsKey(this.documentation.getName()));
+
+        // the features are the ones of the analysis of the commit alone
+        Config commitConfig = new Config();
+        commitConfig.setLauncherMode(LauncherMode.ALL);
+        commitConfig.setBugId(this.fix.getName());
+        commitConfig.setRepositoryPath(this.config.getRepositoryPath());
+        commitConfig.setCommit(this.fix.getName());
+        commitConfig.setBuggySourceDirectoryPath(this.config.getRepositoryPath());
+        Assert.assertTrue(Launcher.extractFeatures(commitConfig).toJson().similar(features.get(this.fix.getName())));
+        Assert.assertEquals(1, features.get(this.fix.getName()).getJSONObject("repairPatterns").getInt("condBlockRetAdd"));
+    }
+
+    @Test
+    public void testSignaturesOfTheMinedCommitsAreWritten() throws Exception {
+        File signatureFile = new File(this.skewedRepositoryDirectory.getRoot(), "commits" + SignatureFile.FILE_SUFFIX);
+        this.config.setSignatureFilePath(signatureFile.getAbsolutePath());
+        HistoryMiner historyMiner = new HistoryMiner(this.config, "HEAD", null, Collections.<String>emptyList(), 2);
+        Assert.assertEquals(3, historyMiner.mine(new JsonLinesFeatureWriter(new StringWriter())));
+
+        Map<String, long[]> signatures = SignatureFile.read(signatureFile);
+        Assert.assertEquals(3, signatures.size());
+        Config commitConfig = new Config();
+        commitConfig.setLauncherMode(LauncherMode.ALL);
+        commitConfig.setBugId(this.fix.getName());
+        commitConfig.setRepositoryPath(this.config.getRepositoryPath());
+        commitConfig.setCommit(this.fix.getName());
+        commitConfig.setBuggySourceDirectoryPath(this.config.getRepositoryPath());
+        commitConfig.setSignatureFilePath(signatureFile.getAbsolutePath());
+        Assert.assertArrayEquals(Launcher.extractFeatures(commitConfig).getSignatures(), signatures.get(this.fix.getName()));
+        // the mined commits can be indexed without their traces
+        Assert.assertNotNull(EditScriptIndex.of(signatureFile).getSignatures(this.fix.getName()));
+    }
+
+    @Test
+    public void testCommitsAreFilteredByMessageAndPaths() throws Exception {
+        Map<String, JSONObject> features = this.mine(new HistoryMiner(this.config, "HEAD", Pattern.compile("^Fix"), Collections.<String>emptyList(), 1));
+        Assert.assertEquals(2, features.size());
+        Assert.assertTrue(features.containsKey(this.fix.getName()));
+        Assert.assertTrue(features.containsKey(this.testFix.getName()));
+
+        features = this.mine(new HistoryMiner(this.config, "HEAD", Pattern.compile("^Fix"), Arrays.asList("src/**"), 1));
+        Assert.assertEquals(Collections.singleton(this.fix.getName()), features.keySet());
+    }
+
+    @Test
+    public void testRangeOfCommits() throws Exception {
+        Map<String, JSONObject> features = this.mine(new HistoryMiner(this.config, this.first.getName() + "..HEAD", null, Collections.<String>emptyList(), 1));
+        Assert.assertEquals(2, features.size());
+        Assert.assertFalse(features.containsKey(this.first.getName()));
+    }
+
+    @Test
+    public void testHistoryIsWalkedInChunks() throws Exception {
+        HistoryMiner historyMiner = new HistoryMiner(this.config, "HEAD", null, Collections.<String>emptyList(), 1);
+        historyMiner.setChunkSize(1);
+        Assert.assertEquals(this.mine(new HistoryMiner(this.config, "HEAD", null, Collections.<String>emptyList(), 1)).keySet(),
+                this.mine(historyMiner).keySet());
+
+        historyMiner = new HistoryMiner(this.config, this.first.getName() + "..HEAD", null, Collections.<String>emptyList(), 1);
+        historyMiner.setChunkSize(2);
+        Assert.assertEquals(2, this.mine(historyMiner).size());
+    }
+
+    @Test
+    public void testCommitReachedAgainByALaterChunkIsMinedOnce() throws Exception {
+        File directory = this.skewedRepositoryDirectory.getRoot();
+        long now = System.currentTimeMillis();
+        RevCommit base;
+        RevCommit side;
+        try (Git git = Git.init().setDirectory(directory).call()) {
+            base = this.commit(git, directory, "Foo.java", "class Foo {\n}\n", "base", new Date(now));
+            // the commit after the base on the main branch is dated before it, so the base is walked from the side branch first
+            this.commit(git, directory, "Foo.java", "class Foo {\n    int a;\n}\n", "main", new Date(now - 24 * 3600 * 1000));
+            git.checkout().setCreateBranch(true).setName("side").setStartPoint(base).call();
+            side = this.commit(git, directory, "Bar.java", "class Bar {\n}\n", "side", new Date(now + 3600 * 1000));
+            git.checkout().setName("master").call();
+            git.merge().include(side).setCommit(true).setMessage("merge").call();
+        }
+        Config skewedConfig = new Config();
+        skewedConfig.setLauncherMode(LauncherMode.METRICS);
+        skewedConfig.setRepositoryPath(directory.getAbsolutePath());
+        HistoryMiner historyMiner = new HistoryMiner(skewedConfig, "HEAD", null, Collections.<String>emptyList(), 1);
+        historyMiner.setChunkSize(1);
+
+        Map<String, JSONObject> features = this.mine(historyMiner);
+        Assert.assertEquals(3, features.size());
+        Assert.assertTrue(features.containsKey(base.getName()));
+    }
+
+    private Map<String, JSONObject> mine(HistoryMiner historyMiner) throws Exception {
+        StringWriter output = new StringWriter();
+        int nbMinedCommits = historyMiner.mine(new JsonLinesFeatureWriter(output));
+
+        Map<String, JSONObject> features = new HashMap<>();
+        for (String line : output.toString().split("\\r?\\n")) {
+            if (!line.isEmpty()) {
+                JSONObject json = new JSONObject(line);
+                features.put(json.getString("bugId"), json);
+            }
+        }
+        Assert.assertEquals(nbMinedCommits, features.size());
+        return features;
+    }
+
+    private RevCommit commit(Git git, String path, String content, String message) throws Exception {
+        return this.commit(git, this.repositoryDirectory.getRoot(), path, content, message, new Date());
+    }
+
+    private RevCommit commit(Git git, File directory, String path, String content, String message, Date date) throws Exception {
+        File file = new File(directory, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        git.add().addFilepattern(".").call();
+        PersonIdent author = new PersonIdent("author", "author@example.com", date, TimeZone.getDefault());
+        return git.commit().setMessage(message).setAuthor(author).setCommitter(author).call();
+    }
+
+}
@@ -1,14 +1,46 @@
 package add.main;
 
+import add.similarity.SignatureFile;
 import add.utils.TestUtils;
 import com.martiansoftware.jsap.JSAPException;
+import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
 
 /**
  * Created by fermadeiral
  */
 public class LauncherTest {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void signaturesAreWrittenOnlyWhenAsked() throws Exception {
+        Config config = TestUtils.setupConfig("chart_1");
+        File outputDirectory = this.temporaryFolder.newFolder("output");
+        File signatureFile = new File(this.temporaryFolder.getRoot(), "patches" + SignatureFile.FILE_SUFFIX);
+        String[] args = new String[] {"-m", LauncherMode.REPAIR_PATTERNS.name(),
+                "-b", config.getBugId(),
+                "--buggySourceDirectory", config.getBuggySourceDirectoryPath(),
+                "--diff", config.getDiffPath(),
+                "-o", outputDirectory.getAbsolutePath()
+        };
+        Assert.assertNull(new Launcher(args).execute().getSignatures());
+        Assert.assertEquals(1, outputDirectory.list().length);
+
+        String[] argsWithSignatures = Arrays.copyOf(args, args.length + 2);
+        argsWithSignatures[args.length] = "--signatures";
+        argsWithSignatures[args.length + 1] = signatureFile.getAbsolutePath();
+        long[] signatures = new Launcher(argsWithSignatures).execute().getSignatures();
+        Assert.assertArrayEquals(signatures, SignatureFile.read(signatureFile).get("chart_1"));
+        Assert.assertEquals(1, outputDirectory.list().length);
+    }
+
     @Test
     public void chart1() {
         Config config = TestUtils.setupConfig("chart_1");
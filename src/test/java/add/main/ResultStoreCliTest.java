@@ -0,0 +1,42 @@
+package add.main;
+
+import add.entities.FeatureList;
+import add.similarity.SignatureFile;
+import add.store.ResultStore;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+public class ResultStoreCliTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testOnlyTheFeaturesAreImported() throws Exception {
+        File featureFile = this.temporaryFolder.newFile("chart_1_all.json");
+        Files.write(featureFile.toPath(), Arrays.asList(
+                "{\"bugId\":\"chart_1\",\"repairPatterns\":{\"expLogicMod\":1}}",
+                "{\"bugId\":\"chart_1\"}"), StandardCharsets.UTF_8);
+        File signatureFile = this.temporaryFolder.newFile("chart_1" + SignatureFile.FILE_SUFFIX);
+        SignatureFile.append(signatureFile, "chart_1", new long[] {0x2a});
+
+        try (ResultStore store = new ResultStore(this.temporaryFolder.newFolder("store"))) {
+            Assert.assertEquals(1, ResultStoreCli.importJsonFile(store, featureFile));
+            Assert.assertEquals(0, ResultStoreCli.importJsonFile(store, signatureFile));
+            store.flush();
+
+            // the features of the bug are not replaced by missing ones
+            FeatureList features = store.get("chart_1");
+            Assert.assertEquals(1, features.getFeatures().size());
+            Assert.assertEquals(1, features.getFeatures().get(0).getFeatureCounter("expLogicMod"));
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+package add.output;
+
+import add.entities.FeatureList;
+import add.entities.FeatureRegistry;
+import add.entities.Metrics;
+import add.entities.RepairPatterns;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ColumnarFeatureWriterTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testColumnsAreReadBack() throws Exception {
+        File file = new File(this.temporaryFolder.getRoot(), "features.addc");
+        try (ColumnarFeatureWriter writer = new ColumnarFeatureWriter(file, 2)) {
+            for (int i = 0; i < 5; i++) {
+                writer.write("bug_" + i, this.getFeatures(i));
+            }
+        }
+
+        List<String> bugIds = new ArrayList<>();
+        List<Integer> wrapsIf = new ArrayList<>();
+        List<Integer> nbFiles = new ArrayList<>();
+        int nbRowGroups = 0;
+        try (ColumnarFeatureReader reader = new ColumnarFeatureReader(file, Arrays.asList("wrapsIf", "nbFiles"))) {
+            Assert.assertEquals(FeatureRegistry.getFeatureNames(), reader.getColumnNames());
+            ColumnarFeatureReader.RowGroup rowGroup;
+            while ((rowGroup = reader.nextRowGroup()) != null) {
+                nbRowGroups++;
+                for (int row = 0; row < rowGroup.getNbRows(); row++) {
+                    bugIds.add(rowGroup.getBugId(row));
+                    wrapsIf.add(rowGroup.getColumn("wrapsIf")[row]);
+                    nbFiles.add(rowGroup.getColumn("nbFiles")[row]);
+                }
+            }
+        }
+        Assert.assertEquals(3, nbRowGroups);
+        Assert.assertEquals(Arrays.asList("bug_0", "bug_1", "bug_2", "bug_3", "bug_4"), bugIds);
+        Assert.assertEquals(Arrays.asList(0, 1000, 2000, 3000, 4000), wrapsIf);
+        // the metrics are extracted only for the even bugs
+        Assert.assertEquals(Arrays.asList(0, ColumnarFeatureWriter.MISSING_VALUE, 2, ColumnarFeatureWriter.MISSING_VALUE, 4), nbFiles);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOnlyReadColumnsAreAvailable() throws Exception {
+        File file = new File(this.temporaryFolder.getRoot(), "features.addc");
+        try (ColumnarFeatureWriter writer = new ColumnarFeatureWriter(file)) {
+            writer.write("bug_0", this.getFeatures(0));
+        }
+        try (ColumnarFeatureReader reader = new ColumnarFeatureReader(file, Arrays.asList("wrapsIf"))) {
+            reader.nextRowGroup().getColumn("nbFiles");
+        }
+    }
+
+    @Test
+    public void testIncompleteRowGroupIsReplacedWhenAppending() throws Exception {
+        File file = new File(this.temporaryFolder.getRoot(), "features.addc");
+        try (ColumnarFeatureWriter writer = new ColumnarFeatureWriter(file, 2)) {
+            for (int i = 0; i < 4; i++) {
+                writer.write("bug_" + i, this.getFeatures(i));
+            }
+        }
+        // a run interrupted while writing its last row group
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(randomAccessFile.length() - 3);
+        }
+        Assert.assertEquals(Arrays.asList("bug_0", "bug_1"), this.readBugIds(file));
+
+        try (ColumnarFeatureWriter writer = new ColumnarFeatureWriter(file, 2)) {
+            writer.write("bug_4", this.getFeatures(4));
+        }
+        Assert.assertEquals(Arrays.asList("bug_0", "bug_1", "bug_4"), this.readBugIds(file));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotAColumnarFile() throws Exception {
+        File file = new File(this.temporaryFolder.getRoot(), "features.json");
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            output.write("{\"bugId\": \"bug_0\"}".getBytes("UTF-8"));
+        }
+        new ColumnarFeatureWriter(file);
+    }
+
+    private FeatureList getFeatures(int i) {
+        FeatureList features = new FeatureList(null);
+        RepairPatterns repairPatterns = new RepairPatterns();
+        repairPatterns.setFeatureCounter("wrapsIf", 1000 * i);
+        features.add(repairPatterns);
+        if (i % 2 == 0) {
+            Metrics metrics = new Metrics();
+            metrics.setFeatureCounter("nbFiles", i);
+            features.add(metrics);
+        }
+        return features;
+    }
+
+    private List<String> readBugIds(File file) throws IOException {
+        List<String> bugIds = new ArrayList<>();
+        try (ColumnarFeatureReader reader = new ColumnarFeatureReader(file, new ArrayList<String>())) {
+            ColumnarFeatureReader.RowGroup rowGroup;
+            while ((rowGroup = reader.nextRowGroup()) != null) {
+                for (int row = 0; row < rowGroup.getNbRows(); row++) {
+                    bugIds.add(rowGroup.getBugId(row));
+                }
+            }
+        }
+        return bugIds;
+    }
+
+}
@@ -0,0 +1,64 @@
+package add.output;
+
+import add.entities.FeatureList;
+import add.entities.Metrics;
+import add.entities.RepairPatterns;
+import add.main.Config;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+public class FeatureJsonSerializerTest {
+
+    @Test
+    public void testCompactJsonIsTheJsonOfTheFeatures() throws Exception {
+        FeatureList features = this.getFeatures("chart_1");
+        StringWriter output = new StringWriter();
+        new FeatureJsonSerializer().write(output, "chart_1", features);
+
+        String json = output.toString();
+        Assert.assertTrue(json, json.startsWith("{\"bugId\":\"chart_1\",\"repairPatterns\":{\"condBlockOthersAdd\":0,"));
+        Assert.assertFalse(json.contains("\n") || json.contains(" "));
+        Assert.assertTrue(features.toJson().similar(new JSONObject(json)));
+    }
+
+    @Test
+    public void testPrettyJson() throws Exception {
+        FeatureList features = this.getFeatures("chart_1");
+        StringWriter output = new StringWriter();
+        new FeatureJsonSerializer(4).write(output, "chart_1", features);
+
+        String json = output.toString();
+        Assert.assertTrue(json, json.startsWith("{\n    \"bugId\": \"chart_1\",\n    \"repairPatterns\": {\n        \"condBlockOthersAdd\": 0,\n"));
+        Assert.assertTrue(json, json.endsWith("\n    }\n}"));
+        Assert.assertTrue(features.toJson().similar(new JSONObject(json)));
+    }
+
+    @Test
+    public void testBugIdIsEscaped() throws Exception {
+        String bugId = "bug \"1\"\\\n\u0001";
+        StringWriter output = new StringWriter();
+        new FeatureJsonSerializer().write(output, bugId, new FeatureList(null));
+        Assert.assertEquals(bugId, new JSONObject(output.toString()).getString("bugId"));
+
+        output = new StringWriter();
+        new FeatureJsonSerializer(2).write(output, null, new FeatureList(null));
+        Assert.assertEquals("{}", output.toString());
+    }
+
+    private FeatureList getFeatures(String bugId) {
+        Config config = new Config();
+        config.setBugId(bugId);
+        FeatureList features = new FeatureList(config);
+        RepairPatterns repairPatterns = new RepairPatterns();
+        repairPatterns.setFeatureCounter("wrapsIf", 2);
+        features.add(repairPatterns);
+        Metrics metrics = new Metrics();
+        metrics.setFeatureCounter("nbFiles", 1);
+        features.add(metrics);
+        return features;
+    }
+
+}
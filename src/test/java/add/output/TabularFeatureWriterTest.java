@@ -0,0 +1,63 @@
+package add.output;
+
+import add.entities.FeatureList;
+import add.entities.FeatureRegistry;
+import add.entities.Metrics;
+import add.entities.RepairPatterns;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+public class TabularFeatureWriterTest {
+
+    @Test
+    public void testOneHeaderAndOneRowPerBug() throws Exception {
+        StringWriter output = new StringWriter();
+        try (TabularFeatureWriter writer = new TabularFeatureWriter(output, TabularFeatureWriter.TSV_SEPARATOR)) {
+            writer.write("bug_0", this.getFeatures(0, true));
+            writer.write("bug_1", this.getFeatures(1, false));
+        }
+
+        String[] lines = output.toString().split("\n", -1);
+        Assert.assertEquals(4, lines.length);
+        Assert.assertEquals("", lines[3]);
+
+        List<String> header = Arrays.asList(lines[0].split("\t", -1));
+        Assert.assertEquals("bugId", header.get(0));
+        Assert.assertEquals(FeatureRegistry.getFeatureNames(), header.subList(1, header.size()));
+
+        List<String> row = Arrays.asList(lines[2].split("\t", -1));
+        Assert.assertEquals(header.size(), row.size());
+        Assert.assertEquals("bug_1", row.get(0));
+        Assert.assertEquals("1000", row.get(header.indexOf("wrapsIf")));
+        Assert.assertEquals("0", row.get(header.indexOf("wrapsElse")));
+        // the metrics were not extracted
+        Assert.assertEquals("", row.get(header.indexOf("nbFiles")));
+        Assert.assertEquals("0", Arrays.asList(lines[1].split("\t", -1)).get(header.indexOf("nbFiles")));
+    }
+
+    @Test
+    public void testBugIdsAreQuoted() throws Exception {
+        StringWriter output = new StringWriter();
+        try (TabularFeatureWriter writer = new TabularFeatureWriter(output, TabularFeatureWriter.CSV_SEPARATOR)) {
+            writer.write("bug \"1\", fixed", this.getFeatures(1, false));
+        }
+        String row = output.toString().split("\n")[1];
+        Assert.assertTrue(row, row.startsWith("\"bug \"\"1\"\", fixed\",0,"));
+    }
+
+    private FeatureList getFeatures(int i, boolean withMetrics) {
+        FeatureList features = new FeatureList(null);
+        RepairPatterns repairPatterns = new RepairPatterns();
+        repairPatterns.setFeatureCounter("wrapsIf", 1000 * i);
+        features.add(repairPatterns);
+        if (withMetrics) {
+            features.add(new Metrics());
+        }
+        return features;
+    }
+
+}
@@ -0,0 +1,124 @@
+package add.similarity;
+
+import add.features.detector.spoon.EditScriptTracer;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class EditScriptIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testNearDuplicatesAreTheOnesOfAnExhaustiveSearch() {
+        Random random = new Random(42);
+        EditScriptIndex index = new EditScriptIndex();
+        List<long[]> patches = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            // the patches are variants of a few fixes, with some operations of their own
+            long[] signatures = new long[4 + random.nextInt(8)];
+            int fix = random.nextInt(20);
+            for (int j = 0; j < signatures.length; j++) {
+                signatures[j] = random.nextInt(10) < 8 ? fix * 100 + j : random.nextLong();
+            }
+            patches.add(signatures);
+            index.add("bug_" + i, signatures);
+        }
+        Assert.assertEquals(500, index.size());
+
+        int nbExpected = 0;
+        int nbFound = 0;
+        for (int i = 0; i < patches.size(); i++) {
+            List<Neighbor> neighbors = index.search("bug_" + i, 0.8);
+            for (Neighbor neighbor : neighbors) {
+                Assert.assertNotEquals("bug_" + i, neighbor.getBugId());
+                Assert.assertTrue(neighbor.getSimilarity() >= 0.8);
+            }
+            for (int j = 0; j < patches.size(); j++) {
+                if (j != i && EditScriptIndex.jaccard(index.getSignatures("bug_" + i), index.getSignatures("bug_" + j)) >= 0.8) {
+                    nbExpected++;
+                }
+            }
+            nbFound += neighbors.size();
+        }
+        Assert.assertTrue(nbExpected > 0);
+        // a pair of similarity 0.8 is missed with a probability of less than 0.1%
+        Assert.assertTrue(nbFound + " of " + nbExpected, nbFound >= nbExpected * 0.99);
+    }
+
+    @Test
+    public void testSearch() {
+        EditScriptIndex index = new EditScriptIndex();
+        index.add("bug_0", new long[] {1, 2, 3, 4, 5});
+        index.add("bug_1", new long[] {5, 4, 3, 2, 1, 1});
+        index.add("bug_2", new long[] {1, 2, 3, 4, 6});
+        index.add("bug_3", new long[] {7, 8});
+        index.add("bug_4", new long[0]);
+
+        Assert.assertEquals(4, index.size());
+        Assert.assertNull(index.getSignatures("bug_4"));
+        List<Neighbor> neighbors = index.search("bug_0", 0.5);
+        Assert.assertEquals(2, neighbors.size());
+        Assert.assertEquals("bug_1", neighbors.get(0).getBugId());
+        Assert.assertEquals(1, neighbors.get(0).getSimilarity(), 1e-9);
+        Assert.assertEquals("bug_2", neighbors.get(1).getBugId());
+        Assert.assertEquals(4.0 / 6, neighbors.get(1).getSimilarity(), 1e-9);
+
+        neighbors = index.search(new long[] {8, 7}, 0.8);
+        Assert.assertEquals(1, neighbors.size());
+        Assert.assertEquals("bug_3", neighbors.get(0).getBugId());
+        Assert.assertTrue(index.search("bug_4", 0).isEmpty());
+    }
+
+    @Test
+    public void testIndexOfTraceDirectory() throws Exception {
+        File traceDirectory = this.folder.newFolder("traces");
+        Files.write(new File(traceDirectory, "chart_1" + EditScriptTracer.FILE_SUFFIX).toPath(), Arrays.asList(
+                "{\"operation\":\"Insert\",\"signature\":\"ffffffffffffff01\"}",
+                "{\"operation\":\"Move\",\"signature\":\"2a\"}"), StandardCharsets.UTF_8);
+        Files.write(new File(traceDirectory, "chart_2" + EditScriptTracer.FILE_SUFFIX).toPath(), Arrays.asList(
+                "{\"operation\":\"Move\",\"signature\":\"2a\"}",
+                "{\"operation\":\"Insert\",\"signature\":\"ffffffffffffff01\"}"), StandardCharsets.UTF_8);
+        Files.write(new File(traceDirectory, "chart_3.json").toPath(), Arrays.asList("{}"), StandardCharsets.UTF_8);
+
+        EditScriptIndex index = EditScriptIndex.of(traceDirectory);
+        Assert.assertEquals(Arrays.asList("chart_1", "chart_2"), index.getBugIds());
+        Assert.assertArrayEquals(new long[] {0xffffffffffffff01L, 0x2a}, index.getSignatures("chart_1"));
+        Assert.assertEquals("chart_2", index.search("chart_1", 1).get(0).getBugId());
+    }
+
+    @Test
+    public void testIndexOfSignatureFiles() throws Exception {
+        File signatureFile = this.folder.newFile("commits" + SignatureFile.FILE_SUFFIX);
+        try (Writer writer = Files.newBufferedWriter(signatureFile.toPath(), StandardCharsets.UTF_8)) {
+            SignatureFile.write(writer, "chart_1", new long[] {0xffffffffffffff01L, 0x2a});
+            SignatureFile.write(writer, "chart_2", new long[] {0x2a, 0xffffffffffffff01L});
+            SignatureFile.write(writer, "chart_3", new long[0]);
+        }
+        EditScriptIndex index = EditScriptIndex.of(signatureFile);
+        Assert.assertEquals(Arrays.asList("chart_1", "chart_2"), index.getBugIds());
+        Assert.assertArrayEquals(new long[] {0xffffffffffffff01L, 0x2a}, index.getSignatures("chart_1"));
+        Assert.assertEquals("chart_2", index.search("chart_1", 1).get(0).getBugId());
+
+        // in a directory, the signature file of a patch is used rather than its trace file
+        Files.write(new File(this.folder.getRoot(), "chart_1" + EditScriptTracer.FILE_SUFFIX).toPath(), Arrays.asList(
+                "{\"operation\":\"Insert\",\"signature\":\"3\"}"), StandardCharsets.UTF_8);
+        Files.write(new File(this.folder.getRoot(), "chart_4" + EditScriptTracer.FILE_SUFFIX).toPath(), Arrays.asList(
+                "{\"operation\":\"Insert\",\"signature\":\"3\"}"), StandardCharsets.UTF_8);
+        index = EditScriptIndex.of(this.folder.getRoot());
+        Assert.assertEquals(Arrays.asList("chart_1", "chart_2", "chart_4"), index.getBugIds());
+        Assert.assertArrayEquals(new long[] {0xffffffffffffff01L, 0x2a}, index.getSignatures("chart_1"));
+    }
+
+}
@@ -0,0 +1,88 @@
+package add.similarity;
+
+import add.entities.FeatureRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class VpTreeTest {
+
+    @Test
+    public void testSimilarities() {
+        FeatureVector a = new FeatureVector("a", new int[] {1, 1, 0, 0});
+        FeatureVector b = new FeatureVector("b", new int[] {2, 0, 3, -1});
+        FeatureVector empty = new FeatureVector("empty", new int[] {0, 0, 0, -1});
+
+        Assert.assertEquals(2.0 / Math.sqrt(2) / Math.sqrt(13), Similarity.COSINE.similarity(a, b), 1e-9);
+        Assert.assertEquals(1, Similarity.COSINE.similarity(a, new FeatureVector("c", new int[] {3, 3, 0, 0})), 1e-9);
+        Assert.assertEquals(0, Similarity.COSINE.similarity(a, empty), 1e-9);
+        Assert.assertEquals(1.0 / 3, Similarity.JACCARD.similarity(a, b), 1e-9);
+        Assert.assertEquals(0, Similarity.JACCARD.similarity(a, empty), 1e-9);
+        Assert.assertEquals(1, Similarity.JACCARD.similarity(empty, empty), 1e-9);
+    }
+
+    @Test
+    public void testNearestNeighborsAreTheOnesOfAnExhaustiveSearch() {
+        Random random = new Random(42);
+        int dimension = FeatureRegistry.getFeatureNames().size();
+        List<FeatureVector> vectors = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            vectors.add(this.getRandomVector("bug_" + i, dimension, random));
+        }
+        for (Similarity similarity : Similarity.values()) {
+            VpTree tree = new VpTree(vectors, similarity);
+            Assert.assertEquals(vectors.size(), tree.size());
+            for (int i = 0; i < 20; i++) {
+                FeatureVector query = this.getRandomVector(null, dimension, random);
+                List<Neighbor> neighbors = tree.search(query, 5);
+                List<Double> expectedSimilarities = this.getExpectedSimilarities(vectors, query, similarity, 5);
+                Assert.assertEquals(5, neighbors.size());
+                for (int j = 0; j < neighbors.size(); j++) {
+                    Assert.assertEquals(similarity.name(), expectedSimilarities.get(j), neighbors.get(j).getSimilarity(), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBugOfTheQueryIsExcluded() {
+        List<FeatureVector> vectors = Arrays.asList(
+                new FeatureVector("bug_0", new int[] {1, 0, 1}),
+                new FeatureVector("bug_1", new int[] {1, 0, 2}),
+                new FeatureVector("bug_2", new int[] {0, 5, 0}),
+                new FeatureVector("bug_3", new int[] {1, 0, 1}));
+        VpTree tree = new VpTree(vectors, Similarity.JACCARD);
+        List<Neighbor> neighbors = tree.search(vectors.get(0), 2);
+        Assert.assertEquals("bug_1", neighbors.get(0).getBugId());
+        Assert.assertEquals("bug_3", neighbors.get(1).getBugId());
+        Assert.assertEquals(1, neighbors.get(1).getSimilarity(), 1e-9);
+    }
+
+    private FeatureVector getRandomVector(String bugId, int dimension, Random random) {
+        int[] values = new int[dimension];
+        // sparse vectors of small counts, as the features of the patches
+        for (int i = 0; i < 6; i++) {
+            values[random.nextInt(dimension)] += 1 + random.nextInt(3);
+        }
+        return new FeatureVector(bugId, values);
+    }
+
+    private List<Double> getExpectedSimilarities(List<FeatureVector> vectors, FeatureVector query, Similarity similarity, int k) {
+        List<Double> similarities = new ArrayList<>();
+        for (FeatureVector vector : vectors) {
+            similarities.add(-similarity.similarity(query, vector));
+        }
+        Collections.sort(similarities);
+        List<Double> expectedSimilarities = new ArrayList<>();
+        for (int i = 0; i < k; i++) {
+            expectedSimilarities.add(-similarities.get(i));
+        }
+        return expectedSimilarities;
+    }
+
+}
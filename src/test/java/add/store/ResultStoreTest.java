@@ -0,0 +1,215 @@
+package add.store;
+
+import add.entities.FeatureList;
+import add.entities.Metrics;
+import add.entities.RepairPatterns;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ResultStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testBugsAreFoundAfterReopening() throws Exception {
+        File directory = new File(this.temporaryFolder.getRoot(), "store");
+        try (ResultStore store = new ResultStore(directory, 3)) {
+            for (int i = 0; i < 7; i++) {
+                store.write("bug_" + i, this.getFeatures(i % 3, 10 - i));
+            }
+        }
+        Assert.assertEquals(3, this.getNbSegments(directory));
+
+        ResultStore store = new ResultStore(directory);
+        Assert.assertEquals(7, store.size());
+        FeatureList features = store.get("bug_4");
+        Assert.assertEquals(2, features.getFeatures().size());
+        Assert.assertEquals(1, features.getFeatures().get(0).getFeatureCounter("wrapsIf"));
+        Assert.assertEquals(6, features.getFeatures().get(1).getFeatureCounter("patchSizeCodeOnly"));
+        Assert.assertEquals(features.getFeatures().get(1).getClass(), Metrics.class);
+        Assert.assertNull(store.get("bug_7"));
+    }
+
+    @Test
+    public void testQueries() throws Exception {
+        ResultStore store = new ResultStore(this.temporaryFolder.getRoot(), 4);
+        for (int i = 0; i < 10; i++) {
+            store.write("bug_" + i, this.getFeatures(i % 3, 10 - i));
+        }
+        // the metrics of bug_9 are not extracted
+        FeatureList features = new FeatureList(null);
+        RepairPatterns repairPatterns = new RepairPatterns();
+        repairPatterns.setFeatureCounter("wrapsIf", 1);
+        features.add(repairPatterns);
+        store.write("bug_9", features);
+        store.flush();
+
+        Assert.assertEquals(Arrays.asList("bug_1", "bug_2", "bug_4", "bug_5", "bug_7", "bug_8", "bug_9"), store.query(this.parse("wrapsIf>0")));
+        Assert.assertEquals(Arrays.asList("bug_7", "bug_8"), store.query(this.parse("wrapsIf>0", "patchSizeCodeOnly<5")));
+        Assert.assertEquals(Arrays.asList("bug_2", "bug_5", "bug_8"), store.query(this.parse("wrapsIf=2")));
+        Assert.assertEquals(Arrays.asList("bug_0", "bug_3", "bug_6"), store.query(this.parse("wrapsIf=0", "patchSizeCodeOnly>=1")));
+        Assert.assertEquals(5, store.count(this.parse("patchSizeCodeOnly != 10", "wrapsIf <= 1")));
+        Assert.assertEquals(10, store.count(Collections.<Predicate>emptyList()));
+        // the repair actions are not extracted
+        Assert.assertEquals(0, store.count(this.parse("assignAdd>=0", "wrapsIf>0")));
+    }
+
+    @Test
+    public void testLastVersionOfABugIsKeptByCompaction() throws Exception {
+        File directory = this.temporaryFolder.getRoot();
+        try (ResultStore store = new ResultStore(directory, 2)) {
+            store.write("bug_0", this.getFeatures(1, 1));
+            store.write("bug_1", this.getFeatures(1, 1));
+            store.write("bug_2", this.getFeatures(1, 1));
+        }
+        try (ResultStore store = new ResultStore(directory, 2)) {
+            store.write("bug_1", this.getFeatures(0, 1));
+        }
+
+        ResultStore store = new ResultStore(directory, 2);
+        Assert.assertEquals(3, this.getNbSegments(directory));
+        Assert.assertEquals(3, store.size());
+        Assert.assertEquals(Arrays.asList("bug_0", "bug_2"), store.query(this.parse("wrapsIf>0")));
+
+        store.compact();
+        Assert.assertEquals(2, this.getNbSegments(directory));
+        Assert.assertEquals(Arrays.asList("bug_0", "bug_2"), store.query(this.parse("wrapsIf>0")));
+        Assert.assertEquals(0, store.get("bug_1").getFeatures().get(0).getFeatureCounter("wrapsIf"));
+
+        store = new ResultStore(directory, 2);
+        Assert.assertEquals(Arrays.asList("bug_0", "bug_2", "bug_1"), store.query(this.parse("nbFiles=1")));
+    }
+
+    @Test
+    public void testAppendedBugsAreFoldedIntoSegments() throws Exception {
+        File directory = this.temporaryFolder.getRoot();
+        // each run of the launcher appends its bug with a new store
+        for (int i = 0; i < 5; i++) {
+            try (ResultStore store = new ResultStore(directory, 2)) {
+                store.append("bug_" + i, this.getFeatures(i % 2, 10 - i));
+            }
+        }
+        // the log is folded when it holds as many bugs as a segment, before the next append
+        Assert.assertEquals(2, this.getNbSegments(directory));
+        Assert.assertTrue(new File(directory, "append.addl").isFile());
+
+        ResultStore store = new ResultStore(directory, 2);
+        Assert.assertEquals(5, store.size());
+        Assert.assertEquals(Arrays.asList("bug_1", "bug_3"), store.query(this.parse("wrapsIf>0")));
+        Assert.assertEquals(6, store.get("bug_4").getFeatures().get(1).getFeatureCounter("patchSizeCodeOnly"));
+
+        // an appended bug is visible at once, and superseded by a later write
+        store.append("bug_0", this.getFeatures(1, 1));
+        Assert.assertEquals(1, store.get("bug_0").getFeatures().get(0).getFeatureCounter("wrapsIf"));
+        store.write("bug_0", this.getFeatures(0, 2));
+        store.flush();
+        Assert.assertEquals(0, store.get("bug_0").getFeatures().get(0).getFeatureCounter("wrapsIf"));
+        Assert.assertFalse(new File(directory, "append.addl").exists());
+
+        store.compact();
+        Assert.assertEquals(3, this.getNbSegments(directory));
+        store = new ResultStore(directory, 2);
+        Assert.assertEquals(Arrays.asList("bug_1", "bug_2", "bug_3", "bug_4", "bug_0"), store.getBugIds());
+        Assert.assertEquals(2, store.get("bug_0").getFeatures().get(1).getFeatureCounter("patchSizeCodeOnly"));
+    }
+
+    @Test
+    public void testStoreOfManySmallSegmentsIsCompacted() throws Exception {
+        File directory = this.temporaryFolder.getRoot();
+        ResultStore store = new ResultStore(directory);
+        for (int i = 0; i < 300; i++) {
+            store.write("bug_" + (i % 200), this.getFeatures(i % 2, i));
+            store.flush();
+        }
+        Assert.assertEquals(300, this.getNbSegments(directory));
+        Assert.assertEquals(200, store.size());
+
+        store.compact();
+        Assert.assertEquals(1, this.getNbSegments(directory));
+        store = new ResultStore(directory);
+        Assert.assertEquals(200, store.size());
+        Assert.assertEquals(250, store.get("bug_50").getFeatures().get(1).getFeatureCounter("patchSizeCodeOnly"));
+        Assert.assertEquals(150, store.get("bug_150").getFeatures().get(1).getFeatureCounter("patchSizeCodeOnly"));
+    }
+
+    @Test
+    public void testAppendDuringCompactionIsKept() throws Exception {
+        final File directory = this.temporaryFolder.getRoot();
+        ResultStore store = new ResultStore(directory);
+        for (int i = 0; i < 200; i++) {
+            store.write("bug_" + i, this.getFeatures(0, i));
+            store.flush();
+        }
+        final Exception[] exception = new Exception[1];
+        Thread compaction = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    new ResultStore(directory).compact();
+                } catch (Exception e) {
+                    exception[0] = e;
+                }
+            }
+        });
+        compaction.start();
+        try (ResultStore otherStore = new ResultStore(directory)) {
+            otherStore.append("bug_7", this.getFeatures(1, 1000));
+        }
+        compaction.join();
+        Assert.assertNull(exception[0]);
+
+        store = new ResultStore(directory);
+        Assert.assertEquals(200, store.size());
+        Assert.assertEquals(1000, store.get("bug_7").getFeatures().get(1).getFeatureCounter("patchSizeCodeOnly"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownFeature() {
+        Predicate.parse("wrapsIff>0");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedPredicate() {
+        Predicate.parse("wrapsIf=>0");
+    }
+
+    private int getNbSegments(File directory) {
+        int nbSegments = 0;
+        for (File file : directory.listFiles()) {
+            if (file.getName().endsWith(".adds")) {
+                nbSegments++;
+            }
+        }
+        return nbSegments;
+    }
+
+    private List<Predicate> parse(String... predicates) {
+        List<Predicate> parsedPredicates = new ArrayList<>();
+        for (String predicate : predicates) {
+            parsedPredicates.add(Predicate.parse(predicate));
+        }
+        return parsedPredicates;
+    }
+
+    private FeatureList getFeatures(int wrapsIf, int patchSize) {
+        FeatureList features = new FeatureList(null);
+        RepairPatterns repairPatterns = new RepairPatterns();
+        repairPatterns.setFeatureCounter("wrapsIf", wrapsIf);
+        features.add(repairPatterns);
+        Metrics metrics = new Metrics();
+        metrics.setFeatureCounter("patchSizeCodeOnly", patchSize);
+        metrics.setFeatureCounter("nbFiles", 1);
+        features.add(metrics);
+        return features;
+    }
+
+}